@@ -0,0 +1,63 @@
+package net.cvs0.bytecode.benchmark;
+
+import net.cvs0.bytecode.analysis.DependencyAnalyzer;
+import net.cvs0.bytecode.analysis.UnusedCodeAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisBenchmark {
+
+    @Benchmark
+    public Map<String, Set<String>> buildDependencyGraph(JarState state) {
+        return DependencyAnalyzer.buildDependencyGraph(state.mapping);
+    }
+
+    @Benchmark
+    public Map<String, Set<String>> buildDependencyGraphCompact(JarState state) {
+        return DependencyAnalyzer.buildDependencyGraph(state.compactClasses);
+    }
+
+    @Benchmark
+    public List<String> topologicalOrder(JarState state) {
+        return DependencyAnalyzer.getTopologicalOrder(state.mapping);
+    }
+
+    @Benchmark
+    public Set<String> unusedMethods(JarState state) {
+        return UnusedCodeAnalyzer.findUnusedMethods(state.mapping);
+    }
+
+    @Benchmark
+    public Set<String> unusedMethodsCompact(JarState state) {
+        return UnusedCodeAnalyzer.findUnusedMethods(state.compactClasses);
+    }
+
+    @Benchmark
+    public Set<String> unusedFields(JarState state) {
+        return UnusedCodeAnalyzer.findUnusedFields(state.mapping);
+    }
+
+    @Benchmark
+    public Map<String, Integer> methodComplexity(JarState state) {
+        return UnusedCodeAnalyzer.getMethodComplexity(state.mapping);
+    }
+
+    @Benchmark
+    public Set<String> deadCode(JarState state) {
+        return UnusedCodeAnalyzer.findDeadCode(state.mapping);
+    }
+
+    @Benchmark
+    public List<String> largestMethods(JarState state) {
+        return UnusedCodeAnalyzer.getLargestMethods(state.mapping, 20);
+    }
+}
@@ -0,0 +1,50 @@
+package net.cvs0.bytecode.benchmark;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.CompactClass;
+import net.cvs0.bytecode.util.JarReader;
+import net.cvs0.bytecode.util.JarWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JarIoBenchmark {
+
+    private File outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        outputFile = Files.createTempFile("bench-out-", ".jar").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    @Benchmark
+    public JarMapping readJar(JarState state) throws IOException {
+        return JarMapping.fromJar(state.jarFile.getPath());
+    }
+
+    @Benchmark
+    public List<CompactClass> readJarCompact(JarState state) throws IOException {
+        return JarReader.readCompact(state.jarFile);
+    }
+
+    @Benchmark
+    public long writeJar(JarState state) throws IOException {
+        JarWriter.write(state.mapping, outputFile);
+        return outputFile.length();
+    }
+}
@@ -0,0 +1,56 @@
+package net.cvs0.bytecode.benchmark;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.CompactClass;
+import net.cvs0.bytecode.util.JarReader;
+import net.cvs0.bytecode.util.SyntheticJarGenerator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Shared benchmark input: a jar of {@link #classCount} classes from
+ * {@link SyntheticJarGenerator}, written once per trial, plus a mapping loaded from it. The
+ * generator is seeded with the class count so every run sees the same archive. The same
+ * classes are also read as {@link CompactClass} for the analysis-only benchmarks.
+ */
+@State(Scope.Benchmark)
+public class JarState {
+
+    @Param({"100", "1000", "10000"})
+    public int classCount;
+
+    public File jarFile;
+    public JarMapping mapping;
+    public List<CompactClass> compactClasses;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        jarFile = Files.createTempFile("bench-" + classCount + "-", ".jar").toFile();
+        new SyntheticJarGenerator()
+                .seed(classCount)
+                .classCount(classCount)
+                .cycles(classCount / 100, 3)
+                .resources(classCount / 10, 2048)
+                .writeJar(jarFile);
+        mapping = JarMapping.fromJar(jarFile.getPath());
+        compactClasses = JarReader.readCompact(jarFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jarFile.delete();
+    }
+
+    public JarMapping freshMapping() throws IOException {
+        return JarMapping.fromJar(jarFile.getPath());
+    }
+}
@@ -0,0 +1,55 @@
+package net.cvs0.bytecode.benchmark;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramField;
+import net.cvs0.bytecode.plugin.PluginManager;
+import net.cvs0.bytecode.plugin.impl.OptimizationPlugin;
+import net.cvs0.bytecode.transform.ClassTransformer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for stages that mutate the mapping. Each invocation works on a freshly
+ * loaded mapping; loading is done in an invocation-level setup and is not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TransformBenchmark {
+
+    private JarMapping mapping;
+
+    @Setup(Level.Invocation)
+    public void loadMapping(JarState state) throws IOException {
+        mapping = state.freshMapping();
+    }
+
+    @Benchmark
+    public JarMapping applyTransformations() {
+        ClassTransformer transformer = new ClassTransformer(mapping);
+        int counter = 0;
+        for (ProgramClass clazz : mapping.getProgramClasses()) {
+            transformer.renameClass(clazz.getName(), "renamed/C" + counter++);
+            for (ProgramField field : clazz.getFields()) {
+                transformer.renameField(clazz.getName(), field.getName(), "f" + counter++);
+            }
+            transformer.renameMethod(clazz.getName(), "method0", "(I)I", "m" + counter++);
+        }
+        transformer.applyTransformations();
+        return mapping;
+    }
+
+    @Benchmark
+    public JarMapping processWithPlugins() {
+        PluginManager manager = new PluginManager();
+        manager.registerPlugin(new OptimizationPlugin());
+        manager.processWithPlugins(mapping);
+        return mapping;
+    }
+}
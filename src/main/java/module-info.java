@@ -1,5 +1,10 @@
 module bytecode.processor {
     requires org.objectweb.asm.tree;
+    requires org.objectweb.asm.commons;
+    requires java.management;
+    requires jdk.management;
+    requires jdk.jfr;
+    requires info.picocli;
 
     exports net.cvs0.bytecode;
     exports net.cvs0.bytecode.attribute;
@@ -7,8 +12,11 @@ module bytecode.processor {
     exports net.cvs0.bytecode.analysis;
     exports net.cvs0.bytecode.util;
     exports net.cvs0.bytecode.clazz;
+    exports net.cvs0.bytecode.event;
     exports net.cvs0.bytecode.instruction;
     exports net.cvs0.bytecode.plugin;
     exports net.cvs0.bytecode.test;
     exports net.cvs0.bytecode.transform;
+
+    opens net.cvs0.bytecode.test to info.picocli;
 }
@@ -4,16 +4,18 @@ import net.cvs0.bytecode.clazz.LibraryClass;
 import net.cvs0.bytecode.clazz.ProgramClass;
 import net.cvs0.bytecode.util.JarReader;
 import net.cvs0.bytecode.util.JarWriter;
+import net.cvs0.bytecode.util.ResourceHandle;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 public class JarMapping {
     private final Map<String, ProgramClass> programClasses = new ConcurrentHashMap<>();
     private final Map<String, LibraryClass> libraryClasses = new ConcurrentHashMap<>();
-    private final Map<String, byte[]> resources = new ConcurrentHashMap<>();
+    private final Map<String, ResourceHandle> resources = new ConcurrentHashMap<>();
     private final String jarPath;
     
     public JarMapping(String jarPath) {
@@ -26,6 +28,15 @@ public class JarMapping {
         return mapping;
     }
     
+    /**
+     * Loads a jar, parsing its classes in parallel on {@code pool}.
+     */
+    public static JarMapping fromJar(String jarPath, ForkJoinPool pool) throws IOException {
+        JarMapping mapping = new JarMapping(jarPath);
+        JarReader.read(new File(jarPath), mapping, pool);
+        return mapping;
+    }
+    
     public void addClass(ProgramClass clazz) {
         programClasses.put(clazz.getName(), clazz);
     }
@@ -35,7 +46,11 @@ public class JarMapping {
     }
     
     public void addResource(String name, byte[] data) {
-        resources.put(name, data);
+        resources.put(name, ResourceHandle.of(data));
+    }
+    
+    public void addResource(String name, ResourceHandle handle) {
+        resources.put(name, handle);
     }
     
     public ProgramClass getProgramClass(String name) {
@@ -46,7 +61,16 @@ public class JarMapping {
         return libraryClasses.get(name);
     }
     
+    /**
+     * Returns the contents of a resource, reading them from the source archive if the
+     * resource has not been replaced in memory.
+     */
     public byte[] getResource(String name) {
+        ResourceHandle handle = resources.get(name);
+        return handle != null ? handle.getBytes() : null;
+    }
+    
+    public ResourceHandle getResourceHandle(String name) {
         return resources.get(name);
     }
     
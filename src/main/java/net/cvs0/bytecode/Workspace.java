@@ -0,0 +1,408 @@
+package net.cvs0.bytecode;
+
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.util.JarReader;
+import net.cvs0.bytecode.util.ResourceHandle;
+import org.objectweb.asm.ClassReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Many archives loaded into one model, such as an application jar together with its
+ * dependencies.
+ *
+ * <p>Archives are scanned in parallel and every class is identified by a hash of its bytes.
+ * When the same class name is defined by more than one archive, the archive that comes first
+ * on the classpath wins, the same rule the JVM applies. Only the winning definitions are
+ * parsed, and they are kept in a pool keyed by content hash, so a class that is copied
+ * unchanged into several archives is held once. Shadowed definitions that differ from the
+ * winner are reported as conflicts and can be parsed on demand with
+ * {@link #loadClass(Origin, String)}.
+ *
+ * <p>{@link #getMapping()} exposes the resolved classpath as a single {@link JarMapping}, so
+ * the existing analyses run across all archives at once. Resources are resolved by
+ * classpath order as well and stay lazy handles into their archives.
+ *
+ * <p>Classes under {@code META-INF/}, including multi-release versions, and
+ * {@code module-info.class} are not loadable from the classpath and are treated as
+ * resources of their archive.
+ */
+public class Workspace {
+    private final List<Origin> origins;
+    private final Map<String, Origin> classOrigins;
+    private final Map<String, ProgramClass> classPool;
+    private final List<Conflict> conflicts;
+    private final JarMapping mapping;
+
+    private Workspace(List<Origin> origins, Map<String, Origin> classOrigins, Map<String, ProgramClass> classPool,
+                      List<Conflict> conflicts, JarMapping mapping) {
+        this.origins = Collections.unmodifiableList(origins);
+        this.classOrigins = classOrigins;
+        this.classPool = classPool;
+        this.conflicts = Collections.unmodifiableList(conflicts);
+        this.mapping = mapping;
+    }
+
+    public static Workspace load(List<File> classpath) throws IOException {
+        return load(classpath, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads the archives of {@code classpath}, in that order of precedence, scanning and
+     * parsing them in parallel on {@code pool}.
+     */
+    public static Workspace load(List<File> classpath, ForkJoinPool pool) throws IOException {
+        List<Origin> origins = new ArrayList<>();
+        for (int i = 0; i < classpath.size(); i++) {
+            origins.add(new Origin(i, classpath.get(i)));
+        }
+
+        runParallel(pool, origins, Origin::scan);
+
+        Map<String, Origin> classOrigins = new HashMap<>();
+        Map<String, List<Origin>> shadowed = new LinkedHashMap<>();
+        JarMapping mapping = new JarMapping(joinPaths(classpath));
+        for (Origin origin : origins) {
+            for (String className : origin.classHashes.keySet()) {
+                if (classOrigins.putIfAbsent(className, origin) != null) {
+                    shadowed.computeIfAbsent(className, k -> new ArrayList<>()).add(origin);
+                }
+            }
+            for (Map.Entry<String, ResourceHandle> resource : origin.resources.entrySet()) {
+                if (mapping.getResourceHandle(resource.getKey()) == null) {
+                    mapping.addResource(resource.getKey(), resource.getValue());
+                }
+            }
+        }
+
+        List<Conflict> conflicts = new ArrayList<>();
+        for (Map.Entry<String, List<Origin>> entry : shadowed.entrySet()) {
+            conflicts.add(new Conflict(entry.getKey(), classOrigins.get(entry.getKey()), entry.getValue()));
+        }
+
+        Map<String, ProgramClass> classPool = new ConcurrentHashMap<>();
+        runParallel(pool, origins, origin -> origin.parseWinners(classOrigins, classPool));
+        for (Map.Entry<String, Origin> entry : classOrigins.entrySet()) {
+            mapping.addClass(classPool.get(entry.getValue().classHashes.get(entry.getKey())));
+        }
+
+        return new Workspace(origins, classOrigins, classPool, conflicts, mapping);
+    }
+
+    /**
+     * Returns the archives in classpath order.
+     */
+    public List<Origin> getOrigins() {
+        return origins;
+    }
+
+    /**
+     * Returns the archive whose definition of {@code className} wins, or {@code null} if no
+     * archive defines it.
+     */
+    public Origin getOrigin(String className) {
+        return classOrigins.get(className);
+    }
+
+    /**
+     * Returns the winning definition of {@code className}.
+     */
+    public ProgramClass getProgramClass(String className) {
+        return mapping.getProgramClass(className);
+    }
+
+    /**
+     * Returns the class as defined by {@code origin}. A definition identical to one already
+     * in the pool is returned from the pool; a shadowed definition that differs is read from
+     * the archive and parsed on every call, so it is never retained by the workspace.
+     *
+     * @return the class, or {@code null} if {@code origin} does not define it
+     */
+    public ProgramClass loadClass(Origin origin, String className) throws IOException {
+        String hash = origin.getContentHash(className);
+        if (hash == null) {
+            return null;
+        }
+        ProgramClass pooled = classPool.get(hash);
+        if (pooled != null) {
+            return pooled;
+        }
+        try (JarFile jar = new JarFile(origin.file)) {
+            return JarReader.readClass(origin.readClassBytes(jar, className));
+        }
+    }
+
+    /**
+     * Returns the resolved classpath: the winning definition of every class and every
+     * resource. Classes are shared with the workspace, so changes made through the mapping
+     * are visible here.
+     */
+    public JarMapping getMapping() {
+        return mapping;
+    }
+
+    /**
+     * Returns the class names defined by more than one archive, in classpath order of their
+     * first shadowed definition.
+     */
+    public List<Conflict> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Returns the number of distinct classes on the classpath.
+     */
+    public int getClassCount() {
+        return classOrigins.size();
+    }
+
+    /**
+     * Returns the number of class entries across all archives, counting every copy.
+     */
+    public int getClassEntryCount() {
+        int count = 0;
+        for (Origin origin : origins) {
+            count += origin.classHashes.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of shadowed class entries whose bytes are identical to the winning
+     * definition, and which therefore share its pooled instance.
+     */
+    public int getDuplicateCount() {
+        int count = 0;
+        for (Conflict conflict : conflicts) {
+            for (Origin origin : conflict.shadowed) {
+                if (conflict.isIdentical(origin)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static String joinPaths(List<File> classpath) {
+        StringJoiner joiner = new StringJoiner(File.pathSeparator);
+        for (File file : classpath) {
+            joiner.add(file.getPath());
+        }
+        return joiner.toString();
+    }
+
+    private static void runParallel(ForkJoinPool pool, List<Origin> origins, OriginTask task) throws IOException {
+        try {
+            pool.submit(() -> origins.parallelStream().forEach(origin -> {
+                try {
+                    task.run(origin);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })).join();
+        } catch (RuntimeException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+            }
+            throw e;
+        }
+    }
+
+    private interface OriginTask {
+        void run(Origin origin) throws IOException;
+    }
+
+    /**
+     * One archive on the classpath and what it contributed.
+     */
+    public static class Origin {
+        private static final HexFormat HEX = HexFormat.of();
+
+        private final int index;
+        private final File file;
+        private final Map<String, String> classHashes = new LinkedHashMap<>();
+        private final Map<String, String> classEntries = new HashMap<>();
+        private final Map<String, ResourceHandle> resources = new LinkedHashMap<>();
+        private long classBytes;
+
+        Origin(int index, File file) {
+            this.index = index;
+            this.file = file;
+        }
+
+        /**
+         * Returns the position of this archive on the classpath, starting at 0.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Returns the classes this archive defines, whether or not they are shadowed.
+         */
+        public Set<String> getClassNames() {
+            return Collections.unmodifiableSet(classHashes.keySet());
+        }
+
+        public Set<String> getResourceNames() {
+            return Collections.unmodifiableSet(resources.keySet());
+        }
+
+        /**
+         * Returns the SHA-256 of the class file bytes as hex, or {@code null} if this archive
+         * does not define {@code className}.
+         */
+        public String getContentHash(String className) {
+            return classHashes.get(className);
+        }
+
+        /**
+         * Returns the total size of the class files in this archive.
+         */
+        public long getClassBytes() {
+            return classBytes;
+        }
+
+        @Override
+        public String toString() {
+            return file.getPath();
+        }
+
+        private void scan() throws IOException {
+            MessageDigest digest = sha256();
+            try (JarFile jar = new JarFile(file)) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    if (!isClassEntry(entry.getName())) {
+                        resources.putIfAbsent(entry.getName(), ResourceHandle.archived(file, entry));
+                        continue;
+                    }
+
+                    byte[] bytes;
+                    try (InputStream inputStream = jar.getInputStream(entry)) {
+                        bytes = inputStream.readAllBytes();
+                    }
+                    String className = new ClassReader(bytes).getClassName();
+                    if (classHashes.putIfAbsent(className, HEX.formatHex(digest.digest(bytes))) == null) {
+                        classEntries.put(className, entry.getName());
+                        classBytes += bytes.length;
+                    }
+                }
+            }
+        }
+
+        private void parseWinners(Map<String, Origin> classOrigins, Map<String, ProgramClass> classPool)
+                throws IOException {
+            try (JarFile jar = new JarFile(file)) {
+                for (Map.Entry<String, String> entry : classHashes.entrySet()) {
+                    if (classOrigins.get(entry.getKey()) == this) {
+                        classPool.put(entry.getValue(), JarReader.readClass(readClassBytes(jar, entry.getKey())));
+                    }
+                }
+            }
+        }
+
+        private byte[] readClassBytes(JarFile jar, String className) throws IOException {
+            JarEntry entry = jar.getJarEntry(classEntries.get(className));
+            if (entry == null) {
+                throw new IOException(className + " is no longer in " + file);
+            }
+            try (InputStream inputStream = jar.getInputStream(entry)) {
+                return inputStream.readAllBytes();
+            }
+        }
+
+        private static boolean isClassEntry(String entryName) {
+            return entryName.endsWith(".class")
+                    && !entryName.startsWith("META-INF/")
+                    && !entryName.equals("module-info.class");
+        }
+
+        private static MessageDigest sha256() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+
+    /**
+     * A class name defined by more than one archive.
+     */
+    public static class Conflict {
+        private final String className;
+        private final Origin winner;
+        private final List<Origin> shadowed;
+
+        Conflict(String className, Origin winner, List<Origin> shadowed) {
+            this.className = className;
+            this.winner = winner;
+            this.shadowed = Collections.unmodifiableList(shadowed);
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * Returns the archive whose definition is used.
+         */
+        public Origin getWinner() {
+            return winner;
+        }
+
+        /**
+         * Returns the other archives that define the class, in classpath order.
+         */
+        public List<Origin> getShadowed() {
+            return shadowed;
+        }
+
+        /**
+         * Whether {@code origin}'s definition has the same bytes as the winning one.
+         */
+        public boolean isIdentical(Origin origin) {
+            return winner.getContentHash(className).equals(origin.getContentHash(className));
+        }
+
+        /**
+         * Whether every shadowed definition has the same bytes as the winning one, in which
+         * case the conflict is harmless.
+         */
+        public boolean isIdentical() {
+            for (Origin origin : shadowed) {
+                if (!isIdentical(origin)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return className + " from " + winner + (isIdentical() ? " (identical copies in " : " (shadows ")
+                    + shadowed + ")";
+        }
+    }
+}
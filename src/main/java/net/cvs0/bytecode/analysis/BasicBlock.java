@@ -0,0 +1,96 @@
+package net.cvs0.bytecode.analysis;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A maximal straight-line run of instructions inside a {@link ControlFlowGraph}.
+ *
+ * <p>Instructions are addressed by their index in the method's {@code InsnList};
+ * a block covers the half-open range {@code [start, end)}.
+ */
+public class BasicBlock {
+    private final int index;
+    private final int start;
+    private final int end;
+    private final List<BasicBlock> successors = new ArrayList<>();
+    private final List<BasicBlock> predecessors = new ArrayList<>();
+    private int reversePostOrderIndex = -1;
+
+    BasicBlock(int index, int start, int end) {
+        this.index = index;
+        this.start = start;
+        this.end = end;
+    }
+
+    void addSuccessor(BasicBlock successor) {
+        if (!successors.contains(successor)) {
+            successors.add(successor);
+            successor.predecessors.add(this);
+        }
+    }
+
+    void setReversePostOrderIndex(int reversePostOrderIndex) {
+        this.reversePostOrderIndex = reversePostOrderIndex;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public int size() {
+        return end - start;
+    }
+
+    public List<BasicBlock> getSuccessors() {
+        return Collections.unmodifiableList(successors);
+    }
+
+    public List<BasicBlock> getPredecessors() {
+        return Collections.unmodifiableList(predecessors);
+    }
+
+    /**
+     * Returns this block's position in reverse post-order, or {@code -1} if it is unreachable.
+     */
+    public int getReversePostOrderIndex() {
+        return reversePostOrderIndex;
+    }
+
+    public boolean isReachable() {
+        return reversePostOrderIndex >= 0;
+    }
+
+    public boolean contains(int instructionIndex) {
+        return instructionIndex >= start && instructionIndex < end;
+    }
+
+    public AbstractInsnNode getFirstInstruction(ControlFlowGraph cfg) {
+        return cfg.getInstruction(start);
+    }
+
+    public AbstractInsnNode getLastInstruction(ControlFlowGraph cfg) {
+        return cfg.getInstruction(end - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "BasicBlock{" +
+                "index=" + index +
+                ", start=" + start +
+                ", end=" + end +
+                ", successors=" + successors.size() +
+                '}';
+    }
+}
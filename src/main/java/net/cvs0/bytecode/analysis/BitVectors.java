@@ -0,0 +1,130 @@
+package net.cvs0.bytecode.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Static helpers for packed {@code long[]} bit vectors used as dataflow lattice values.
+ *
+ * <p>Bit {@code i} lives in word {@code i >>> 6}. All binary operations assume both
+ * vectors were allocated with {@link #create(int)} for the same domain size.
+ */
+public final class BitVectors {
+
+    private BitVectors() {
+    }
+
+    /**
+     * Allocates an empty vector able to hold {@code size} bits.
+     */
+    public static long[] create(int size) {
+        return new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * Allocates a vector with the first {@code size} bits set.
+     */
+    public static long[] full(int size) {
+        long[] vector = create(size);
+        fill(vector, size);
+        return vector;
+    }
+
+    public static void fill(long[] vector, int size) {
+        Arrays.fill(vector, -1L);
+        int tail = size & 63;
+        if (tail != 0 && vector.length > 0) {
+            vector[vector.length - 1] = (1L << tail) - 1;
+        }
+    }
+
+    public static void clear(long[] vector) {
+        Arrays.fill(vector, 0L);
+    }
+
+    public static boolean get(long[] vector, int bit) {
+        return (vector[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public static void set(long[] vector, int bit) {
+        vector[bit >>> 6] |= 1L << bit;
+    }
+
+    public static void unset(long[] vector, int bit) {
+        vector[bit >>> 6] &= ~(1L << bit);
+    }
+
+    public static void copy(long[] source, long[] target) {
+        System.arraycopy(source, 0, target, 0, source.length);
+    }
+
+    public static void or(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= other[i];
+        }
+    }
+
+    public static void and(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= other[i];
+        }
+    }
+
+    public static void andNot(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= ~other[i];
+        }
+    }
+
+    /**
+     * Computes {@code target = gen | (source & ~kill)} and reports whether {@code target} changed.
+     */
+    public static boolean transfer(long[] source, long[] gen, long[] kill, long[] target) {
+        boolean changed = false;
+        for (int i = 0; i < target.length; i++) {
+            long value = gen[i] | (source[i] & ~kill[i]);
+            if (value != target[i]) {
+                target[i] = value;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public static int cardinality(long[] vector) {
+        int count = 0;
+        for (long word : vector) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public static boolean isEmpty(long[] vector) {
+        for (long word : vector) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the first set bit at or after {@code from}, or {@code -1}.
+     */
+    public static int nextSetBit(long[] vector, int from) {
+        int wordIndex = from >>> 6;
+        if (wordIndex >= vector.length) {
+            return -1;
+        }
+
+        long word = vector[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == vector.length) {
+                return -1;
+            }
+            word = vector[wordIndex];
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.LibraryClass;
+import net.cvs0.bytecode.clazz.ProgramClass;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Predicts the classes an application loads at startup and writes them as a CDS class list,
+ * the file read by {@code -XX:SharedClassListFile} when dumping an AppCDS archive:
+ * <pre>
+ * java -Xshare:dump -XX:SharedClassListFile=app.classlist -XX:SharedArchiveFile=app.jsa -cp app.jar
+ * </pre>
+ *
+ * <p>The prediction starts at the entry points and follows the dependency graph of the
+ * program classes. Library and JDK classes that are referenced are included together with
+ * their supertypes, which the JVM loads with them, but their own references are not
+ * followed. This over-approximates what a run loads, since every referenced class counts,
+ * and misses what is only loaded reflectively, so an observed list from a training run with
+ * {@code -XX:DumpLoadedClassList} can be merged in with {@link #merge}.
+ *
+ * <p>Each class is listed after its supertypes, the order in which the JVM defines them.
+ */
+public class CdsClassList {
+
+    /**
+     * Returns the predicted class list, starting from the entry points found by
+     * {@link ClassOrder#findEntryPoints(JarMapping)} and resolving classes outside the
+     * program in the mapping and then through the platform class loader.
+     */
+    public static List<String> compute(JarMapping mapping) {
+        return compute(mapping, ClassOrder.findEntryPoints(mapping), className -> {
+            LibraryClass libraryClass = mapping.getLibraryClass(className);
+            return libraryClass != null ? libraryClass : MethodFamilies.loadPlatformClass(className);
+        });
+    }
+
+    /**
+     * Returns the predicted class list.
+     *
+     * @param mapping the program classes
+     * @param entryPoints internal names of the classes the application starts from
+     * @param libraryResolver looks up classes outside the program, returning {@code null}
+     *        for unknown classes, which are left out of the list
+     */
+    public static List<String> compute(JarMapping mapping, Collection<String> entryPoints,
+                                       Function<String, LibraryClass> libraryResolver) {
+        Map<String, Set<String>> graph = new HashMap<>();
+        DependencyAnalyzer.buildDependencyGraph(mapping)
+                .forEach((name, dependencies) -> graph.put(name, new TreeSet<>(dependencies)));
+
+        Map<String, List<String>> supertypes = new LinkedHashMap<>();
+        Deque<String> queue = new ArrayDeque<>();
+        for (String entryPoint : entryPoints) {
+            if (graph.containsKey(entryPoint) && !supertypes.containsKey(entryPoint)) {
+                supertypes.put(entryPoint, supertypes(mapping, entryPoint));
+                queue.offer(entryPoint);
+            }
+        }
+
+        Map<String, LibraryClass> libraries = new HashMap<>();
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            Collection<String> next = graph.containsKey(name) ? graph.get(name) : supertypes.get(name);
+            for (String dependency : next) {
+                if (supertypes.containsKey(dependency) || dependency.startsWith("[")) {
+                    continue;
+                }
+                List<String> dependencySupertypes;
+                if (graph.containsKey(dependency)) {
+                    dependencySupertypes = supertypes(mapping, dependency);
+                } else {
+                    LibraryClass libraryClass = libraries.computeIfAbsent(dependency, libraryResolver);
+                    if (libraryClass == null) {
+                        continue;
+                    }
+                    dependencySupertypes = supertypes(libraryClass.getSuperName(), libraryClass.getInterfaces());
+                }
+                supertypes.put(dependency, dependencySupertypes);
+                queue.offer(dependency);
+            }
+        }
+
+        LinkedHashSet<String> ordered = new LinkedHashSet<>();
+        for (String name : supertypes.keySet()) {
+            addWithSupertypes(name, supertypes, ordered);
+        }
+        return new ArrayList<>(ordered);
+    }
+
+    private static List<String> supertypes(JarMapping mapping, String className) {
+        ProgramClass clazz = mapping.getProgramClass(className);
+        return supertypes(clazz.getSuperName(), clazz.getInterfaces());
+    }
+
+    private static List<String> supertypes(String superName, List<String> interfaces) {
+        List<String> supertypes = new ArrayList<>();
+        if (superName != null) {
+            supertypes.add(superName);
+        }
+        supertypes.addAll(interfaces);
+        return supertypes;
+    }
+
+    /**
+     * Adds the supertypes of {@code name} that are in the list before the class itself.
+     * Cycles cannot occur in a valid hierarchy; a malformed one is cut where it repeats.
+     */
+    private static void addWithSupertypes(String name, Map<String, List<String>> supertypes,
+                                          LinkedHashSet<String> ordered) {
+        if (ordered.contains(name)) {
+            return;
+        }
+
+        Deque<String> path = new ArrayDeque<>();
+        Deque<Iterator<String>> pending = new ArrayDeque<>();
+        Set<String> onPath = new HashSet<>();
+        path.push(name);
+        pending.push(supertypes.get(name).iterator());
+        onPath.add(name);
+
+        while (!path.isEmpty()) {
+            Iterator<String> iterator = pending.peek();
+            if (iterator.hasNext()) {
+                String supertype = iterator.next();
+                if (supertypes.containsKey(supertype) && !ordered.contains(supertype) && onPath.add(supertype)) {
+                    path.push(supertype);
+                    pending.push(supertypes.get(supertype).iterator());
+                }
+            } else {
+                pending.pop();
+                ordered.add(path.pop());
+            }
+        }
+    }
+
+    /**
+     * Returns the observed classes first, in the order they were loaded, followed by the
+     * predicted classes that were not observed.
+     */
+    public static List<String> merge(List<String> predicted, List<String> observed) {
+        LinkedHashSet<String> merged = new LinkedHashSet<>(observed);
+        merged.addAll(predicted);
+        return new ArrayList<>(merged);
+    }
+
+    /**
+     * Reads the class names of a class list, such as one written by
+     * {@code -XX:DumpLoadedClassList}. Comments and {@code @} directives, which describe
+     * lambda proxies and other generated classes, are skipped, as are the {@code id:} and
+     * {@code source:} details that follow a name.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    public static List<String> read(Path file) throws IOException {
+        LinkedHashSet<String> names = new LinkedHashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.charAt(0) == '#' || line.charAt(0) == '@') {
+                    continue;
+                }
+                int space = line.indexOf(' ');
+                names.add(space < 0 ? line : line.substring(0, space));
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Writes {@code classes} in the class list format, one internal name per line.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(List<String> classes, Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("# Class list predicted by static analysis\n");
+            for (String name : classes) {
+                writer.write(name);
+                writer.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramMethod;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Computes the order in which classes are written to a jar, for use with
+ * {@link net.cvs0.bytecode.util.JarWriter#write(JarMapping, java.io.File, List)}.
+ *
+ * <p>The JVM reads each class from the jar when it is first loaded. Placing classes in the
+ * order they are loaded means startup reads the archive front to back, so the pages it
+ * touches are contiguous and read-ahead is useful. Two predictions are offered: a static one
+ * from the dependency graph ({@link #startup}) and an observed one from a class loading log
+ * ({@link #fromClassLoadLog}). For long-running services, {@link #byProfile} instead packs
+ * the classes that are hot at steady state together. Every order is complete: it names each
+ * program class exactly once, with classes the prediction does not reach appended by name,
+ * so that packages and nested classes stay together.
+ */
+public class ClassOrder {
+
+    /**
+     * Returns the program classes sorted by name.
+     */
+    public static List<String> byName(JarMapping mapping) {
+        List<String> names = new ArrayList<>();
+        for (ProgramClass clazz : mapping.getProgramClasses()) {
+            names.add(clazz.getName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Returns the classes in predicted load order, starting from the entry points found by
+     * {@link #findEntryPoints(JarMapping)}.
+     */
+    public static List<String> startup(JarMapping mapping) {
+        return startup(mapping, findEntryPoints(mapping));
+    }
+
+    /**
+     * Returns the classes in predicted load order: the entry points first, then the classes
+     * they depend on in breadth-first order over
+     * {@link DependencyAnalyzer#buildDependencyGraph(JarMapping)}, so classes loaded together
+     * are written next to each other. Dependencies of one class are visited by name to keep
+     * the order stable between runs.
+     *
+     * @param mapping the classes to order
+     * @param entryPoints internal names of the classes loaded first
+     */
+    public static List<String> startup(JarMapping mapping, Collection<String> entryPoints) {
+        Map<String, Set<String>> graph = new HashMap<>();
+        DependencyAnalyzer.buildDependencyGraph(mapping)
+                .forEach((name, dependencies) -> graph.put(name, new TreeSet<>(dependencies)));
+
+        List<String> roots = new ArrayList<>();
+        for (String entryPoint : entryPoints) {
+            if (graph.containsKey(entryPoint)) {
+                roots.add(entryPoint);
+            }
+        }
+
+        LinkedHashSet<String> order = new LinkedHashSet<>();
+        for (String name : DependencyAnalyzer.findReachableClasses(graph, roots)) {
+            if (graph.containsKey(name)) {
+                order.add(name);
+            }
+        }
+        return complete(mapping, order);
+    }
+
+    /**
+     * Returns the classes in the order a previous run loaded them, as recorded with
+     * {@code -Xlog:class+load} or {@code -verbose:class}. Classes the log does not mention
+     * follow in the order of {@link #startup(JarMapping)}.
+     *
+     * @throws IOException if the log cannot be read
+     */
+    public static List<String> fromClassLoadLog(JarMapping mapping, Path log) throws IOException {
+        LinkedHashSet<String> order = new LinkedHashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String name = parseLoadedClass(line);
+                if (name != null && mapping.getProgramClass(name) != null) {
+                    order.add(name);
+                }
+            }
+        }
+        order.addAll(startup(mapping));
+        return new ArrayList<>(order);
+    }
+
+    /**
+     * Returns the classes that ran in a profile first, hottest first by the self samples of
+     * their methods, so the code that runs most shares the fewest pages. The classes without
+     * samples follow in the order of {@link #startup(JarMapping)}.
+     */
+    public static List<String> byProfile(JarMapping mapping, MethodProfile profile) {
+        Map<String, Long> classSamples = new HashMap<>();
+        for (String name : byName(mapping)) {
+            long samples = profile.getClassSamples(name);
+            if (samples > 0) {
+                classSamples.put(name, samples);
+            }
+        }
+        List<String> hot = new ArrayList<>(classSamples.keySet());
+        hot.sort(Comparator.<String>comparingLong(classSamples::get).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+
+        LinkedHashSet<String> order = new LinkedHashSet<>(hot);
+        order.addAll(startup(mapping));
+        return new ArrayList<>(order);
+    }
+
+    /**
+     * Returns the internal name of the class a log line reports as loaded, or {@code null}.
+     * Both the unified logging format, {@code [0.031s][info][class,load] com.example.Main
+     * source: file:/app.jar}, and the JDK 8 format, {@code [Loaded com.example.Main from
+     * file:/app.jar]}, are understood.
+     */
+    static String parseLoadedClass(String line) {
+        int start;
+        int tag = line.indexOf("[class,load]");
+        if (tag >= 0) {
+            start = tag + "[class,load]".length();
+        } else if (line.startsWith("[Loaded ")) {
+            start = "[Loaded ".length();
+        } else {
+            return null;
+        }
+
+        while (start < line.length() && line.charAt(start) == ' ') {
+            start++;
+        }
+        int end = line.indexOf(' ', start);
+        if (end < 0) {
+            end = line.length();
+        }
+        return end > start ? line.substring(start, end).replace('.', '/') : null;
+    }
+
+    /**
+     * Returns the classes the application starts from: the {@code Main-Class},
+     * {@code Premain-Class}, {@code Agent-Class} and {@code Launcher-Agent-Class} of the
+     * manifest, or, without a manifest naming one, every class declaring
+     * {@code public static void main(String[])}, by name.
+     */
+    public static List<String> findEntryPoints(JarMapping mapping) {
+        List<String> entryPoints = new ArrayList<>();
+        byte[] manifestData = mapping.getResource(JarFile.MANIFEST_NAME);
+        if (manifestData != null) {
+            try {
+                Attributes attributes = new Manifest(new ByteArrayInputStream(manifestData)).getMainAttributes();
+                for (String key : new String[] {"Main-Class", "Premain-Class", "Agent-Class", "Launcher-Agent-Class"}) {
+                    String value = attributes.getValue(key);
+                    if (value != null && !value.isBlank()) {
+                        entryPoints.add(value.strip().replace('.', '/'));
+                    }
+                }
+            } catch (IOException e) {
+                // An unreadable manifest names no entry point; fall back to main methods.
+            }
+        }
+        if (!entryPoints.isEmpty()) {
+            return entryPoints;
+        }
+
+        for (String name : byName(mapping)) {
+            for (ProgramMethod method : mapping.getProgramClass(name).getMethods()) {
+                if (method.isPublic() && method.isStatic() && "main".equals(method.getName())
+                        && "([Ljava/lang/String;)V".equals(method.getDescriptor())) {
+                    entryPoints.add(name);
+                    break;
+                }
+            }
+        }
+        return entryPoints;
+    }
+
+    private static List<String> complete(JarMapping mapping, LinkedHashSet<String> order) {
+        order.addAll(byName(mapping));
+        return new ArrayList<>(order);
+    }
+}
@@ -0,0 +1,416 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.clazz.ProgramClass;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stable 64-bit content hashes of classes, fields and method bodies.
+ *
+ * <p>Hashes are computed from the symbolic content of the ASM tree: owners, names,
+ * descriptors and constants are hashed as values, never as constant pool indices, so
+ * the same class compiled or rewritten with a different constant pool order hashes the
+ * same. Labels are hashed by the position of the instruction they mark, and line numbers,
+ * stack map frames and local variable tables are ignored. Annotations and the attributes
+ * that change how a class links, such as its nest and permitted subclasses, are part of
+ * the hash.
+ *
+ * <p>Equal content always gives equal hashes. Different content gives different hashes
+ * with overwhelming probability; callers that must be certain compare the bodies as well.
+ */
+public final class CodeHash {
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private CodeHash() {
+    }
+
+    /**
+     * Hashes the header of a class: access flags, name, signature, superclass, interfaces,
+     * annotations, enclosing method, nest, inner classes, record components and permitted
+     * subclasses. Members are not included.
+     */
+    public static long hashClassHeader(ProgramClass clazz) {
+        Hasher hasher = new Hasher();
+        hasher.putInt(clazz.getAccess());
+        hasher.putString(clazz.getName());
+        hasher.putString(clazz.getSignature());
+        hasher.putString(clazz.getSuperName());
+        putStrings(hasher, clazz.getInterfaces());
+
+        ClassNode classNode = clazz.getClassNode();
+        if (classNode == null) {
+            return hasher.finish();
+        }
+        putAnnotations(hasher, classNode.visibleAnnotations, classNode.invisibleAnnotations,
+                classNode.visibleTypeAnnotations, classNode.invisibleTypeAnnotations);
+        hasher.putString(classNode.outerClass);
+        hasher.putString(classNode.outerMethod);
+        hasher.putString(classNode.outerMethodDesc);
+        hasher.putString(classNode.nestHostClass);
+        putStrings(hasher, classNode.nestMembers);
+        putStrings(hasher, classNode.permittedSubclasses);
+        hasher.putInt(classNode.innerClasses.size());
+        for (InnerClassNode innerClass : classNode.innerClasses) {
+            hasher.putString(innerClass.name);
+            hasher.putString(innerClass.outerName);
+            hasher.putString(innerClass.innerName);
+            hasher.putInt(innerClass.access);
+        }
+        if (classNode.recordComponents == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(classNode.recordComponents.size());
+            for (RecordComponentNode component : classNode.recordComponents) {
+                hasher.putString(component.name);
+                hasher.putString(component.descriptor);
+                hasher.putString(component.signature);
+                putAnnotations(hasher, component.visibleAnnotations, component.invisibleAnnotations,
+                        component.visibleTypeAnnotations, component.invisibleTypeAnnotations);
+            }
+        }
+        return hasher.finish();
+    }
+
+    /**
+     * Hashes a field: access flags, name, descriptor, signature, constant value and
+     * annotations.
+     */
+    public static long hashField(FieldNode fieldNode) {
+        Hasher hasher = new Hasher();
+        hasher.putInt(fieldNode.access);
+        hasher.putString(fieldNode.name);
+        hasher.putString(fieldNode.desc);
+        hasher.putString(fieldNode.signature);
+        hasher.putConstant(fieldNode.value);
+        putAnnotations(hasher, fieldNode.visibleAnnotations, fieldNode.invisibleAnnotations,
+                fieldNode.visibleTypeAnnotations, fieldNode.invisibleTypeAnnotations);
+        return hasher.finish();
+    }
+
+    /**
+     * Hashes a method: access flags, name, descriptor, signature, declared exceptions,
+     * annotations, parameter annotations, annotation default and body.
+     */
+    public static long hashMethod(MethodNode methodNode) {
+        Hasher hasher = new Hasher();
+        hasher.putInt(methodNode.access);
+        hasher.putString(methodNode.name);
+        hasher.putString(methodNode.desc);
+        hasher.putString(methodNode.signature);
+        putStrings(hasher, methodNode.exceptions);
+        putAnnotations(hasher, methodNode.visibleAnnotations, methodNode.invisibleAnnotations,
+                methodNode.visibleTypeAnnotations, methodNode.invisibleTypeAnnotations);
+        putParameterAnnotations(hasher, methodNode.visibleParameterAnnotations);
+        putParameterAnnotations(hasher, methodNode.invisibleParameterAnnotations);
+        putAnnotationValue(hasher, methodNode.annotationDefault);
+        hasher.putLong(hashBody(methodNode, false));
+        return hasher.finish();
+    }
+
+    private static void putStrings(Hasher hasher, List<String> values) {
+        if (values == null) {
+            hasher.putInt(-1);
+            return;
+        }
+        hasher.putInt(values.size());
+        for (String value : values) {
+            hasher.putString(value);
+        }
+    }
+
+    private static void putAnnotations(Hasher hasher, List<AnnotationNode> visible, List<AnnotationNode> invisible,
+                                       List<TypeAnnotationNode> visibleTypes,
+                                       List<TypeAnnotationNode> invisibleTypes) {
+        putAnnotationList(hasher, visible);
+        putAnnotationList(hasher, invisible);
+        putAnnotationList(hasher, visibleTypes);
+        putAnnotationList(hasher, invisibleTypes);
+    }
+
+    private static void putParameterAnnotations(Hasher hasher, List<AnnotationNode>[] parameters) {
+        if (parameters == null) {
+            hasher.putInt(-1);
+            return;
+        }
+        hasher.putInt(parameters.length);
+        for (List<AnnotationNode> annotations : parameters) {
+            putAnnotationList(hasher, annotations);
+        }
+    }
+
+    private static void putAnnotationList(Hasher hasher, List<? extends AnnotationNode> annotations) {
+        if (annotations == null) {
+            hasher.putInt(-1);
+            return;
+        }
+        hasher.putInt(annotations.size());
+        for (AnnotationNode annotation : annotations) {
+            putAnnotation(hasher, annotation);
+        }
+    }
+
+    private static void putAnnotation(Hasher hasher, AnnotationNode annotation) {
+        if (annotation instanceof TypeAnnotationNode typeAnnotation) {
+            hasher.putInt(typeAnnotation.typeRef);
+            hasher.putString(typeAnnotation.typePath != null ? typeAnnotation.typePath.toString() : null);
+        }
+        hasher.putString(annotation.desc);
+        if (annotation.values == null) {
+            hasher.putInt(-1);
+            return;
+        }
+        hasher.putInt(annotation.values.size());
+        for (int i = 0; i < annotation.values.size(); i += 2) {
+            hasher.putString((String) annotation.values.get(i));
+            putAnnotationValue(hasher, annotation.values.get(i + 1));
+        }
+    }
+
+    /**
+     * Hashes an annotation element value: a constant, a type, an enum constant as a
+     * {@code String[]} of descriptor and name, a nested annotation or a list of values.
+     */
+    private static void putAnnotationValue(Hasher hasher, Object value) {
+        switch (value) {
+            case AnnotationNode annotation -> {
+                hasher.putString("@");
+                putAnnotation(hasher, annotation);
+            }
+            case String[] enumValue -> {
+                hasher.putString("enum");
+                hasher.putString(enumValue[0]);
+                hasher.putString(enumValue[1]);
+            }
+            case List<?> values -> {
+                hasher.putString("[]");
+                hasher.putInt(values.size());
+                for (Object element : values) {
+                    putAnnotationValue(hasher, element);
+                }
+            }
+            case null, default -> hasher.putConstant(value);
+        }
+    }
+
+    /**
+     * Hashes the instructions and exception handlers of a method, without its name or
+     * descriptor.
+     *
+     * <p>With {@code normalizeLocals}, local variable slots past the parameters are
+     * numbered in the order the body first uses them, so bodies that differ only in how
+     * the compiler allocated their temporaries hash the same. Parameter slots are kept,
+     * since they carry the meaning of the arguments.
+     */
+    public static long hashBody(MethodNode methodNode, boolean normalizeLocals) {
+        Hasher hasher = new Hasher();
+        putBody(hasher, methodNode, normalizeLocals);
+        return hasher.finish();
+    }
+
+    /**
+     * Returns the values {@link #hashBody(MethodNode, boolean)} hashes, in order. Bodies with
+     * equal lists hash the same; callers rule out hash collisions by comparing the lists.
+     */
+    static List<Object> canonicalBody(MethodNode methodNode, boolean normalizeLocals) {
+        Recorder recorder = new Recorder();
+        putBody(recorder, methodNode, normalizeLocals);
+        return recorder.values;
+    }
+
+    private static void putBody(Hasher hasher, MethodNode methodNode, boolean normalizeLocals) {
+        Map<LabelNode, Integer> labels = new HashMap<>();
+        int position = 0;
+        for (AbstractInsnNode insn : methodNode.instructions) {
+            if (insn instanceof LabelNode label) {
+                labels.put(label, position);
+            } else if (insn.getOpcode() >= 0) {
+                position++;
+            }
+        }
+
+        Locals locals = normalizeLocals ? new Locals(firstLocal(methodNode)) : null;
+        hasher.putInt(position);
+        for (AbstractInsnNode insn : methodNode.instructions) {
+            if (insn.getOpcode() >= 0) {
+                hashInstruction(hasher, insn, labels, locals);
+            }
+        }
+
+        hasher.putInt(methodNode.tryCatchBlocks.size());
+        for (TryCatchBlockNode block : methodNode.tryCatchBlocks) {
+            hasher.putInt(labels.get(block.start));
+            hasher.putInt(labels.get(block.end));
+            hasher.putInt(labels.get(block.handler));
+            hasher.putString(block.type);
+        }
+    }
+
+    /**
+     * Returns the first local variable slot after {@code this} and the parameters.
+     */
+    static int firstLocal(MethodNode methodNode) {
+        int slot = (methodNode.access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
+        return slot + (Type.getArgumentsAndReturnSizes(methodNode.desc) >> 2) - 1;
+    }
+
+    private static void hashInstruction(Hasher hasher, AbstractInsnNode insn, Map<LabelNode, Integer> labels,
+                                        Locals locals) {
+        hasher.putInt(insn.getOpcode());
+        switch (insn) {
+            case VarInsnNode var -> hasher.putInt(locals != null ? locals.map(var.var) : var.var);
+            case IincInsnNode iinc -> {
+                hasher.putInt(locals != null ? locals.map(iinc.var) : iinc.var);
+                hasher.putInt(iinc.incr);
+            }
+            case IntInsnNode intInsn -> hasher.putInt(intInsn.operand);
+            case TypeInsnNode typeInsn -> hasher.putString(typeInsn.desc);
+            case FieldInsnNode field -> {
+                hasher.putString(field.owner);
+                hasher.putString(field.name);
+                hasher.putString(field.desc);
+            }
+            case MethodInsnNode call -> {
+                hasher.putString(call.owner);
+                hasher.putString(call.name);
+                hasher.putString(call.desc);
+                hasher.putInt(call.itf ? 1 : 0);
+            }
+            case InvokeDynamicInsnNode indy -> {
+                hasher.putString(indy.name);
+                hasher.putString(indy.desc);
+                hasher.putConstant(indy.bsm);
+                hasher.putInt(indy.bsmArgs.length);
+                for (Object argument : indy.bsmArgs) {
+                    hasher.putConstant(argument);
+                }
+            }
+            case LdcInsnNode ldc -> hasher.putConstant(ldc.cst);
+            case JumpInsnNode jump -> hasher.putInt(labels.get(jump.label));
+            case TableSwitchInsnNode table -> {
+                hasher.putInt(table.min);
+                hasher.putInt(table.max);
+                hasher.putInt(labels.get(table.dflt));
+                putLabels(hasher, table.labels, labels);
+            }
+            case LookupSwitchInsnNode lookup -> {
+                hasher.putInt(labels.get(lookup.dflt));
+                hasher.putInt(lookup.keys.size());
+                for (int key : lookup.keys) {
+                    hasher.putInt(key);
+                }
+                putLabels(hasher, lookup.labels, labels);
+            }
+            case MultiANewArrayInsnNode array -> {
+                hasher.putString(array.desc);
+                hasher.putInt(array.dims);
+            }
+            default -> {
+                // InsnNode: the opcode is the whole instruction.
+            }
+        }
+    }
+
+    private static void putLabels(Hasher hasher, List<LabelNode> targets, Map<LabelNode, Integer> labels) {
+        hasher.putInt(targets.size());
+        for (LabelNode target : targets) {
+            hasher.putInt(labels.get(target));
+        }
+    }
+
+    /**
+     * Numbers local variable slots past the parameters in order of first use.
+     */
+    private static final class Locals {
+        private final int firstLocal;
+        private final Map<Integer, Integer> numbers = new HashMap<>();
+
+        Locals(int firstLocal) {
+            this.firstLocal = firstLocal;
+        }
+
+        int map(int slot) {
+            if (slot < firstLocal) {
+                return slot;
+            }
+            return numbers.computeIfAbsent(slot, unused -> firstLocal + numbers.size());
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the hashed values, finished with the MurmurHash3 mixer.
+     */
+    private static class Hasher {
+        private long hash = FNV_OFFSET;
+
+        void putInt(int value) {
+            hash = (hash ^ value) * FNV_PRIME;
+        }
+
+        void putLong(long value) {
+            putInt((int) value);
+            putInt((int) (value >>> 32));
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            putInt(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+
+        void putConstant(Object value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            putString(value.getClass().getSimpleName());
+            switch (value) {
+                case Long number -> putLong(number);
+                case Double number -> putLong(Double.doubleToRawLongBits(number));
+                case Float number -> putInt(Float.floatToRawIntBits(number));
+                case Number number -> putInt(number.intValue());
+                case Character character -> putInt(character);
+                case Boolean bool -> putInt(bool ? 1 : 0);
+                default -> putString(value.toString());
+            }
+        }
+
+        long finish() {
+            long h = hash;
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+
+    /**
+     * Records the values instead of hashing them.
+     */
+    private static final class Recorder extends Hasher {
+        private final List<Object> values = new ArrayList<>();
+
+        @Override
+        void putInt(int value) {
+            values.add(value);
+        }
+
+        @Override
+        void putString(String value) {
+            values.add(value);
+        }
+    }
+}
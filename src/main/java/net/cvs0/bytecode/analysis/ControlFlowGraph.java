@@ -0,0 +1,274 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.member.ProgramMethod;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Basic-block control flow graph of a single method body.
+ *
+ * <p>Blocks are split at jump and switch targets, after branches, returns and throws,
+ * and at the boundaries of every try-catch range so that each block is either fully
+ * inside or fully outside a protected region. Inside a protected region a block also ends
+ * after every instruction that may throw, so the state at the end of a block is the state
+ * any exception from it leaves behind. Exceptional edges connect every block inside a
+ * protected range to its handler block.
+ *
+ * <p>Blocks reachable from the entry are also numbered in reverse post-order, which is
+ * the iteration order used by {@link DataflowSolver}.
+ */
+public class ControlFlowGraph {
+    private static final ControlFlowGraph EMPTY = new ControlFlowGraph(new AbstractInsnNode[0], new int[0], List.of(), List.of());
+
+    private final AbstractInsnNode[] instructions;
+    private final int[] blockOfInstruction;
+    private final List<BasicBlock> blocks;
+    private final List<BasicBlock> reversePostOrder;
+
+    private ControlFlowGraph(AbstractInsnNode[] instructions, int[] blockOfInstruction,
+                             List<BasicBlock> blocks, List<BasicBlock> reversePostOrder) {
+        this.instructions = instructions;
+        this.blockOfInstruction = blockOfInstruction;
+        this.blocks = blocks;
+        this.reversePostOrder = reversePostOrder;
+    }
+
+    /**
+     * Builds the control flow graph for a program method.
+     *
+     * @param method the method to analyze
+     * @return the graph, empty if the method has no bytecode
+     */
+    public static ControlFlowGraph build(ProgramMethod method) {
+        return build(method.getMethodNode());
+    }
+
+    /**
+     * Builds the control flow graph for an ASM method node.
+     *
+     * @param methodNode the method to analyze, may be {@code null}
+     * @return the graph, empty if the method has no bytecode
+     */
+    public static ControlFlowGraph build(MethodNode methodNode) {
+        if (methodNode == null || methodNode.instructions == null || methodNode.instructions.size() == 0) {
+            return EMPTY;
+        }
+
+        InsnList insnList = methodNode.instructions;
+        AbstractInsnNode[] insns = insnList.toArray();
+        int count = insns.length;
+
+        boolean[] leaders = new boolean[count + 1];
+        leaders[0] = true;
+        boolean[] isProtected = protectedInstructions(methodNode, insnList, count);
+
+        for (int i = 0; i < count; i++) {
+            AbstractInsnNode insn = insns[i];
+
+            if (insn instanceof JumpInsnNode jumpInsn) {
+                leaders[insnList.indexOf(jumpInsn.label)] = true;
+                leaders[i + 1] = true;
+            } else if (insn instanceof TableSwitchInsnNode tableSwitch) {
+                leaders[insnList.indexOf(tableSwitch.dflt)] = true;
+                for (LabelNode label : tableSwitch.labels) {
+                    leaders[insnList.indexOf(label)] = true;
+                }
+                leaders[i + 1] = true;
+            } else if (insn instanceof LookupSwitchInsnNode lookupSwitch) {
+                leaders[insnList.indexOf(lookupSwitch.dflt)] = true;
+                for (LabelNode label : lookupSwitch.labels) {
+                    leaders[insnList.indexOf(label)] = true;
+                }
+                leaders[i + 1] = true;
+            } else if (isTerminal(insn.getOpcode()) || (isProtected[i] && canThrow(insn))) {
+                leaders[i + 1] = true;
+            }
+        }
+
+        if (methodNode.tryCatchBlocks != null) {
+            for (TryCatchBlockNode tryCatch : methodNode.tryCatchBlocks) {
+                leaders[insnList.indexOf(tryCatch.start)] = true;
+                leaders[insnList.indexOf(tryCatch.end)] = true;
+                leaders[insnList.indexOf(tryCatch.handler)] = true;
+            }
+        }
+
+        List<BasicBlock> blocks = new ArrayList<>();
+        int[] blockOfInstruction = new int[count];
+        int blockStart = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i == count || leaders[i]) {
+                BasicBlock block = new BasicBlock(blocks.size(), blockStart, i);
+                for (int j = blockStart; j < i; j++) {
+                    blockOfInstruction[j] = block.getIndex();
+                }
+                blocks.add(block);
+                blockStart = i;
+            }
+        }
+
+        for (BasicBlock block : blocks) {
+            connectSuccessors(block, insns[block.getEnd() - 1], insnList, blocks, blockOfInstruction);
+        }
+
+        if (methodNode.tryCatchBlocks != null) {
+            for (TryCatchBlockNode tryCatch : methodNode.tryCatchBlocks) {
+                int start = insnList.indexOf(tryCatch.start);
+                int end = insnList.indexOf(tryCatch.end);
+                BasicBlock handler = blocks.get(blockOfInstruction[insnList.indexOf(tryCatch.handler)]);
+                for (int b = blockOfInstruction[start]; b < blocks.size() && blocks.get(b).getStart() < end; b++) {
+                    blocks.get(b).addSuccessor(handler);
+                }
+            }
+        }
+
+        return new ControlFlowGraph(insns, blockOfInstruction, Collections.unmodifiableList(blocks),
+                computeReversePostOrder(blocks));
+    }
+
+    private static void connectSuccessors(BasicBlock block, AbstractInsnNode last, InsnList insnList,
+                                          List<BasicBlock> blocks, int[] blockOfInstruction) {
+        int opcode = last.getOpcode();
+        boolean fallsThrough = !isTerminal(opcode) && opcode != Opcodes.GOTO;
+
+        if (last instanceof JumpInsnNode jumpInsn) {
+            block.addSuccessor(blocks.get(blockOfInstruction[insnList.indexOf(jumpInsn.label)]));
+        } else if (last instanceof TableSwitchInsnNode tableSwitch) {
+            block.addSuccessor(blocks.get(blockOfInstruction[insnList.indexOf(tableSwitch.dflt)]));
+            for (LabelNode label : tableSwitch.labels) {
+                block.addSuccessor(blocks.get(blockOfInstruction[insnList.indexOf(label)]));
+            }
+            fallsThrough = false;
+        } else if (last instanceof LookupSwitchInsnNode lookupSwitch) {
+            block.addSuccessor(blocks.get(blockOfInstruction[insnList.indexOf(lookupSwitch.dflt)]));
+            for (LabelNode label : lookupSwitch.labels) {
+                block.addSuccessor(blocks.get(blockOfInstruction[insnList.indexOf(label)]));
+            }
+            fallsThrough = false;
+        }
+
+        if (fallsThrough && block.getIndex() + 1 < blocks.size()) {
+            block.addSuccessor(blocks.get(block.getIndex() + 1));
+        }
+    }
+
+    private static boolean[] protectedInstructions(MethodNode methodNode, InsnList insnList, int count) {
+        boolean[] isProtected = new boolean[count];
+        if (methodNode.tryCatchBlocks != null) {
+            for (TryCatchBlockNode tryCatch : methodNode.tryCatchBlocks) {
+                Arrays.fill(isProtected, insnList.indexOf(tryCatch.start), insnList.indexOf(tryCatch.end), true);
+            }
+        }
+        return isProtected;
+    }
+
+    /**
+     * Returns whether an instruction may throw, counting linkage and resolution errors but
+     * not asynchronous exceptions. Loads, stores, constants, stack operations, arithmetic
+     * other than integer division and remainder, conversions, comparisons and branches
+     * cannot.
+     */
+    private static boolean canThrow(AbstractInsnNode insn) {
+        int opcode = insn.getOpcode();
+        return switch (insn.getType()) {
+            case AbstractInsnNode.FIELD_INSN, AbstractInsnNode.METHOD_INSN, AbstractInsnNode.INVOKE_DYNAMIC_INSN,
+                 AbstractInsnNode.TYPE_INSN, AbstractInsnNode.LDC_INSN, AbstractInsnNode.MULTIANEWARRAY_INSN -> true;
+            case AbstractInsnNode.INT_INSN -> opcode == Opcodes.NEWARRAY;
+            case AbstractInsnNode.INSN -> (opcode >= Opcodes.IALOAD && opcode <= Opcodes.SALOAD)
+                    || (opcode >= Opcodes.IASTORE && opcode <= Opcodes.SASTORE)
+                    || opcode == Opcodes.IDIV || opcode == Opcodes.LDIV || opcode == Opcodes.IREM || opcode == Opcodes.LREM
+                    || opcode == Opcodes.ARRAYLENGTH || opcode == Opcodes.ATHROW
+                    || opcode == Opcodes.MONITORENTER || opcode == Opcodes.MONITOREXIT
+                    || (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN);
+            default -> false;
+        };
+    }
+
+    private static boolean isTerminal(int opcode) {
+        return (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN) || opcode == Opcodes.ATHROW
+                || opcode == Opcodes.RET;
+    }
+
+    private static List<BasicBlock> computeReversePostOrder(List<BasicBlock> blocks) {
+        if (blocks.isEmpty()) {
+            return List.of();
+        }
+
+        List<BasicBlock> postOrder = new ArrayList<>(blocks.size());
+        boolean[] visited = new boolean[blocks.size()];
+        int[] nextSuccessor = new int[blocks.size()];
+        BasicBlock[] stack = new BasicBlock[blocks.size()];
+        int depth = 0;
+
+        stack[depth++] = blocks.get(0);
+        visited[0] = true;
+
+        while (depth > 0) {
+            BasicBlock current = stack[depth - 1];
+            List<BasicBlock> successors = current.getSuccessors();
+            int next = nextSuccessor[current.getIndex()];
+
+            if (next < successors.size()) {
+                nextSuccessor[current.getIndex()]++;
+                BasicBlock successor = successors.get(next);
+                if (!visited[successor.getIndex()]) {
+                    visited[successor.getIndex()] = true;
+                    stack[depth++] = successor;
+                }
+            } else {
+                depth--;
+                postOrder.add(current);
+            }
+        }
+
+        Collections.reverse(postOrder);
+        for (int i = 0; i < postOrder.size(); i++) {
+            postOrder.get(i).setReversePostOrderIndex(i);
+        }
+        return Collections.unmodifiableList(postOrder);
+    }
+
+    public List<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    public BasicBlock getBlock(int index) {
+        return blocks.get(index);
+    }
+
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    public BasicBlock getEntryBlock() {
+        return blocks.isEmpty() ? null : blocks.get(0);
+    }
+
+    /**
+     * Returns the blocks reachable from the entry in reverse post-order.
+     */
+    public List<BasicBlock> getReversePostOrder() {
+        return reversePostOrder;
+    }
+
+    public BasicBlock getBlockForInstruction(int instructionIndex) {
+        return blocks.get(blockOfInstruction[instructionIndex]);
+    }
+
+    public AbstractInsnNode getInstruction(int instructionIndex) {
+        return instructions[instructionIndex];
+    }
+
+    public int getInstructionCount() {
+        return instructions.length;
+    }
+
+    public boolean isEmpty() {
+        return blocks.isEmpty();
+    }
+}
@@ -0,0 +1,55 @@
+package net.cvs0.bytecode.analysis;
+
+/**
+ * A gen/kill dataflow problem over a {@link ControlFlowGraph}.
+ *
+ * <p>Lattice values are packed {@code long[]} bit vectors of {@link #getDomainSize()} bits
+ * (see {@link BitVectors}). The transfer function of every block has the form
+ * {@code out = gen | (in & ~kill)}, where "in" and "out" are taken along the
+ * problem's {@link Direction}. This covers the classic bit-vector analyses:
+ * <ul>
+ *   <li>Liveness: backward, union</li>
+ *   <li>Reaching definitions: forward, union</li>
+ *   <li>Available expressions: forward, intersection</li>
+ * </ul>
+ *
+ * <p>Implementations are created per method and are only used by one thread at a time.
+ */
+public interface DataflowProblem {
+
+    enum Direction {
+        FORWARD,
+        BACKWARD
+    }
+
+    enum Meet {
+        UNION,
+        INTERSECTION
+    }
+
+    Direction getDirection();
+
+    Meet getMeet();
+
+    /**
+     * Number of facts tracked, i.e. the number of bits in every lattice value.
+     */
+    int getDomainSize();
+
+    /**
+     * Computes the gen and kill sets of a block. Both vectors are zeroed before the call.
+     *
+     * @param cfg the graph being solved
+     * @param block the block whose transfer function is requested
+     * @param gen facts generated by the block
+     * @param kill facts killed by the block
+     */
+    void computeTransfer(ControlFlowGraph cfg, BasicBlock block, long[] gen, long[] kill);
+
+    /**
+     * Initializes the value flowing into the boundary block: the entry for forward problems,
+     * every exit for backward problems. The vector is zeroed before the call.
+     */
+    default void initializeBoundary(long[] boundary) {
+    }
+}
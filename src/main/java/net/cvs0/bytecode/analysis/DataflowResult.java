@@ -0,0 +1,65 @@
+package net.cvs0.bytecode.analysis;
+
+/**
+ * Fixed point computed by {@link DataflowSolver}.
+ *
+ * <p>"In" and "out" always refer to program order: {@link #getIn(BasicBlock)} is the value
+ * at the block's first instruction and {@link #getOut(BasicBlock)} the value after its last,
+ * regardless of the problem's direction. Returned vectors are the solver's own storage and
+ * must not be modified.
+ */
+public class DataflowResult {
+    private final ControlFlowGraph cfg;
+    private final DataflowProblem problem;
+    private final long[][] in;
+    private final long[][] out;
+    private final int iterations;
+
+    DataflowResult(ControlFlowGraph cfg, DataflowProblem problem, long[][] in, long[][] out, int iterations) {
+        this.cfg = cfg;
+        this.problem = problem;
+        this.in = in;
+        this.out = out;
+        this.iterations = iterations;
+    }
+
+    public ControlFlowGraph getControlFlowGraph() {
+        return cfg;
+    }
+
+    public DataflowProblem getProblem() {
+        return problem;
+    }
+
+    public long[] getIn(BasicBlock block) {
+        return in[block.getIndex()];
+    }
+
+    public long[] getOut(BasicBlock block) {
+        return out[block.getIndex()];
+    }
+
+    public boolean isSetIn(BasicBlock block, int fact) {
+        return BitVectors.get(in[block.getIndex()], fact);
+    }
+
+    public boolean isSetOut(BasicBlock block, int fact) {
+        return BitVectors.get(out[block.getIndex()], fact);
+    }
+
+    /**
+     * Number of block transfer evaluations performed before reaching the fixed point.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public String toString() {
+        return "DataflowResult{" +
+                "blocks=" + cfg.getBlockCount() +
+                ", domainSize=" + problem.getDomainSize() +
+                ", iterations=" + iterations +
+                '}';
+    }
+}
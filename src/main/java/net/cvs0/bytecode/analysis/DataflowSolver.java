@@ -0,0 +1,152 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.member.ProgramMethod;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Iterative worklist solver for {@link DataflowProblem}s.
+ *
+ * <p>Blocks are visited in reverse post-order for forward problems and in post-order for
+ * backward problems, so on reducible graphs (all javac output) each block is evaluated only
+ * a small constant number of times and solving is linear in the size of the method. A block
+ * is re-queued only when one of the values flowing into it actually changed.
+ *
+ * <p>Blocks unreachable from the method entry are not visited; their in and out values keep
+ * the initial lattice value.
+ */
+public class DataflowSolver {
+
+    /**
+     * Solves a problem over a method, reusing the method's cached control flow graph.
+     *
+     * @param method the method to analyze
+     * @param problem the problem instance for this method
+     * @return the fixed point
+     */
+    public static DataflowResult solve(ProgramMethod method, DataflowProblem problem) {
+        return solve(method.getControlFlowGraph(), problem);
+    }
+
+    /**
+     * Solves a problem over a control flow graph.
+     *
+     * @param cfg the graph to analyze
+     * @param problem the problem instance for this graph
+     * @return the fixed point
+     */
+    public static DataflowResult solve(ControlFlowGraph cfg, DataflowProblem problem) {
+        int blockCount = cfg.getBlockCount();
+        int domainSize = problem.getDomainSize();
+        boolean forward = problem.getDirection() == DataflowProblem.Direction.FORWARD;
+        boolean union = problem.getMeet() == DataflowProblem.Meet.UNION;
+
+        long[][] before = new long[blockCount][];
+        long[][] after = new long[blockCount][];
+        long[][] gen = new long[blockCount][];
+        long[][] kill = new long[blockCount][];
+
+        for (int i = 0; i < blockCount; i++) {
+            before[i] = BitVectors.create(domainSize);
+            after[i] = union ? BitVectors.create(domainSize) : BitVectors.full(domainSize);
+            gen[i] = BitVectors.create(domainSize);
+            kill[i] = BitVectors.create(domainSize);
+            problem.computeTransfer(cfg, cfg.getBlock(i), gen[i], kill[i]);
+        }
+
+        long[] boundary = BitVectors.create(domainSize);
+        problem.initializeBoundary(boundary);
+
+        List<BasicBlock> reversePostOrder = cfg.getReversePostOrder();
+        int reachable = reversePostOrder.size();
+        long[] pending = BitVectors.full(reachable);
+        int iterations = 0;
+        int cursor = 0;
+
+        while (true) {
+            int position = BitVectors.nextSetBit(pending, cursor);
+            if (position < 0) {
+                position = BitVectors.nextSetBit(pending, 0);
+                if (position < 0) {
+                    break;
+                }
+            }
+            BitVectors.unset(pending, position);
+            cursor = position + 1;
+            iterations++;
+
+            BasicBlock block = reversePostOrder.get(forward ? position : reachable - 1 - position);
+            List<BasicBlock> sources = forward ? block.getPredecessors() : block.getSuccessors();
+            long[] input = before[block.getIndex()];
+
+            boolean isBoundary = forward ? block.getIndex() == 0 : sources.isEmpty();
+            if (isBoundary) {
+                BitVectors.copy(boundary, input);
+            } else if (union) {
+                BitVectors.clear(input);
+            } else {
+                BitVectors.fill(input, domainSize);
+            }
+
+            boolean seeded = isBoundary;
+            for (BasicBlock source : sources) {
+                if (!source.isReachable()) {
+                    continue;
+                }
+                if (union) {
+                    BitVectors.or(input, after[source.getIndex()]);
+                } else if (!seeded) {
+                    BitVectors.copy(after[source.getIndex()], input);
+                    seeded = true;
+                } else {
+                    BitVectors.and(input, after[source.getIndex()]);
+                }
+            }
+
+            int index = block.getIndex();
+            if (BitVectors.transfer(input, gen[index], kill[index], after[index])) {
+                for (BasicBlock dependent : forward ? block.getSuccessors() : block.getPredecessors()) {
+                    if (dependent.isReachable()) {
+                        int rpo = dependent.getReversePostOrderIndex();
+                        BitVectors.set(pending, forward ? rpo : reachable - 1 - rpo);
+                    }
+                }
+            }
+        }
+
+        return forward
+                ? new DataflowResult(cfg, problem, before, after, iterations)
+                : new DataflowResult(cfg, problem, after, before, iterations);
+    }
+
+    /**
+     * Solves one problem instance per method across the whole mapping in parallel.
+     *
+     * <p>Methods are independent, so they are distributed over the common fork-join pool.
+     * The factory is called once per method and must return a fresh problem instance.
+     * Methods for which the factory returns {@code null} are skipped.
+     *
+     * @param mapping the jar mapping to analyze
+     * @param problemFactory creates the problem for a method
+     * @return map from method keys ({@code owner.name+descriptor}) to their results
+     */
+    public static Map<String, DataflowResult> solveAll(JarMapping mapping,
+                                                       Function<ProgramMethod, DataflowProblem> problemFactory) {
+        Map<String, DataflowResult> results = new ConcurrentHashMap<>();
+
+        mapping.getProgramClasses().parallelStream()
+                .flatMap(clazz -> clazz.getMethods().stream())
+                .forEach(method -> {
+                    DataflowProblem problem = problemFactory.apply(method);
+                    if (problem != null) {
+                        results.put(method.getFullName(), solve(method, problem));
+                    }
+                });
+
+        return results;
+    }
+}
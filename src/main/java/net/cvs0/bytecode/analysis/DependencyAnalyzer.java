@@ -1,9 +1,13 @@
 package net.cvs0.bytecode.analysis;
 
 import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.CompactClass;
 import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.event.DependencyGraphEvent;
 import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.instruction.CompactCode;
 import net.cvs0.bytecode.instruction.Instruction;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.*;
 
 import java.util.*;
@@ -76,6 +80,67 @@ public class DependencyAnalyzer {
         return dependencies;
     }
     
+    /**
+     * Finds all dependencies of a compact class: its superclass, interfaces and the types
+     * its method bodies reference, as {@link #findClassDependencies(ProgramClass)} does.
+     * 
+     * @param clazz the class to analyze
+     * @return set of class names that this class depends on
+     */
+    public static Set<String> findClassDependencies(CompactClass clazz) {
+        Set<String> dependencies = new HashSet<>();
+        
+        if (clazz.getSuperName() != null) {
+            dependencies.add(clazz.getSuperName());
+        }
+        
+        dependencies.addAll(clazz.getInterfaces());
+        
+        for (CompactClass.Method method : clazz.getMethods()) {
+            addMethodDependencies(method.getCode(), dependencies);
+        }
+        
+        return dependencies;
+    }
+    
+    /**
+     * Extracts dependencies from a compact method body, the same way as
+     * {@link #findMethodDependencies(ProgramMethod)}.
+     * 
+     * @param method the method to analyze
+     * @return set of class names referenced by this method
+     */
+    public static Set<String> findMethodDependencies(CompactClass.Method method) {
+        Set<String> dependencies = new HashSet<>();
+        addMethodDependencies(method.getCode(), dependencies);
+        return dependencies;
+    }
+    
+    private static void addMethodDependencies(CompactCode code, Set<String> dependencies) {
+        if (code == null) {
+            return;
+        }
+        
+        for (int i = 0; i < code.size(); i++) {
+            switch (code.getOpcode(i)) {
+                case Opcodes.NEW, Opcodes.ANEWARRAY, Opcodes.CHECKCAST, Opcodes.INSTANCEOF, Opcodes.MULTIANEWARRAY ->
+                        dependencies.add(code.getTypeName(i));
+                case Opcodes.GETSTATIC, Opcodes.PUTSTATIC, Opcodes.GETFIELD, Opcodes.PUTFIELD,
+                        Opcodes.INVOKEVIRTUAL, Opcodes.INVOKESPECIAL, Opcodes.INVOKESTATIC, Opcodes.INVOKEINTERFACE ->
+                        dependencies.add(code.getOwner(i));
+                case Opcodes.INVOKEDYNAMIC -> dependencies.addAll(extractTypesFromDescriptor(code.getDescriptor(i)));
+                case Opcodes.LDC -> {
+                    String type = code.getTypeName(i);
+                    if (type != null) {
+                        dependencies.add(type);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+    
     /**
      * Extracts class dependencies from a single bytecode instruction.
      * 
@@ -158,6 +223,9 @@ public class DependencyAnalyzer {
      * @return map from class names to their dependencies
      */
     public static Map<String, Set<String>> buildDependencyGraph(JarMapping mapping) {
+        DependencyGraphEvent event = new DependencyGraphEvent();
+        event.begin();
+        
         Map<String, Set<String>> dependencyGraph = new HashMap<>();
         
         for (ProgramClass clazz : mapping.getProgramClasses()) {
@@ -165,6 +233,41 @@ public class DependencyAnalyzer {
             dependencyGraph.put(clazz.getName(), dependencies);
         }
         
+        event.end();
+        if (event.shouldCommit()) {
+            event.classCount = dependencyGraph.size();
+            event.edgeCount = dependencyGraph.values().stream().mapToLong(Set::size).sum();
+            event.commit();
+        }
+        
+        return dependencyGraph;
+    }
+    
+    /**
+     * Builds the dependency graph of compact classes, equal to the graph
+     * {@link #buildDependencyGraph(JarMapping)} builds for the same classes.
+     * 
+     * @param classes the classes to analyze, such as those returned by
+     *        {@link net.cvs0.bytecode.util.JarReader#readCompact(java.io.File)}
+     * @return map from class names to their dependencies
+     */
+    public static Map<String, Set<String>> buildDependencyGraph(Collection<CompactClass> classes) {
+        DependencyGraphEvent event = new DependencyGraphEvent();
+        event.begin();
+        
+        Map<String, Set<String>> dependencyGraph = new HashMap<>();
+        
+        for (CompactClass clazz : classes) {
+            dependencyGraph.put(clazz.getName(), findClassDependencies(clazz));
+        }
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.classCount = dependencyGraph.size();
+            event.edgeCount = dependencyGraph.values().stream().mapToLong(Set::size).sum();
+            event.commit();
+        }
+        
         return dependencyGraph;
     }
     
@@ -179,7 +282,18 @@ public class DependencyAnalyzer {
      * @return set of class names that are not referenced by other classes
      */
     public static Set<String> findUnusedClasses(JarMapping mapping) {
-        Map<String, Set<String>> dependencyGraph = buildDependencyGraph(mapping);
+        return findUnusedClasses(mapping, buildDependencyGraph(mapping));
+    }
+    
+    /**
+     * Identifies classes that are not referenced by any other class, using a dependency
+     * graph that was already built for {@code mapping}.
+     * 
+     * @param mapping the jar mapping to analyze
+     * @param dependencyGraph the graph returned by {@link #buildDependencyGraph(JarMapping)}
+     * @return set of class names that are not referenced by other classes
+     */
+    public static Set<String> findUnusedClasses(JarMapping mapping, Map<String, Set<String>> dependencyGraph) {
         Set<String> allClasses = new HashSet<>();
         Set<String> referencedClasses = new HashSet<>();
         
@@ -208,14 +322,50 @@ public class DependencyAnalyzer {
      * @return set of class names involved in circular dependencies
      */
     public static Set<String> findCircularDependencies(JarMapping mapping) {
-        Map<String, Set<String>> dependencyGraph = buildDependencyGraph(mapping);
+        return findCircularDependencies(buildDependencyGraph(mapping));
+    }
+    
+    /**
+     * Detects circular dependencies in an already built dependency graph.
+     * 
+     * <p>The depth-first search keeps its own stack instead of recursing, so long
+     * dependency chains in large jars cannot overflow the thread stack.
+     * 
+     * @param dependencyGraph the graph returned by {@link #buildDependencyGraph(JarMapping)}
+     * @return set of class names involved in circular dependencies
+     */
+    public static Set<String> findCircularDependencies(Map<String, Set<String>> dependencyGraph) {
         Set<String> circularDependencies = new HashSet<>();
         Set<String> visited = new HashSet<>();
         Set<String> recursionStack = new HashSet<>();
+        Deque<String> path = new ArrayDeque<>();
+        Deque<Iterator<String>> pending = new ArrayDeque<>();
         
-        for (String className : dependencyGraph.keySet()) {
-            if (!visited.contains(className)) {
-                findCircularDependenciesRecursive(className, dependencyGraph, visited, recursionStack, circularDependencies);
+        for (String root : dependencyGraph.keySet()) {
+            if (!visited.add(root)) {
+                continue;
+            }
+            recursionStack.add(root);
+            path.push(root);
+            pending.push(dependencyGraph.getOrDefault(root, Set.of()).iterator());
+            
+            while (!path.isEmpty()) {
+                Iterator<String> dependencies = pending.peek();
+                if (!dependencies.hasNext()) {
+                    recursionStack.remove(path.pop());
+                    pending.pop();
+                    continue;
+                }
+                
+                String dependency = dependencies.next();
+                if (visited.add(dependency)) {
+                    recursionStack.add(dependency);
+                    path.push(dependency);
+                    pending.push(dependencyGraph.getOrDefault(dependency, Set.of()).iterator());
+                } else if (recursionStack.contains(dependency)) {
+                    circularDependencies.add(path.peek());
+                    circularDependencies.add(dependency);
+                }
             }
         }
         
@@ -223,35 +373,28 @@ public class DependencyAnalyzer {
     }
     
     /**
-     * Recursive helper method for circular dependency detection.
+     * Finds every class reachable from a set of roots by following dependency edges.
+     * 
+     * <p>Classes that have no entry in the graph, such as JDK or missing library classes,
+     * are included when referenced but not expanded further.
      * 
-     * @param className current class being analyzed
-     * @param dependencyGraph the complete dependency graph
-     * @param visited set of already visited classes
-     * @param recursionStack current path in the DFS traversal
-     * @param circularDependencies accumulator for classes in cycles
+     * @param dependencyGraph the graph returned by {@link #buildDependencyGraph(JarMapping)}
+     * @param roots the entry points to start from
+     * @return the reachable class names, including the roots, in breadth-first order
      */
-    private static void findCircularDependenciesRecursive(String className, 
-                                                         Map<String, Set<String>> dependencyGraph,
-                                                         Set<String> visited, 
-                                                         Set<String> recursionStack,
-                                                         Set<String> circularDependencies) {
-        visited.add(className);
-        recursionStack.add(className);
-        
-        Set<String> dependencies = dependencyGraph.get(className);
-        if (dependencies != null) {
-            for (String dependency : dependencies) {
-                if (!visited.contains(dependency)) {
-                    findCircularDependenciesRecursive(dependency, dependencyGraph, visited, recursionStack, circularDependencies);
-                } else if (recursionStack.contains(dependency)) {
-                    circularDependencies.add(className);
-                    circularDependencies.add(dependency);
+    public static Set<String> findReachableClasses(Map<String, Set<String>> dependencyGraph, Collection<String> roots) {
+        Set<String> reachable = new LinkedHashSet<>(roots);
+        Deque<String> queue = new ArrayDeque<>(reachable);
+        
+        while (!queue.isEmpty()) {
+            for (String dependency : dependencyGraph.getOrDefault(queue.poll(), Set.of())) {
+                if (reachable.add(dependency)) {
+                    queue.offer(dependency);
                 }
             }
         }
         
-        recursionStack.remove(className);
+        return reachable;
     }
     
     /**
@@ -268,14 +411,25 @@ public class DependencyAnalyzer {
      * @return list of class names in topological order (dependencies first)
      */
     public static List<String> getTopologicalOrder(JarMapping mapping) {
-        Map<String, Set<String>> dependencyGraph = buildDependencyGraph(mapping);
-        
+        return getTopologicalOrder(mapping, buildDependencyGraph(mapping));
+    }
+    
+    /**
+     * Computes a topological ordering from a dependency graph that was already built for
+     * {@code mapping}.
+     * 
+     * @param mapping the jar mapping containing classes to order
+     * @param dependencyGraph the graph returned by {@link #buildDependencyGraph(JarMapping)}
+     * @return list of class names in topological order (dependencies first)
+     */
+    public static List<String> getTopologicalOrder(JarMapping mapping, Map<String, Set<String>> dependencyGraph) {
         Set<String> internalClasses = new HashSet<>();
         for (ProgramClass clazz : mapping.getProgramClasses()) {
             internalClasses.add(clazz.getName());
         }
         
         Map<String, Integer> inDegree = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
         for (String className : internalClasses) {
             inDegree.put(className, 0);
         }
@@ -286,6 +440,7 @@ public class DependencyAnalyzer {
                 for (String dependency : dependencies) {
                     if (internalClasses.contains(dependency)) {
                         inDegree.put(className, inDegree.get(className) + 1);
+                        dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(className);
                     }
                 }
             }
@@ -303,17 +458,15 @@ public class DependencyAnalyzer {
             String current = queue.poll();
             result.add(current);
             
-            for (String className : internalClasses) {
-                Set<String> dependencies = dependencyGraph.get(className);
-                if (dependencies != null && dependencies.contains(current)) {
-                    inDegree.put(className, inDegree.get(className) - 1);
-                    if (inDegree.get(className) == 0) {
-                        queue.offer(className);
-                    }
+            for (String className : dependents.getOrDefault(current, List.of())) {
+                int remaining = inDegree.get(className) - 1;
+                inDegree.put(className, remaining);
+                if (remaining == 0) {
+                    queue.offer(className);
                 }
             }
         }
         
         return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,122 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.DuplicateMethodReport.DuplicateGroup;
+import net.cvs0.bytecode.attribute.AttributeFactory;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramMethod;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Finds methods whose bodies are copies of each other, such as identical lambdas, adapters
+ * and copy-pasted helpers in different classes.
+ *
+ * <p>Each body is reduced to a {@link CodeHash} with local variables past the parameters
+ * numbered by first use, so the allocation of temporaries does not matter, and labels
+ * numbered by position. Methods are indexed by that hash together with their descriptor and
+ * static modifier; methods sharing an index entry are then compared value by value, so a
+ * hash collision never produces a false group. Constructors and static initializers are
+ * skipped, since their bodies cannot be shared.
+ *
+ * <p>Hashing runs in parallel, as does verifying the candidate groups; see
+ * {@link #find(JarMapping, ForkJoinPool)}.
+ */
+public class DuplicateMethodFinder {
+
+    /**
+     * Finds the duplicates on the common fork-join pool.
+     */
+    public static DuplicateMethodReport find(JarMapping mapping) {
+        return find(mapping, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Finds the duplicates, hashing classes and verifying groups in parallel on {@code pool}.
+     */
+    public static DuplicateMethodReport find(JarMapping mapping, ForkJoinPool pool) {
+        List<Candidate> candidates = pool.submit(() -> mapping.getProgramClasses().parallelStream()
+                .flatMap(clazz -> clazz.getMethods().stream()
+                        .filter(DuplicateMethodFinder::isCandidate)
+                        .map(method -> new Candidate(clazz, method)))
+                .toList()).join();
+
+        Map<Long, List<Candidate>> index = new HashMap<>();
+        for (Candidate candidate : candidates) {
+            index.computeIfAbsent(candidate.indexKey, key -> new ArrayList<>()).add(candidate);
+        }
+
+        List<DuplicateGroup> groups = pool.submit(() -> index.values().parallelStream()
+                .filter(bucket -> bucket.size() > 1)
+                .flatMap(bucket -> verify(bucket).stream())
+                .toList()).join();
+
+        return new DuplicateMethodReport(groups, candidates.size());
+    }
+
+    private static boolean isCandidate(ProgramMethod method) {
+        MethodNode methodNode = method.getMethodNode();
+        return methodNode != null && methodNode.instructions.size() > 0
+                && !method.getName().equals("<init>") && !method.getName().equals("<clinit>");
+    }
+
+    /**
+     * Splits candidates that share an index key into groups of truly equal bodies.
+     */
+    private static List<DuplicateGroup> verify(List<Candidate> bucket) {
+        Map<List<Object>, List<Candidate>> equal = new LinkedHashMap<>();
+        for (Candidate candidate : bucket) {
+            List<Object> key = new ArrayList<>(CodeHash.canonicalBody(candidate.method.getMethodNode(), true));
+            key.add(candidate.method.getDescriptor());
+            key.add(candidate.isStatic());
+            equal.computeIfAbsent(key, unused -> new ArrayList<>()).add(candidate);
+        }
+
+        List<DuplicateGroup> groups = new ArrayList<>();
+        for (List<Candidate> members : equal.values()) {
+            if (members.size() > 1) {
+                Candidate first = members.get(0);
+                MethodNode methodNode = first.method.getMethodNode();
+                groups.add(new DuplicateGroup(members.stream().map(Candidate::key).toList(),
+                        first.method.getDescriptor(), first.isStatic(), instructionCount(methodNode),
+                        AttributeFactory.createCodeAttribute(methodNode).getCodeLength()));
+            }
+        }
+        return groups;
+    }
+
+    private static int instructionCount(MethodNode methodNode) {
+        int count = 0;
+        for (AbstractInsnNode insn : methodNode.instructions) {
+            if (insn.getOpcode() >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final class Candidate {
+        private final ProgramClass clazz;
+        private final ProgramMethod method;
+        private final long indexKey;
+
+        Candidate(ProgramClass clazz, ProgramMethod method) {
+            this.clazz = clazz;
+            this.method = method;
+            long bodyHash = CodeHash.hashBody(method.getMethodNode(), true);
+            this.indexKey = (bodyHash * 31 + method.getDescriptor().hashCode()) * 31 + (isStatic() ? 1 : 0);
+        }
+
+        boolean isStatic() {
+            return (method.getAccess() & Opcodes.ACC_STATIC) != 0;
+        }
+
+        String key() {
+            return clazz.getName() + "." + method.getName() + method.getDescriptor();
+        }
+    }
+}
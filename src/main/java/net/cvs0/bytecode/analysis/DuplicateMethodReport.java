@@ -0,0 +1,173 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.util.JsonWriter;
+
+import java.util.*;
+
+/**
+ * Groups of methods with identical bodies in a {@link net.cvs0.bytecode.JarMapping},
+ * produced by {@link DuplicateMethodFinder}.
+ *
+ * <p>A group of {@code n} methods could share one body, saving {@code n - 1} copies of its
+ * {@code Code} bytes. Groups are ranked by those savings.
+ */
+public class DuplicateMethodReport {
+    private final List<DuplicateGroup> groups;
+    private final int methodCount;
+
+    DuplicateMethodReport(List<DuplicateGroup> groups, int methodCount) {
+        List<DuplicateGroup> sorted = new ArrayList<>(groups);
+        sorted.sort(DuplicateGroup.LARGEST_FIRST);
+        this.groups = Collections.unmodifiableList(sorted);
+        this.methodCount = methodCount;
+    }
+
+    /**
+     * Returns every group of duplicates, largest savings first.
+     */
+    public List<DuplicateGroup> getGroups() {
+        return groups;
+    }
+
+    public List<DuplicateGroup> getLargestGroups(int limit) {
+        return groups.subList(0, Math.min(limit, groups.size()));
+    }
+
+    /**
+     * Returns the number of methods with a body that were compared.
+     */
+    public int getMethodCount() {
+        return methodCount;
+    }
+
+    /**
+     * Returns the number of methods whose body is a copy of another's, not counting one
+     * method of each group.
+     */
+    public int getDuplicateMethodCount() {
+        return groups.stream().mapToInt(group -> group.getMethods().size() - 1).sum();
+    }
+
+    /**
+     * Returns the {@code Code} bytes that sharing one body per group would save.
+     */
+    public long getSavableBytes() {
+        return groups.stream().mapToLong(DuplicateGroup::getSavableBytes).sum();
+    }
+
+    /**
+     * Writes the report as a JSON object, listing the {@code topN} groups with the largest
+     * savings.
+     */
+    public void writeJson(JsonWriter json, int topN) {
+        json.beginObject();
+        json.field("methods", methodCount);
+        json.field("groups", groups.size());
+        json.field("duplicateMethods", getDuplicateMethodCount());
+        json.field("savableBytes", getSavableBytes());
+        json.name("largestGroups").beginArray();
+        for (DuplicateGroup group : getLargestGroups(topN)) {
+            group.writeJson(json);
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    public String toJson(int topN) {
+        JsonWriter json = new JsonWriter();
+        writeJson(json, topN);
+        return json.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%,d of %,d methods duplicate another body in %,d groups; %,d bytes of code savable%n",
+                getDuplicateMethodCount(), methodCount, groups.size(), getSavableBytes()));
+        for (DuplicateGroup group : getLargestGroups(10)) {
+            sb.append(String.format("  %,10d  %d x %d bytes%n", group.getSavableBytes(), group.getMethods().size(),
+                    group.getCodeLength()));
+            for (String method : group.getMethods()) {
+                sb.append("              ").append(method).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Methods with the same descriptor, the same static modifier and identical bodies up to
+     * local variable numbering.
+     */
+    public static class DuplicateGroup {
+        static final Comparator<DuplicateGroup> LARGEST_FIRST = Comparator
+                .comparingLong(DuplicateGroup::getSavableBytes).reversed()
+                .thenComparing(group -> group.getMethods().get(0));
+
+        private final List<String> methods;
+        private final String descriptor;
+        private final boolean isStatic;
+        private final int instructionCount;
+        private final int codeLength;
+
+        DuplicateGroup(List<String> methods, String descriptor, boolean isStatic, int instructionCount,
+                       int codeLength) {
+            List<String> sorted = new ArrayList<>(methods);
+            Collections.sort(sorted);
+            this.methods = Collections.unmodifiableList(sorted);
+            this.descriptor = descriptor;
+            this.isStatic = isStatic;
+            this.instructionCount = instructionCount;
+            this.codeLength = codeLength;
+        }
+
+        /**
+         * Returns the keys of the methods, as {@code Class.name(descriptor)}, sorted.
+         */
+        public List<String> getMethods() {
+            return methods;
+        }
+
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        public boolean isStatic() {
+            return isStatic;
+        }
+
+        public int getInstructionCount() {
+            return instructionCount;
+        }
+
+        /**
+         * Returns the length of the shared body's bytecode.
+         */
+        public int getCodeLength() {
+            return codeLength;
+        }
+
+        public long getSavableBytes() {
+            return (long) codeLength * (methods.size() - 1);
+        }
+
+        void writeJson(JsonWriter json) {
+            json.beginObject();
+            json.field("descriptor", descriptor);
+            json.field("static", isStatic);
+            json.field("instructions", instructionCount);
+            json.field("codeLength", codeLength);
+            json.field("savableBytes", getSavableBytes());
+            json.name("methods").beginArray();
+            for (String method : methods) {
+                json.value(method);
+            }
+            json.endArray();
+            json.endObject();
+        }
+
+        @Override
+        public String toString() {
+            return methods.size() + " x " + codeLength + " bytes: " + methods;
+        }
+    }
+}
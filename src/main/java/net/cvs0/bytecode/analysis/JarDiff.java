@@ -0,0 +1,187 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.JarDiffReport.ClassChange;
+import net.cvs0.bytecode.analysis.JarDiffReport.Kind;
+import net.cvs0.bytecode.analysis.JarDiffReport.MemberChange;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramField;
+import net.cvs0.bytecode.member.ProgramMethod;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Compares two {@link JarMapping}s structurally, such as two builds of the same library.
+ *
+ * <p>Every class, field and method is first reduced to a {@link CodeHash}, so constant pool
+ * order, line numbers and frames do not show up as differences. A class hash combines its
+ * header and member hashes independently of member order; classes whose hashes match are
+ * counted as unchanged and never looked at again. Only for the remaining classes are member
+ * hashes compared, sizes measured and dependencies collected.
+ *
+ * <p>Sizes are those of the class files the ASM trees assemble to without recomputing
+ * frames or maxima, not the sizes of the jar entries: the trees do not keep the original
+ * bytes, and they may have been transformed since they were read. Both sides are measured
+ * the same way, so the deltas still compare.
+ *
+ * <p>Both hashing and comparing run in parallel; see {@link #compare(JarMapping, JarMapping, ForkJoinPool)}.
+ */
+public class JarDiff {
+
+    /**
+     * Compares the mappings on the common fork-join pool.
+     */
+    public static JarDiffReport compare(JarMapping before, JarMapping after) {
+        return compare(before, after, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compares the mappings, hashing and comparing classes in parallel on {@code pool}.
+     *
+     * @param before the old side
+     * @param after the new side
+     */
+    public static JarDiffReport compare(JarMapping before, JarMapping after, ForkJoinPool pool) {
+        Map<String, Fingerprint> oldClasses = fingerprint(before, pool);
+        Map<String, Fingerprint> newClasses = fingerprint(after, pool);
+
+        Set<String> names = new HashSet<>(oldClasses.keySet());
+        names.addAll(newClasses.keySet());
+        List<ClassChange> changes = pool.submit(() -> names.parallelStream()
+                .map(name -> compare(oldClasses.get(name), newClasses.get(name)))
+                .filter(Objects::nonNull)
+                .toList()).join();
+
+        return new JarDiffReport(changes, names.size() - changes.size());
+    }
+
+    private static Map<String, Fingerprint> fingerprint(JarMapping mapping, ForkJoinPool pool) {
+        return pool.submit(() -> mapping.getProgramClasses().parallelStream()
+                .map(Fingerprint::new)
+                .collect(Collectors.toMap(Fingerprint::getName, Function.identity()))).join();
+    }
+
+    private static ClassChange compare(Fingerprint before, Fingerprint after) {
+        if (before == null) {
+            return new ClassChange(after.getName(), Kind.ADDED, false, 0, assembledSize(after.clazz),
+                    List.of(), List.of(), DependencyAnalyzer.findClassDependencies(after.clazz), Set.of());
+        }
+        if (after == null) {
+            return new ClassChange(before.getName(), Kind.REMOVED, false, assembledSize(before.clazz), 0,
+                    List.of(), List.of(), Set.of(), DependencyAnalyzer.findClassDependencies(before.clazz));
+        }
+        if (before.hash == after.hash) {
+            return null;
+        }
+
+        List<MemberChange> fieldChanges = compareMembers(before.fields, after.fields, name -> 0, name -> 0);
+        List<MemberChange> methodChanges = compareMembers(before.methods, after.methods,
+                key -> instructionCount(before.clazz, key), key -> instructionCount(after.clazz, key));
+
+        Set<String> oldDependencies = DependencyAnalyzer.findClassDependencies(before.clazz);
+        Set<String> newDependencies = DependencyAnalyzer.findClassDependencies(after.clazz);
+        Set<String> added = new HashSet<>(newDependencies);
+        added.removeAll(oldDependencies);
+        Set<String> removed = new HashSet<>(oldDependencies);
+        removed.removeAll(newDependencies);
+
+        return new ClassChange(after.getName(), Kind.MODIFIED, before.headerHash != after.headerHash,
+                assembledSize(before.clazz), assembledSize(after.clazz), fieldChanges, methodChanges, added, removed);
+    }
+
+    private static List<MemberChange> compareMembers(Map<String, Long> before, Map<String, Long> after,
+                                                     Function<String, Integer> sizeBefore,
+                                                     Function<String, Integer> sizeAfter) {
+        SortedSet<String> keys = new TreeSet<>(before.keySet());
+        keys.addAll(after.keySet());
+        List<MemberChange> changes = new ArrayList<>();
+        for (String key : keys) {
+            Long oldHash = before.get(key);
+            Long newHash = after.get(key);
+            if (oldHash == null) {
+                changes.add(new MemberChange(key, Kind.ADDED, 0, sizeAfter.apply(key)));
+            } else if (newHash == null) {
+                changes.add(new MemberChange(key, Kind.REMOVED, sizeBefore.apply(key), 0));
+            } else if (!oldHash.equals(newHash)) {
+                changes.add(new MemberChange(key, Kind.MODIFIED, sizeBefore.apply(key), sizeAfter.apply(key)));
+            }
+        }
+        return changes;
+    }
+
+    private static int instructionCount(ProgramClass clazz, String key) {
+        int paren = key.indexOf('(');
+        ProgramMethod method = clazz.getMethod(key.substring(0, paren), key.substring(paren));
+        if (method == null || method.getMethodNode() == null) {
+            return 0;
+        }
+        int count = 0;
+        for (AbstractInsnNode insn : method.getMethodNode().instructions) {
+            if (insn.getOpcode() >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the size of the class file the class's ASM tree assembles to, or 0 if it has
+     * no tree or cannot be assembled. This is not the size of the original jar entry.
+     */
+    static int assembledSize(ProgramClass clazz) {
+        if (clazz.getClassNode() == null) {
+            return 0;
+        }
+        try {
+            ClassWriter classWriter = new ClassWriter(0);
+            clazz.getClassNode().accept(classWriter);
+            return classWriter.toByteArray().length;
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * The content hashes of one class and its members.
+     */
+    private static final class Fingerprint {
+        private final ProgramClass clazz;
+        private final long headerHash;
+        private final Map<String, Long> fields = new HashMap<>();
+        private final Map<String, Long> methods = new HashMap<>();
+        private final long hash;
+
+        Fingerprint(ProgramClass clazz) {
+            this.clazz = clazz;
+            this.headerHash = CodeHash.hashClassHeader(clazz);
+
+            long memberSum = 0;
+            for (ProgramField field : clazz.getFields()) {
+                FieldNode fieldNode = field.getFieldNode() != null ? field.getFieldNode()
+                        : new FieldNode(field.getAccess(), field.getName(), field.getDescriptor(), null, null);
+                long fieldHash = CodeHash.hashField(fieldNode);
+                fields.put(field.getName(), fieldHash);
+                memberSum += fieldHash;
+            }
+            for (ProgramMethod method : clazz.getMethods()) {
+                MethodNode methodNode = method.getMethodNode() != null ? method.getMethodNode()
+                        : new MethodNode(method.getAccess(), method.getName(), method.getDescriptor(), null, null);
+                long methodHash = CodeHash.hashMethod(methodNode);
+                methods.put(method.getName() + method.getDescriptor(), methodHash);
+                memberSum += methodHash;
+            }
+            this.hash = headerHash * 31 + memberSum;
+        }
+
+        String getName() {
+            return clazz.getName();
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.util.JsonWriter;
+
+import java.util.*;
+
+/**
+ * The structural differences between two {@link net.cvs0.bytecode.JarMapping}s, produced
+ * by {@link JarDiff}.
+ *
+ * <p>Classes that hash the same on both sides are only counted. Every other class is
+ * reported with its added, removed and modified fields and methods, its assembled class
+ * file size on each side and the dependency edges it gained or lost. Assembled sizes come
+ * from re-writing the ASM tree and can differ from the jar entry sizes.
+ */
+public class JarDiffReport {
+
+    /**
+     * How a class or member differs between the two sides.
+     */
+    public enum Kind {
+        ADDED,
+        REMOVED,
+        MODIFIED
+    }
+
+    private final List<ClassChange> changes;
+    private final int unchangedClassCount;
+
+    JarDiffReport(List<ClassChange> changes, int unchangedClassCount) {
+        List<ClassChange> sorted = new ArrayList<>(changes);
+        sorted.sort(Comparator.comparing(ClassChange::getName));
+        this.changes = Collections.unmodifiableList(sorted);
+        this.unchangedClassCount = unchangedClassCount;
+    }
+
+    /**
+     * Returns every added, removed or modified class, sorted by name.
+     */
+    public List<ClassChange> getClassChanges() {
+        return changes;
+    }
+
+    public List<ClassChange> getClassChanges(Kind kind) {
+        return changes.stream().filter(change -> change.getKind() == kind).toList();
+    }
+
+    public int getUnchangedClassCount() {
+        return unchangedClassCount;
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * Returns the change in total assembled class file size, in bytes. Unchanged classes
+     * contribute nothing.
+     */
+    public long getSizeDelta() {
+        return changes.stream().mapToLong(ClassChange::getSizeDelta).sum();
+    }
+
+    /**
+     * Returns the dependency edges that exist only on the new side, keyed by dependent class.
+     */
+    public Map<String, Set<String>> getAddedEdges() {
+        Map<String, Set<String>> edges = new TreeMap<>();
+        for (ClassChange change : changes) {
+            if (!change.getAddedDependencies().isEmpty()) {
+                edges.put(change.getName(), change.getAddedDependencies());
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Returns the dependency edges that exist only on the old side, keyed by dependent class.
+     */
+    public Map<String, Set<String>> getRemovedEdges() {
+        Map<String, Set<String>> edges = new TreeMap<>();
+        for (ClassChange change : changes) {
+            if (!change.getRemovedDependencies().isEmpty()) {
+                edges.put(change.getName(), change.getRemovedDependencies());
+            }
+        }
+        return edges;
+    }
+
+    public void writeJson(JsonWriter json) {
+        json.beginObject();
+        json.field("unchangedClasses", unchangedClassCount);
+        for (Kind kind : Kind.values()) {
+            json.field(kind.name().toLowerCase(Locale.ROOT) + "Classes", getClassChanges(kind).size());
+        }
+        json.field("sizeDelta", getSizeDelta());
+        json.name("classes").beginArray();
+        for (ClassChange change : changes) {
+            change.writeJson(json);
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    public String toJson() {
+        JsonWriter json = new JsonWriter();
+        writeJson(json);
+        return json.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d added, %d removed, %d modified, %d unchanged classes; assembled size delta %+,d bytes%n",
+                getClassChanges(Kind.ADDED).size(), getClassChanges(Kind.REMOVED).size(),
+                getClassChanges(Kind.MODIFIED).size(), unchangedClassCount, getSizeDelta()));
+        for (ClassChange change : changes) {
+            sb.append(String.format("%s %s (%+,d bytes)%n", symbol(change.getKind()), change.getName(),
+                    change.getSizeDelta()));
+            for (MemberChange member : change.getFieldChanges()) {
+                sb.append(String.format("    %s field %s%n", symbol(member.getKind()), member.getName()));
+            }
+            for (MemberChange member : change.getMethodChanges()) {
+                sb.append(String.format("    %s method %s (%+d instructions)%n", symbol(member.getKind()),
+                        member.getName(), member.getSizeDelta()));
+            }
+            for (String dependency : change.getAddedDependencies()) {
+                sb.append(String.format("    + depends on %s%n", dependency));
+            }
+            for (String dependency : change.getRemovedDependencies()) {
+                sb.append(String.format("    - depends on %s%n", dependency));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static char symbol(Kind kind) {
+        return switch (kind) {
+            case ADDED -> '+';
+            case REMOVED -> '-';
+            case MODIFIED -> '~';
+        };
+    }
+
+    /**
+     * One class that was added, removed or modified.
+     */
+    public static class ClassChange {
+        private final String name;
+        private final Kind kind;
+        private final boolean headerChanged;
+        private final int sizeBefore;
+        private final int sizeAfter;
+        private final List<MemberChange> fieldChanges;
+        private final List<MemberChange> methodChanges;
+        private final Set<String> addedDependencies;
+        private final Set<String> removedDependencies;
+
+        ClassChange(String name, Kind kind, boolean headerChanged, int sizeBefore, int sizeAfter,
+                    List<MemberChange> fieldChanges, List<MemberChange> methodChanges,
+                    Set<String> addedDependencies, Set<String> removedDependencies) {
+            this.name = name;
+            this.kind = kind;
+            this.headerChanged = headerChanged;
+            this.sizeBefore = sizeBefore;
+            this.sizeAfter = sizeAfter;
+            this.fieldChanges = Collections.unmodifiableList(fieldChanges);
+            this.methodChanges = Collections.unmodifiableList(methodChanges);
+            this.addedDependencies = Collections.unmodifiableSet(new TreeSet<>(addedDependencies));
+            this.removedDependencies = Collections.unmodifiableSet(new TreeSet<>(removedDependencies));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns whether the class header changed: its access flags, signature, superclass,
+         * interfaces, annotations or class attributes such as its nest or inner classes.
+         */
+        public boolean isHeaderChanged() {
+            return headerChanged;
+        }
+
+        /**
+         * Returns the assembled class file size on the old side, or 0 if the class was added.
+         */
+        public int getSizeBefore() {
+            return sizeBefore;
+        }
+
+        /**
+         * Returns the assembled class file size on the new side, or 0 if the class was removed.
+         */
+        public int getSizeAfter() {
+            return sizeAfter;
+        }
+
+        public int getSizeDelta() {
+            return sizeAfter - sizeBefore;
+        }
+
+        /**
+         * Returns the changed fields, keyed by name and sorted.
+         */
+        public List<MemberChange> getFieldChanges() {
+            return fieldChanges;
+        }
+
+        /**
+         * Returns the changed methods, keyed by name and descriptor and sorted.
+         */
+        public List<MemberChange> getMethodChanges() {
+            return methodChanges;
+        }
+
+        public Set<String> getAddedDependencies() {
+            return addedDependencies;
+        }
+
+        public Set<String> getRemovedDependencies() {
+            return removedDependencies;
+        }
+
+        void writeJson(JsonWriter json) {
+            json.beginObject();
+            json.field("name", name);
+            json.field("kind", kind.name());
+            json.field("headerChanged", headerChanged);
+            json.field("sizeBefore", sizeBefore);
+            json.field("sizeAfter", sizeAfter);
+            json.name("fields").beginArray();
+            for (MemberChange change : fieldChanges) {
+                change.writeJson(json);
+            }
+            json.endArray();
+            json.name("methods").beginArray();
+            for (MemberChange change : methodChanges) {
+                change.writeJson(json);
+            }
+            json.endArray();
+            json.name("addedDependencies").beginArray();
+            for (String dependency : addedDependencies) {
+                json.value(dependency);
+            }
+            json.endArray();
+            json.name("removedDependencies").beginArray();
+            for (String dependency : removedDependencies) {
+                json.value(dependency);
+            }
+            json.endArray();
+            json.endObject();
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + name;
+        }
+    }
+
+    /**
+     * One field or method that was added, removed or modified. Method sizes count
+     * instructions; field sizes are always 0.
+     */
+    public static class MemberChange {
+        private final String name;
+        private final Kind kind;
+        private final int sizeBefore;
+        private final int sizeAfter;
+
+        MemberChange(String name, Kind kind, int sizeBefore, int sizeAfter) {
+            this.name = name;
+            this.kind = kind;
+            this.sizeBefore = sizeBefore;
+            this.sizeAfter = sizeAfter;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public int getSizeBefore() {
+            return sizeBefore;
+        }
+
+        public int getSizeAfter() {
+            return sizeAfter;
+        }
+
+        public int getSizeDelta() {
+            return sizeAfter - sizeBefore;
+        }
+
+        void writeJson(JsonWriter json) {
+            json.beginObject();
+            json.field("name", name);
+            json.field("kind", kind.name());
+            json.field("sizeBefore", sizeBefore);
+            json.field("sizeAfter", sizeAfter);
+            json.endObject();
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + name;
+        }
+    }
+}
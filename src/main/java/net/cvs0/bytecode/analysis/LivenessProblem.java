@@ -0,0 +1,74 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.member.ProgramMethod;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * Live local variables: backward, union. Fact {@code i} is local variable slot {@code i}.
+ *
+ * <p>A slot is live at a point if some path from that point reads it before writing it.
+ * Wide values are tracked by their first slot only.
+ */
+public class LivenessProblem implements DataflowProblem {
+    private final int domainSize;
+
+    public LivenessProblem(ProgramMethod method) {
+        this(method.getMethodNode(), method.getMaxLocals());
+    }
+
+    public LivenessProblem(MethodNode methodNode, int maxLocals) {
+        int highestSlot = maxLocals;
+        if (methodNode != null && methodNode.instructions != null) {
+            for (AbstractInsnNode insn : methodNode.instructions) {
+                if (insn instanceof VarInsnNode varInsn) {
+                    highestSlot = Math.max(highestSlot, varInsn.var + 1);
+                } else if (insn instanceof IincInsnNode iincInsn) {
+                    highestSlot = Math.max(highestSlot, iincInsn.var + 1);
+                }
+            }
+        }
+        this.domainSize = highestSlot;
+    }
+
+    @Override
+    public Direction getDirection() {
+        return Direction.BACKWARD;
+    }
+
+    @Override
+    public Meet getMeet() {
+        return Meet.UNION;
+    }
+
+    @Override
+    public int getDomainSize() {
+        return domainSize;
+    }
+
+    @Override
+    public void computeTransfer(ControlFlowGraph cfg, BasicBlock block, long[] gen, long[] kill) {
+        for (int i = block.getEnd() - 1; i >= block.getStart(); i--) {
+            AbstractInsnNode insn = cfg.getInstruction(i);
+
+            if (insn instanceof VarInsnNode varInsn) {
+                if (isStore(varInsn.getOpcode())) {
+                    BitVectors.set(kill, varInsn.var);
+                    BitVectors.unset(gen, varInsn.var);
+                } else {
+                    BitVectors.set(gen, varInsn.var);
+                }
+            } else if (insn instanceof IincInsnNode iincInsn) {
+                BitVectors.set(kill, iincInsn.var);
+                BitVectors.set(gen, iincInsn.var);
+            }
+        }
+    }
+
+    private static boolean isStore(int opcode) {
+        return opcode >= Opcodes.ISTORE && opcode <= Opcodes.ASTORE;
+    }
+}
@@ -0,0 +1,493 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.MemoryReport.Category;
+import net.cvs0.bytecode.analysis.MemoryReport.Footprint;
+import net.cvs0.bytecode.attribute.*;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.LocalVariable;
+import net.cvs0.bytecode.member.ProgramField;
+import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.util.ResourceHandle;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Estimates how much heap a loaded {@link JarMapping} retains, without a heap dump.
+ *
+ * <p>Object sizes come from a fixed layout model of a 64-bit JVM with compressed class
+ * pointers and compressed oops: 12-byte object headers, 16-byte array headers, 4-byte
+ * references and 8-byte alignment. Within one class, each String and Label is counted once,
+ * however often it is referenced. Strings shared between classes, such as interned
+ * constants, are counted once per class that holds them, so totals err on the high side.
+ * Caches that are rebuilt on demand, such as control flow graphs, are not counted. Method
+ * attributes that have not been decoded yet cost the class file they will be decoded from,
+ * which is counted once per class; estimating does not decode them.
+ *
+ * <p>Classes are estimated independently, so {@link #estimate(JarMapping, ForkJoinPool)}
+ * processes them in parallel.
+ */
+public class MemoryEstimator {
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    private static final long INSTRUCTION_WRAPPER = object(3, 8);
+    private static final long LOCAL_VARIABLE = object(3, 12);
+    private static final long LINE_NUMBER = object(0, 8);
+    private static final long LABEL = object(7, 16);
+
+    /**
+     * Estimates the whole mapping on the common fork-join pool.
+     */
+    public static MemoryReport estimate(JarMapping mapping) {
+        return estimate(mapping, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Estimates the whole mapping, measuring classes in parallel on {@code pool}.
+     */
+    public static MemoryReport estimate(JarMapping mapping, ForkJoinPool pool) {
+        List<Footprint> classes = pool.submit(() -> mapping.getProgramClasses().parallelStream()
+                .map(MemoryEstimator::estimate)
+                .toList()).join();
+
+        Map<String, Footprint> packages = new HashMap<>();
+        Footprint total = new Footprint("total");
+        for (Footprint footprint : classes) {
+            String packageName = packageOf(footprint.getName());
+            packages.computeIfAbsent(packageName, Footprint::new).addAll(footprint);
+            total.addAll(footprint);
+        }
+
+        for (String resourceName : mapping.getResourceNames()) {
+            long bytes = estimateResource(resourceName, mapping.getResourceHandle(resourceName));
+            packages.computeIfAbsent(packageOf(resourceName), Footprint::new).addResource(bytes);
+            total.addResource(bytes);
+        }
+
+        return new MemoryReport(classes, packages, total);
+    }
+
+    /**
+     * Estimates the bytes retained by one class: its ASM tree, instruction wrappers,
+     * attributes, debug information and model objects.
+     */
+    public static Footprint estimate(ProgramClass clazz) {
+        Footprint footprint = Footprint.forClass(clazz.getName());
+        Sizer sizer = new Sizer();
+
+        footprint.add(Category.MODEL, object(15, 4)
+                + sizer.string(clazz.getName())
+                + sizer.string(clazz.getSuperName())
+                + sizer.strings(clazz.getInterfaces())
+                + concurrentHashMap(clazz.getFields().size())
+                + concurrentHashMap(clazz.getMethods().size())
+                + arrayList(clazz.getInnerClasses().size())
+                + (long) clazz.getInnerClasses().size() * object(3, 4));
+        footprint.add(Category.ATTRIBUTES, arrayList(clazz.getAttributes().size()));
+        for (Attribute attribute : clazz.getAttributes()) {
+            addAttribute(footprint, sizer, attribute);
+        }
+
+        if (clazz.getClassNode() != null) {
+            footprint.add(Category.CLASS_NODE, sizer.classNode(clazz.getClassNode()));
+        }
+
+        for (ProgramField field : clazz.getFields()) {
+            footprint.add(Category.MODEL, object(6, 4)
+                    + sizer.string(field.getName())
+                    + sizer.string(field.getDescriptor())
+                    + sizer.string(field.getSignature()));
+        }
+
+        Set<AttributeDecoder> pendingDecoders = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ProgramMethod method : clazz.getMethods()) {
+            String[] exceptions = method.getExceptions();
+            footprint.add(Category.MODEL, object(12, 17)
+                    + sizer.string(method.getName())
+                    + sizer.string(method.getDescriptor())
+                    + sizer.string(method.getSignature())
+                    + (exceptions != null ? array(exceptions.length, REFERENCE) : 0)
+                    + string(method.getName().length() + method.getDescriptor().length()));
+
+            footprint.add(Category.INSTRUCTIONS, arrayList(method.getInstructionCount())
+                    + method.getInstructionCount() * INSTRUCTION_WRAPPER);
+
+            footprint.add(Category.DEBUG_INFO, arrayList(method.getLineNumbers().size())
+                    + method.getLineNumbers().size() * LINE_NUMBER);
+
+            AttributeDecoder decoder = method.getAttributeDecoder();
+            if (decoder != null) {
+                pendingDecoders.add(decoder);
+                footprint.add(Category.ATTRIBUTES, 2 * arrayList(0));
+                continue;
+            }
+
+            footprint.add(Category.DEBUG_INFO, arrayList(method.getLocalVariables().size()));
+            for (LocalVariable localVariable : method.getLocalVariables()) {
+                footprint.add(Category.DEBUG_INFO, localVariable(sizer, localVariable));
+            }
+
+            footprint.add(Category.ATTRIBUTES, arrayList(method.getAttributes().size()));
+            for (Attribute attribute : method.getAttributes()) {
+                addAttribute(footprint, sizer, attribute);
+            }
+        }
+
+        for (AttributeDecoder decoder : pendingDecoders) {
+            footprint.add(Category.ATTRIBUTES, object(3, 4)
+                    + array(decoder.getClassFileLength(), 1)
+                    + array(decoder.getMethodCount(), 4)
+                    + 2 * array(decoder.getConstantPoolSize(), REFERENCE));
+        }
+
+        return footprint;
+    }
+
+    /**
+     * Estimates the bytes retained by one resource entry, including its name and map entry.
+     * Resources that still live in their source archive only cost their handle.
+     */
+    public static long estimateResource(String name, ResourceHandle handle) {
+        long bytes = string(name.length()) + object(3, 4);
+        if (handle instanceof ResourceHandle.Archived archived) {
+            return bytes + object(3, 28) + string(archived.getEntryName().length());
+        }
+        return bytes + object(1, 0) + array(Math.max(0, handle.getSize()), 1);
+    }
+
+    private static void addAttribute(Footprint footprint, Sizer sizer, Attribute attribute) {
+        long bytes = (attribute.getDataLength() > 0 ? array(attribute.getDataLength(), 1) : 0)
+                + hashMap(attribute.getPropertyCount());
+
+        if (attribute instanceof CodeAttribute code) {
+            bytes += object(5, 8) + array(code.getCodeLength(), 1)
+                    + arrayList(code.getExceptionHandlerCount())
+                    + code.getExceptionHandlerCount() * object(1, 12)
+                    + arrayList(code.getCodeAttributes().size());
+            for (Attribute nested : code.getCodeAttributes()) {
+                addAttribute(footprint, sizer, nested);
+            }
+        } else if (attribute instanceof LocalVariableTableAttribute table) {
+            bytes += object(4, 0) + arrayList(table.getLocalVariables().size());
+            for (LocalVariable localVariable : table.getLocalVariables()) {
+                footprint.add(Category.DEBUG_INFO, localVariable(sizer, localVariable));
+            }
+        } else if (attribute instanceof LineNumberTableAttribute table) {
+            bytes += object(4, 0) + arrayList(table.getLineNumbers().size());
+            footprint.add(Category.DEBUG_INFO, table.getLineNumbers().size() * LINE_NUMBER);
+        } else if (attribute instanceof ExceptionsAttribute exceptions) {
+            bytes += object(4, 0) + sizer.strings(exceptions.getExceptions());
+        } else if (attribute instanceof MethodParametersAttribute parameters) {
+            bytes += object(4, 0) + arrayList(parameters.getParameters().size());
+            for (MethodParametersAttribute.Parameter parameter : parameters.getParameters()) {
+                bytes += object(1, 4) + sizer.string(parameter.getName());
+            }
+        } else if (attribute instanceof SignatureAttribute signature) {
+            bytes += object(4, 0) + sizer.string(signature.getSignature());
+        } else if (attribute instanceof SourceFileAttribute sourceFile) {
+            bytes += object(4, 0) + sizer.string(sourceFile.getSourceFile());
+        } else if (attribute instanceof AnnotationAttribute annotations) {
+            bytes += object(4, 1) + arrayList(annotations.getAnnotationCount())
+                    + annotations.getAnnotationCount() * (object(2, 0) + hashMap(0));
+        } else {
+            bytes += object(3, 0);
+        }
+
+        footprint.add(Category.ATTRIBUTES, bytes);
+    }
+
+    private static long localVariable(Sizer sizer, LocalVariable localVariable) {
+        return LOCAL_VARIABLE
+                + sizer.string(localVariable.getName())
+                + sizer.string(localVariable.getDescriptor())
+                + sizer.string(localVariable.getSignature());
+    }
+
+    private static String packageOf(String name) {
+        int lastSlash = name.lastIndexOf('/');
+        return lastSlash >= 0 ? name.substring(0, lastSlash).replace('/', '.') : "";
+    }
+
+    static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    static long object(int references, int primitiveBytes) {
+        return align(OBJECT_HEADER + (long) references * REFERENCE + primitiveBytes);
+    }
+
+    static long array(long length, int elementSize) {
+        return align(ARRAY_HEADER + length * elementSize);
+    }
+
+    /**
+     * Size of a Latin-1 String of {@code length} characters and its backing array.
+     */
+    static long string(int length) {
+        return object(1, 6) + array(length, 1);
+    }
+
+    static long arrayList(int size) {
+        return object(1, 8) + (size > 0 ? array(size, REFERENCE) : 0);
+    }
+
+    static long hashMap(int size) {
+        if (size == 0) {
+            return object(4, 16);
+        }
+        int capacity = Integer.highestOneBit(Math.max(1, (int) (size / 0.75f)) * 2 - 1);
+        return object(4, 16) + array(capacity, REFERENCE) + size * object(3, 4);
+    }
+
+    static long concurrentHashMap(int size) {
+        return hashMap(size) + object(4, 8);
+    }
+
+    /**
+     * Per-class sizing state: remembers Strings and Labels already counted.
+     */
+    private static class Sizer {
+        private final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        long string(String value) {
+            if (value == null || !seen.add(value)) {
+                return 0;
+            }
+            boolean latin1 = true;
+            for (int i = 0; i < value.length() && latin1; i++) {
+                latin1 = value.charAt(i) <= 0xFF;
+            }
+            return object(1, 6) + array(value.length(), latin1 ? 1 : 2);
+        }
+
+        long strings(Collection<String> values) {
+            if (values == null) {
+                return 0;
+            }
+            long bytes = arrayList(values.size());
+            for (String value : values) {
+                bytes += string(value);
+            }
+            return bytes;
+        }
+
+        long classNode(ClassNode node) {
+            long bytes = object(24, 12)
+                    + string(node.name)
+                    + string(node.signature)
+                    + string(node.superName)
+                    + strings(node.interfaces)
+                    + string(node.sourceFile)
+                    + string(node.sourceDebug)
+                    + string(node.outerClass)
+                    + string(node.outerMethod)
+                    + string(node.outerMethodDesc)
+                    + string(node.nestHostClass)
+                    + strings(node.nestMembers)
+                    + strings(node.permittedSubclasses)
+                    + annotations(node.visibleAnnotations)
+                    + annotations(node.invisibleAnnotations);
+
+            if (node.innerClasses != null) {
+                bytes += arrayList(node.innerClasses.size());
+                for (InnerClassNode inner : node.innerClasses) {
+                    bytes += object(3, 4) + string(inner.name) + string(inner.outerName) + string(inner.innerName);
+                }
+            }
+
+            bytes += arrayList(node.fields.size());
+            for (FieldNode field : node.fields) {
+                bytes += object(10, 8)
+                        + string(field.name)
+                        + string(field.desc)
+                        + string(field.signature)
+                        + constant(field.value)
+                        + annotations(field.visibleAnnotations)
+                        + annotations(field.invisibleAnnotations);
+            }
+
+            bytes += arrayList(node.methods.size());
+            for (MethodNode method : node.methods) {
+                bytes += methodNode(method);
+            }
+            return bytes;
+        }
+
+        private long methodNode(MethodNode method) {
+            long bytes = object(17, 25)
+                    + string(method.name)
+                    + string(method.desc)
+                    + string(method.signature)
+                    + strings(method.exceptions)
+                    + annotations(method.visibleAnnotations)
+                    + annotations(method.invisibleAnnotations)
+                    + object(4, 4);
+
+            if (method.parameters != null) {
+                bytes += arrayList(method.parameters.size());
+                for (ParameterNode parameter : method.parameters) {
+                    bytes += object(1, 4) + string(parameter.name);
+                }
+            }
+
+            if (method.tryCatchBlocks != null) {
+                bytes += arrayList(method.tryCatchBlocks.size());
+                for (TryCatchBlockNode block : method.tryCatchBlocks) {
+                    bytes += object(6, 0) + string(block.type);
+                }
+            }
+
+            if (method.localVariables != null) {
+                bytes += arrayList(method.localVariables.size());
+                for (LocalVariableNode variable : method.localVariables) {
+                    bytes += object(5, 4) + string(variable.name) + string(variable.desc) + string(variable.signature);
+                }
+            }
+
+            if (method.instructions != null) {
+                for (AbstractInsnNode insn : method.instructions) {
+                    bytes += instruction(insn);
+                }
+            }
+            return bytes;
+        }
+
+        private long instruction(AbstractInsnNode insn) {
+            // Every node carries opcode, index, previous, next and two type annotation lists.
+            int base = 4;
+            int baseInts = 8;
+            return switch (insn.getType()) {
+                case AbstractInsnNode.INSN -> object(base, baseInts);
+                case AbstractInsnNode.JUMP_INSN -> object(base + 1, baseInts);
+                case AbstractInsnNode.INT_INSN, AbstractInsnNode.VAR_INSN -> object(base, baseInts + 4);
+                case AbstractInsnNode.TYPE_INSN -> object(base + 1, baseInts) + string(((TypeInsnNode) insn).desc);
+                case AbstractInsnNode.FIELD_INSN -> {
+                    FieldInsnNode field = (FieldInsnNode) insn;
+                    yield object(base + 3, baseInts) + string(field.owner) + string(field.name) + string(field.desc);
+                }
+                case AbstractInsnNode.METHOD_INSN -> {
+                    MethodInsnNode call = (MethodInsnNode) insn;
+                    yield object(base + 3, baseInts + 1) + string(call.owner) + string(call.name) + string(call.desc);
+                }
+                case AbstractInsnNode.INVOKE_DYNAMIC_INSN -> {
+                    InvokeDynamicInsnNode indy = (InvokeDynamicInsnNode) insn;
+                    long bytes = object(base + 4, baseInts) + string(indy.name) + string(indy.desc)
+                            + handle(indy.bsm) + array(indy.bsmArgs.length, REFERENCE);
+                    for (Object argument : indy.bsmArgs) {
+                        bytes += constant(argument);
+                    }
+                    yield bytes;
+                }
+                case AbstractInsnNode.LABEL -> object(base + 1, baseInts) + label((LabelNode) insn);
+                case AbstractInsnNode.LDC_INSN -> object(base + 1, baseInts) + constant(((LdcInsnNode) insn).cst);
+                case AbstractInsnNode.IINC_INSN -> object(base, baseInts + 8);
+                case AbstractInsnNode.TABLESWITCH_INSN -> {
+                    TableSwitchInsnNode table = (TableSwitchInsnNode) insn;
+                    yield object(base + 2, baseInts + 8) + arrayList(table.labels.size());
+                }
+                case AbstractInsnNode.LOOKUPSWITCH_INSN -> {
+                    LookupSwitchInsnNode lookup = (LookupSwitchInsnNode) insn;
+                    yield object(base + 3, baseInts) + arrayList(lookup.keys.size())
+                            + lookup.keys.size() * object(0, 4) + arrayList(lookup.labels.size());
+                }
+                case AbstractInsnNode.MULTIANEWARRAY_INSN -> object(base + 1, baseInts + 4)
+                        + string(((MultiANewArrayInsnNode) insn).desc);
+                case AbstractInsnNode.FRAME -> {
+                    FrameNode frame = (FrameNode) insn;
+                    yield object(base + 2, baseInts + 4) + frameTypes(frame.local) + frameTypes(frame.stack);
+                }
+                case AbstractInsnNode.LINE -> object(base + 1, baseInts + 4);
+                default -> object(base, baseInts);
+            };
+        }
+
+        private long label(LabelNode node) {
+            return seen.add(node.getLabel()) ? LABEL : 0;
+        }
+
+        private long frameTypes(List<Object> types) {
+            if (types == null) {
+                return 0;
+            }
+            long bytes = arrayList(types.size());
+            for (Object type : types) {
+                if (type instanceof String value) {
+                    bytes += string(value);
+                }
+            }
+            return bytes;
+        }
+
+        private long handle(Handle handle) {
+            return object(4, 5) + string(handle.getOwner()) + string(handle.getName()) + string(handle.getDesc());
+        }
+
+        private long constant(Object value) {
+            if (value == null) {
+                return 0;
+            }
+            if (value instanceof String text) {
+                return string(text);
+            }
+            if (value instanceof Long || value instanceof Double) {
+                return object(0, 8);
+            }
+            if (value instanceof Handle handle) {
+                return handle(handle);
+            }
+            if (value instanceof Type type) {
+                return object(1, 12) + string(type.getDescriptor());
+            }
+            return object(0, 4);
+        }
+
+        private long annotations(List<AnnotationNode> annotations) {
+            if (annotations == null) {
+                return 0;
+            }
+            long bytes = arrayList(annotations.size());
+            for (AnnotationNode annotation : annotations) {
+                bytes += annotation(annotation);
+            }
+            return bytes;
+        }
+
+        private long annotation(AnnotationNode annotation) {
+            long bytes = object(3, 4) + string(annotation.desc);
+            if (annotation.values != null) {
+                bytes += arrayList(annotation.values.size());
+                for (Object value : annotation.values) {
+                    bytes += annotationValue(value);
+                }
+            }
+            return bytes;
+        }
+
+        private long annotationValue(Object value) {
+            if (value instanceof AnnotationNode nested) {
+                return annotation(nested);
+            }
+            if (value instanceof String[] enumValue) {
+                long bytes = array(enumValue.length, REFERENCE);
+                for (String part : enumValue) {
+                    bytes += string(part);
+                }
+                return bytes;
+            }
+            if (value instanceof List<?> list) {
+                long bytes = arrayList(list.size());
+                for (Object element : list) {
+                    bytes += annotationValue(element);
+                }
+                return bytes;
+            }
+            return constant(value);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.util.JsonWriter;
+
+import java.util.*;
+
+/**
+ * Estimated retained heap of a {@link net.cvs0.bytecode.JarMapping}, produced by
+ * {@link MemoryEstimator}.
+ *
+ * <p>Costs are broken down per class, per package and in total. Packages and classes are
+ * also ranked so that the largest contributors can be flagged.
+ */
+public class MemoryReport {
+
+    /**
+     * What a retained byte is attributed to.
+     */
+    public enum Category {
+        /** The ASM tree: ClassNode, FieldNodes, MethodNodes, instruction nodes and labels. */
+        CLASS_NODE,
+        /** {@link net.cvs0.bytecode.instruction.Instruction} wrappers and their lists. */
+        INSTRUCTIONS,
+        /** {@link net.cvs0.bytecode.attribute.Attribute} objects and their data. */
+        ATTRIBUTES,
+        /** {@link net.cvs0.bytecode.member.LocalVariable} and {@link net.cvs0.bytecode.member.LineNumber} objects. */
+        DEBUG_INFO,
+        /** ProgramClass, ProgramField and ProgramMethod objects and their member tables. */
+        MODEL,
+        /** Resource handles, plus the contents of resources held in memory. */
+        RESOURCES
+    }
+
+    private final List<Footprint> classes;
+    private final Map<String, Footprint> packages;
+    private final Footprint total;
+
+    MemoryReport(List<Footprint> classes, Map<String, Footprint> packages, Footprint total) {
+        List<Footprint> sorted = new ArrayList<>(classes);
+        sorted.sort(Footprint.LARGEST_FIRST);
+        this.classes = Collections.unmodifiableList(sorted);
+        this.packages = Collections.unmodifiableMap(new TreeMap<>(packages));
+        this.total = total;
+    }
+
+    /**
+     * Returns the per-class footprints, largest first.
+     */
+    public List<Footprint> getClassFootprints() {
+        return classes;
+    }
+
+    /**
+     * Returns the per-package footprints keyed by internal package name. Classes and
+     * resources in the default package are reported under the empty string.
+     */
+    public Map<String, Footprint> getPackageFootprints() {
+        return packages;
+    }
+
+    public Footprint getTotal() {
+        return total;
+    }
+
+    public long getTotalBytes() {
+        return total.getTotalBytes();
+    }
+
+    public List<Footprint> getLargestClasses(int limit) {
+        return classes.subList(0, Math.min(limit, classes.size()));
+    }
+
+    public List<Footprint> getLargestPackages(int limit) {
+        List<Footprint> sorted = new ArrayList<>(packages.values());
+        sorted.sort(Footprint.LARGEST_FIRST);
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    /**
+     * Writes the report as a JSON object. Packages and classes among the {@code topN}
+     * largest are flagged.
+     */
+    public void writeJson(JsonWriter json, int topN) {
+        Set<Footprint> flaggedPackages = Collections.newSetFromMap(new IdentityHashMap<>());
+        flaggedPackages.addAll(getLargestPackages(topN));
+
+        json.beginObject();
+        json.name("total");
+        total.writeJson(json, false);
+
+        json.name("packages").beginArray();
+        for (Footprint footprint : packages.values()) {
+            footprint.writeJson(json, flaggedPackages.contains(footprint));
+        }
+        json.endArray();
+
+        json.name("largestClasses").beginArray();
+        for (Footprint footprint : getLargestClasses(topN)) {
+            footprint.writeJson(json, true);
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    public String toJson(int topN) {
+        JsonWriter json = new JsonWriter();
+        writeJson(json, topN);
+        return json.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Estimated retained memory: %,d bytes in %d classes, %d resources%n",
+                total.getTotalBytes(), total.getClassCount(), total.getResourceCount()));
+        for (Category category : Category.values()) {
+            sb.append(String.format("  %-13s %,14d%n", category, total.getBytes(category)));
+        }
+        sb.append("Largest packages:\n");
+        for (Footprint footprint : getLargestPackages(10)) {
+            sb.append(String.format("  %,14d  %s%n", footprint.getTotalBytes(), footprint.getName()));
+        }
+        sb.append("Largest classes:\n");
+        for (Footprint footprint : getLargestClasses(10)) {
+            sb.append(String.format("  %,14d  %s%n", footprint.getTotalBytes(), footprint.getName()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Estimated bytes retained by one class, one package or the whole mapping.
+     */
+    public static class Footprint {
+        static final Comparator<Footprint> LARGEST_FIRST = Comparator
+                .comparingLong(Footprint::getTotalBytes).reversed()
+                .thenComparing(Footprint::getName);
+
+        private final String name;
+        private final long[] bytes = new long[Category.values().length];
+        private int classCount;
+        private int resourceCount;
+
+        Footprint(String name) {
+            this.name = name;
+        }
+
+        static Footprint forClass(String className) {
+            Footprint footprint = new Footprint(className);
+            footprint.classCount = 1;
+            return footprint;
+        }
+
+        void add(Category category, long amount) {
+            bytes[category.ordinal()] += amount;
+        }
+
+        void addResource(long amount) {
+            bytes[Category.RESOURCES.ordinal()] += amount;
+            resourceCount++;
+        }
+
+        void addAll(Footprint other) {
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] += other.bytes[i];
+            }
+            classCount += other.classCount;
+            resourceCount += other.resourceCount;
+        }
+
+        /**
+         * Returns the class name, package name or {@code "total"}.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public long getBytes(Category category) {
+            return bytes[category.ordinal()];
+        }
+
+        public long getTotalBytes() {
+            long sum = 0;
+            for (long value : bytes) {
+                sum += value;
+            }
+            return sum;
+        }
+
+        public int getClassCount() {
+            return classCount;
+        }
+
+        public int getResourceCount() {
+            return resourceCount;
+        }
+
+        void writeJson(JsonWriter json, boolean flagged) {
+            json.beginObject()
+                    .field("name", name)
+                    .field("totalBytes", getTotalBytes())
+                    .field("classes", classCount)
+                    .field("resources", resourceCount);
+            json.name("bytes").beginObject();
+            for (Category category : Category.values()) {
+                json.field(category.name(), getBytes(category));
+            }
+            json.endObject();
+            if (flagged) {
+                json.field("flagged", true);
+            }
+            json.endObject();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %,d bytes", name, getTotalBytes());
+        }
+    }
+}
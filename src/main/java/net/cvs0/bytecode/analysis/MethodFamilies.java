@@ -0,0 +1,377 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.LibraryClass;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.LibraryMethod;
+import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.util.JarReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Groups methods that must share a name: a method, the methods it overrides, the interface
+ * methods it implements, and everything that overrides those in turn.
+ *
+ * <p>Every declared method is a node in a union-find structure. Classes are visited once,
+ * top-down, each building a table of the overridable methods it can see: the tables of its
+ * supertypes merged with its own declarations. A declaration that matches an inherited
+ * signature is joined with it, and so are two supertypes that supply the same signature,
+ * since a class implementing both must answer to one name. With path halving and union by
+ * size the whole pass is near-linear in the number of declared and inherited methods, with
+ * no hierarchy walks per method.
+ *
+ * <p>Library and JDK classes take part as nodes too, so a family that reaches a library
+ * method is marked as such and must keep its name. Library supertypes are resolved from the
+ * mapping's library classes, then from the platform class loader. A class whose supertypes
+ * cannot all be resolved may override methods nobody can see; every family it can see is
+ * marked unresolved.
+ *
+ * <p>Constructors and static initializers are left out. Static and private methods are never
+ * joined, so each forms a family of its own. Package-private methods are joined across
+ * packages, which is conservative: the family is larger than the JVM requires, never
+ * smaller.
+ */
+public class MethodFamilies {
+    private final List<String> owners = new ArrayList<>();
+    private final List<String> signatures = new ArrayList<>();
+    private final BitSet library = new BitSet();
+    private final BitSet unresolved = new BitSet();
+    private final Map<String, Integer> nodes = new HashMap<>();
+    private int[] parent = new int[64];
+    private int[] size = new int[64];
+
+    private final JarMapping mapping;
+    private final Function<String, LibraryClass> libraryResolver;
+    private final Map<String, Map<String, Integer>> visible = new HashMap<>();
+    private final Set<String> unresolvedClasses = new HashSet<>();
+    private List<Family> families;
+    private Map<Integer, Family> familiesByRoot;
+
+    private MethodFamilies(JarMapping mapping, Function<String, LibraryClass> libraryResolver) {
+        this.mapping = mapping;
+        this.libraryResolver = libraryResolver;
+    }
+
+    /**
+     * Resolves the families of every program method, looking up library supertypes in the
+     * mapping and then through the platform class loader.
+     */
+    public static MethodFamilies resolve(JarMapping mapping) {
+        return resolve(mapping, className -> {
+            LibraryClass libraryClass = mapping.getLibraryClass(className);
+            return libraryClass != null ? libraryClass : loadPlatformClass(className);
+        });
+    }
+
+    /**
+     * Resolves the families of every program method, looking up supertypes outside the
+     * program with {@code libraryResolver}, which returns {@code null} for unknown classes.
+     */
+    public static MethodFamilies resolve(JarMapping mapping, Function<String, LibraryClass> libraryResolver) {
+        MethodFamilies families = new MethodFamilies(mapping, libraryResolver);
+        List<ProgramClass> classes = new ArrayList<>(mapping.getProgramClasses());
+        classes.sort(Comparator.comparing(ProgramClass::getName));
+
+        for (ProgramClass clazz : classes) {
+            for (ProgramMethod method : clazz.getMethods()) {
+                if (!method.isConstructor() && !method.isStaticInitializer()) {
+                    families.node(clazz.getName(), method.getName() + method.getDescriptor(), false);
+                }
+            }
+        }
+        for (ProgramClass clazz : classes) {
+            families.visibleIn(clazz.getName());
+        }
+        families.collect();
+        return families;
+    }
+
+    static LibraryClass loadPlatformClass(String className) {
+        try (InputStream inputStream = ClassLoader.getPlatformClassLoader().getResourceAsStream(className + ".class")) {
+            return inputStream != null ? JarReader.readLibraryClass(inputStream.readAllBytes()) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the family of a program or library method, or {@code null} if the method is
+     * not declared there or is a constructor.
+     */
+    public Family getFamily(String className, String name, String descriptor) {
+        Integer node = nodes.get(className + "." + name + descriptor);
+        return node != null ? familiesByRoot.get(find(node)) : null;
+    }
+
+    /**
+     * Returns every family with at least one program method, ordered by its first program
+     * class and signature.
+     */
+    public List<Family> getFamilies() {
+        return families;
+    }
+
+    /**
+     * Returns the overridable methods visible in {@code className}, declared or inherited,
+     * keyed by name and descriptor and mapped to their family. Returns an empty map if the
+     * class cannot be found.
+     */
+    public Map<String, Family> getVisibleFamilies(String className) {
+        Map<String, Integer> table = visible.get(className);
+        if (table == null) {
+            return Map.of();
+        }
+        Map<String, Family> result = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : table.entrySet()) {
+            result.put(entry.getKey(), familiesByRoot.get(find(entry.getValue())));
+        }
+        return result;
+    }
+
+    public int getFamilyCount() {
+        return families.size();
+    }
+
+    public int getMethodCount() {
+        return owners.size();
+    }
+
+    /**
+     * Returns the table of overridable signatures visible in {@code className}, mapped to any
+     * node of the family that supplies them, or {@code null} if the class cannot be found.
+     */
+    private Map<String, Integer> visibleIn(String className) {
+        if (visible.containsKey(className)) {
+            return visible.get(className);
+        }
+        visible.put(className, Map.of());
+
+        List<String> supertypes = new ArrayList<>();
+        List<String[]> declared = new ArrayList<>();
+        boolean isLibrary;
+        ProgramClass programClass = mapping.getProgramClass(className);
+        if (programClass != null) {
+            isLibrary = false;
+            addSupertypes(supertypes, programClass.getSuperName(), programClass.getInterfaces());
+            for (ProgramMethod method : programClass.getMethods()) {
+                if (!method.isConstructor() && !method.isStaticInitializer() && !method.isStatic()
+                        && !method.isPrivate()) {
+                    declared.add(new String[]{method.getName(), method.getDescriptor()});
+                }
+            }
+        } else {
+            LibraryClass libraryClass = libraryResolver.apply(className);
+            if (libraryClass == null) {
+                visible.put(className, null);
+                return null;
+            }
+            isLibrary = true;
+            addSupertypes(supertypes, libraryClass.getSuperName(), libraryClass.getInterfaces());
+            for (LibraryMethod method : libraryClass.getMethods()) {
+                if (!method.isConstructor() && !method.isStaticInitializer() && !method.isStatic()
+                        && !method.isPrivate()) {
+                    declared.add(new String[]{method.getName(), method.getDescriptor()});
+                }
+            }
+        }
+
+        Map<String, Integer> table = null;
+        boolean shared = false;
+        boolean complete = true;
+        for (String supertype : supertypes) {
+            Map<String, Integer> inherited = visibleIn(supertype);
+            if (inherited == null || unresolvedClasses.contains(supertype)) {
+                complete = false;
+            }
+            if (inherited == null || inherited.isEmpty()) {
+                continue;
+            }
+            if (table == null) {
+                table = inherited;
+                shared = true;
+                continue;
+            }
+            if (shared) {
+                table = new HashMap<>(table);
+                shared = false;
+            }
+            for (Map.Entry<String, Integer> entry : inherited.entrySet()) {
+                Integer existing = table.putIfAbsent(entry.getKey(), entry.getValue());
+                if (existing != null) {
+                    union(existing, entry.getValue());
+                }
+            }
+        }
+        if (!complete) {
+            unresolvedClasses.add(className);
+        }
+
+        if (!declared.isEmpty()) {
+            table = table == null ? new HashMap<>() : shared ? new HashMap<>(table) : table;
+            for (String[] method : declared) {
+                String signature = method[0] + method[1];
+                int node = node(className, signature, isLibrary);
+                Integer inherited = table.put(signature, node);
+                if (inherited != null) {
+                    union(inherited, node);
+                }
+            }
+        }
+
+        table = table == null ? Map.of() : table;
+        if (!complete) {
+            for (int node : table.values()) {
+                unresolved.set(node);
+            }
+        }
+        visible.put(className, table);
+        return table;
+    }
+
+    private static void addSupertypes(List<String> supertypes, String superName, List<String> interfaces) {
+        if (superName != null) {
+            supertypes.add(superName);
+        }
+        supertypes.addAll(interfaces);
+    }
+
+    private int node(String className, String signature, boolean isLibrary) {
+        String key = className + "." + signature;
+        Integer existing = nodes.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        int node = owners.size();
+        if (node == parent.length) {
+            parent = Arrays.copyOf(parent, node * 2);
+            size = Arrays.copyOf(size, node * 2);
+        }
+        parent[node] = node;
+        size[node] = 1;
+        owners.add(className);
+        signatures.add(signature);
+        library.set(node, isLibrary);
+        nodes.put(key, node);
+        return node;
+    }
+
+    private int find(int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        if (size[rootA] < size[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        size[rootA] += size[rootB];
+    }
+
+    private void collect() {
+        Map<Integer, List<Integer>> members = new LinkedHashMap<>();
+        for (int node = 0; node < owners.size(); node++) {
+            members.computeIfAbsent(find(node), k -> new ArrayList<>()).add(node);
+        }
+
+        families = new ArrayList<>();
+        familiesByRoot = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> entry : members.entrySet()) {
+            Family family = new Family(entry.getValue());
+            familiesByRoot.put(entry.getKey(), family);
+            if (!family.getProgramClasses().isEmpty()) {
+                families.add(family);
+            }
+        }
+    }
+
+    /**
+     * Methods that must be renamed together. All members share one signature, since a
+     * method can only override another with the same name and descriptor.
+     */
+    public class Family {
+        private final String signature;
+        private final List<String> programClasses = new ArrayList<>();
+        private final List<String> libraryClasses = new ArrayList<>();
+        private final boolean hasUnresolved;
+
+        Family(List<Integer> members) {
+            this.signature = signatures.get(members.get(0));
+            boolean hasUnresolved = false;
+            for (int node : members) {
+                (library.get(node) ? libraryClasses : programClasses).add(owners.get(node));
+                hasUnresolved |= unresolved.get(node);
+            }
+            this.hasUnresolved = hasUnresolved;
+        }
+
+        public String getName() {
+            return signature.substring(0, signature.indexOf('('));
+        }
+
+        public String getDescriptor() {
+            return signature.substring(signature.indexOf('('));
+        }
+
+        /**
+         * Returns the program classes that declare a member of this family.
+         */
+        public List<String> getProgramClasses() {
+            return Collections.unmodifiableList(programClasses);
+        }
+
+        /**
+         * Returns the library and JDK classes that declare a member of this family.
+         */
+        public List<String> getLibraryClasses() {
+            return Collections.unmodifiableList(libraryClasses);
+        }
+
+        /**
+         * Returns whether the family overrides or implements a library method.
+         */
+        public boolean isLibrary() {
+            return !libraryClasses.isEmpty();
+        }
+
+        /**
+         * Returns whether a member's class has a supertype that could not be resolved, so
+         * the family may extend to methods that are not visible.
+         */
+        public boolean isUnresolved() {
+            return hasUnresolved;
+        }
+
+        /**
+         * Returns whether the family can be given a new name: it is wholly in the program
+         * and no member may override an unresolved method.
+         */
+        public boolean isRenamable() {
+            return !isLibrary() && !hasUnresolved;
+        }
+
+        public int size() {
+            return programClasses.size() + libraryClasses.size();
+        }
+
+        @Override
+        public String toString() {
+            return signature + " " + programClasses + (isLibrary() ? " library " + libraryClasses : "");
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package net.cvs0.bytecode.analysis;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramMethod;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * How often each method was seen running in a production profile, keyed like the rest of
+ * the library as {@code owner.name(descriptor)} with internal class names.
+ *
+ * <p>A profile counts two numbers per method: self samples, taken while the method itself
+ * was executing, and total samples, taken while it was anywhere on the stack. Self samples
+ * say where time is spent and suit passes that work on one method body; total samples also
+ * credit the callers that lead there.
+ *
+ * <p>Profiles come from a JFR recording's {@code jdk.ExecutionSample} events, read offline
+ * with {@link RecordingFile}, or from exact invocation counts such as those written by
+ * {@link net.cvs0.bytecode.plugin.impl.MethodCounterPlugin}. Frames of JDK, library and
+ * generated classes are kept; {@link #getCoverage(JarMapping)} tells how much of the profile
+ * lands in a given program, which drops when the profile was taken on another build.
+ */
+public class MethodProfile {
+    public static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+
+    private final Map<String, long[]> samples = new HashMap<>();
+    private long sampleCount;
+    private Map<String, Long> classSamples;
+
+    private MethodProfile() {
+    }
+
+    /**
+     * Reads the execution samples of a JFR recording. Recursive frames count once towards
+     * a method's total samples.
+     *
+     * @throws IOException if the recording cannot be read
+     */
+    public static MethodProfile readRecording(Path recording) throws IOException {
+        MethodProfile profile = new MethodProfile();
+        Set<String> onStack = new HashSet<>();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                if (!EXECUTION_SAMPLE.equals(event.getEventType().getName())) {
+                    continue;
+                }
+                RecordedStackTrace stackTrace = event.getStackTrace();
+                if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+                    continue;
+                }
+
+                profile.sampleCount++;
+                onStack.clear();
+                List<RecordedFrame> frames = stackTrace.getFrames();
+                for (int i = 0; i < frames.size(); i++) {
+                    RecordedFrame frame = frames.get(i);
+                    if (!frame.isJavaFrame() || frame.getMethod() == null) {
+                        continue;
+                    }
+                    String key = key(frame.getMethod());
+                    long[] counts = profile.samples.computeIfAbsent(key, k -> new long[2]);
+                    if (i == 0) {
+                        counts[0]++;
+                    }
+                    if (onStack.add(key)) {
+                        counts[1]++;
+                    }
+                }
+            }
+        }
+        return profile;
+    }
+
+    private static String key(RecordedMethod method) {
+        return method.getType().getName().replace('.', '/') + "." + method.getName() + method.getDescriptor();
+    }
+
+    /**
+     * Builds a profile from invocation counts, which count as both self and total samples.
+     */
+    public static MethodProfile fromCounts(Map<String, Long> counts) {
+        MethodProfile profile = new MethodProfile();
+        counts.forEach((key, count) -> {
+            if (count > 0) {
+                profile.samples.put(key, new long[] {count, count});
+                profile.sampleCount += count;
+            }
+        });
+        return profile;
+    }
+
+    public static String key(ProgramClass clazz, ProgramMethod method) {
+        return clazz.getName() + "." + method.getName() + method.getDescriptor();
+    }
+
+    /**
+     * Returns the number of samples in the profile, or the sum of the counts it was built
+     * from.
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public long getSelfSamples(String methodKey) {
+        long[] counts = samples.get(methodKey);
+        return counts != null ? counts[0] : 0;
+    }
+
+    public long getTotalSamples(String methodKey) {
+        long[] counts = samples.get(methodKey);
+        return counts != null ? counts[1] : 0;
+    }
+
+    /**
+     * Returns the share of samples, between 0 and 1, in which the method was executing.
+     */
+    public double getHotness(String methodKey) {
+        return sampleCount == 0 ? 0 : (double) getSelfSamples(methodKey) / sampleCount;
+    }
+
+    /**
+     * Returns the self samples of all methods declared by a class.
+     */
+    public synchronized long getClassSamples(String className) {
+        if (classSamples == null) {
+            classSamples = new HashMap<>();
+            samples.forEach((key, counts) ->
+                    classSamples.merge(key.substring(0, key.lastIndexOf('.')), counts[0], Long::sum));
+        }
+        return classSamples.getOrDefault(className, 0L);
+    }
+
+    /**
+     * Returns the hottest methods that together account for at least {@code percent} of
+     * the samples, hottest first. Optimizations with a limited budget can spend it on these
+     * methods; {@code percent} 100 returns every method with samples.
+     */
+    public Set<String> getHottestMethods(int percent) {
+        List<Map.Entry<String, long[]>> ranked = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : samples.entrySet()) {
+            if (entry.getValue()[0] > 0) {
+                ranked.add(entry);
+            }
+        }
+        ranked.sort(Comparator.<Map.Entry<String, long[]>>comparingLong(entry -> -entry.getValue()[0])
+                .thenComparing(Map.Entry::getKey));
+
+        Set<String> hottest = new LinkedHashSet<>();
+        long target = (long) Math.ceil(sampleCount * Math.min(100, Math.max(0, percent)) / 100.0);
+        long covered = 0;
+        for (Map.Entry<String, long[]> entry : ranked) {
+            if (covered >= target) {
+                break;
+            }
+            hottest.add(entry.getKey());
+            covered += entry.getValue()[0];
+        }
+        return hottest;
+    }
+
+    /**
+     * Returns the share of samples, between 0 and 1, that were executing a method of
+     * {@code mapping}.
+     */
+    public double getCoverage(JarMapping mapping) {
+        if (sampleCount == 0) {
+            return 0;
+        }
+        long matched = 0;
+        for (ProgramClass clazz : mapping.getProgramClasses()) {
+            for (ProgramMethod method : clazz.getMethods()) {
+                matched += getSelfSamples(key(clazz, method));
+            }
+        }
+        return (double) matched / sampleCount;
+    }
+
+    /**
+     * Returns every method with samples and its self and total samples.
+     */
+    public Map<String, long[]> getSamples() {
+        Map<String, long[]> copy = new TreeMap<>();
+        samples.forEach((key, counts) -> copy.put(key, counts.clone()));
+        return copy;
+    }
+}
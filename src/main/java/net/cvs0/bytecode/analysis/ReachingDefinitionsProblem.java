@@ -0,0 +1,119 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.member.ProgramMethod;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reaching definitions of local variables: forward, union.
+ *
+ * <p>Every store and {@code IINC} instruction is a definition; fact {@code i} is the
+ * {@code i}-th definition in instruction order, whose instruction index is available
+ * through {@link #getDefinitionInstruction(int)}.
+ */
+public class ReachingDefinitionsProblem implements DataflowProblem {
+    private final int[] definitionInstructions;
+    private final int[] definitionVariables;
+    private final Map<Integer, Integer> definitionByInstruction = new HashMap<>();
+    private final Map<Integer, long[]> definitionsByVariable = new HashMap<>();
+
+    public ReachingDefinitionsProblem(ProgramMethod method) {
+        this(method.getMethodNode());
+    }
+
+    public ReachingDefinitionsProblem(MethodNode methodNode) {
+        List<int[]> definitions = new ArrayList<>();
+
+        if (methodNode != null && methodNode.instructions != null) {
+            InsnList instructions = methodNode.instructions;
+            int index = 0;
+            for (AbstractInsnNode insn : instructions) {
+                int variable = definedVariable(insn);
+                if (variable >= 0) {
+                    definitions.add(new int[] {index, variable});
+                }
+                index++;
+            }
+        }
+
+        this.definitionInstructions = new int[definitions.size()];
+        this.definitionVariables = new int[definitions.size()];
+        for (int i = 0; i < definitions.size(); i++) {
+            definitionInstructions[i] = definitions.get(i)[0];
+            definitionVariables[i] = definitions.get(i)[1];
+            definitionByInstruction.put(definitionInstructions[i], i);
+            BitVectors.set(definitionsByVariable.computeIfAbsent(definitionVariables[i],
+                    v -> BitVectors.create(definitions.size())), i);
+        }
+    }
+
+    @Override
+    public Direction getDirection() {
+        return Direction.FORWARD;
+    }
+
+    @Override
+    public Meet getMeet() {
+        return Meet.UNION;
+    }
+
+    @Override
+    public int getDomainSize() {
+        return definitionInstructions.length;
+    }
+
+    @Override
+    public void computeTransfer(ControlFlowGraph cfg, BasicBlock block, long[] gen, long[] kill) {
+        for (int i = block.getStart(); i < block.getEnd(); i++) {
+            Integer definition = definitionByInstruction.get(i);
+            if (definition == null) {
+                continue;
+            }
+
+            long[] sameVariable = definitionsByVariable.get(definitionVariables[definition]);
+            BitVectors.or(kill, sameVariable);
+            BitVectors.andNot(gen, sameVariable);
+            BitVectors.set(gen, definition);
+        }
+    }
+
+    public int getDefinitionCount() {
+        return definitionInstructions.length;
+    }
+
+    /**
+     * Returns the instruction index of a definition fact.
+     */
+    public int getDefinitionInstruction(int definition) {
+        return definitionInstructions[definition];
+    }
+
+    public int getDefinitionVariable(int definition) {
+        return definitionVariables[definition];
+    }
+
+    public Map<Integer, Integer> getDefinitionsByInstruction() {
+        return Collections.unmodifiableMap(definitionByInstruction);
+    }
+
+    private static int definedVariable(AbstractInsnNode insn) {
+        if (insn instanceof VarInsnNode varInsn && varInsn.getOpcode() >= Opcodes.ISTORE
+                && varInsn.getOpcode() <= Opcodes.ASTORE) {
+            return varInsn.var;
+        }
+        if (insn instanceof IincInsnNode iincInsn) {
+            return iincInsn.var;
+        }
+        return -1;
+    }
+}
@@ -1,9 +1,12 @@
 package net.cvs0.bytecode.analysis;
 
 import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.CompactClass;
 import net.cvs0.bytecode.clazz.ProgramClass;
 import net.cvs0.bytecode.member.ProgramField;
 import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.instruction.CompactCode;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.*;
 
 import java.util.*;
@@ -60,6 +63,67 @@ public class UnusedCodeAnalyzer {
         return unusedFields;
     }
     
+    public static Set<String> findUnusedMethods(Collection<CompactClass> classes) {
+        Set<String> allMethods = new HashSet<>();
+        Set<String> referencedMethods = new HashSet<>();
+        
+        for (CompactClass clazz : classes) {
+            for (CompactClass.Method method : clazz.getMethods()) {
+                String methodKey = clazz.getName() + "." + method.getName() + method.getDescriptor();
+                allMethods.add(methodKey);
+                
+                if (isEntryPoint(method)) {
+                    referencedMethods.add(methodKey);
+                }
+            }
+        }
+        
+        for (CompactClass clazz : classes) {
+            for (CompactClass.Method method : clazz.getMethods()) {
+                CompactCode code = method.getCode();
+                for (int i = 0; code != null && i < code.size(); i++) {
+                    int opcode = code.getOpcode(i);
+                    if (opcode >= Opcodes.INVOKEVIRTUAL && opcode <= Opcodes.INVOKEINTERFACE) {
+                        referencedMethods.add(code.getOwner(i) + "." + code.getName(i) + code.getDescriptor(i));
+                    }
+                }
+            }
+        }
+        
+        Set<String> unusedMethods = new HashSet<>(allMethods);
+        unusedMethods.removeAll(referencedMethods);
+        
+        return unusedMethods;
+    }
+    
+    public static Set<String> findUnusedFields(Collection<CompactClass> classes) {
+        Set<String> allFields = new HashSet<>();
+        Set<String> referencedFields = new HashSet<>();
+        
+        for (CompactClass clazz : classes) {
+            for (CompactClass.Member field : clazz.getFields()) {
+                allFields.add(clazz.getName() + "." + field.getName());
+            }
+        }
+        
+        for (CompactClass clazz : classes) {
+            for (CompactClass.Method method : clazz.getMethods()) {
+                CompactCode code = method.getCode();
+                for (int i = 0; code != null && i < code.size(); i++) {
+                    int opcode = code.getOpcode(i);
+                    if (opcode >= Opcodes.GETSTATIC && opcode <= Opcodes.PUTFIELD) {
+                        referencedFields.add(code.getOwner(i) + "." + code.getName(i));
+                    }
+                }
+            }
+        }
+        
+        Set<String> unusedFields = new HashSet<>(allFields);
+        unusedFields.removeAll(referencedFields);
+        
+        return unusedFields;
+    }
+    
     private static boolean isEntryPoint(ProgramMethod method) {
         return method.isPublic() && 
                ("main".equals(method.getName()) || 
@@ -69,6 +133,15 @@ public class UnusedCodeAnalyzer {
                 method.getName().startsWith("is"));
     }
     
+    private static boolean isEntryPoint(CompactClass.Method method) {
+        return method.isPublic() && 
+               ("main".equals(method.getName()) || 
+                method.isConstructor() ||
+                method.getName().startsWith("get") ||
+                method.getName().startsWith("set") ||
+                method.getName().startsWith("is"));
+    }
+    
     private static Set<String> findMethodReferences(ProgramMethod method) {
         Set<String> references = new HashSet<>();
         
@@ -114,6 +187,37 @@ public class UnusedCodeAnalyzer {
         return complexity;
     }
     
+    public static Map<String, Integer> getMethodComplexity(Collection<CompactClass> classes) {
+        Map<String, Integer> complexity = new HashMap<>();
+        
+        for (CompactClass clazz : classes) {
+            for (CompactClass.Method method : clazz.getMethods()) {
+                String methodKey = clazz.getName() + "." + method.getName() + method.getDescriptor();
+                complexity.put(methodKey, calculateMethodComplexity(method.getCode()));
+            }
+        }
+        
+        return complexity;
+    }
+    
+    private static int calculateMethodComplexity(CompactCode code) {
+        int complexity = 1;
+        
+        for (int i = 0; code != null && i < code.size(); i++) {
+            if (isBranch(code.getOpcode(i))) {
+                complexity++;
+            }
+        }
+        
+        return complexity;
+    }
+    
+    private static boolean isBranch(int opcode) {
+        return (opcode >= Opcodes.IFEQ && opcode <= Opcodes.JSR)
+                || opcode == Opcodes.TABLESWITCH || opcode == Opcodes.LOOKUPSWITCH
+                || opcode == Opcodes.IFNULL || opcode == Opcodes.IFNONNULL;
+    }
+    
     private static int calculateMethodComplexity(ProgramMethod method) {
         if (method.getMethodNode() == null || method.getMethodNode().instructions == null) {
             return 0;
@@ -151,6 +255,25 @@ public class UnusedCodeAnalyzer {
         return deadCode;
     }
     
+    /**
+     * Returns the methods with instructions that no path from the method entry reaches,
+     * following jumps, switches and exception handlers.
+     */
+    public static Set<String> findDeadCode(Collection<CompactClass> classes) {
+        Set<String> deadCode = new HashSet<>();
+        
+        for (CompactClass clazz : classes) {
+            for (CompactClass.Method method : clazz.getMethods()) {
+                CompactCode code = method.getCode();
+                if (code != null && code.findReachable().cardinality() < code.size()) {
+                    deadCode.add(clazz.getName() + "." + method.getName() + method.getDescriptor());
+                }
+            }
+        }
+        
+        return deadCode;
+    }
+    
     private static boolean hasUnreachableCode(ProgramMethod method) {
         if (method.getMethodNode() == null || method.getMethodNode().instructions == null) {
             return false;
@@ -202,4 +325,21 @@ public class UnusedCodeAnalyzer {
                 .map(Map.Entry::getKey)
                 .toList();
     }
+    
+    public static List<String> getLargestMethods(Collection<CompactClass> classes, int limit) {
+        Map<String, Integer> methodSizes = new HashMap<>();
+        
+        for (CompactClass clazz : classes) {
+            for (CompactClass.Method method : clazz.getMethods()) {
+                String methodKey = clazz.getName() + "." + method.getName() + method.getDescriptor();
+                methodSizes.put(methodKey, method.getInstructionCount());
+            }
+        }
+        
+        return methodSizes.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
 }
\ No newline at end of file
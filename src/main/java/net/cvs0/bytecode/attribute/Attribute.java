@@ -1,7 +1,10 @@
 package net.cvs0.bytecode.attribute;
 
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 public class Attribute {
     private String name;
@@ -27,18 +30,64 @@ public class Attribute {
         this.name = name;
     }
     
+    /**
+     * Returns a copy of the raw attribute data that the caller may modify. Readers should
+     * prefer {@link #getDataBuffer()}, which does not copy.
+     */
     public byte[] getData() {
         return data != null ? data.clone() : null;
     }
     
+    /**
+     * Returns a read-only view of the raw attribute data, positioned at its start, or
+     * {@code null} if the attribute has none. The view shares the attribute's array, so it
+     * reflects later {@link #setData} calls only if taken after them.
+     */
+    public ByteBuffer getDataBuffer() {
+        return data != null ? ByteBuffer.wrap(data).asReadOnlyBuffer() : null;
+    }
+    
     public void setData(byte[] data) {
         this.data = data != null ? data.clone() : null;
     }
     
+    /**
+     * Takes over {@code data} without copying it, for decoders that have just allocated it.
+     */
+    void adoptData(byte[] data) {
+        this.data = data;
+    }
+    
+    /**
+     * Returns the length of the raw attribute data without copying it.
+     */
+    public int getDataLength() {
+        return data != null ? data.length : 0;
+    }
+    
+    /**
+     * Returns a modifiable copy of the properties. Readers should prefer
+     * {@link #getPropertiesView()} or {@link #forEachProperty}, which do not copy.
+     */
     public Map<String, Object> getProperties() {
         return new HashMap<>(properties);
     }
     
+    /**
+     * Returns an unmodifiable live view of the properties.
+     */
+    public Map<String, Object> getPropertiesView() {
+        return Collections.unmodifiableMap(properties);
+    }
+    
+    /**
+     * Passes every property to {@code action} without copying the map. The action must not
+     * change this attribute's properties.
+     */
+    public void forEachProperty(BiConsumer<String, Object> action) {
+        properties.forEach(action);
+    }
+    
     public void setProperty(String key, Object value) {
         properties.put(key, value);
     }
@@ -47,6 +96,10 @@ public class Attribute {
         return properties.get(key);
     }
     
+    public int getPropertyCount() {
+        return properties.size();
+    }
+    
     public boolean hasProperty(String key) {
         return properties.containsKey(key);
     }
@@ -0,0 +1,283 @@
+package net.cvs0.bytecode.attribute;
+
+import net.cvs0.bytecode.member.LineNumber;
+import net.cvs0.bytecode.member.LocalVariable;
+import org.objectweb.asm.ClassReader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes method attributes straight from the bytes of a class file.
+ *
+ * <p>A decoder records where each {@code method_info} structure starts, so a method's
+ * attributes can be decoded when they are first asked for rather than when the class is
+ * read. Jars that are only analyzed then never build attribute objects at all, and the class
+ * file, which the reader has already loaded, is the only thing retained until they do. That
+ * retention is the price: a decoder keeps its {@link ClassReader} alive, with the class bytes,
+ * the constant pool offsets and the cached strings, until every method that holds it has
+ * decoded its attributes.
+ *
+ * <p>Attributes are decoded as the class file stores them: a {@link CodeAttribute} holds
+ * the real bytecode, its exception handlers carry real offsets and resolved catch types, and
+ * the {@code LineNumberTable}, {@code LocalVariableTable} and
+ * {@code LocalVariableTypeTable} it contains are decoded as nested attributes. Attributes
+ * without a model class keep their raw data.
+ *
+ * <p>A decoder does not change after construction and may be shared between threads.
+ */
+public class AttributeDecoder {
+    private final ClassReader classReader;
+    private final int[] methodOffsets;
+    private final int classFileLength;
+
+    /**
+     * Indexes the methods of the class read by {@code classReader}.
+     */
+    public AttributeDecoder(ClassReader classReader) {
+        this.classReader = classReader;
+
+        int offset = classReader.header + 6;
+        offset += 2 + 2 * classReader.readUnsignedShort(offset);
+        int fieldCount = classReader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < fieldCount; i++) {
+            offset = skipMember(offset);
+        }
+
+        methodOffsets = new int[classReader.readUnsignedShort(offset)];
+        offset += 2;
+        for (int i = 0; i < methodOffsets.length; i++) {
+            methodOffsets[i] = offset;
+            offset = skipMember(offset);
+        }
+        classFileLength = skipAttributes(offset);
+    }
+
+    public AttributeDecoder(byte[] classFile) {
+        this(new ClassReader(classFile));
+    }
+
+    private int skipMember(int offset) {
+        return skipAttributes(offset + 6);
+    }
+
+    private int skipAttributes(int offset) {
+        int count = classReader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            offset += 6 + classReader.readInt(offset + 2);
+        }
+        return offset;
+    }
+
+    /**
+     * Returns the number of methods, in the order they appear in the class file, which is
+     * also the order of {@code ClassNode.methods}.
+     */
+    public int getMethodCount() {
+        return methodOffsets.length;
+    }
+
+    /**
+     * Returns the offset of a method's {@code method_info} structure, for
+     * {@link #decodeMethodAttributes(int)}.
+     */
+    public int getMethodOffset(int index) {
+        return methodOffsets[index];
+    }
+
+    /**
+     * Returns a buffer large enough for any string in the class file, for
+     * {@link #getMethodName(int, char[])} and {@link #getMethodDescriptor(int, char[])}. The
+     * buffer is scratch space and may be reused for every call on the same thread.
+     */
+    public char[] newStringBuffer() {
+        return new char[classReader.getMaxStringLength()];
+    }
+
+    public String getMethodName(int index, char[] buffer) {
+        return classReader.readUTF8(methodOffsets[index] + 2, buffer);
+    }
+
+    public String getMethodDescriptor(int index, char[] buffer) {
+        return classReader.readUTF8(methodOffsets[index] + 4, buffer);
+    }
+
+    /**
+     * Returns the number of bytes the class file spans, which the decoder keeps alive.
+     */
+    public int getClassFileLength() {
+        return classFileLength;
+    }
+
+    /**
+     * Returns the number of constant pool entries, each of which the reader indexes.
+     */
+    public int getConstantPoolSize() {
+        return classReader.getItemCount();
+    }
+
+    /**
+     * Decodes the attributes of the method whose {@code method_info} starts at
+     * {@code methodOffset}, in class file order.
+     */
+    public List<Attribute> decodeMethodAttributes(int methodOffset) {
+        char[] buffer = new char[classReader.getMaxStringLength()];
+        int offset = methodOffset + 6;
+        int count = classReader.readUnsignedShort(offset);
+        offset += 2;
+
+        List<Attribute> attributes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = classReader.readUTF8(offset, buffer);
+            int length = classReader.readInt(offset + 2);
+            attributes.add(decodeMethodAttribute(name, offset + 6, length, buffer));
+            offset += 6 + length;
+        }
+        return attributes;
+    }
+
+    private Attribute decodeMethodAttribute(String name, int offset, int length, char[] buffer) {
+        switch (name) {
+            case "Code":
+                return decodeCode(offset, buffer);
+            case "Exceptions": {
+                int count = classReader.readUnsignedShort(offset);
+                List<String> exceptions = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    exceptions.add(classReader.readClass(offset + 2 + 2 * i, buffer));
+                }
+                return new ExceptionsAttribute(exceptions);
+            }
+            case "Signature":
+                return new SignatureAttribute(classReader.readUTF8(offset, buffer));
+            case "MethodParameters": {
+                MethodParametersAttribute attribute = new MethodParametersAttribute();
+                int count = classReader.readByte(offset);
+                for (int i = 0; i < count; i++) {
+                    int entry = offset + 1 + 4 * i;
+                    attribute.addParameter(new MethodParametersAttribute.Parameter(
+                            classReader.readUTF8(entry, buffer), classReader.readUnsignedShort(entry + 2)));
+                }
+                return attribute;
+            }
+            case "Synthetic", "Deprecated":
+                return new Attribute(name);
+            case "RuntimeVisibleAnnotations", "RuntimeInvisibleAnnotations": {
+                AnnotationAttribute attribute = new AnnotationAttribute(name, name.startsWith("RuntimeVisible"));
+                attribute.adoptData(copy(offset, length));
+                return attribute;
+            }
+            default: {
+                Attribute attribute = new Attribute(name);
+                attribute.adoptData(copy(offset, length));
+                return attribute;
+            }
+        }
+    }
+
+    private CodeAttribute decodeCode(int offset, char[] buffer) {
+        CodeAttribute code = new CodeAttribute();
+        code.setMaxStack(classReader.readUnsignedShort(offset));
+        code.setMaxLocals(classReader.readUnsignedShort(offset + 2));
+        int codeLength = classReader.readInt(offset + 4);
+        code.adoptCode(copy(offset + 8, codeLength));
+        offset += 8 + codeLength;
+
+        int handlerCount = classReader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < handlerCount; i++) {
+            int catchType = classReader.readUnsignedShort(offset + 6);
+            code.addExceptionHandler(new CodeAttribute.ExceptionHandler(
+                    classReader.readUnsignedShort(offset),
+                    classReader.readUnsignedShort(offset + 2),
+                    classReader.readUnsignedShort(offset + 4),
+                    catchType != 0 ? classReader.readClass(offset + 6, buffer) : null));
+            offset += 8;
+        }
+
+        int count = classReader.readUnsignedShort(offset);
+        offset += 2;
+        LocalVariableTableAttribute variables = null;
+        LocalVariableTypeTableAttribute variableTypes = null;
+        for (int i = 0; i < count; i++) {
+            String name = classReader.readUTF8(offset, buffer);
+            int length = classReader.readInt(offset + 2);
+            int start = offset + 6;
+            Attribute attribute = switch (name) {
+                case "LineNumberTable" -> decodeLineNumbers(start);
+                case "LocalVariableTable" -> variables = decodeLocalVariables(start, buffer);
+                case "LocalVariableTypeTable" -> variableTypes = decodeLocalVariableTypes(start, buffer);
+                default -> {
+                    Attribute raw = new Attribute(name);
+                    raw.adoptData(copy(start, length));
+                    yield raw;
+                }
+            };
+            code.addCodeAttribute(attribute);
+            offset = start + length;
+        }
+
+        if (variables != null && variableTypes != null) {
+            for (LocalVariableTypeTableAttribute.LocalVariableType type : variableTypes.getLocalVariableTypes()) {
+                for (LocalVariable variable : variables.getLocalVariables()) {
+                    if (variable.getIndex() == type.getIndex() && variable.getStartPc() == type.getStartPc()) {
+                        variable.setSignature(type.getSignature());
+                    }
+                }
+            }
+        }
+        return code;
+    }
+
+    private LineNumberTableAttribute decodeLineNumbers(int offset) {
+        LineNumberTableAttribute attribute = new LineNumberTableAttribute();
+        int count = classReader.readUnsignedShort(offset);
+        for (int i = 0; i < count; i++) {
+            int entry = offset + 2 + 4 * i;
+            attribute.addLineNumber(new LineNumber(
+                    classReader.readUnsignedShort(entry), classReader.readUnsignedShort(entry + 2)));
+        }
+        return attribute;
+    }
+
+    private LocalVariableTableAttribute decodeLocalVariables(int offset, char[] buffer) {
+        LocalVariableTableAttribute attribute = new LocalVariableTableAttribute();
+        int count = classReader.readUnsignedShort(offset);
+        for (int i = 0; i < count; i++) {
+            int entry = offset + 2 + 10 * i;
+            attribute.addLocalVariable(new LocalVariable(
+                    classReader.readUTF8(entry + 4, buffer),
+                    classReader.readUTF8(entry + 6, buffer),
+                    null,
+                    classReader.readUnsignedShort(entry),
+                    classReader.readUnsignedShort(entry + 2),
+                    classReader.readUnsignedShort(entry + 8)));
+        }
+        return attribute;
+    }
+
+    private LocalVariableTypeTableAttribute decodeLocalVariableTypes(int offset, char[] buffer) {
+        LocalVariableTypeTableAttribute attribute = new LocalVariableTypeTableAttribute();
+        int count = classReader.readUnsignedShort(offset);
+        for (int i = 0; i < count; i++) {
+            int entry = offset + 2 + 10 * i;
+            attribute.addLocalVariableType(new LocalVariableTypeTableAttribute.LocalVariableType(
+                    classReader.readUTF8(entry + 4, buffer),
+                    classReader.readUTF8(entry + 6, buffer),
+                    classReader.readUnsignedShort(entry),
+                    classReader.readUnsignedShort(entry + 2),
+                    classReader.readUnsignedShort(entry + 8)));
+        }
+        return attribute;
+    }
+
+    private byte[] copy(int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) classReader.readByte(offset + i);
+        }
+        return bytes;
+    }
+}
@@ -2,6 +2,9 @@ package net.cvs0.bytecode.attribute;
 
 import net.cvs0.bytecode.member.LocalVariable;
 import net.cvs0.bytecode.member.LineNumber;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.LabelNode;
 import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.LocalVariableNode;
 import org.objectweb.asm.tree.LineNumberNode;
@@ -22,12 +25,13 @@ public class AttributeFactory {
         
         if (localVariableNodes != null) {
             for (LocalVariableNode node : localVariableNodes) {
+                int start = offsetOf(node.start);
                 LocalVariable localVar = new LocalVariable(
                     node.name,
                     node.desc,
                     node.signature,
-                    node.start.getLabel().getOffset(),
-                    node.end.getLabel().getOffset() - node.start.getLabel().getOffset(),
+                    start,
+                    Math.max(offsetOf(node.end) - start, 0),
                     node.index
                 );
                 attribute.addLocalVariable(localVar);
@@ -37,6 +41,18 @@ public class AttributeFactory {
         return attribute;
     }
     
+    /**
+     * Returns the bytecode offset of a label, or 0 if it has not been resolved. Labels of a
+     * tree read by {@code ClassReader} are only resolved once the method is written again.
+     */
+    private static int offsetOf(LabelNode labelNode) {
+        try {
+            return labelNode.getLabel().getOffset();
+        } catch (IllegalStateException e) {
+            return 0;
+        }
+    }
+    
     /**
      * Creates a LineNumberTableAttribute from ASM LineNumberNode list.
      */
@@ -46,7 +62,7 @@ public class AttributeFactory {
         if (lineNumberNodes != null) {
             for (LineNumberNode node : lineNumberNodes) {
                 LineNumber lineNumber = new LineNumber(
-                    node.start.getLabel().getOffset(),
+                    offsetOf(node.start),
                     node.line
                 );
                 attribute.addLineNumber(lineNumber);
@@ -57,44 +73,38 @@ public class AttributeFactory {
     }
     
     /**
-     * Creates a CodeAttribute from a MethodNode.
+     * Creates a CodeAttribute from a MethodNode by assembling the method, so that the code
+     * bytes, exception handler offsets and nested debug tables are those a class writer would
+     * emit. Methods read from a class file are better served by {@link AttributeDecoder},
+     * which does not assemble anything. A method that cannot be assembled, for example because
+     * it is too large, yields an attribute without code.
      */
     public static CodeAttribute createCodeAttribute(MethodNode methodNode) {
         if (methodNode == null) {
             return null;
         }
 
-        CodeAttribute codeAttribute = new CodeAttribute();
-        codeAttribute.setMaxStack(methodNode.maxStack);
-        codeAttribute.setMaxLocals(methodNode.maxLocals);
-
-        if (methodNode.instructions != null) {
-            byte[] codeBytes = new byte[methodNode.instructions.size() * 4];
-            codeAttribute.setCode(codeBytes);
-        }
-
-        if (methodNode.tryCatchBlocks != null) {
-            methodNode.tryCatchBlocks.forEach(tcb -> {
-                try {
-                    int start = tcb.start.getLabel().getOffset();
-                    int end = tcb.end.getLabel().getOffset();
-                    int handlerOffset = tcb.handler.getLabel().getOffset();
-
-                    CodeAttribute.ExceptionHandler handler = new CodeAttribute.ExceptionHandler(
-                            start, end, handlerOffset, tcb.type
-                    );
-                    codeAttribute.addExceptionHandler(handler);
-                } catch (IllegalStateException e) {
+        if (methodNode.instructions != null && methodNode.instructions.size() > 0) {
+            try {
+                ClassWriter classWriter = new ClassWriter(0);
+                classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "Code", null, "java/lang/Object", null);
+                methodNode.accept(classWriter);
+                classWriter.visitEnd();
 
+                AttributeDecoder decoder = new AttributeDecoder(classWriter.toByteArray());
+                for (Attribute attribute : decoder.decodeMethodAttributes(decoder.getMethodOffset(0))) {
+                    if (attribute instanceof CodeAttribute codeAttribute) {
+                        return codeAttribute;
+                    }
                 }
-            });
-        }
-
-        if (methodNode.localVariables != null) {
-            LocalVariableTableAttribute lvtAttribute = createLocalVariableTable(methodNode.localVariables);
-            codeAttribute.addCodeAttribute(lvtAttribute);
+            } catch (RuntimeException e) {
+                // Fall through to an attribute that only records the frame sizes.
+            }
         }
 
+        CodeAttribute codeAttribute = new CodeAttribute();
+        codeAttribute.setMaxStack(methodNode.maxStack);
+        codeAttribute.setMaxLocals(methodNode.maxLocals);
         return codeAttribute;
     }
 
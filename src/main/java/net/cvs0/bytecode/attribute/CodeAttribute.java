@@ -1,5 +1,6 @@
 package net.cvs0.bytecode.attribute;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -31,14 +32,33 @@ public class CodeAttribute extends Attribute {
         this.maxLocals = maxLocals;
     }
     
+    /**
+     * Returns a copy of the bytecode that the caller may modify. Readers should prefer
+     * {@link #getCodeBuffer()}, which does not copy.
+     */
     public byte[] getCode() {
         return code != null ? code.clone() : null;
     }
     
+    /**
+     * Returns a read-only view of the bytecode, positioned at its start, or {@code null} if
+     * the attribute has none. See {@link #getCodeLength()} for its size.
+     */
+    public ByteBuffer getCodeBuffer() {
+        return code != null ? ByteBuffer.wrap(code).asReadOnlyBuffer() : null;
+    }
+    
     public void setCode(byte[] code) {
         this.code = code != null ? code.clone() : null;
     }
     
+    /**
+     * Takes over {@code code} without copying it, for decoders that have just allocated it.
+     */
+    void adoptCode(byte[] code) {
+        this.code = code;
+    }
+    
     public void addExceptionHandler(ExceptionHandler handler) {
         exceptionHandlers.add(handler);
     }
@@ -0,0 +1,177 @@
+package net.cvs0.bytecode.clazz;
+
+import net.cvs0.bytecode.instruction.CompactCode;
+import net.cvs0.bytecode.instruction.SymbolTable;
+import org.objectweb.asm.ClassReader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read-only class for analysis-only workloads, read straight from its class file without
+ * building an ASM tree. Method bodies are {@link CompactCode}; fields and methods keep only
+ * their name, descriptor and access flags.
+ *
+ * <p>{@link net.cvs0.bytecode.analysis.DependencyAnalyzer} and
+ * {@link net.cvs0.bytecode.analysis.UnusedCodeAnalyzer} accept collections of these in place
+ * of a {@link net.cvs0.bytecode.JarMapping}.
+ */
+public final class CompactClass {
+    private final String name;
+    private final String superName;
+    private final List<String> interfaces;
+    private final int access;
+    private final List<Member> fields;
+    private final List<Method> methods;
+
+    private CompactClass(String name, String superName, List<String> interfaces, int access,
+                         List<Member> fields, List<Method> methods) {
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.access = access;
+        this.fields = fields;
+        this.methods = methods;
+    }
+
+    /**
+     * Reads a class file. Attributes other than {@code Code} are skipped.
+     */
+    public static CompactClass read(byte[] classBytes) {
+        ClassReader classReader = new ClassReader(classBytes);
+        char[] buffer = new char[classReader.getMaxStringLength()];
+        SymbolTable symbols = new SymbolTable(classReader.getItemCount());
+
+        int offset = classReader.header + 6;
+        int interfaceCount = classReader.readUnsignedShort(offset);
+        List<String> interfaces = new ArrayList<>(interfaceCount);
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(classReader.readClass(offset + 2 + 2 * i, buffer));
+        }
+        offset += 2 + 2 * interfaceCount;
+
+        int fieldCount = classReader.readUnsignedShort(offset);
+        offset += 2;
+        List<Member> fields = new ArrayList<>(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            fields.add(new Member(classReader.readUTF8(offset + 2, buffer), classReader.readUTF8(offset + 4, buffer),
+                    classReader.readUnsignedShort(offset)));
+            offset = skipAttributes(classReader, offset + 6);
+        }
+
+        int methodCount = classReader.readUnsignedShort(offset);
+        offset += 2;
+        List<Method> methods = new ArrayList<>(methodCount);
+        for (int i = 0; i < methodCount; i++) {
+            CompactCode code = null;
+            int attributeCount = classReader.readUnsignedShort(offset + 6);
+            int attribute = offset + 8;
+            for (int j = 0; j < attributeCount; j++) {
+                if ("Code".equals(classReader.readUTF8(attribute, buffer))) {
+                    code = CompactCode.read(classReader, attribute + 6, symbols);
+                }
+                attribute += 6 + classReader.readInt(attribute + 2);
+            }
+            methods.add(new Method(classReader.readUTF8(offset + 2, buffer), classReader.readUTF8(offset + 4, buffer),
+                    classReader.readUnsignedShort(offset), code));
+            offset = attribute;
+        }
+
+        return new CompactClass(classReader.getClassName(), classReader.getSuperName(),
+                Collections.unmodifiableList(interfaces), classReader.getAccess(),
+                Collections.unmodifiableList(fields), Collections.unmodifiableList(methods));
+    }
+
+    private static int skipAttributes(ClassReader classReader, int offset) {
+        int count = classReader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++) {
+            offset += 6 + classReader.readInt(offset + 2);
+        }
+        return offset;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSuperName() {
+        return superName;
+    }
+
+    public List<String> getInterfaces() {
+        return interfaces;
+    }
+
+    public int getAccess() {
+        return access;
+    }
+
+    public List<Member> getFields() {
+        return fields;
+    }
+
+    public List<Method> getMethods() {
+        return methods;
+    }
+
+    /**
+     * A field, or the signature part of a method.
+     */
+    public static class Member {
+        private final String name;
+        private final String descriptor;
+        private final int access;
+
+        Member(String name, String descriptor, int access) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.access = access;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        public int getAccess() {
+            return access;
+        }
+
+        public boolean isPublic() {
+            return (access & 0x0001) != 0;
+        }
+
+        public boolean isStatic() {
+            return (access & 0x0008) != 0;
+        }
+    }
+
+    public static final class Method extends Member {
+        private final CompactCode code;
+
+        Method(String name, String descriptor, int access, CompactCode code) {
+            super(name, descriptor, access);
+            this.code = code;
+        }
+
+        /**
+         * Returns the body, or {@code null} for abstract and native methods.
+         */
+        public CompactCode getCode() {
+            return code;
+        }
+
+        public int getInstructionCount() {
+            return code != null ? code.size() : 0;
+        }
+
+        public boolean isConstructor() {
+            return "<init>".equals(getName());
+        }
+    }
+}
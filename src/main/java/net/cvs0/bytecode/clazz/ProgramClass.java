@@ -27,6 +27,7 @@ public class ProgramClass {
     private final List<InnerClass> innerClasses = new ArrayList<>();
     
     private ClassNode classNode;
+    private boolean modified = true;
     
     public ProgramClass(String name) {
         this.name = name;
@@ -56,12 +57,17 @@ public class ProgramClass {
         String key = method.getName() + method.getDescriptor();
         methods.put(key, method);
         method.setOwner(this);
+        modified = true;
     }
     
     public void addAttribute(Attribute attribute) {
         attributes.add(attribute);
     }
     
+    public void removeAttribute(Attribute attribute) {
+        attributes.remove(attribute);
+    }
+    
     public void addInnerClass(InnerClass innerClass) {
         innerClasses.add(innerClass);
     }
@@ -256,6 +262,37 @@ public class ProgramClass {
     
     public void setClassNode(ClassNode classNode) {
         this.classNode = classNode;
+        this.modified = true;
+    }
+    
+    /**
+     * Returns whether the code may have changed since the class was read, so the stack map
+     * frames it was read with can no longer be trusted. A class built in memory counts as
+     * modified; {@link net.cvs0.bytecode.util.JarReader} clears the flag on the classes it
+     * reads, and the instruction editing methods of {@link ProgramMethod} set it again.
+     * Passes that edit method nodes directly must call {@link ProgramMethod#syncInstructions()}
+     * or set the flag themselves.
+     */
+    public boolean isModified() {
+        return modified;
+    }
+    
+    public void setModified(boolean modified) {
+        this.modified = modified;
+    }
+    
+    /**
+     * Returns the samples in which a method of this class was on the stack in the applied
+     * profile, or -1 if no profile has been applied to its methods.
+     */
+    public long getTotalSamples() {
+        long samples = -1;
+        for (ProgramMethod method : methods.values()) {
+            if (method.getTotalSamples() >= 0) {
+                samples = Math.max(samples, 0) + method.getTotalSamples();
+            }
+        }
+        return samples;
     }
     
     public boolean isInterface() {
@@ -0,0 +1,26 @@
+package net.cvs0.bytecode.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Emitted by {@link net.cvs0.bytecode.analysis.DependencyAnalyzer} for every dependency
+ * graph it builds.
+ */
+@Name("net.cvs0.bytecode.DependencyGraph")
+@Label("Dependency Graph Build")
+@Category({"Bytecode Processor", "Analyze"})
+@Description("Construction of a class dependency graph")
+@Threshold("0 ms")
+public final class DependencyGraphEvent extends Event {
+
+    @Label("Classes")
+    public int classCount;
+
+    @Label("Edges")
+    public long edgeCount;
+}
@@ -0,0 +1,36 @@
+package net.cvs0.bytecode.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Emitted by {@link net.cvs0.bytecode.util.JarReader} for every class entry it reads and
+ * parses into a {@link net.cvs0.bytecode.clazz.ProgramClass}, and by
+ * {@link net.cvs0.bytecode.util.ResourceHandle} when resource contents are read from the
+ * archive on demand.
+ */
+@Name("net.cvs0.bytecode.JarEntryRead")
+@Label("Jar Entry Read")
+@Category({"Bytecode Processor", "Read"})
+@Description("Reading and parsing of a single jar entry")
+@Threshold("1 ms")
+@StackTrace(false)
+public final class JarEntryReadEvent extends Event {
+
+    @Label("Entry Name")
+    public String entryName;
+
+    @Label("Class Name")
+    @Description("Internal name of the parsed class, null for resources")
+    public String className;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
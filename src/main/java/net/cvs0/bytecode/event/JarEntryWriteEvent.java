@@ -0,0 +1,38 @@
+package net.cvs0.bytecode.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Emitted by {@link net.cvs0.bytecode.util.JarWriter} for every entry written, including
+ * class file generation with frame computation.
+ */
+@Name("net.cvs0.bytecode.JarEntryWrite")
+@Label("Jar Entry Write")
+@Category({"Bytecode Processor", "Write"})
+@Description("Generation and writing of a single jar entry")
+@Threshold("1 ms")
+@StackTrace(false)
+public final class JarEntryWriteEvent extends Event {
+
+    @Label("Entry Name")
+    public String entryName;
+
+    @Label("Class Name")
+    @Description("Internal name of the written class, null for resources")
+    public String className;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Frames Computed")
+    @Description("Whether stack map frames were recomputed rather than kept from the source class")
+    public boolean framesComputed;
+}
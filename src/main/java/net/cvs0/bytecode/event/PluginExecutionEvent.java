@@ -0,0 +1,35 @@
+package net.cvs0.bytecode.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Emitted by {@link net.cvs0.bytecode.plugin.PluginManager} for every plugin invocation:
+ * once per run for whole-jar plugins, once per class for fused class plugins.
+ */
+@Name("net.cvs0.bytecode.PluginExecution")
+@Label("Plugin Execution")
+@Category({"Bytecode Processor", "Plugin"})
+@Description("Execution of a plugin over a jar or a single class")
+@Threshold("1 ms")
+@StackTrace(false)
+public final class PluginExecutionEvent extends Event {
+
+    @Label("Plugin")
+    public String pluginName;
+
+    @Label("Class Name")
+    @Description("Class processed by a fused class plugin, null for whole-jar plugins")
+    public String className;
+
+    @Label("Classes")
+    public int classCount;
+
+    @Label("Failed")
+    public boolean failed;
+}
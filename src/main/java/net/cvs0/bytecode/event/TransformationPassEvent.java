@@ -0,0 +1,32 @@
+package net.cvs0.bytecode.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Emitted by {@link net.cvs0.bytecode.transform.ClassTransformer} for each pass of
+ * {@code applyTransformations}.
+ */
+@Name("net.cvs0.bytecode.TransformationPass")
+@Label("Transformation Pass")
+@Category({"Bytecode Processor", "Transform"})
+@Description("One pass of a class transformer run")
+@Threshold("0 ms")
+@StackTrace(false)
+public final class TransformationPassEvent extends Event {
+
+    @Label("Pass")
+    public String pass;
+
+    @Label("Mappings")
+    @Description("Number of rename mappings applied by the pass")
+    public int mappingCount;
+
+    @Label("Classes")
+    public int classCount;
+}
@@ -0,0 +1,368 @@
+package net.cvs0.bytecode.instruction;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+import java.util.BitSet;
+
+/**
+ * A read-only method body stored as parallel arrays, for analyses that never rewrite code.
+ *
+ * <p>Instruction {@code i} is {@code getOpcode(i)} with the single int {@code getOperand(i)}:
+ * <ul>
+ *   <li>field, method, type and {@code ldc} instructions: a constant pool index, looked up
+ *       in the class's {@link SymbolTable};</li>
+ *   <li>jumps: the index of the target instruction;</li>
+ *   <li>switches: an index into a shared target array, see {@link #getSwitchTargets(int)};</li>
+ *   <li>local variable instructions: the variable index; {@code iinc} also packs its
+ *       increment, see {@link #getIncrement(int)};</li>
+ *   <li>{@code bipush}, {@code sipush} and {@code newarray}: the immediate value;</li>
+ *   <li>{@code multianewarray}: the class index, with the dimensions in the top 16 bits.</li>
+ * </ul>
+ *
+ * <p>Opcodes are normalized the way {@link ClassReader} normalizes them for a tree:
+ * {@code iload_0} becomes {@code iload 0}, {@code ldc_w} and {@code ldc2_w} become
+ * {@code ldc}, {@code goto_w} and {@code jsr_w} become {@code goto} and {@code jsr}, and
+ * {@code wide} is folded into the instruction it widens. There are no labels, line numbers or
+ * frames, so indices count real instructions only.
+ *
+ * <p>An instruction costs five bytes, against a tree node of 40 bytes or more plus its
+ * {@link Instruction} wrapper, and a scan walks two arrays front to back.
+ */
+public final class CompactCode {
+    private static final int[] EMPTY = new int[0];
+
+    private final SymbolTable symbols;
+    private final byte[] opcodes;
+    private final int[] operands;
+    private final int[] switchTargets;
+    private final int[] handlers;
+
+    private CompactCode(SymbolTable symbols, byte[] opcodes, int[] operands, int[] switchTargets, int[] handlers) {
+        this.symbols = symbols;
+        this.opcodes = opcodes;
+        this.operands = operands;
+        this.switchTargets = switchTargets;
+        this.handlers = handlers;
+    }
+
+    /**
+     * Decodes the Code attribute whose contents start at {@code codeAttributeOffset},
+     * resolving the symbols it uses into {@code symbols}.
+     */
+    public static CompactCode read(ClassReader classReader, int codeAttributeOffset, SymbolTable symbols) {
+        int codeLength = classReader.readInt(codeAttributeOffset + 4);
+        int codeStart = codeAttributeOffset + 8;
+        int codeEnd = codeStart + codeLength;
+
+        int[] indexAt = new int[codeLength + 1];
+        int count = 0;
+        int switchSize = 0;
+        for (int offset = codeStart; offset < codeEnd; ) {
+            indexAt[offset - codeStart] = count++;
+            int opcode = classReader.readByte(offset);
+            if (opcode == Opcodes.TABLESWITCH || opcode == Opcodes.LOOKUPSWITCH) {
+                switchSize += 1 + switchCount(classReader, opcode, offset, codeStart);
+            }
+            offset += length(classReader, offset, codeStart);
+        }
+        indexAt[codeLength] = count;
+
+        byte[] opcodes = new byte[count];
+        int[] operands = new int[count];
+        int[] switchTargets = switchSize > 0 ? new int[switchSize] : EMPTY;
+        char[] buffer = new char[classReader.getMaxStringLength()];
+        int switchPosition = 0;
+        int index = 0;
+        for (int offset = codeStart; offset < codeEnd; index++) {
+            int pc = offset - codeStart;
+            int opcode = classReader.readByte(offset);
+            int operand = 0;
+            if (opcode >= 26 && opcode <= 45) {
+                operand = (opcode - 26) & 3;
+                opcode = Opcodes.ILOAD + ((opcode - 26) >> 2);
+            } else if (opcode >= 59 && opcode <= 78) {
+                operand = (opcode - 59) & 3;
+                opcode = Opcodes.ISTORE + ((opcode - 59) >> 2);
+            } else {
+                switch (opcode) {
+                    case Opcodes.BIPUSH -> operand = (byte) classReader.readByte(offset + 1);
+                    case Opcodes.SIPUSH -> operand = classReader.readShort(offset + 1);
+                    case Opcodes.NEWARRAY, Opcodes.RET, Opcodes.ILOAD, Opcodes.LLOAD, Opcodes.FLOAD,
+                            Opcodes.DLOAD, Opcodes.ALOAD, Opcodes.ISTORE, Opcodes.LSTORE, Opcodes.FSTORE,
+                            Opcodes.DSTORE, Opcodes.ASTORE -> operand = classReader.readByte(offset + 1);
+                    case Opcodes.LDC -> operand = symbol(classReader, classReader.readByte(offset + 1), symbols, buffer);
+                    case 19, 20 -> {
+                        opcode = Opcodes.LDC;
+                        operand = symbol(classReader, classReader.readUnsignedShort(offset + 1), symbols, buffer);
+                    }
+                    case Opcodes.IINC ->
+                        operand = classReader.readByte(offset + 1) << 16 | (classReader.readByte(offset + 2) << 24 >> 24) & 0xFFFF;
+                    case Opcodes.GETSTATIC, Opcodes.PUTSTATIC, Opcodes.GETFIELD, Opcodes.PUTFIELD,
+                            Opcodes.INVOKEVIRTUAL, Opcodes.INVOKESPECIAL, Opcodes.INVOKESTATIC,
+                            Opcodes.INVOKEINTERFACE, Opcodes.INVOKEDYNAMIC, Opcodes.NEW, Opcodes.ANEWARRAY,
+                            Opcodes.CHECKCAST, Opcodes.INSTANCEOF ->
+                        operand = symbol(classReader, classReader.readUnsignedShort(offset + 1), symbols, buffer);
+                    case Opcodes.MULTIANEWARRAY ->
+                        operand = classReader.readByte(offset + 3) << 16
+                                | symbol(classReader, classReader.readUnsignedShort(offset + 1), symbols, buffer);
+                    case 200, 201 -> {
+                        opcode = opcode == 200 ? Opcodes.GOTO : Opcodes.JSR;
+                        operand = indexAt[pc + classReader.readInt(offset + 1)];
+                    }
+                    case Opcodes.TABLESWITCH, Opcodes.LOOKUPSWITCH -> {
+                        operand = switchPosition;
+                        int base = offset + 4 - (pc & 3);
+                        int targets = switchCount(classReader, opcode, offset, codeStart);
+                        switchTargets[switchPosition++] = targets;
+                        switchTargets[switchPosition++] = indexAt[pc + classReader.readInt(base)];
+                        for (int i = 1; i < targets; i++) {
+                            int jump = opcode == Opcodes.TABLESWITCH
+                                    ? classReader.readInt(base + 12 + 4 * (i - 1))
+                                    : classReader.readInt(base + 8 + 8 * (i - 1) + 4);
+                            switchTargets[switchPosition++] = indexAt[pc + jump];
+                        }
+                    }
+                    case 196 -> {
+                        opcode = classReader.readByte(offset + 1);
+                        operand = classReader.readUnsignedShort(offset + 2);
+                        if (opcode == Opcodes.IINC) {
+                            operand = operand << 16 | classReader.readShort(offset + 4) & 0xFFFF;
+                        }
+                    }
+                    default -> {
+                        if (isJumpOpcode(opcode)) {
+                            operand = indexAt[pc + classReader.readShort(offset + 1)];
+                        }
+                    }
+                }
+            }
+            opcodes[index] = (byte) opcode;
+            operands[index] = operand;
+            offset += length(classReader, offset, codeStart);
+        }
+
+        int handlerTable = codeEnd;
+        int handlerCount = classReader.readUnsignedShort(handlerTable);
+        int[] handlers = handlerCount > 0 ? new int[handlerCount * 3] : EMPTY;
+        for (int i = 0; i < handlerCount; i++) {
+            int entry = handlerTable + 2 + 8 * i;
+            handlers[3 * i] = indexAt[classReader.readUnsignedShort(entry)];
+            handlers[3 * i + 1] = indexAt[classReader.readUnsignedShort(entry + 2)];
+            handlers[3 * i + 2] = indexAt[classReader.readUnsignedShort(entry + 4)];
+        }
+
+        return new CompactCode(symbols, opcodes, operands, switchTargets, handlers);
+    }
+
+    private static int symbol(ClassReader classReader, int index, SymbolTable symbols, char[] buffer) {
+        symbols.resolve(classReader, index, buffer);
+        return index;
+    }
+
+    /**
+     * Returns the number of targets of a switch, its default included.
+     */
+    private static int switchCount(ClassReader classReader, int opcode, int offset, int codeStart) {
+        int base = offset + 4 - ((offset - codeStart) & 3);
+        if (opcode == Opcodes.TABLESWITCH) {
+            return classReader.readInt(base + 8) - classReader.readInt(base + 4) + 2;
+        }
+        return classReader.readInt(base + 4) + 1;
+    }
+
+    private static int length(ClassReader classReader, int offset, int codeStart) {
+        int opcode = classReader.readByte(offset);
+        switch (opcode) {
+            case Opcodes.TABLESWITCH, Opcodes.LOOKUPSWITCH: {
+                int base = offset + 4 - ((offset - codeStart) & 3);
+                int targets = switchCount(classReader, opcode, offset, codeStart);
+                return base - offset + (opcode == Opcodes.TABLESWITCH ? 12 + 4 * (targets - 1) : 8 + 8 * (targets - 1));
+            }
+            case 196:
+                return classReader.readByte(offset + 1) == Opcodes.IINC ? 6 : 4;
+            case Opcodes.BIPUSH, Opcodes.LDC, Opcodes.NEWARRAY, Opcodes.RET, Opcodes.ILOAD, Opcodes.LLOAD,
+                    Opcodes.FLOAD, Opcodes.DLOAD, Opcodes.ALOAD, Opcodes.ISTORE, Opcodes.LSTORE,
+                    Opcodes.FSTORE, Opcodes.DSTORE, Opcodes.ASTORE:
+                return 2;
+            case Opcodes.SIPUSH, 19, 20, Opcodes.IINC, Opcodes.GETSTATIC, Opcodes.PUTSTATIC, Opcodes.GETFIELD,
+                    Opcodes.PUTFIELD, Opcodes.INVOKEVIRTUAL, Opcodes.INVOKESPECIAL, Opcodes.INVOKESTATIC,
+                    Opcodes.NEW, Opcodes.ANEWARRAY, Opcodes.CHECKCAST, Opcodes.INSTANCEOF:
+                return 3;
+            case Opcodes.MULTIANEWARRAY:
+                return 4;
+            case Opcodes.INVOKEINTERFACE, Opcodes.INVOKEDYNAMIC, 200, 201:
+                return 5;
+            default:
+                return isJumpOpcode(opcode) ? 3 : 1;
+        }
+    }
+
+    private static boolean isJumpOpcode(int opcode) {
+        return (opcode >= Opcodes.IFEQ && opcode <= Opcodes.JSR) || opcode == Opcodes.IFNULL || opcode == Opcodes.IFNONNULL;
+    }
+
+    public int size() {
+        return opcodes.length;
+    }
+
+    public int getOpcode(int index) {
+        return opcodes[index] & 0xFF;
+    }
+
+    public int getOperand(int index) {
+        return operands[index];
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Returns the owner of a field or method instruction.
+     */
+    public String getOwner(int index) {
+        return symbols.getOwner(operands[index]);
+    }
+
+    /**
+     * Returns the name of a field, method or invokedynamic instruction.
+     */
+    public String getName(int index) {
+        return symbols.getName(operands[index]);
+    }
+
+    /**
+     * Returns the descriptor of a field, method or invokedynamic instruction.
+     */
+    public String getDescriptor(int index) {
+        return symbols.getDescriptor(operands[index]);
+    }
+
+    /**
+     * Returns the class of a type instruction or {@code multianewarray}, or, for {@code ldc},
+     * the class or method type descriptor it loads, which is {@code null} for other constants.
+     */
+    public String getTypeName(int index) {
+        return symbols.getClassName(operands[index] & 0xFFFF);
+    }
+
+    /**
+     * Returns the increment of an {@code iinc}; its variable is {@code getOperand(i) >>> 16}.
+     */
+    public int getIncrement(int index) {
+        return (short) operands[index];
+    }
+
+    public boolean isJump(int index) {
+        return isJumpOpcode(getOpcode(index));
+    }
+
+    /**
+     * Returns the instruction a jump goes to.
+     */
+    public int getJumpTarget(int index) {
+        return operands[index];
+    }
+
+    public boolean isSwitch(int index) {
+        int opcode = getOpcode(index);
+        return opcode == Opcodes.TABLESWITCH || opcode == Opcodes.LOOKUPSWITCH;
+    }
+
+    /**
+     * Returns the instructions a switch goes to, the default first.
+     */
+    public int[] getSwitchTargets(int index) {
+        int start = operands[index];
+        int[] targets = new int[switchTargets[start]];
+        System.arraycopy(switchTargets, start + 1, targets, 0, targets.length);
+        return targets;
+    }
+
+    public int getHandlerCount() {
+        return handlers.length / 3;
+    }
+
+    /**
+     * Returns the first instruction a handler covers.
+     */
+    public int getHandlerStart(int handler) {
+        return handlers[3 * handler];
+    }
+
+    /**
+     * Returns the instruction after the last one a handler covers.
+     */
+    public int getHandlerEnd(int handler) {
+        return handlers[3 * handler + 1];
+    }
+
+    public int getHandlerTarget(int handler) {
+        return handlers[3 * handler + 2];
+    }
+
+    /**
+     * Returns whether control can fall through from the instruction to the next one.
+     */
+    public boolean fallsThrough(int index) {
+        int opcode = getOpcode(index);
+        return !(opcode == Opcodes.GOTO || opcode == Opcodes.RET || opcode == Opcodes.ATHROW
+                || opcode == Opcodes.TABLESWITCH || opcode == Opcodes.LOOKUPSWITCH
+                || (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN));
+    }
+
+    /**
+     * Returns the instructions that can execute, following fall-through, jumps, switches and
+     * the handlers of covered instructions from the first instruction.
+     */
+    public BitSet findReachable() {
+        BitSet reachable = new BitSet(size());
+        int[] stack = new int[size() + 1];
+        int top = 0;
+        if (size() > 0) {
+            reachable.set(0);
+            stack[top++] = 0;
+        }
+
+        boolean changed = true;
+        while (changed) {
+            while (top > 0) {
+                int index = stack[--top];
+                if (fallsThrough(index) && index + 1 < size() && !reachable.get(index + 1)) {
+                    reachable.set(index + 1);
+                    stack[top++] = index + 1;
+                }
+                if (isJump(index)) {
+                    top = push(reachable, stack, top, getJumpTarget(index));
+                } else if (isSwitch(index)) {
+                    int start = operands[index];
+                    for (int i = 1; i <= switchTargets[start]; i++) {
+                        top = push(reachable, stack, top, switchTargets[start + i]);
+                    }
+                }
+            }
+
+            changed = false;
+            for (int handler = 0; handler < getHandlerCount(); handler++) {
+                int target = getHandlerTarget(handler);
+                if (!reachable.get(target)) {
+                    int covered = reachable.nextSetBit(getHandlerStart(handler));
+                    if (covered >= 0 && covered < getHandlerEnd(handler)) {
+                        top = push(reachable, stack, top, target);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return reachable;
+    }
+
+    private static int push(BitSet reachable, int[] stack, int top, int index) {
+        if (index < stack.length - 1 && !reachable.get(index)) {
+            reachable.set(index);
+            stack[top++] = index;
+        }
+        return top;
+    }
+}
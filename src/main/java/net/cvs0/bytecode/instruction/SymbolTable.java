@@ -0,0 +1,98 @@
+package net.cvs0.bytecode.instruction;
+
+import org.objectweb.asm.ClassReader;
+
+/**
+ * The symbols that the instructions of one class refer to, indexed by constant pool index.
+ *
+ * <p>A {@link CompactCode} stores constant pool indices as operands and looks the names up
+ * here. Only the entries that instructions use are resolved, while the class file is being
+ * read; the class file itself is not retained. Strings are shared between all methods of the
+ * class.
+ */
+public final class SymbolTable {
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+
+    private final String[] classNames;
+    private final String[] owners;
+    private final String[] names;
+    private final String[] descriptors;
+
+    /**
+     * Creates an empty table for a constant pool of {@code size} entries, as returned by
+     * {@link ClassReader#getItemCount()}.
+     */
+    public SymbolTable(int size) {
+        classNames = new String[size];
+        owners = new String[size];
+        names = new String[size];
+        descriptors = new String[size];
+    }
+
+    /**
+     * Resolves the constant pool entry an instruction refers to.
+     */
+    void resolve(ClassReader classReader, int index, char[] buffer) {
+        if (index <= 0 || index >= classNames.length || classNames[index] != null || names[index] != null) {
+            return;
+        }
+        int offset = classReader.getItem(index);
+        switch (classReader.readByte(offset - 1)) {
+            case CONSTANT_CLASS -> classNames[index] = classReader.readUTF8(offset, buffer);
+            case CONSTANT_METHOD_TYPE -> classNames[index] = classReader.readUTF8(offset, buffer);
+            case CONSTANT_FIELDREF, CONSTANT_METHODREF, CONSTANT_INTERFACE_METHODREF -> {
+                owners[index] = classReader.readClass(offset, buffer);
+                resolveNameAndType(classReader, index, classReader.readUnsignedShort(offset + 2), buffer);
+            }
+            case CONSTANT_INVOKE_DYNAMIC ->
+                    resolveNameAndType(classReader, index, classReader.readUnsignedShort(offset + 2), buffer);
+            default -> {
+                // Numbers, strings, method handles and dynamic constants name no symbol.
+            }
+        }
+    }
+
+    private void resolveNameAndType(ClassReader classReader, int index, int nameAndType, char[] buffer) {
+        int offset = classReader.getItem(nameAndType);
+        names[index] = classReader.readUTF8(offset, buffer);
+        descriptors[index] = classReader.readUTF8(offset + 2, buffer);
+    }
+
+    /**
+     * Returns the internal name of a class entry, or the descriptor of a method type entry,
+     * or {@code null}.
+     */
+    public String getClassName(int index) {
+        return index > 0 && index < classNames.length ? classNames[index] : null;
+    }
+
+    /**
+     * Returns the owner of a field or method reference, or {@code null}.
+     */
+    public String getOwner(int index) {
+        return index > 0 && index < owners.length ? owners[index] : null;
+    }
+
+    /**
+     * Returns the name of a field, method or invokedynamic entry, or {@code null}.
+     */
+    public String getName(int index) {
+        return index > 0 && index < names.length ? names[index] : null;
+    }
+
+    /**
+     * Returns the descriptor of a field, method or invokedynamic entry, or {@code null}.
+     */
+    public String getDescriptor(int index) {
+        return index > 0 && index < descriptors.length ? descriptors[index] : null;
+    }
+
+    public int size() {
+        return classNames.length;
+    }
+}
@@ -1,5 +1,9 @@
 package net.cvs0.bytecode.member;
 
+import net.cvs0.bytecode.analysis.ControlFlowGraph;
+import net.cvs0.bytecode.analysis.DataflowProblem;
+import net.cvs0.bytecode.analysis.DataflowResult;
+import net.cvs0.bytecode.analysis.DataflowSolver;
 import net.cvs0.bytecode.attribute.*;
 import net.cvs0.bytecode.clazz.ProgramClass;
 import net.cvs0.bytecode.instruction.Instruction;
@@ -10,6 +14,7 @@ import org.objectweb.asm.tree.InsnList;
 import org.objectweb.asm.tree.MethodNode;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 public class ProgramMethod {
     private String name;
@@ -26,13 +31,24 @@ public class ProgramMethod {
     private final List<LocalVariable> localVariables = new ArrayList<>();
     private final List<LineNumber> lineNumbers = new ArrayList<>();
     private MethodNode methodNode;
+    private ControlFlowGraph controlFlowGraph;
+    private volatile boolean attributesDecoded;
+    private AttributeDecoder attributeDecoder;
+    private int methodOffset;
+    private long selfSamples = -1;
+    private long totalSamples = -1;
     
     public ProgramMethod(String name, String descriptor, int access) {
         this.name = name;
         this.descriptor = descriptor;
         this.access = access;
+        this.attributesDecoded = true;
     }
     
+    /**
+     * Wraps a method node. Its attributes are built from the node when they are first asked
+     * for.
+     */
     public ProgramMethod(MethodNode methodNode) {
         this.methodNode = methodNode;
         this.name = methodNode.name;
@@ -49,19 +65,37 @@ public class ProgramMethod {
                 instructions.add(new Instruction(insn));
             }
         }
-        
-        extractAttributesFromMethodNode(methodNode);
+    }
+    
+    /**
+     * Wraps a method node read from a class file. Its attributes, local variables included,
+     * are decoded from the class file when they are first asked for, so they describe the
+     * method as it was read even if its instructions were edited in the meantime. Until then
+     * the method keeps the decoder, and with it the whole class file, reachable.
+     * 
+     * @param methodNode the node the class reader built for the method
+     * @param attributeDecoder the decoder of the class file the method was read from
+     * @param methodOffset the offset of the method in the class file, from
+     *        {@link AttributeDecoder#getMethodOffset(int)}
+     */
+    public ProgramMethod(MethodNode methodNode, AttributeDecoder attributeDecoder, int methodOffset) {
+        this(methodNode);
+        this.attributeDecoder = attributeDecoder;
+        this.methodOffset = methodOffset;
     }
     
     public void addAttribute(Attribute attribute) {
+        decodeAttributes();
         attributes.add(attribute);
     }
     
     public void addLocalVariable(LocalVariable localVariable) {
+        decodeAttributes();
         localVariables.add(localVariable);
     }
     
     public void removeLocalVariable(LocalVariable localVariable) {
+        decodeAttributes();
         localVariables.remove(localVariable);
     }
     
@@ -74,6 +108,7 @@ public class ProgramMethod {
     }
     
     public void addInstruction(Instruction instruction) {
+        codeChanged();
         instructions.add(instruction);
         if (methodNode != null && methodNode.instructions != null) {
             methodNode.instructions.add(instruction.getInstructionNode());
@@ -81,6 +116,7 @@ public class ProgramMethod {
     }
     
     public void insertInstruction(int index, Instruction instruction) {
+        codeChanged();
         instructions.add(index, instruction);
         if (methodNode != null && methodNode.instructions != null) {
             methodNode.instructions.insert(
@@ -91,6 +127,7 @@ public class ProgramMethod {
     }
     
     public void removeInstruction(int index) {
+        codeChanged();
         if (index >= 0 && index < instructions.size()) {
             Instruction removed = instructions.remove(index);
             if (methodNode != null && methodNode.instructions != null) {
@@ -100,6 +137,7 @@ public class ProgramMethod {
     }
     
     public void replaceInstruction(int index, Instruction newInstruction) {
+        codeChanged();
         if (index >= 0 && index < instructions.size()) {
             Instruction old = instructions.set(index, newInstruction);
             if (methodNode != null && methodNode.instructions != null) {
@@ -108,7 +146,58 @@ public class ProgramMethod {
         }
     }
     
+    /**
+     * Removes every instruction node that matches, from both the instruction wrappers and
+     * the method node, in a single pass.
+     * 
+     * @return the number of instructions removed
+     */
+    public int removeInstructions(Predicate<AbstractInsnNode> matcher) {
+        Set<AbstractInsnNode> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (methodNode != null && methodNode.instructions != null) {
+            for (AbstractInsnNode node : methodNode.instructions) {
+                if (matcher.test(node)) {
+                    removed.add(node);
+                }
+            }
+            for (AbstractInsnNode node : removed) {
+                methodNode.instructions.remove(node);
+            }
+        }
+        for (Instruction instruction : instructions) {
+            if (matcher.test(instruction.getInstructionNode())) {
+                removed.add(instruction.getInstructionNode());
+            }
+        }
+        instructions.removeIf(instruction -> removed.contains(instruction.getInstructionNode()));
+        
+        if (!removed.isEmpty()) {
+            codeChanged();
+        }
+        return removed.size();
+    }
+    
+    /**
+     * Rebuilds the instruction wrappers from the method node after its instruction list was
+     * edited directly. Wrappers of nodes that are still in the list are kept.
+     */
+    public void syncInstructions() {
+        codeChanged();
+        Map<AbstractInsnNode, Instruction> existing = new IdentityHashMap<>();
+        for (Instruction instruction : instructions) {
+            existing.put(instruction.getInstructionNode(), instruction);
+        }
+        instructions.clear();
+        if (methodNode != null && methodNode.instructions != null) {
+            for (AbstractInsnNode insn : methodNode.instructions) {
+                Instruction instruction = existing.get(insn);
+                instructions.add(instruction != null ? instruction : new Instruction(insn));
+            }
+        }
+    }
+    
     public void clearInstructions() {
+        codeChanged();
         instructions.clear();
         if (methodNode != null && methodNode.instructions != null) {
             methodNode.instructions.clear();
@@ -116,6 +205,7 @@ public class ProgramMethod {
     }
     
     public List<Attribute> getAttributes() {
+        decodeAttributes();
         return Collections.unmodifiableList(attributes);
     }
     
@@ -124,6 +214,7 @@ public class ProgramMethod {
     }
     
     public List<LocalVariable> getLocalVariables() {
+        decodeAttributes();
         return Collections.unmodifiableList(localVariables);
     }
     
@@ -221,7 +312,75 @@ public class ProgramMethod {
     }
     
     public void setMethodNode(MethodNode methodNode) {
+        decodeAttributes();
         this.methodNode = methodNode;
+        codeChanged();
+    }
+    
+    /**
+     * Returns the decoder the attributes will be decoded with, or {@code null} once they
+     * have been decoded or if they come from the method node.
+     */
+    public AttributeDecoder getAttributeDecoder() {
+        return attributesDecoded ? null : attributeDecoder;
+    }
+    
+    /**
+     * Returns whether the attributes and local variables have been built.
+     */
+    public boolean areAttributesDecoded() {
+        return attributesDecoded;
+    }
+    
+    public ControlFlowGraph getControlFlowGraph() {
+        if (controlFlowGraph == null) {
+            controlFlowGraph = ControlFlowGraph.build(methodNode);
+        }
+        return controlFlowGraph;
+    }
+    
+    /**
+     * Drops the cached control flow graph after the instructions were edited directly, and
+     * marks the owner as {@link ProgramClass#setModified modified}.
+     */
+    public void invalidateControlFlowGraph() {
+        codeChanged();
+    }
+    
+    private void codeChanged() {
+        controlFlowGraph = null;
+        if (owner != null) {
+            owner.setModified(true);
+        }
+    }
+    
+    /**
+     * Records how often the method appeared in an applied profile, as counted by
+     * {@link net.cvs0.bytecode.analysis.MethodProfile}.
+     */
+    public void setProfileSamples(long selfSamples, long totalSamples) {
+        this.selfSamples = selfSamples;
+        this.totalSamples = totalSamples;
+    }
+    
+    /**
+     * Returns the samples in which the method itself was executing, or -1 if no profile has
+     * been applied.
+     */
+    public long getSelfSamples() {
+        return selfSamples;
+    }
+    
+    /**
+     * Returns the samples in which the method was anywhere on the stack, or -1 if no profile
+     * has been applied.
+     */
+    public long getTotalSamples() {
+        return totalSamples;
+    }
+    
+    public DataflowResult solveDataflow(DataflowProblem problem) {
+        return DataflowSolver.solve(getControlFlowGraph(), problem);
     }
     
     public boolean isStatic() {
@@ -280,27 +439,65 @@ public class ProgramMethod {
         return !instructions.isEmpty();
     }
     
+    private void decodeAttributes() {
+        if (attributesDecoded) {
+            return;
+        }
+        synchronized (this) {
+            if (attributesDecoded) {
+                return;
+            }
+            if (attributeDecoder != null) {
+                decodeAttributesFromClassFile();
+            } else {
+                extractAttributesFromMethodNode(methodNode);
+            }
+            attributeDecoder = null;
+            attributesDecoded = true;
+        }
+    }
+    
+    private void decodeAttributesFromClassFile() {
+        boolean synthetic = false;
+        for (Attribute attribute : attributeDecoder.decodeMethodAttributes(methodOffset)) {
+            attributes.add(attribute);
+            synthetic |= attribute.isSynthetic();
+            if (attribute instanceof CodeAttribute codeAttribute) {
+                for (Attribute nested : codeAttribute.getCodeAttributes()) {
+                    if (nested instanceof LocalVariableTableAttribute table) {
+                        attributes.add(table);
+                        localVariables.addAll(table.getLocalVariables());
+                    }
+                }
+            }
+        }
+        
+        if (isSynthetic() && !synthetic) {
+            attributes.add(AttributeFactory.createSyntheticAttribute());
+        }
+    }
+    
     private void extractAttributesFromMethodNode(MethodNode methodNode) {
         if (methodNode == null) return;
         
         if (methodNode.signature != null) {
-            addAttribute(AttributeFactory.createSignatureAttribute(methodNode.signature));
+            attributes.add(AttributeFactory.createSignatureAttribute(methodNode.signature));
         }
         
         if (methodNode.exceptions != null && !methodNode.exceptions.isEmpty()) {
-            addAttribute(AttributeFactory.createExceptionsAttribute(methodNode.exceptions));
+            attributes.add(AttributeFactory.createExceptionsAttribute(methodNode.exceptions));
         }
         
         if (methodNode.instructions != null && methodNode.instructions.size() > 0) {
             CodeAttribute codeAttribute = AttributeFactory.createCodeAttribute(methodNode);
             if (codeAttribute != null) {
-                addAttribute(codeAttribute);
+                attributes.add(codeAttribute);
             }
         }
         
         if (methodNode.localVariables != null && !methodNode.localVariables.isEmpty()) {
             LocalVariableTableAttribute lvtAttribute = AttributeFactory.createLocalVariableTable(methodNode.localVariables);
-            addAttribute(lvtAttribute);
+            attributes.add(lvtAttribute);
             
             for (var lvNode : methodNode.localVariables) {
                 LocalVariable localVar = new LocalVariable(
@@ -311,22 +508,22 @@ public class ProgramMethod {
                     0,
                     lvNode.index
                 );
-                addLocalVariable(localVar);
+                localVariables.add(localVar);
             }
         }
         
         if ((methodNode.access & 0x1000) != 0) {
-            addAttribute(AttributeFactory.createSyntheticAttribute());
+            attributes.add(AttributeFactory.createSyntheticAttribute());
         }
         
         if (methodNode.visibleAnnotations != null || methodNode.invisibleAnnotations != null) {
             if (methodNode.visibleAnnotations != null) {
                 AnnotationAttribute visibleAnnotations = new AnnotationAttribute("RuntimeVisibleAnnotations", true);
-                addAttribute(visibleAnnotations);
+                attributes.add(visibleAnnotations);
             }
             if (methodNode.invisibleAnnotations != null) {
                 AnnotationAttribute invisibleAnnotations = new AnnotationAttribute("RuntimeInvisibleAnnotations", false);
-                addAttribute(invisibleAnnotations);
+                attributes.add(invisibleAnnotations);
             }
         }
         
@@ -338,11 +535,12 @@ public class ProgramMethod {
                 );
                 methodParamsAttribute.addParameter(parameter);
             }
-            addAttribute(methodParamsAttribute);
+            attributes.add(methodParamsAttribute);
         }
     }
     
     public CodeAttribute getCodeAttribute() {
+        decodeAttributes();
         return attributes.stream()
                 .filter(attr -> attr instanceof CodeAttribute)
                 .map(attr -> (CodeAttribute) attr)
@@ -351,6 +549,7 @@ public class ProgramMethod {
     }
     
     public LocalVariableTableAttribute getLocalVariableTableAttribute() {
+        decodeAttributes();
         return attributes.stream()
                 .filter(attr -> attr instanceof LocalVariableTableAttribute)
                 .map(attr -> (LocalVariableTableAttribute) attr)
@@ -359,6 +558,7 @@ public class ProgramMethod {
     }
     
     public ExceptionsAttribute getExceptionsAttribute() {
+        decodeAttributes();
         return attributes.stream()
                 .filter(attr -> attr instanceof ExceptionsAttribute)
                 .map(attr -> (ExceptionsAttribute) attr)
@@ -367,6 +567,7 @@ public class ProgramMethod {
     }
     
     public SignatureAttribute getSignatureAttribute() {
+        decodeAttributes();
         return attributes.stream()
                 .filter(attr -> attr instanceof SignatureAttribute)
                 .map(attr -> (SignatureAttribute) attr)
@@ -375,6 +576,7 @@ public class ProgramMethod {
     }
     
     public MethodParametersAttribute getMethodParametersAttribute() {
+        decodeAttributes();
         return attributes.stream()
                 .filter(attr -> attr instanceof MethodParametersAttribute)
                 .map(attr -> (MethodParametersAttribute) attr)
@@ -383,10 +585,12 @@ public class ProgramMethod {
     }
     
     public boolean hasAttribute(String attributeName) {
+        decodeAttributes();
         return attributes.stream().anyMatch(attr -> attributeName.equals(attr.getName()));
     }
     
     public Attribute getAttribute(String attributeName) {
+        decodeAttributes();
         return attributes.stream()
                 .filter(attr -> attributeName.equals(attr.getName()))
                 .findFirst()
@@ -394,16 +598,19 @@ public class ProgramMethod {
     }
     
     public List<Attribute> getAttributesByType(Class<? extends Attribute> attributeType) {
+        decodeAttributes();
         return attributes.stream()
                 .filter(attributeType::isInstance)
                 .toList();
     }
     
     public void removeAttribute(String attributeName) {
+        decodeAttributes();
         attributes.removeIf(attr -> attributeName.equals(attr.getName()));
     }
     
     public void removeAttribute(Attribute attribute) {
+        decodeAttributes();
         attributes.remove(attribute);
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package net.cvs0.bytecode.plugin;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+
+import java.util.ArrayList;
+
+/**
+ * A plugin whose work decomposes into independent per-class steps.
+ *
+ * <p>{@link PluginManager} fuses consecutive enabled class plugins into a single traversal:
+ * each class is handed to every plugin of the run in priority order before moving on, and
+ * classes are spread over a fork-join pool. {@link #processClass} may therefore be called
+ * concurrently for different classes and must only mutate the class it is given.
+ */
+public interface ClassPlugin extends Plugin {
+
+    void processClass(ProgramClass clazz, JarMapping mapping);
+
+    @Override
+    default void process(JarMapping mapping) {
+        for (ProgramClass clazz : new ArrayList<>(mapping.getProgramClasses())) {
+            processClass(clazz, mapping);
+        }
+    }
+}
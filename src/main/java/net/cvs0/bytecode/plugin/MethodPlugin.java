@@ -0,0 +1,22 @@
+package net.cvs0.bytecode.plugin;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramMethod;
+
+import java.util.ArrayList;
+
+/**
+ * A {@link ClassPlugin} that only looks at one method at a time.
+ */
+public interface MethodPlugin extends ClassPlugin {
+
+    void processMethod(ProgramMethod method, JarMapping mapping);
+
+    @Override
+    default void processClass(ProgramClass clazz, JarMapping mapping) {
+        for (ProgramMethod method : new ArrayList<>(clazz.getMethods())) {
+            processMethod(method, mapping);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package net.cvs0.bytecode.plugin;
+
+/**
+ * Parts of a {@link net.cvs0.bytecode.JarMapping} a plugin can declare to read or write.
+ *
+ * <p>{@link PluginManager} runs two plugins concurrently only if neither writes a part
+ * the other reads or writes.
+ */
+public enum ModelPart {
+    CLASS_NAMES,
+    MEMBERS,
+    INSTRUCTIONS,
+    ATTRIBUTES,
+    RESOURCES
+}
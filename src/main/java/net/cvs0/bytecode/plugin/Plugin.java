@@ -2,6 +2,9 @@ package net.cvs0.bytecode.plugin;
 
 import net.cvs0.bytecode.JarMapping;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public interface Plugin {
     
     String getName();
@@ -23,4 +26,33 @@ public interface Plugin {
     default int getPriority() {
         return 0;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Parts of the mapping this plugin reads. Defaults to everything.
+     */
+    default Set<ModelPart> getReads() {
+        return EnumSet.allOf(ModelPart.class);
+    }
+    
+    /**
+     * Parts of the mapping this plugin modifies. Defaults to everything, which makes the
+     * plugin conflict with every other plugin and keeps it strictly ordered.
+     */
+    default Set<ModelPart> getWrites() {
+        return EnumSet.allOf(ModelPart.class);
+    }
+    
+    /**
+     * Names of plugins that must finish before this one starts, regardless of priority.
+     */
+    default Set<String> getRunsAfter() {
+        return Set.of();
+    }
+    
+    /**
+     * Names of plugins that must not start before this one finishes, regardless of priority.
+     */
+    default Set<String> getRunsBefore() {
+        return Set.of();
+    }
+}
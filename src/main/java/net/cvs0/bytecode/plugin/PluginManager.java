@@ -1,14 +1,42 @@
 package net.cvs0.bytecode.plugin;
 
 import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.event.PluginExecutionEvent;
+import net.cvs0.bytecode.util.JsonWriter;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 public class PluginManager {
     private final Map<String, Plugin> plugins = new ConcurrentHashMap<>();
     private final List<Plugin> sortedPlugins = new ArrayList<>();
+    private static final int CHUNKS_PER_THREAD = 4;
+    
+    private final Map<String, PluginMetrics> metrics = new ConcurrentHashMap<>();
+    private final ForkJoinPool pool;
     private boolean initialized = false;
+    private boolean mbeansRegistered = false;
+    private volatile long lastRunWallTimeNanos;
+    private volatile int lastRunClassCount;
+    
+    public PluginManager() {
+        this(ForkJoinPool.commonPool());
+    }
+    
+    public PluginManager(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        this.pool = pool;
+    }
     
     public void registerPlugin(Plugin plugin) {
         if (plugin == null) {
@@ -25,6 +53,10 @@ public class PluginManager {
         }
         
         plugins.put(name, plugin);
+        metrics.put(name, new PluginMetrics(name));
+        if (mbeansRegistered) {
+            registerMBean(metrics.get(name));
+        }
         updateSortedPlugins();
     }
     
@@ -36,6 +68,10 @@ public class PluginManager {
             } catch (Exception e) {
                 System.err.println("Error cleaning up plugin '" + name + "': " + e.getMessage());
             }
+            PluginMetrics removedMetrics = metrics.remove(name);
+            if (mbeansRegistered && removedMetrics != null) {
+                unregisterMBean(removedMetrics);
+            }
             updateSortedPlugins();
         }
     }
@@ -77,15 +113,214 @@ public class PluginManager {
             initializePlugins();
         }
         
-        for (Plugin plugin : getEnabledPlugins()) {
+        PluginSchedule schedule = PluginSchedule.build(getEnabledPlugins());
+        for (Plugin plugin : schedule.getOrderedPlugins()) {
+            metrics.get(plugin.getName()).reset();
+        }
+        
+        long start = System.nanoTime();
+        Map<PluginSchedule.Task, CompletableFuture<Void>> futures = new HashMap<>();
+        
+        for (PluginSchedule.Task task : schedule.getTasks()) {
+            CompletableFuture<?>[] dependencies = task.getDependencies().stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture<?>[]::new);
+            futures.put(task, CompletableFuture.allOf(dependencies)
+                    .thenRunAsync(() -> runTask(task, mapping), pool));
+        }
+        
+        CompletableFuture.allOf(futures.values().toArray(CompletableFuture<?>[]::new)).join();
+        
+        lastRunWallTimeNanos = System.nanoTime() - start;
+        lastRunClassCount = mapping.getProgramClasses().size();
+    }
+    
+    public PluginSchedule getSchedule() {
+        return PluginSchedule.build(getEnabledPlugins());
+    }
+    
+    private void runTask(PluginSchedule.Task task, JarMapping mapping) {
+        if (task.isFused()) {
+            runFused(task.getPlugins(), mapping);
+            return;
+        }
+        
+        for (Plugin plugin : task.getPlugins()) {
             try {
-                plugin.process(mapping);
+                invoke(plugin, metrics.get(plugin.getName()), null, mapping.getProgramClasses().size(), () -> plugin.process(mapping));
             } catch (Exception e) {
                 System.err.println("Error processing with plugin '" + plugin.getName() + "': " + e.getMessage());
             }
         }
     }
     
+    private void runFused(List<Plugin> run, JarMapping mapping) {
+        ClassPlugin[] chain = new ClassPlugin[run.size()];
+        PluginMetrics[] chainMetrics = new PluginMetrics[run.size()];
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = (ClassPlugin) run.get(i);
+            chainMetrics[i] = metrics.get(chain[i].getName());
+        }
+        List<ProgramClass> classes = new ArrayList<>(mapping.getProgramClasses());
+        // Thread counters are sampled per chunk rather than per class, since a ThreadMXBean
+        // read costs far more than a typical processClass call.
+        int chunks = Math.max(1, Math.min(classes.size(), pool.getParallelism() * CHUNKS_PER_THREAD));
+        
+        long start = System.nanoTime();
+        pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int from = (int) ((long) classes.size() * chunk / chunks);
+            int to = (int) ((long) classes.size() * (chunk + 1) / chunks);
+            runFusedChunk(chain, chainMetrics, classes.subList(from, to), mapping);
+        })).join();
+        long elapsed = System.nanoTime() - start;
+        for (PluginMetrics pluginMetrics : chainMetrics) {
+            pluginMetrics.addElapsed(elapsed);
+        }
+    }
+    
+    private static void runFusedChunk(ClassPlugin[] chain, PluginMetrics[] chainMetrics, List<ProgramClass> classes,
+                                      JarMapping mapping) {
+        long[] wall = new long[chain.length];
+        long startCpu = ThreadCosts.currentCpuNanos();
+        long startAllocated = ThreadCosts.currentAllocatedBytes();
+        for (ProgramClass clazz : classes) {
+            for (int i = 0; i < chain.length; i++) {
+                ClassPlugin plugin = chain[i];
+                long begin = System.nanoTime();
+                try {
+                    traced(plugin, clazz.getName(), 1, () -> plugin.processClass(clazz, mapping));
+                } catch (RuntimeException e) {
+                    chainMetrics[i].recordFailure(e);
+                    System.err.println("Error processing class '" + clazz.getName() + "' with plugin '" + plugin.getName() + "': " + e.getMessage());
+                } finally {
+                    wall[i] += System.nanoTime() - begin;
+                }
+            }
+        }
+        long cpu = startCpu >= 0 ? ThreadCosts.currentCpuNanos() - startCpu : -1;
+        long allocated = startAllocated >= 0 ? ThreadCosts.currentAllocatedBytes() - startAllocated : -1;
+        
+        long totalWall = Arrays.stream(wall).sum();
+        for (int i = 0; i < chain.length; i++) {
+            double share = totalWall > 0 ? (double) wall[i] / totalWall : 1.0 / chain.length;
+            chainMetrics[i].record(classes.size(), wall[i], cpu >= 0 ? Math.round(cpu * share) : -1,
+                    allocated >= 0 ? Math.round(allocated * share) : -1, classes.size());
+        }
+    }
+    
+    private static void invoke(Plugin plugin, PluginMetrics pluginMetrics, String className, int classCount, Runnable work) {
+        traced(plugin, className, classCount, () -> pluginMetrics.measure(classCount, work));
+    }
+    
+    private static void traced(Plugin plugin, String className, int classCount, Runnable work) {
+        PluginExecutionEvent event = new PluginExecutionEvent();
+        event.begin();
+        boolean failed = true;
+        try {
+            work.run();
+            failed = false;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.pluginName = plugin.getName();
+                event.className = className;
+                event.classCount = classCount;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+    
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+    
+    public PluginMetrics getMetrics(String name) {
+        return metrics.get(name);
+    }
+    
+    public Map<String, PluginMetrics> getAllMetrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+    
+    public long getLastRunWallTimeNanos() {
+        return lastRunWallTimeNanos;
+    }
+    
+    /**
+     * Returns the metrics of the last {@link #processWithPlugins} run as a JSON document,
+     * with plugins listed in execution order.
+     */
+    public String getMetricsSummary() {
+        JsonWriter json = new JsonWriter();
+        json.beginObject()
+                .field("wallTimeNanos", lastRunWallTimeNanos)
+                .field("classes", lastRunClassCount)
+                .name("plugins").beginArray();
+        for (Plugin plugin : PluginSchedule.build(getEnabledPlugins()).getOrderedPlugins()) {
+            metrics.get(plugin.getName()).writeJson(json);
+        }
+        json.endArray().endObject();
+        return json.toString();
+    }
+    
+    /**
+     * Registers one {@link PluginMetricsMXBean} per plugin with the platform MBean server,
+     * under {@code net.cvs0.bytecode:type=PluginMetrics,name=<plugin>}.
+     */
+    public void registerMBeans() {
+        if (mbeansRegistered) {
+            return;
+        }
+        for (PluginMetrics pluginMetrics : metrics.values()) {
+            registerMBean(pluginMetrics);
+        }
+        mbeansRegistered = true;
+    }
+    
+    public void unregisterMBeans() {
+        if (!mbeansRegistered) {
+            return;
+        }
+        for (PluginMetrics pluginMetrics : metrics.values()) {
+            unregisterMBean(pluginMetrics);
+        }
+        mbeansRegistered = false;
+    }
+    
+    public static ObjectName getMBeanName(String pluginName) {
+        try {
+            return new ObjectName("net.cvs0.bytecode:type=PluginMetrics,name=" + ObjectName.quote(pluginName));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid plugin name for JMX: " + pluginName, e);
+        }
+    }
+    
+    private void registerMBean(PluginMetrics pluginMetrics) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = getMBeanName(pluginMetrics.getPluginName());
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(pluginMetrics, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register MBean " + name, e);
+        }
+    }
+    
+    private void unregisterMBean(PluginMetrics pluginMetrics) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = getMBeanName(pluginMetrics.getPluginName());
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            System.err.println("Error unregistering MBean " + name + ": " + e.getMessage());
+        }
+    }
+    
     public void cleanupPlugins() {
         for (Plugin plugin : plugins.values()) {
             try {
@@ -135,6 +370,8 @@ public class PluginManager {
     
     public void clear() {
         cleanupPlugins();
+        unregisterMBeans();
+        metrics.clear();
         plugins.clear();
         sortedPlugins.clear();
     }
@@ -0,0 +1,186 @@
+package net.cvs0.bytecode.plugin;
+
+import net.cvs0.bytecode.util.JsonWriter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cost counters for one plugin, collected by {@link PluginManager} during a run.
+ *
+ * <p>CPU time and allocated bytes are measured with the platform {@code ThreadMXBean} on the
+ * thread that invoked the plugin, so work a plugin forks onto other threads is not included.
+ * For fused {@link ClassPlugin}s, wall time is the sum of the per-class call durations across
+ * all worker threads, and the thread counters are sampled once per chunk of classes and
+ * shared between the fused plugins in proportion to their wall time. Elapsed time is the
+ * real time the plugin's run took, however many threads it used; throughput is based on it.
+ * CPU and allocation values are {@code -1} if the JVM cannot measure them.
+ */
+public class PluginMetrics implements PluginMetricsMXBean {
+    private final String pluginName;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder wallTimeNanos = new LongAdder();
+    private final LongAdder elapsedNanos = new LongAdder();
+    private final LongAdder cpuTimeNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder classesProcessed = new LongAdder();
+    private volatile boolean cpuSupported = true;
+    private volatile boolean allocationSupported = true;
+    private volatile String lastError;
+
+    public PluginMetrics(String pluginName) {
+        this.pluginName = pluginName;
+    }
+
+    /**
+     * Runs {@code work} on the current thread and records its cost. Exceptions are recorded
+     * as failures and rethrown.
+     */
+    void measure(int classCount, Runnable work) {
+        long startWall = System.nanoTime();
+        long startCpu = ThreadCosts.currentCpuNanos();
+        long startAllocated = ThreadCosts.currentAllocatedBytes();
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            failures.increment();
+            lastError = e.getClass().getName() + ": " + e.getMessage();
+            throw e;
+        } finally {
+            long wall = System.nanoTime() - startWall;
+            invocations.increment();
+            wallTimeNanos.add(wall);
+            elapsedNanos.add(wall);
+            classesProcessed.add(classCount);
+            if (startCpu >= 0) {
+                cpuTimeNanos.add(ThreadCosts.currentCpuNanos() - startCpu);
+            } else {
+                cpuSupported = false;
+            }
+            if (startAllocated >= 0) {
+                allocatedBytes.add(ThreadCosts.currentAllocatedBytes() - startAllocated);
+            } else {
+                allocationSupported = false;
+            }
+        }
+    }
+
+    /**
+     * Records a failed call made outside {@link #measure}.
+     */
+    void recordFailure(RuntimeException e) {
+        failures.increment();
+        lastError = e.getClass().getName() + ": " + e.getMessage();
+    }
+
+    /**
+     * Records the cost of calls measured by the caller, such as one chunk of a fused
+     * traversal. A negative CPU or allocation value means it could not be measured.
+     */
+    void record(long invocationCount, long wallNanos, long cpuNanos, long allocated, long classCount) {
+        invocations.add(invocationCount);
+        wallTimeNanos.add(wallNanos);
+        classesProcessed.add(classCount);
+        if (cpuNanos >= 0) {
+            cpuTimeNanos.add(cpuNanos);
+        } else {
+            cpuSupported = false;
+        }
+        if (allocated >= 0) {
+            allocatedBytes.add(allocated);
+        } else {
+            allocationSupported = false;
+        }
+    }
+
+    /**
+     * Adds the real time taken by a run whose calls were recorded with {@link #record}.
+     */
+    void addElapsed(long nanos) {
+        elapsedNanos.add(nanos);
+    }
+
+    public void reset() {
+        invocations.reset();
+        failures.reset();
+        wallTimeNanos.reset();
+        elapsedNanos.reset();
+        cpuTimeNanos.reset();
+        allocatedBytes.reset();
+        classesProcessed.reset();
+        lastError = null;
+    }
+
+    @Override
+    public String getPluginName() {
+        return pluginName;
+    }
+
+    @Override
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public long getWallTimeNanos() {
+        return wallTimeNanos.sum();
+    }
+
+    @Override
+    public long getElapsedNanos() {
+        return elapsedNanos.sum();
+    }
+
+    @Override
+    public long getCpuTimeNanos() {
+        return cpuSupported ? cpuTimeNanos.sum() : -1;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocationSupported ? allocatedBytes.sum() : -1;
+    }
+
+    @Override
+    public long getClassesProcessed() {
+        return classesProcessed.sum();
+    }
+
+    @Override
+    public double getClassesPerSecond() {
+        long elapsed = getElapsedNanos();
+        return elapsed > 0 ? getClassesProcessed() * 1_000_000_000.0 / elapsed : 0.0;
+    }
+
+    public void writeJson(JsonWriter json) {
+        json.beginObject()
+                .field("name", pluginName)
+                .field("invocations", getInvocations())
+                .field("failures", getFailures())
+                .field("lastError", lastError)
+                .field("wallTimeNanos", getWallTimeNanos())
+                .field("elapsedNanos", getElapsedNanos())
+                .field("cpuTimeNanos", getCpuTimeNanos())
+                .field("allocatedBytes", getAllocatedBytes())
+                .field("classesProcessed", getClassesProcessed())
+                .field("classesPerSecond", getClassesPerSecond())
+                .endObject();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: wall=%.3fms elapsed=%.3fms cpu=%.3fms allocated=%d bytes classes=%d (%.1f/s) failures=%d",
+                pluginName, getWallTimeNanos() / 1e6, getElapsedNanos() / 1e6, getCpuTimeNanos() / 1e6, getAllocatedBytes(),
+                getClassesProcessed(), getClassesPerSecond(), getFailures());
+    }
+}
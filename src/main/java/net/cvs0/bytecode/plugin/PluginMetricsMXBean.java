@@ -0,0 +1,27 @@
+package net.cvs0.bytecode.plugin;
+
+/**
+ * JMX view of a plugin's {@link PluginMetrics}, registered by {@link PluginManager#registerMBeans()}.
+ */
+public interface PluginMetricsMXBean {
+    
+    String getPluginName();
+    
+    long getInvocations();
+    
+    long getFailures();
+    
+    String getLastError();
+    
+    long getWallTimeNanos();
+    
+    long getElapsedNanos();
+    
+    long getCpuTimeNanos();
+    
+    long getAllocatedBytes();
+    
+    long getClassesProcessed();
+    
+    double getClassesPerSecond();
+}
@@ -0,0 +1,212 @@
+package net.cvs0.bytecode.plugin;
+
+import java.util.*;
+
+/**
+ * Execution plan for a set of enabled plugins.
+ *
+ * <p>Plugins are first put into a total order: explicit {@link Plugin#getRunsAfter()} and
+ * {@link Plugin#getRunsBefore()} constraints win, and priority breaks ties. Adjacent
+ * {@link ClassPlugin}s in that order are fused into one task. Every task then depends on
+ * each earlier task it conflicts with, where two tasks conflict if one writes a
+ * {@link ModelPart} the other reads or writes, or if an explicit constraint links them.
+ * Tasks with no path between them in the resulting DAG may run concurrently.
+ */
+public class PluginSchedule {
+    private final List<Task> tasks;
+
+    private PluginSchedule(List<Task> tasks) {
+        this.tasks = tasks;
+    }
+
+    /**
+     * Builds the schedule for plugins given in priority order.
+     *
+     * @param plugins enabled plugins, highest priority first
+     * @return the schedule
+     * @throws IllegalStateException if the ordering constraints form a cycle
+     */
+    public static PluginSchedule build(List<Plugin> plugins) {
+        List<Plugin> ordered = orderByConstraints(plugins);
+
+        List<Task> tasks = new ArrayList<>();
+        List<Plugin> fusedRun = new ArrayList<>();
+        for (Plugin plugin : ordered) {
+            if (plugin instanceof ClassPlugin) {
+                fusedRun.add(plugin);
+                continue;
+            }
+            if (!fusedRun.isEmpty()) {
+                tasks.add(new Task(tasks.size(), fusedRun, true));
+                fusedRun = new ArrayList<>();
+            }
+            tasks.add(new Task(tasks.size(), List.of(plugin), false));
+        }
+        if (!fusedRun.isEmpty()) {
+            tasks.add(new Task(tasks.size(), fusedRun, true));
+        }
+
+        for (int later = 0; later < tasks.size(); later++) {
+            for (int earlier = 0; earlier < later; earlier++) {
+                if (tasks.get(earlier).conflictsWith(tasks.get(later))) {
+                    tasks.get(later).dependencies.add(tasks.get(earlier));
+                }
+            }
+        }
+
+        return new PluginSchedule(Collections.unmodifiableList(tasks));
+    }
+
+    private static List<Plugin> orderByConstraints(List<Plugin> plugins) {
+        Map<String, Integer> indexByName = new HashMap<>();
+        for (int i = 0; i < plugins.size(); i++) {
+            indexByName.put(plugins.get(i).getName(), i);
+        }
+
+        List<Set<Integer>> successors = new ArrayList<>();
+        int[] inDegree = new int[plugins.size()];
+        for (int i = 0; i < plugins.size(); i++) {
+            successors.add(new HashSet<>());
+        }
+
+        for (int i = 0; i < plugins.size(); i++) {
+            Plugin plugin = plugins.get(i);
+            for (String name : plugin.getRunsAfter()) {
+                Integer before = indexByName.get(name);
+                if (before != null && successors.get(before).add(i)) {
+                    inDegree[i]++;
+                }
+            }
+            for (String name : plugin.getRunsBefore()) {
+                Integer after = indexByName.get(name);
+                if (after != null && successors.get(i).add(after)) {
+                    inDegree[after]++;
+                }
+            }
+        }
+
+        PriorityQueue<Integer> ready = new PriorityQueue<>();
+        for (int i = 0; i < plugins.size(); i++) {
+            if (inDegree[i] == 0) {
+                ready.add(i);
+            }
+        }
+
+        List<Plugin> ordered = new ArrayList<>(plugins.size());
+        while (!ready.isEmpty()) {
+            int current = ready.poll();
+            ordered.add(plugins.get(current));
+            for (int successor : successors.get(current)) {
+                if (--inDegree[successor] == 0) {
+                    ready.add(successor);
+                }
+            }
+        }
+
+        if (ordered.size() < plugins.size()) {
+            List<String> cyclic = new ArrayList<>();
+            for (int i = 0; i < plugins.size(); i++) {
+                if (inDegree[i] > 0) {
+                    cyclic.add(plugins.get(i).getName());
+                }
+            }
+            throw new IllegalStateException("Cyclic plugin ordering constraints between: " + cyclic);
+        }
+
+        return ordered;
+    }
+
+    /**
+     * Returns the tasks in a valid sequential execution order.
+     */
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Returns the plugins in the order a sequential run would execute them.
+     */
+    public List<Plugin> getOrderedPlugins() {
+        List<Plugin> plugins = new ArrayList<>();
+        for (Task task : tasks) {
+            plugins.addAll(task.getPlugins());
+        }
+        return plugins;
+    }
+
+    public static class Task {
+        private final int index;
+        private final List<Plugin> plugins;
+        private final boolean fused;
+        private final Set<ModelPart> reads = EnumSet.noneOf(ModelPart.class);
+        private final Set<ModelPart> writes = EnumSet.noneOf(ModelPart.class);
+        private final Set<String> names = new HashSet<>();
+        private final List<Task> dependencies = new ArrayList<>();
+
+        Task(int index, List<Plugin> plugins, boolean fused) {
+            this.index = index;
+            this.plugins = List.copyOf(plugins);
+            this.fused = fused;
+            for (Plugin plugin : plugins) {
+                reads.addAll(plugin.getReads());
+                writes.addAll(plugin.getWrites());
+                names.add(plugin.getName());
+            }
+        }
+
+        boolean conflictsWith(Task other) {
+            if (intersects(writes, other.reads) || intersects(writes, other.writes) || intersects(reads, other.writes)) {
+                return true;
+            }
+            for (Plugin plugin : plugins) {
+                if (intersects(plugin.getRunsBefore(), other.names) || intersects(plugin.getRunsAfter(), other.names)) {
+                    return true;
+                }
+            }
+            for (Plugin plugin : other.plugins) {
+                if (intersects(plugin.getRunsBefore(), names) || intersects(plugin.getRunsAfter(), names)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static <T> boolean intersects(Set<T> first, Set<T> second) {
+            for (T element : first) {
+                if (second.contains(element)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public List<Plugin> getPlugins() {
+            return plugins;
+        }
+
+        /**
+         * Whether this task is a fused traversal of {@link ClassPlugin}s.
+         */
+        public boolean isFused() {
+            return fused;
+        }
+
+        public List<Task> getDependencies() {
+            return Collections.unmodifiableList(dependencies);
+        }
+
+        @Override
+        public String toString() {
+            return "Task{" +
+                    "index=" + index +
+                    ", plugins=" + names +
+                    ", fused=" + fused +
+                    ", dependencies=" + dependencies.stream().map(Task::getIndex).toList() +
+                    '}';
+        }
+    }
+}
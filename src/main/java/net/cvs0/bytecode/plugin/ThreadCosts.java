@@ -0,0 +1,26 @@
+package net.cvs0.bytecode.plugin;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Per-thread CPU time and allocation counters, or {@code -1} where the JVM does not support them.
+ */
+final class ThreadCosts {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean EXTENDED_THREADS =
+            THREADS instanceof com.sun.management.ThreadMXBean extended && extended.isThreadAllocatedMemorySupported()
+                    ? extended : null;
+    private static final boolean CPU_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported();
+    
+    private ThreadCosts() {
+    }
+    
+    static long currentCpuNanos() {
+        return CPU_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+    
+    static long currentAllocatedBytes() {
+        return EXTENDED_THREADS != null ? EXTENDED_THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+}
@@ -0,0 +1,72 @@
+package net.cvs0.bytecode.plugin.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Class name patterns shared by the plugins' {@code include} and {@code exclude} options.
+ * Either {@code .} or {@code /} separates packages; {@code *} matches within one package and
+ * {@code **} across packages, so {@code com.example.**} covers every class below
+ * {@code com.example}.
+ */
+class ClassPatterns {
+    private final List<Pattern> includes;
+    private final List<Pattern> excludes;
+
+    ClassPatterns(String includes, String excludes) {
+        this.includes = compile(includes);
+        this.excludes = compile(excludes);
+    }
+
+    /**
+     * Returns whether {@code className}, an internal name, matches an include pattern and
+     * no exclude pattern.
+     */
+    boolean matches(String className) {
+        return matchesAny(includes, className) && !matchesAny(excludes, className);
+    }
+
+    private static boolean matchesAny(List<Pattern> patterns, String className) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(className).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Pattern> compile(String patterns) {
+        List<Pattern> compiled = new ArrayList<>();
+        for (String glob : split(patterns)) {
+            String normalized = glob.replace('.', '/');
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < normalized.length(); i++) {
+                char c = normalized.charAt(i);
+                if (c == '*' && i + 1 < normalized.length() && normalized.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else if (c == '*') {
+                    regex.append("[^/]*");
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            compiled.add(Pattern.compile(regex.toString()));
+        }
+        return compiled;
+    }
+
+    /**
+     * Splits a comma-separated option into its non-blank, trimmed parts.
+     */
+    static List<String> split(String value) {
+        List<String> parts = new ArrayList<>();
+        for (String part : value.split(",")) {
+            if (!part.isBlank()) {
+                parts.add(part.strip());
+            }
+        }
+        return parts;
+    }
+}
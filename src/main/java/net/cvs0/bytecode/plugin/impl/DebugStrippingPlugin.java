@@ -0,0 +1,270 @@
+package net.cvs0.bytecode.plugin.impl;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.attribute.Attribute;
+import net.cvs0.bytecode.attribute.AttributeFactory;
+import net.cvs0.bytecode.attribute.CodeAttribute;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.LineNumber;
+import net.cvs0.bytecode.member.LocalVariable;
+import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.plugin.AbstractPlugin;
+import net.cvs0.bytecode.plugin.ClassPlugin;
+import net.cvs0.bytecode.plugin.ModelPart;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Removes debug attributes from the classes of selected packages.
+ *
+ * <p>Which attributes count as debug information is decided by
+ * {@link AttributeFactory#isDebugAttribute}: {@code LineNumberTable},
+ * {@code LocalVariableTable}, {@code LocalVariableTypeTable}, {@code SourceFile} and
+ * {@code SourceDebugExtension}. They are removed from the ASM tree that is written out, and
+ * the matching entries are removed from the class and method attribute lists, so the model
+ * stays consistent. ASM writes a {@code LocalVariableTypeTable} only alongside a
+ * {@code LocalVariableTable}, so removing the latter removes both.
+ *
+ * <p>Classes are independent, so {@link net.cvs0.bytecode.plugin.PluginManager} may strip
+ * them concurrently, and {@link #process(JarMapping)} strips them in parallel when the plugin
+ * runs on its own. Each stripped class is written before and after to measure the bytes
+ * saved; see {@link #getReport()}.
+ *
+ * <p>Configuration:
+ * <ul>
+ *   <li>{@code include}: comma-separated class name patterns to strip (default {@code **}).
+ *       Either {@code .} or {@code /} separates packages; {@code *} matches within one
+ *       package and {@code **} across packages, so {@code com.example.**} covers every
+ *       class below {@code com.example}.</li>
+ *   <li>{@code exclude}: comma-separated patterns to leave alone (default none).</li>
+ *   <li>{@code attributes}: comma-separated attribute names to strip (default all five).</li>
+ * </ul>
+ */
+public class DebugStrippingPlugin extends AbstractPlugin implements ClassPlugin {
+    private static final String ALL_DEBUG_ATTRIBUTES =
+            "LineNumberTable,LocalVariableTable,LocalVariableTypeTable,SourceFile,SourceDebugExtension";
+
+    private Set<String> strippedAttributes = Set.of();
+    private ClassPatterns selection = new ClassPatterns("", "");
+    private Report report = new Report();
+
+    public DebugStrippingPlugin() {
+        super("Debug Stripping Plugin", "1.0.0", "Removes debug attributes from selected packages");
+    }
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        Set<String> attributes = new HashSet<>();
+        for (String name : ClassPatterns.split(getStringConfig("attributes", ALL_DEBUG_ATTRIBUTES))) {
+            if (!AttributeFactory.isDebugAttribute(new Attribute(name))) {
+                throw new IllegalArgumentException("Not a debug attribute: " + name);
+            }
+            attributes.add(name);
+        }
+        strippedAttributes = attributes;
+        selection = new ClassPatterns(getStringConfig("include", "**"), getStringConfig("exclude", ""));
+        report = new Report();
+    }
+
+    @Override
+    public void process(JarMapping mapping) {
+        List<ProgramClass> classes = new ArrayList<>(mapping.getProgramClasses());
+        ForkJoinPool.commonPool().submit(() -> classes.parallelStream()
+                .forEach(clazz -> processClass(clazz, mapping))).join();
+    }
+
+    @Override
+    public void processClass(ProgramClass clazz, JarMapping mapping) {
+        if (!selection.matches(clazz.getName())) {
+            return;
+        }
+
+        ClassNode classNode = clazz.getClassNode();
+        long bytesBefore = classNode != null && hasDebugInfo(classNode) ? classSize(classNode) : -1;
+        Map<String, Integer> removed = new HashMap<>();
+
+        if (strip("SourceFile") && clazz.getSourceFile() != null) {
+            clazz.setSourceFile(null);
+            removed.merge("SourceFile", 1, Integer::sum);
+        }
+        if (strip("SourceDebugExtension") && clazz.getSourceDebug() != null) {
+            clazz.setSourceDebug(null);
+            removed.merge("SourceDebugExtension", 1, Integer::sum);
+        }
+        for (Attribute attribute : new ArrayList<>(clazz.getAttributes())) {
+            if (isStripped(attribute)) {
+                clazz.removeAttribute(attribute);
+            }
+        }
+        for (ProgramMethod method : clazz.getMethods()) {
+            stripMethod(method, removed);
+        }
+
+        if (!removed.isEmpty()) {
+            long bytesAfter = bytesBefore >= 0 ? classSize(classNode) : 0;
+            report.add(removed, Math.max(bytesBefore, 0), bytesAfter);
+        }
+    }
+
+    private void stripMethod(ProgramMethod method, Map<String, Integer> removed) {
+        if (strip("LineNumberTable") && method.removeInstructions(LineNumberNode.class::isInstance) > 0) {
+            removed.merge("LineNumberTable", 1, Integer::sum);
+        }
+        if (strip("LineNumberTable")) {
+            for (LineNumber lineNumber : new ArrayList<>(method.getLineNumbers())) {
+                method.removeLineNumber(lineNumber);
+            }
+        }
+
+        MethodNode methodNode = method.getMethodNode();
+        if (methodNode != null && methodNode.localVariables != null && !methodNode.localVariables.isEmpty()) {
+            boolean hasTypes = methodNode.localVariables.stream().anyMatch(variable -> variable.signature != null);
+            if (strip("LocalVariableTable")) {
+                methodNode.localVariables = null;
+                removed.merge("LocalVariableTable", 1, Integer::sum);
+                if (hasTypes) {
+                    removed.merge("LocalVariableTypeTable", 1, Integer::sum);
+                }
+            } else if (strip("LocalVariableTypeTable") && hasTypes) {
+                for (LocalVariableNode variable : methodNode.localVariables) {
+                    variable.signature = null;
+                }
+                removed.merge("LocalVariableTypeTable", 1, Integer::sum);
+            }
+        }
+        if (strip("LocalVariableTable")) {
+            for (LocalVariable variable : new ArrayList<>(method.getLocalVariables())) {
+                method.removeLocalVariable(variable);
+            }
+        }
+
+        for (Attribute attribute : new ArrayList<>(method.getAttributes())) {
+            if (isStripped(attribute)) {
+                method.removeAttribute(attribute);
+            } else if (attribute instanceof CodeAttribute) {
+                CodeAttribute code = (CodeAttribute) attribute;
+                for (Attribute nested : new ArrayList<>(code.getCodeAttributes())) {
+                    if (isStripped(nested)) {
+                        code.removeCodeAttribute(nested);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean strip(String attributeName) {
+        return strippedAttributes.contains(attributeName);
+    }
+
+    private boolean isStripped(Attribute attribute) {
+        return AttributeFactory.isDebugAttribute(attribute) && strippedAttributes.contains(attribute.getName())
+                || attribute.isLocalVariableTypeTable() && strip("LocalVariableTable");
+    }
+
+    private boolean hasDebugInfo(ClassNode classNode) {
+        if (classNode.sourceFile != null || classNode.sourceDebug != null) {
+            return true;
+        }
+        for (MethodNode methodNode : classNode.methods) {
+            if (methodNode.localVariables != null && !methodNode.localVariables.isEmpty()) {
+                return true;
+            }
+            if (methodNode.instructions != null) {
+                for (AbstractInsnNode node : methodNode.instructions) {
+                    if (node instanceof LineNumberNode) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long classSize(ClassNode classNode) {
+        ClassWriter writer = new ClassWriter(0);
+        classNode.accept(writer);
+        return writer.toByteArray().length;
+    }
+
+    /**
+     * Returns what has been stripped since the plugin was last initialized.
+     */
+    public Report getReport() {
+        return report;
+    }
+
+    @Override
+    public Set<ModelPart> getReads() {
+        return EnumSet.of(ModelPart.INSTRUCTIONS, ModelPart.ATTRIBUTES);
+    }
+
+    @Override
+    public Set<ModelPart> getWrites() {
+        return EnumSet.of(ModelPart.INSTRUCTIONS, ModelPart.ATTRIBUTES);
+    }
+
+    @Override
+    public int getPriority() {
+        return 10;
+    }
+
+    /**
+     * Totals of a stripping run. Classes report concurrently, so the counters are adders.
+     * Sizes are of the class files as ASM writes them without recomputing frames, and only
+     * cover classes that had something to strip.
+     */
+    public static class Report {
+        private final LongAdder classes = new LongAdder();
+        private final LongAdder bytesBefore = new LongAdder();
+        private final LongAdder bytesAfter = new LongAdder();
+        private final Map<String, LongAdder> attributes = new ConcurrentHashMap<>();
+
+        void add(Map<String, Integer> removed, long before, long after) {
+            classes.increment();
+            bytesBefore.add(before);
+            bytesAfter.add(after);
+            removed.forEach((name, count) -> attributes.computeIfAbsent(name, k -> new LongAdder()).add(count));
+        }
+
+        public long getClassCount() {
+            return classes.sum();
+        }
+
+        public long getBytesBefore() {
+            return bytesBefore.sum();
+        }
+
+        public long getBytesAfter() {
+            return bytesAfter.sum();
+        }
+
+        public long getBytesSaved() {
+            return bytesBefore.sum() - bytesAfter.sum();
+        }
+
+        /**
+         * Returns how many attributes of each name were removed, sorted by name.
+         */
+        public Map<String, Long> getAttributeCounts() {
+            Map<String, Long> counts = new TreeMap<>();
+            attributes.forEach((name, count) -> counts.put(name, count.sum()));
+            return counts;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Stripped %d classes, saved %d of %d bytes: %s",
+                    getClassCount(), getBytesSaved(), getBytesBefore(), getAttributeCounts());
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package net.cvs0.bytecode.plugin.impl;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.plugin.AbstractPlugin;
+import net.cvs0.bytecode.plugin.ModelPart;
+import net.cvs0.bytecode.transform.InstructionTransformer;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Instruments selected methods with invocation counters that are written to a file when
+ * the JVM exits.
+ *
+ * <p>Each method gets an index into a {@link java.util.concurrent.atomic.LongAdder} table
+ * held by a generated class, and its entry becomes
+ * <pre>
+ * getstatic  Holder.COUNTERS
+ * push       index
+ * aaload
+ * invokevirtual LongAdder.increment()
+ * </pre>
+ * {@code LongAdder} spreads contended increments over striped cells, so hot methods called
+ * from many threads do not serialize on one cache line. The holder registers itself as a
+ * shutdown hook that writes every non-zero counter, read back with
+ * {@link #readCounts(Path)}; programs can also call its static {@code dump()} method to
+ * write the counts so far. If the JVM is already shutting down when the holder is
+ * initialized, no hook is registered and only explicit dumps are written.
+ *
+ * <p>Abstract, native and bridge methods are not instrumented. Counts start when the holder
+ * is initialized by the first instrumented call.
+ *
+ * <p>Configuration:
+ * <ul>
+ *   <li>{@code include}, {@code exclude}: class name patterns, as for
+ *       {@link DebugStrippingPlugin} (default every class).</li>
+ *   <li>{@code holderClass}: internal name of the generated class (default
+ *       {@value #DEFAULT_HOLDER}).</li>
+ *   <li>{@code output}: the file written at exit (default {@value #DEFAULT_OUTPUT}); the
+ *       {@value #OUTPUT_PROPERTY} system property overrides it at run time.</li>
+ *   <li>{@code shutdownHook}: whether the holder dumps at exit (default {@code true}); when
+ *       {@code false}, counts are only written by calls to {@code dump()}.</li>
+ * </ul>
+ */
+public class MethodCounterPlugin extends AbstractPlugin {
+    public static final String DEFAULT_HOLDER = "bytecode/counters/MethodCounters";
+    public static final String DEFAULT_OUTPUT = "method-counters.bin";
+    public static final String OUTPUT_PROPERTY = "method.counters.file";
+
+    /**
+     * The counters file starts with this magic number and {@link #FORMAT_VERSION}, followed
+     * by the number of entries and each entry as a modified UTF-8 method key and a long.
+     */
+    public static final int MAGIC = 0x4D434E54;
+    public static final int FORMAT_VERSION = 1;
+
+    private static final String COUNTERS_FIELD = "COUNTERS";
+    private static final Type LONG_ADDER = Type.getType("Ljava/util/concurrent/atomic/LongAdder;");
+    private static final Type LONG_ADDER_ARRAY = Type.getType("[Ljava/util/concurrent/atomic/LongAdder;");
+    private static final Type STRING = Type.getType(String.class);
+    private static final Type STRING_BUILDER = Type.getType(StringBuilder.class);
+    private static final Type DATA_OUTPUT = Type.getType("Ljava/io/DataOutputStream;");
+    private static final Method NO_ARG_CONSTRUCTOR = Method.getMethod("void <init> ()");
+    private static final Method DUMP = Method.getMethod("void dump ()");
+    private static final int NAME_CHUNK = 16_384;
+
+    private List<String> methodKeys = List.of();
+
+    public MethodCounterPlugin() {
+        super("Method Counter Plugin", "1.0.0", "Counts method invocations in the processed program");
+    }
+
+    @Override
+    public void process(JarMapping mapping) {
+        String holder = getStringConfig("holderClass", DEFAULT_HOLDER).replace('.', '/');
+        if (mapping.getProgramClass(holder) != null) {
+            throw new IllegalStateException("Counter holder class already exists: " + holder);
+        }
+        ClassPatterns selection = new ClassPatterns(getStringConfig("include", "**"),
+                getStringConfig("exclude", ""));
+
+        List<ProgramClass> classes = new ArrayList<>(mapping.getProgramClasses());
+        classes.sort(Comparator.comparing(ProgramClass::getName));
+        // Counter indices follow class and method names, so rerunning on the same input
+        // assigns the same indices.
+        List<String> keys = new ArrayList<>();
+        for (ProgramClass clazz : classes) {
+            if (!selection.matches(clazz.getName())) {
+                continue;
+            }
+            List<ProgramMethod> methods = new ArrayList<>(clazz.getMethods());
+            methods.sort(Comparator.comparing(ProgramMethod::getName).thenComparing(ProgramMethod::getDescriptor));
+            for (ProgramMethod method : methods) {
+                if (isInstrumentable(method)) {
+                    InstructionTransformer.forMethod(method).insertAtBeginning(
+                            new FieldInsnNode(Opcodes.GETSTATIC, holder, COUNTERS_FIELD,
+                                    LONG_ADDER_ARRAY.getDescriptor()),
+                            pushInt(keys.size()),
+                            new InsnNode(Opcodes.AALOAD),
+                            new MethodInsnNode(Opcodes.INVOKEVIRTUAL, LONG_ADDER.getInternalName(),
+                                    "increment", "()V", false));
+                    keys.add(clazz.getName() + "." + method.getName() + method.getDescriptor());
+                }
+            }
+        }
+
+        methodKeys = Collections.unmodifiableList(keys);
+        if (!keys.isEmpty()) {
+            String output = getStringConfig("output", DEFAULT_OUTPUT);
+            mapping.addClass(new ProgramClass(generateHolder(holder, keys, output,
+                    getBooleanConfig("shutdownHook", true))));
+        }
+    }
+
+    private static boolean isInstrumentable(ProgramMethod method) {
+        return !method.isAbstract() && !method.isNative()
+                && (method.getAccess() & Opcodes.ACC_BRIDGE) == 0
+                && method.getMethodNode() != null && method.getMethodNode().instructions != null
+                && method.getMethodNode().instructions.size() > 0;
+    }
+
+    private static AbstractInsnNode pushInt(int value) {
+        if (value <= 5) {
+            return new InsnNode(Opcodes.ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            return new IntInsnNode(Opcodes.BIPUSH, value);
+        } else if (value <= Short.MAX_VALUE) {
+            return new IntInsnNode(Opcodes.SIPUSH, value);
+        }
+        return new LdcInsnNode(value);
+    }
+
+    /**
+     * Generates the holder: a {@link Thread} subclass whose static initializer fills the
+     * counter table and, if {@code shutdownHook} is set, registers an instance as a shutdown
+     * hook, and whose {@code run} calls {@code dump()} to write the non-zero counters. The
+     * method keys are stored as string constants split into chunks, since a single constant
+     * is limited to 64KB.
+     */
+    private static ClassNode generateHolder(String holder, List<String> keys, String output, boolean shutdownHook) {
+        Type holderType = Type.getObjectType(holder);
+        ClassNode classNode = new ClassNode();
+        int access = Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER | Opcodes.ACC_SYNTHETIC;
+        classNode.visit(Opcodes.V1_8, access, holder, null, "java/lang/Thread", null);
+        classNode.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, COUNTERS_FIELD,
+                LONG_ADDER_ARRAY.getDescriptor(), null, null).visitEnd();
+
+        GeneratorAdapter init = method(classNode, Opcodes.ACC_PRIVATE, NO_ARG_CONSTRUCTOR);
+        init.loadThis();
+        init.invokeConstructor(Type.getType(Thread.class), NO_ARG_CONSTRUCTOR);
+        init.returnValue();
+        init.endMethod();
+
+        GeneratorAdapter clinit = method(classNode, Opcodes.ACC_STATIC, Method.getMethod("void <clinit> ()"));
+        clinit.push(keys.size());
+        clinit.newArray(LONG_ADDER);
+        clinit.putStatic(holderType, COUNTERS_FIELD, LONG_ADDER_ARRAY);
+        int index = clinit.newLocal(Type.INT_TYPE);
+        Label fill = new Label();
+        Label filled = new Label();
+        clinit.push(0);
+        clinit.storeLocal(index);
+        clinit.mark(fill);
+        clinit.loadLocal(index);
+        clinit.push(keys.size());
+        clinit.ifICmp(GeneratorAdapter.GE, filled);
+        clinit.getStatic(holderType, COUNTERS_FIELD, LONG_ADDER_ARRAY);
+        clinit.loadLocal(index);
+        clinit.newInstance(LONG_ADDER);
+        clinit.dup();
+        clinit.invokeConstructor(LONG_ADDER, NO_ARG_CONSTRUCTOR);
+        clinit.arrayStore(LONG_ADDER);
+        clinit.iinc(index, 1);
+        clinit.goTo(fill);
+        clinit.mark(filled);
+        if (shutdownHook) {
+            // addShutdownHook throws IllegalStateException once the JVM is shutting down,
+            // which must not fail the instrumented call that triggered initialization.
+            Label registering = clinit.mark();
+            clinit.invokeStatic(Type.getType(Runtime.class), Method.getMethod("Runtime getRuntime ()"));
+            clinit.newInstance(holderType);
+            clinit.dup();
+            clinit.invokeConstructor(holderType, NO_ARG_CONSTRUCTOR);
+            clinit.invokeVirtual(Type.getType(Runtime.class), Method.getMethod("void addShutdownHook (Thread)"));
+            Label registered = clinit.mark();
+            clinit.returnValue();
+            clinit.catchException(registering, registered, Type.getType(IllegalStateException.class));
+            clinit.pop();
+        }
+        clinit.returnValue();
+        clinit.endMethod();
+
+        GeneratorAdapter run = method(classNode, Opcodes.ACC_PUBLIC, Method.getMethod("void run ()"));
+        run.invokeStatic(holderType, DUMP);
+        run.returnValue();
+        run.endMethod();
+
+        GeneratorAdapter dump = method(classNode, Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, DUMP);
+        generateDump(dump, holderType, keys, output);
+        dump.endMethod();
+
+        classNode.visitEnd();
+        return classNode;
+    }
+
+    private static void generateDump(GeneratorAdapter dump, Type holderType, List<String> keys, String output) {
+        int file = dump.newLocal(STRING);
+        dump.push(OUTPUT_PROPERTY);
+        dump.push(output);
+        dump.invokeStatic(Type.getType(System.class), Method.getMethod("String getProperty (String, String)"));
+        dump.storeLocal(file);
+
+        int names = dump.newLocal(Type.getType(String[].class));
+        dump.newInstance(STRING_BUILDER);
+        dump.dup();
+        dump.invokeConstructor(STRING_BUILDER, NO_ARG_CONSTRUCTOR);
+        String joined = String.join("\n", keys);
+        for (int start = 0; start < joined.length(); start += NAME_CHUNK) {
+            dump.push(joined.substring(start, Math.min(joined.length(), start + NAME_CHUNK)));
+            dump.invokeVirtual(STRING_BUILDER, Method.getMethod("StringBuilder append (String)"));
+        }
+        dump.invokeVirtual(STRING_BUILDER, Method.getMethod("String toString ()"));
+        dump.push("\n");
+        dump.invokeVirtual(STRING, Method.getMethod("String[] split (String)"));
+        dump.storeLocal(names);
+
+        int sums = dump.newLocal(Type.getType(long[].class));
+        int nonZero = dump.newLocal(Type.INT_TYPE);
+        int index = dump.newLocal(Type.INT_TYPE);
+        dump.push(keys.size());
+        dump.newArray(Type.LONG_TYPE);
+        dump.storeLocal(sums);
+        dump.push(0);
+        dump.storeLocal(nonZero);
+        dump.push(0);
+        dump.storeLocal(index);
+        Label sum = new Label();
+        Label summed = new Label();
+        Label zero = new Label();
+        dump.mark(sum);
+        dump.loadLocal(index);
+        dump.push(keys.size());
+        dump.ifICmp(GeneratorAdapter.GE, summed);
+        dump.loadLocal(sums);
+        dump.loadLocal(index);
+        dump.getStatic(holderType, COUNTERS_FIELD, LONG_ADDER_ARRAY);
+        dump.loadLocal(index);
+        dump.arrayLoad(LONG_ADDER);
+        dump.invokeVirtual(LONG_ADDER, Method.getMethod("long sum ()"));
+        dump.arrayStore(Type.LONG_TYPE);
+        dump.loadLocal(sums);
+        dump.loadLocal(index);
+        dump.arrayLoad(Type.LONG_TYPE);
+        dump.push(0L);
+        dump.ifCmp(Type.LONG_TYPE, GeneratorAdapter.EQ, zero);
+        dump.iinc(nonZero, 1);
+        dump.mark(zero);
+        dump.iinc(index, 1);
+        dump.goTo(sum);
+        dump.mark(summed);
+
+        int out = dump.newLocal(DATA_OUTPUT);
+        Type bufferedOutput = Type.getType("Ljava/io/BufferedOutputStream;");
+        Type fileOutput = Type.getType("Ljava/io/FileOutputStream;");
+        dump.newInstance(DATA_OUTPUT);
+        dump.dup();
+        dump.newInstance(bufferedOutput);
+        dump.dup();
+        dump.newInstance(fileOutput);
+        dump.dup();
+        dump.loadLocal(file);
+        dump.invokeConstructor(fileOutput, Method.getMethod("void <init> (String)"));
+        dump.invokeConstructor(bufferedOutput, Method.getMethod("void <init> (java.io.OutputStream)"));
+        dump.invokeConstructor(DATA_OUTPUT, Method.getMethod("void <init> (java.io.OutputStream)"));
+        dump.storeLocal(out);
+        Method writeInt = Method.getMethod("void writeInt (int)");
+        dump.loadLocal(out);
+        dump.push(MAGIC);
+        dump.invokeVirtual(DATA_OUTPUT, writeInt);
+        dump.loadLocal(out);
+        dump.push(FORMAT_VERSION);
+        dump.invokeVirtual(DATA_OUTPUT, writeInt);
+        dump.loadLocal(out);
+        dump.loadLocal(nonZero);
+        dump.invokeVirtual(DATA_OUTPUT, writeInt);
+
+        Label write = new Label();
+        Label written = new Label();
+        Label skip = new Label();
+        dump.push(0);
+        dump.storeLocal(index);
+        dump.mark(write);
+        dump.loadLocal(index);
+        dump.push(keys.size());
+        dump.ifICmp(GeneratorAdapter.GE, written);
+        dump.loadLocal(sums);
+        dump.loadLocal(index);
+        dump.arrayLoad(Type.LONG_TYPE);
+        dump.push(0L);
+        dump.ifCmp(Type.LONG_TYPE, GeneratorAdapter.EQ, skip);
+        dump.loadLocal(out);
+        dump.loadLocal(names);
+        dump.loadLocal(index);
+        dump.arrayLoad(STRING);
+        dump.invokeVirtual(DATA_OUTPUT, Method.getMethod("void writeUTF (String)"));
+        dump.loadLocal(out);
+        dump.loadLocal(sums);
+        dump.loadLocal(index);
+        dump.arrayLoad(Type.LONG_TYPE);
+        dump.invokeVirtual(DATA_OUTPUT, Method.getMethod("void writeLong (long)"));
+        dump.mark(skip);
+        dump.iinc(index, 1);
+        dump.goTo(write);
+        dump.mark(written);
+        dump.loadLocal(out);
+        dump.invokeVirtual(DATA_OUTPUT, Method.getMethod("void close ()"));
+        dump.returnValue();
+    }
+
+    private static GeneratorAdapter method(ClassNode classNode, int access, Method method) {
+        return new GeneratorAdapter(access, method,
+                classNode.visitMethod(access, method.getName(), method.getDescriptor(), null, null));
+    }
+
+    /**
+     * Reads a counters file written by an instrumented program.
+     *
+     * @return the invocation count of each method that was called, by
+     *         {@code owner.name(descriptor)} key, in file order
+     * @throws IOException if the file cannot be read or is not a counters file
+     */
+    public static Map<String, Long> readCounts(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a method counters file: " + file);
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported method counters version " + version + ": " + file);
+            }
+            int entries = in.readInt();
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (int i = 0; i < entries; i++) {
+                counts.put(in.readUTF(), in.readLong());
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Returns the keys of the methods instrumented by the last run, in counter order.
+     */
+    public List<String> getMethodKeys() {
+        return methodKeys;
+    }
+
+    @Override
+    public Set<ModelPart> getReads() {
+        return EnumSet.of(ModelPart.CLASS_NAMES, ModelPart.MEMBERS, ModelPart.INSTRUCTIONS);
+    }
+
+    @Override
+    public Set<ModelPart> getWrites() {
+        return EnumSet.of(ModelPart.CLASS_NAMES, ModelPart.INSTRUCTIONS);
+    }
+}
@@ -0,0 +1,395 @@
+package net.cvs0.bytecode.plugin.impl;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.DuplicateMethodFinder;
+import net.cvs0.bytecode.analysis.DuplicateMethodReport;
+import net.cvs0.bytecode.analysis.DuplicateMethodReport.DuplicateGroup;
+import net.cvs0.bytecode.attribute.AttributeFactory;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.plugin.AbstractPlugin;
+import net.cvs0.bytecode.plugin.ModelPart;
+import net.cvs0.bytecode.transform.InstructionTransformer;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+
+import java.util.*;
+
+/**
+ * Makes static methods with identical bodies share one implementation.
+ *
+ * <p>{@link DuplicateMethodFinder} groups the duplicates. In each group of static methods
+ * the most accessible one becomes the shared implementation, preferring classes without
+ * static initializers; {@code invokestatic} calls to the others are redirected to it.
+ * Private duplicates left without callers or method handle references are removed, and the
+ * remaining duplicates get a body that passes their arguments on to the shared
+ * implementation, when that body is shorter.
+ *
+ * <p>A call is only redirected where the shared implementation is accessible and the change
+ * cannot alter which static initializers run: the called class must be the caller itself or
+ * have no static initializer in the program classes above it, and so must the class of the
+ * shared implementation. Synchronized methods, methods of interfaces and methods that
+ * directly call a caller-sensitive method, {@code MethodHandles.lookup()} or one of the
+ * {@code getCallerClass()} methods, are left alone. Stack traces name the shared
+ * implementation instead of the duplicate.
+ *
+ * <p>Configuration:
+ * <ul>
+ *   <li>{@code include}, {@code exclude}: class name patterns, as for
+ *       {@link DebugStrippingPlugin}, selecting the classes whose duplicates are merged
+ *       (default every class). Calls are redirected in every class.</li>
+ *   <li>{@code minInstructions}: the smallest body worth merging (default 2).</li>
+ * </ul>
+ */
+public class MethodDeduplicationPlugin extends AbstractPlugin {
+    private DuplicateMethodReport report;
+    private int redirectedCalls;
+    private List<String> removedMethods = List.of();
+    private List<String> delegatingMethods = List.of();
+
+    public MethodDeduplicationPlugin() {
+        super("Method Deduplication Plugin", "1.0.0", "Shares one implementation between identical static methods");
+    }
+
+    @Override
+    public void process(JarMapping mapping) {
+        ClassPatterns selection = new ClassPatterns(getStringConfig("include", "**"),
+                getStringConfig("exclude", ""));
+        int minInstructions = getIntConfig("minInstructions", 2);
+        report = DuplicateMethodFinder.find(mapping);
+
+        Map<String, Target> targets = new HashMap<>();
+        Map<String, Target> redirects = new HashMap<>();
+        Map<String, DuplicateGroup> groupsByDuplicate = new HashMap<>();
+        for (DuplicateGroup group : report.getGroups()) {
+            if (!group.isStatic() || group.getInstructionCount() < minInstructions) {
+                continue;
+            }
+            List<Target> members = new ArrayList<>();
+            for (String key : group.getMethods()) {
+                Target target = resolve(mapping, key);
+                if (target != null && selection.matches(target.clazz.getName()) && isMergeable(target)) {
+                    members.add(target);
+                }
+            }
+            if (members.size() < 2) {
+                continue;
+            }
+            // Members are sorted by key, so the choice is stable between runs.
+            Target shared = members.stream()
+                    .max(Comparator.<Target, Boolean>comparing(member -> hasTrivialInitialization(mapping, member.clazz))
+                            .thenComparingInt(Target::accessRank))
+                    .orElseThrow();
+            for (Target member : members) {
+                targets.put(member.key(), member);
+                if (member != shared) {
+                    redirects.put(member.key(), shared);
+                    groupsByDuplicate.put(member.key(), group);
+                }
+            }
+        }
+
+        redirectedCalls = 0;
+        for (ProgramClass clazz : mapping.getProgramClasses()) {
+            for (ProgramMethod method : clazz.getMethods()) {
+                if (method.getMethodNode() != null) {
+                    redirectCalls(mapping, clazz, method, targets, redirects);
+                }
+            }
+        }
+
+        Set<String> referenced = findReferencedMethods(mapping);
+        List<String> removed = new ArrayList<>();
+        List<String> delegating = new ArrayList<>();
+        for (Map.Entry<String, Target> entry : redirects.entrySet()) {
+            Target duplicate = targets.get(entry.getKey());
+            Target shared = entry.getValue();
+            if ((duplicate.method.getAccess() & Opcodes.ACC_PRIVATE) != 0 && !referenced.contains(entry.getKey())) {
+                duplicate.clazz.removeMethod(duplicate.method.getName(), duplicate.method.getDescriptor());
+                duplicate.clazz.getClassNode().methods.remove(duplicate.method.getMethodNode());
+                removed.add(entry.getKey());
+            } else if (canRedirect(mapping, duplicate.clazz, duplicate, shared)
+                    && delegate(duplicate, shared, groupsByDuplicate.get(entry.getKey()).getCodeLength())) {
+                delegating.add(entry.getKey());
+            }
+        }
+        Collections.sort(removed);
+        Collections.sort(delegating);
+        removedMethods = Collections.unmodifiableList(removed);
+        delegatingMethods = Collections.unmodifiableList(delegating);
+    }
+
+    private static Target resolve(JarMapping mapping, String key) {
+        int dot = key.lastIndexOf('.', key.indexOf('('));
+        ProgramClass clazz = mapping.getProgramClass(key.substring(0, dot));
+        if (clazz == null || clazz.getClassNode() == null) {
+            return null;
+        }
+        int paren = key.indexOf('(');
+        ProgramMethod method = clazz.getMethod(key.substring(dot + 1, paren), key.substring(paren));
+        return method != null ? new Target(clazz, method) : null;
+    }
+
+    private static boolean isMergeable(Target target) {
+        if ((target.clazz.getAccess() & Opcodes.ACC_INTERFACE) != 0
+                || (target.method.getAccess() & Opcodes.ACC_SYNCHRONIZED) != 0) {
+            return false;
+        }
+        for (AbstractInsnNode insn : target.method.getMethodNode().instructions) {
+            if (insn instanceof MethodInsnNode call && isCallerSensitive(call)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether a call depends on the class that makes it, so moving it into another
+     * class would change its result. Only direct calls are recognized; a caller-sensitive
+     * JDK method reached through reflection or a method handle is not.
+     */
+    private static boolean isCallerSensitive(MethodInsnNode call) {
+        return switch (call.owner) {
+            case "java/lang/invoke/MethodHandles" -> call.name.equals("lookup");
+            case "jdk/internal/reflect/Reflection", "sun/reflect/Reflection", "java/lang/StackWalker" ->
+                    call.name.equals("getCallerClass");
+            default -> false;
+        };
+    }
+
+    private void redirectCalls(JarMapping mapping, ProgramClass caller, ProgramMethod method,
+                               Map<String, Target> targets, Map<String, Target> redirects) {
+        Map<AbstractInsnNode, Target> calls = new HashMap<>();
+        for (AbstractInsnNode insn : method.getMethodNode().instructions) {
+            if (insn instanceof MethodInsnNode call && call.getOpcode() == Opcodes.INVOKESTATIC) {
+                String key = call.owner + "." + call.name + call.desc;
+                Target shared = redirects.get(key);
+                if (shared != null && canRedirect(mapping, caller, targets.get(key), shared)) {
+                    calls.put(insn, shared);
+                }
+            }
+        }
+        if (calls.isEmpty()) {
+            return;
+        }
+        InstructionTransformer.forMethod(method).replaceInstructions(calls::containsKey, insn -> {
+            Target shared = calls.get(insn);
+            return new MethodInsnNode(Opcodes.INVOKESTATIC, shared.clazz.getName(), shared.method.getName(),
+                    shared.method.getDescriptor(), false);
+        });
+        redirectedCalls += calls.size();
+    }
+
+    /**
+     * Returns whether a call from {@code caller} to {@code duplicate} may go to {@code shared}
+     * instead.
+     */
+    private static boolean canRedirect(JarMapping mapping, ProgramClass caller, Target duplicate, Target shared) {
+        return isAccessible(shared, caller)
+                && (duplicate.clazz == caller || hasTrivialInitialization(mapping, duplicate.clazz))
+                && (shared.clazz == caller || hasTrivialInitialization(mapping, shared.clazz));
+    }
+
+    private static boolean isAccessible(Target target, ProgramClass caller) {
+        if (target.clazz == caller) {
+            return true;
+        }
+        int access = target.method.getAccess();
+        if ((access & Opcodes.ACC_PRIVATE) != 0) {
+            return false;
+        }
+        boolean samePackage = packageOf(target.clazz.getName()).equals(packageOf(caller.getName()));
+        if ((access & Opcodes.ACC_PUBLIC) != 0) {
+            return samePackage || (target.clazz.getAccess() & Opcodes.ACC_PUBLIC) != 0;
+        }
+        return samePackage;
+    }
+
+    private static String packageOf(String className) {
+        int slash = className.lastIndexOf('/');
+        return slash >= 0 ? className.substring(0, slash) : "";
+    }
+
+    /**
+     * Returns whether initializing {@code clazz} runs no static initializer of the program:
+     * neither it nor the program classes and interfaces above it declare one. Library types
+     * are assumed to initialize without observable effects.
+     */
+    private static boolean hasTrivialInitialization(JarMapping mapping, ProgramClass clazz) {
+        Deque<ProgramClass> pending = new ArrayDeque<>();
+        Set<String> seen = new HashSet<>();
+        pending.add(clazz);
+        while (!pending.isEmpty()) {
+            ProgramClass current = pending.poll();
+            if (!seen.add(current.getName())) {
+                continue;
+            }
+            if (current.getMethod("<clinit>", "()V") != null) {
+                return false;
+            }
+            List<String> supertypes = new ArrayList<>(current.getInterfaces());
+            if (current.getSuperName() != null) {
+                supertypes.add(current.getSuperName());
+            }
+            for (String supertype : supertypes) {
+                ProgramClass programClass = mapping.getProgramClass(supertype);
+                if (programClass != null) {
+                    pending.add(programClass);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the methods still called or referenced by a method handle anywhere in the
+     * program.
+     */
+    private static Set<String> findReferencedMethods(JarMapping mapping) {
+        Set<String> referenced = new HashSet<>();
+        for (ProgramClass clazz : mapping.getProgramClasses()) {
+            for (ProgramMethod method : clazz.getMethods()) {
+                if (method.getMethodNode() == null) {
+                    continue;
+                }
+                for (AbstractInsnNode insn : method.getMethodNode().instructions) {
+                    if (insn instanceof MethodInsnNode call) {
+                        referenced.add(call.owner + "." + call.name + call.desc);
+                    } else if (insn instanceof LdcInsnNode ldc) {
+                        addHandle(referenced, ldc.cst);
+                    } else if (insn instanceof InvokeDynamicInsnNode indy) {
+                        addHandle(referenced, indy.bsm);
+                        for (Object argument : indy.bsmArgs) {
+                            addHandle(referenced, argument);
+                        }
+                    }
+                }
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * Adds the method a handle constant names, following dynamic constants into their
+     * bootstrap method and arguments, which can nest further handles and constants.
+     */
+    private static void addHandle(Set<String> referenced, Object constant) {
+        if (constant instanceof Handle handle) {
+            referenced.add(handle.getOwner() + "." + handle.getName() + handle.getDesc());
+        } else if (constant instanceof ConstantDynamic dynamic) {
+            addHandle(referenced, dynamic.getBootstrapMethod());
+            for (int i = 0; i < dynamic.getBootstrapMethodArgumentCount(); i++) {
+                addHandle(referenced, dynamic.getBootstrapMethodArgument(i));
+            }
+        }
+    }
+
+    /**
+     * Replaces the body of {@code duplicate} with a call to {@code shared} if that is shorter
+     * than {@code codeLength}.
+     */
+    private static boolean delegate(Target duplicate, Target shared, int codeLength) {
+        MethodNode methodNode = duplicate.method.getMethodNode();
+        InsnList body = new InsnList();
+        int slot = 0;
+        for (Type argument : Type.getArgumentTypes(methodNode.desc)) {
+            body.add(new VarInsnNode(argument.getOpcode(Opcodes.ILOAD), slot));
+            slot += argument.getSize();
+        }
+        body.add(new MethodInsnNode(Opcodes.INVOKESTATIC, shared.clazz.getName(), shared.method.getName(),
+                shared.method.getDescriptor(), false));
+        body.add(new InsnNode(Type.getReturnType(methodNode.desc).getOpcode(Opcodes.IRETURN)));
+
+        MethodNode stub = new MethodNode(methodNode.access, methodNode.name, methodNode.desc, null, null);
+        stub.instructions.add(body);
+        if (AttributeFactory.createCodeAttribute(stub).getCodeLength() >= codeLength) {
+            return false;
+        }
+
+        methodNode.instructions = stub.instructions;
+        methodNode.tryCatchBlocks.clear();
+        methodNode.localVariables = null;
+        methodNode.visibleLocalVariableAnnotations = null;
+        methodNode.invisibleLocalVariableAnnotations = null;
+        methodNode.visibleTypeAnnotations = null;
+        methodNode.invisibleTypeAnnotations = null;
+        methodNode.maxStack = Math.max(slot, Type.getReturnType(methodNode.desc).getSize());
+        methodNode.maxLocals = slot;
+        duplicate.method.syncInstructions();
+        return true;
+    }
+
+    /**
+     * Returns the report of the duplicates found by the last run, or {@code null}.
+     */
+    public DuplicateMethodReport getReport() {
+        return report;
+    }
+
+    /**
+     * Returns how many calls the last run redirected to a shared implementation.
+     */
+    public int getRedirectedCalls() {
+        return redirectedCalls;
+    }
+
+    /**
+     * Returns the keys of the private duplicates the last run removed, sorted.
+     */
+    public List<String> getRemovedMethods() {
+        return removedMethods;
+    }
+
+    /**
+     * Returns the keys of the duplicates whose body the last run replaced with a call to
+     * the shared implementation, sorted.
+     */
+    public List<String> getDelegatingMethods() {
+        return delegatingMethods;
+    }
+
+    @Override
+    public Set<ModelPart> getReads() {
+        return EnumSet.of(ModelPart.CLASS_NAMES, ModelPart.MEMBERS, ModelPart.INSTRUCTIONS);
+    }
+
+    @Override
+    public Set<ModelPart> getWrites() {
+        return EnumSet.of(ModelPart.MEMBERS, ModelPart.INSTRUCTIONS);
+    }
+
+    /**
+     * A method and the class that declares it.
+     */
+    private static final class Target {
+        private final ProgramClass clazz;
+        private final ProgramMethod method;
+
+        Target(ProgramClass clazz, ProgramMethod method) {
+            this.clazz = clazz;
+            this.method = method;
+        }
+
+        String key() {
+            return clazz.getName() + "." + method.getName() + method.getDescriptor();
+        }
+
+        /**
+         * Ranks how widely the method can be called: public in a public class, public,
+         * package or protected, private.
+         */
+        int accessRank() {
+            int access = method.getAccess();
+            if ((access & Opcodes.ACC_PRIVATE) != 0) {
+                return 0;
+            }
+            if ((access & Opcodes.ACC_PUBLIC) == 0) {
+                return 1;
+            }
+            return (clazz.getAccess() & Opcodes.ACC_PUBLIC) != 0 ? 3 : 2;
+        }
+    }
+}
@@ -1,73 +1,150 @@
 package net.cvs0.bytecode.plugin.impl;
 
 import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.MethodFamilies;
 import net.cvs0.bytecode.clazz.ProgramClass;
 import net.cvs0.bytecode.member.ProgramField;
 import net.cvs0.bytecode.member.ProgramMethod;
 import net.cvs0.bytecode.plugin.AbstractPlugin;
+import net.cvs0.bytecode.plugin.ModelPart;
 import net.cvs0.bytecode.transform.ClassTransformer;
+import net.cvs0.bytecode.transform.NameAllocator;
 
-import java.util.Random;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.*;
 
+/**
+ * Renames classes, fields and methods to the shortest names that keep the program valid.
+ *
+ * <p>Names come from a {@link NameAllocator}, so they start at {@code a} and stay as short
+ * as the scope allows. Each scope reuses the same few names, which keeps constant pools
+ * small:
+ * <ul>
+ *   <li>Classes are renamed within their package, so package-private access still works.</li>
+ *   <li>Fields are named per class. A class continues after the names its supertypes use,
+ *       so a field never shadows an inherited one, while unrelated classes reuse the same
+ *       names.</li>
+ *   <li>Methods are renamed by {@link MethodFamilies family}, so overrides and interface
+ *       implementations stay consistent through the hierarchy. Each family is named within
+ *       the classes it is visible in, per descriptor: families with different descriptors
+ *       are packed onto the same name, as the JVM allows, and two families visible in the
+ *       same class are never given the same name and descriptor, so no new overrides can
+ *       appear. Families in unrelated classes reuse the same names.</li>
+ * </ul>
+ *
+ * <p>A family keeps its name if it overrides a library or JDK method, if one of its classes
+ * has a supertype that cannot be resolved, or if any member must be kept. Original method
+ * names, including those of library methods a program class inherits, are reserved for
+ * their descriptor everywhere.
+ *
+ * <p>For incremental obfuscation, {@code applyMapping} names a ProGuard mapping file from an
+ * earlier run. Its renames are applied first and its names are reserved, so only new
+ * classes and members get fresh names. {@code printMapping} names the file the applied
+ * mapping is written to.
+ *
+ * <p>Configuration: {@code obfuscateClasses}, {@code obfuscateMethods} and
+ * {@code obfuscateFields} (all default {@code true}), {@code namePrefix} (default empty), and
+ * {@code applyMapping} and {@code printMapping} (default none).
+ */
 public class ObfuscationPlugin extends AbstractPlugin {
-    private Random random;
-    private int counter;
-    
+
     public ObfuscationPlugin() {
         super("Obfuscation Plugin", "1.0.0", "Obfuscates class, method, and field names");
     }
-    
-    @Override
-    public void initialize() {
-        super.initialize();
-        long seed = getIntConfig("seed", (int) System.currentTimeMillis());
-        random = new Random(seed);
-        counter = 0;
-    }
-    
+
     @Override
     public void process(JarMapping mapping) {
         boolean obfuscateClasses = getBooleanConfig("obfuscateClasses", true);
         boolean obfuscateMethods = getBooleanConfig("obfuscateMethods", true);
         boolean obfuscateFields = getBooleanConfig("obfuscateFields", true);
-        
+
+        NameAllocator names = new NameAllocator(getStringConfig("namePrefix", ""));
         ClassTransformer transformer = new ClassTransformer(mapping);
-        
-        for (ProgramClass clazz : mapping.getProgramClasses()) {
-            if (obfuscateClasses && shouldObfuscateClass(clazz)) {
-                String newName = generateObfuscatedName();
-                transformer.renameClass(clazz.getName(), newName);
-            }
-            
-            if (obfuscateFields) {
-                for (ProgramField field : clazz.getFields()) {
-                    if (shouldObfuscateField(field)) {
-                        String newName = generateObfuscatedName();
-                        transformer.renameField(clazz.getName(), field.getName(), newName);
-                    }
-                }
-            }
-            
-            if (obfuscateMethods) {
-                for (ProgramMethod method : clazz.getMethods()) {
-                    if (shouldObfuscateMethod(method)) {
-                        String newName = generateObfuscatedName();
-                        transformer.renameMethod(clazz.getName(), method.getName(), method.getDescriptor(), newName);
-                    }
-                }
+        String applyMapping = getStringConfig("applyMapping", null);
+        if (applyMapping != null) {
+            try {
+                transformer.loadMappings(Path.of(applyMapping));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read mapping " + applyMapping, e);
             }
         }
-        
+        List<ProgramClass> classes = new ArrayList<>(mapping.getProgramClasses());
+        classes.sort(Comparator.comparing(ProgramClass::getName));
+
+        if (obfuscateFields) {
+            new FieldNames(mapping, names, transformer).allocate(classes);
+        }
+        if (obfuscateMethods) {
+            new MethodNames(mapping, names, transformer).allocate(classes);
+        }
+        if (obfuscateClasses) {
+            allocateClassNames(classes, names, transformer);
+        }
+
         transformer.applyTransformations();
+
+        String printMapping = getStringConfig("printMapping", null);
+        if (printMapping != null) {
+            try {
+                transformer.writeMappings(Path.of(printMapping));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write mapping " + printMapping, e);
+            }
+        }
+    }
+
+    private void allocateClassNames(List<ProgramClass> classes, NameAllocator names, ClassTransformer transformer) {
+        Map<String, NameAllocator.Scope> packages = new HashMap<>();
+        for (ProgramClass clazz : classes) {
+            packages.computeIfAbsent(packagePrefix(clazz.getName()), k -> names.newScope())
+                    .reserve(clazz.getSimpleName());
+        }
+        Map<String, String> seeded = transformer.getClassNameMappings();
+        for (String newName : seeded.values()) {
+            packages.computeIfAbsent(packagePrefix(newName), k -> names.newScope())
+                    .reserve(newName.substring(newName.lastIndexOf('/') + 1));
+        }
+
+        for (ProgramClass clazz : classes) {
+            if (shouldObfuscateClass(clazz) && !seeded.containsKey(clazz.getName())) {
+                String packagePrefix = packagePrefix(clazz.getName());
+                transformer.renameClass(clazz.getName(), packagePrefix + packages.get(packagePrefix).next());
+            }
+        }
+    }
+
+    private static String packagePrefix(String className) {
+        return className.substring(0, className.lastIndexOf('/') + 1);
     }
-    
+
+    private static boolean isSeeded(MethodFamilies.Family family, Map<String, String> seeded) {
+        for (String className : family.getProgramClasses()) {
+            if (seeded.containsKey(className + "." + family.getName() + family.getDescriptor())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean shouldObfuscateFamily(JarMapping mapping, MethodFamilies.Family family) {
+        for (String className : family.getProgramClasses()) {
+            ProgramMethod method = mapping.getProgramClass(className).getMethod(family.getName(), family.getDescriptor());
+            if (!shouldObfuscateMethod(method)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private boolean shouldObfuscateClass(ProgramClass clazz) {
         return !clazz.getName().startsWith("java/") &&
                !clazz.getName().startsWith("javax/") &&
                !clazz.getName().startsWith("sun/") &&
                !clazz.getName().contains("Main");
     }
-    
+
     private boolean shouldObfuscateMethod(ProgramMethod method) {
         return !method.isConstructor() &&
                !method.isStaticInitializer() &&
@@ -76,18 +153,187 @@ public class ObfuscationPlugin extends AbstractPlugin {
                !method.getName().startsWith("set") &&
                !method.getName().startsWith("is");
     }
-    
+
     private boolean shouldObfuscateField(ProgramField field) {
         return !field.isFinal() || !field.isStatic();
     }
-    
-    private String generateObfuscatedName() {
-        String prefix = getStringConfig("namePrefix", "a");
-        return prefix + (counter++);
+
+    /**
+     * Allocates field names top-down through the hierarchy. A class's scope starts after
+     * the last name used by any of its supertypes, so allocation is a single pass over the
+     * fields. Names taken from an applied mapping are reserved everywhere, since they were
+     * not allocated along the hierarchy.
+     */
+    private class FieldNames {
+        private final JarMapping mapping;
+        private final NameAllocator names;
+        private final ClassTransformer transformer;
+        private final Set<String> keptNames = new HashSet<>();
+        private final Map<String, Integer> ends = new HashMap<>();
+        private final Map<String, String> seeded;
+
+        FieldNames(JarMapping mapping, NameAllocator names, ClassTransformer transformer) {
+            this.mapping = mapping;
+            this.names = names;
+            this.transformer = transformer;
+            this.seeded = transformer.getFieldNameMappings();
+            keptNames.addAll(seeded.values());
+        }
+
+        void allocate(List<ProgramClass> classes) {
+            for (ProgramClass clazz : classes) {
+                for (ProgramField field : clazz.getFields()) {
+                    if (!shouldObfuscateField(field)) {
+                        keptNames.add(field.getName());
+                    }
+                }
+            }
+            for (ProgramClass clazz : classes) {
+                allocate(clazz);
+            }
+        }
+
+        private int allocate(ProgramClass clazz) {
+            Integer end = ends.get(clazz.getName());
+            if (end != null) {
+                return end;
+            }
+            ends.put(clazz.getName(), 0);
+
+            int start = 0;
+            for (String supertype : supertypes(clazz)) {
+                ProgramClass superClass = mapping.getProgramClass(supertype);
+                if (superClass != null) {
+                    start = Math.max(start, allocate(superClass));
+                }
+            }
+
+            NameAllocator.Scope scope = names.newScope(start, keptNames);
+            List<ProgramField> fields = new ArrayList<>(clazz.getFields());
+            fields.sort(Comparator.comparing(ProgramField::getName));
+            for (ProgramField field : fields) {
+                scope.reserve(field.getName());
+            }
+            for (ProgramField field : fields) {
+                if (shouldObfuscateField(field) && !seeded.containsKey(clazz.getName() + "." + field.getName())) {
+                    transformer.renameField(clazz.getName(), field.getName(), scope.next());
+                }
+            }
+
+            ends.put(clazz.getName(), scope.getEnd());
+            return scope.getEnd();
+        }
     }
-    
+
+    /**
+     * Allocates method names family by family. A family's scope covers only the classes it
+     * is visible in: those declaring one of its methods and their subtypes. The names other
+     * families with the same descriptor already took in any of those classes are skipped,
+     * so unrelated parts of the program reuse the same short names. Original names, and
+     * names taken from an applied mapping, are reserved for their descriptor everywhere.
+     */
+    private class MethodNames {
+        private final JarMapping mapping;
+        private final NameAllocator names;
+        private final ClassTransformer transformer;
+        private final Map<String, String> seeded;
+        private final Map<String, Set<String>> reserved = new HashMap<>();
+        private final Map<String, Set<String>> taken = new HashMap<>();
+        private final Map<String, List<String>> subtypes = new HashMap<>();
+
+        MethodNames(JarMapping mapping, NameAllocator names, ClassTransformer transformer) {
+            this.mapping = mapping;
+            this.names = names;
+            this.transformer = transformer;
+            this.seeded = transformer.getMethodNameMappings();
+        }
+
+        void allocate(List<ProgramClass> classes) {
+            MethodFamilies families = MethodFamilies.resolve(mapping);
+            Map<MethodFamilies.Family, Set<String>> scopes = new HashMap<>();
+            for (ProgramClass clazz : classes) {
+                for (ProgramMethod method : clazz.getMethods()) {
+                    reserve(method.getDescriptor(), method.getName());
+                }
+                for (MethodFamilies.Family family : families.getVisibleFamilies(clazz.getName()).values()) {
+                    reserve(family.getDescriptor(), family.getName());
+                    scopes.computeIfAbsent(family, k -> new HashSet<>()).add(clazz.getName());
+                }
+                for (String supertype : supertypes(clazz)) {
+                    subtypes.computeIfAbsent(supertype, k -> new ArrayList<>()).add(clazz.getName());
+                }
+            }
+            for (Map.Entry<String, String> entry : seeded.entrySet()) {
+                String key = entry.getKey();
+                reserve(key.substring(key.indexOf('(', key.lastIndexOf('.'))), entry.getValue());
+            }
+
+            for (MethodFamilies.Family family : families.getFamilies()) {
+                if (!family.isRenamable() || !shouldObfuscateFamily(mapping, family) || isSeeded(family, seeded)) {
+                    continue;
+                }
+                Set<String> scope = scopes.get(family);
+                if (scope == null) {
+                    // Static and private methods are not in the visibility tables, but a
+                    // subtype resolving a method of the same signature would still find them.
+                    scope = new HashSet<>();
+                    for (String className : family.getProgramClasses()) {
+                        addWithSubtypes(className, scope);
+                    }
+                }
+                rename(family, scope);
+            }
+        }
+
+        private void rename(MethodFamilies.Family family, Set<String> scope) {
+            String descriptor = family.getDescriptor();
+            NameAllocator.Scope allocator = names.newScope(0, reserved.getOrDefault(descriptor, Set.of()));
+            for (String className : scope) {
+                for (String name : taken.getOrDefault(className + descriptor, Set.of())) {
+                    allocator.reserve(name);
+                }
+            }
+            String newName = allocator.next();
+            for (String className : scope) {
+                taken.computeIfAbsent(className + descriptor, k -> new HashSet<>()).add(newName);
+            }
+            transformer.renameMethod(family.getProgramClasses().get(0), family.getName(), descriptor, newName);
+        }
+
+        private void reserve(String descriptor, String name) {
+            reserved.computeIfAbsent(descriptor, k -> new HashSet<>()).add(name);
+        }
+
+        private void addWithSubtypes(String className, Set<String> scope) {
+            if (scope.add(className)) {
+                for (String subtype : subtypes.getOrDefault(className, List.of())) {
+                    addWithSubtypes(subtype, scope);
+                }
+            }
+        }
+    }
+
+    private static List<String> supertypes(ProgramClass clazz) {
+        List<String> supertypes = new ArrayList<>();
+        if (clazz.getSuperName() != null) {
+            supertypes.add(clazz.getSuperName());
+        }
+        supertypes.addAll(clazz.getInterfaces());
+        return supertypes;
+    }
+
+    @Override
+    public Set<ModelPart> getReads() {
+        return EnumSet.of(ModelPart.CLASS_NAMES, ModelPart.MEMBERS, ModelPart.INSTRUCTIONS);
+    }
+
+    @Override
+    public Set<ModelPart> getWrites() {
+        return EnumSet.of(ModelPart.CLASS_NAMES, ModelPart.MEMBERS, ModelPart.INSTRUCTIONS);
+    }
+
     @Override
     public int getPriority() {
         return 100;
     }
-}
\ No newline at end of file
+}
@@ -5,12 +5,17 @@ import net.cvs0.bytecode.analysis.UnusedCodeAnalyzer;
 import net.cvs0.bytecode.clazz.ProgramClass;
 import net.cvs0.bytecode.member.ProgramMethod;
 import net.cvs0.bytecode.plugin.AbstractPlugin;
+import net.cvs0.bytecode.plugin.ModelPart;
 import net.cvs0.bytecode.transform.InstructionTransformer;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.InsnNode;
 
+import java.util.EnumSet;
 import java.util.Set;
 
+/**
+ * Removes unused members and simplifies instructions.
+ */
 public class OptimizationPlugin extends AbstractPlugin {
     
     public OptimizationPlugin() {
@@ -115,6 +120,16 @@ public class OptimizationPlugin extends AbstractPlugin {
         );
     }
     
+    @Override
+    public Set<ModelPart> getReads() {
+        return EnumSet.of(ModelPart.MEMBERS, ModelPart.INSTRUCTIONS);
+    }
+    
+    @Override
+    public Set<ModelPart> getWrites() {
+        return EnumSet.of(ModelPart.MEMBERS, ModelPart.INSTRUCTIONS);
+    }
+    
     @Override
     public int getPriority() {
         return 50;
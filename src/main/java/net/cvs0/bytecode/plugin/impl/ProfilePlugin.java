@@ -0,0 +1,87 @@
+package net.cvs0.bytecode.plugin.impl;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.MethodProfile;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.plugin.AbstractPlugin;
+import net.cvs0.bytecode.plugin.ClassPlugin;
+import net.cvs0.bytecode.plugin.ModelPart;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Applies a production profile to the program: every method gets the self and total
+ * samples the profile counted for it, see {@link ProgramMethod#getSelfSamples()}.
+ *
+ * <p>The profile is keyed by the names the program had when it was recorded, so the plugin
+ * runs before any pass that renames; the samples then travel with the methods. Later stages
+ * read them from the model. {@link net.cvs0.bytecode.util.JarWriter} keeps the original
+ * stack map frames of classes that were not modified and never ran, instead of recomputing
+ * them.
+ *
+ * <p>Configuration, one of:
+ * <ul>
+ *   <li>{@code recording}: a JFR recording with {@code jdk.ExecutionSample} events.</li>
+ *   <li>{@code counts}: a counters file written by a program instrumented with
+ *       {@link MethodCounterPlugin}.</li>
+ * </ul>
+ */
+public class ProfilePlugin extends AbstractPlugin implements ClassPlugin {
+    private MethodProfile profile;
+
+    public ProfilePlugin() {
+        super("Profile Plugin", "1.0.0", "Applies method hotness from a JFR recording or invocation counts");
+    }
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        String recording = getStringConfig("recording", null);
+        String counts = getStringConfig("counts", null);
+        if ((recording == null) == (counts == null)) {
+            throw new IllegalArgumentException("Exactly one of recording and counts must be configured");
+        }
+        try {
+            profile = recording != null
+                    ? MethodProfile.readRecording(Path.of(recording))
+                    : MethodProfile.fromCounts(MethodCounterPlugin.readCounts(Path.of(counts)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read profile " + (recording != null ? recording : counts), e);
+        }
+    }
+
+    @Override
+    public void processClass(ProgramClass clazz, JarMapping mapping) {
+        for (ProgramMethod method : clazz.getMethods()) {
+            String key = MethodProfile.key(clazz, method);
+            method.setProfileSamples(profile.getSelfSamples(key), profile.getTotalSamples(key));
+        }
+    }
+
+    /**
+     * Returns the profile read by the last {@link #initialize()}.
+     */
+    public MethodProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public Set<ModelPart> getReads() {
+        return EnumSet.of(ModelPart.CLASS_NAMES, ModelPart.MEMBERS);
+    }
+
+    @Override
+    public Set<ModelPart> getWrites() {
+        return EnumSet.of(ModelPart.MEMBERS);
+    }
+
+    @Override
+    public int getPriority() {
+        return 200;
+    }
+}
@@ -0,0 +1,485 @@
+package net.cvs0.bytecode.test;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.DependencyAnalyzer;
+import net.cvs0.bytecode.util.JarReader;
+import net.cvs0.bytecode.util.SyntheticJarGenerator;
+import org.objectweb.asm.Type;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+import java.io.*;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-running analysis server that keeps its JVM warm between builds.
+ *
+ * <p>A cold {@link JarAnalyzer} run pays for JVM startup, JIT warm-up and parsing the whole
+ * jar before doing any work. The daemon pays those once. It listens on a Unix domain socket
+ * and keeps recently used {@link JarMapping}s and {@link net.cvs0.bytecode.clazz.LibraryClass}
+ * stubs of dependency jars in memory, reloading an entry only when its file changes. Requests
+ * come from {@link DaemonClient} and are dispatched to the commands below; their output is
+ * captured and sent back.
+ *
+ * <ul>
+ *   <li>{@code analyze JAR [--json] [--limit N]}: the {@link JarAnalyzer} report</li>
+ *   <li>{@code unresolved JAR [-L LIBRARY]...}: referenced classes that neither the jar, its
+ *       libraries nor the JDK define; exits with 1 if there are any</li>
+ *   <li>{@code status}: cache and JIT statistics</li>
+ *   <li>{@code stop}: shuts the daemon down</li>
+ * </ul>
+ *
+ * <p>Cached mappings are shared between requests, so commands must only read them. The
+ * socket is only accessible to the user running the daemon.
+ */
+@Command(name = "analysis-daemon", mixinStandardHelpOptions = true, version = "1.0",
+        description = "Serves jar analyses from a warm JVM over a Unix domain socket.")
+public class AnalysisDaemon implements Callable<Integer>, Closeable {
+
+    @Option(names = "--socket", paramLabel = "PATH",
+            description = "Socket to listen on (default: ${DEFAULT-VALUE}).")
+    Path socket = DaemonClient.DEFAULT_SOCKET;
+
+    @Option(names = {"-t", "--threads"}, paramLabel = "N",
+            description = "Worker threads for loading and analysis (default: available processors).")
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = "--cache-size", paramLabel = "N", defaultValue = "16",
+            description = "Jars kept in each cache (default: ${DEFAULT-VALUE}).")
+    int cacheSize;
+
+    @Option(names = "--warm-up", paramLabel = "N", defaultValue = "0",
+            description = "Analyses of a synthetic jar to run at startup to warm up the JIT (default: ${DEFAULT-VALUE}).")
+    int warmUpRuns;
+
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong requests = new AtomicLong();
+    private final Map<String, Boolean> platformClasses = new ConcurrentHashMap<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private SnapshotCache<JarMapping> mappings;
+    private SnapshotCache<JarMapping> libraries;
+    private ForkJoinPool pool;
+    private ExecutorService handlers;
+    private ServerSocketChannel server;
+    private volatile boolean stopRequested;
+    private boolean closed;
+
+    public AnalysisDaemon() {
+    }
+
+    AnalysisDaemon(Path socket, int threads, int cacheSize) {
+        this.socket = socket;
+        this.threads = threads;
+        this.cacheSize = cacheSize;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new AnalysisDaemon()).execute(args));
+    }
+
+    @Override
+    public Integer call() throws IOException, InterruptedException {
+        if (threads < 1 || cacheSize < 1) {
+            System.err.println("Thread count and cache size must be positive");
+            return 1;
+        }
+
+        start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::closeQuietly));
+        System.out.println("Listening on " + socket);
+        if (warmUpRuns > 0) {
+            long warmUpStart = System.nanoTime();
+            warmUp(warmUpRuns);
+            System.out.printf("Warmed up with %d runs in %.0f ms%n", warmUpRuns, (System.nanoTime() - warmUpStart) / 1e6);
+        }
+        stopped.await();
+        return 0;
+    }
+
+    /**
+     * Binds the socket and starts accepting requests. A socket file left behind by a daemon
+     * that is no longer running is replaced.
+     *
+     * @throws IOException if the socket cannot be bound or another daemon is listening on it
+     */
+    public synchronized void start() throws IOException {
+        if (Files.exists(socket)) {
+            if (isListening(socket)) {
+                throw new IOException("A daemon is already listening on " + socket);
+            }
+            Files.delete(socket);
+        }
+
+        mappings = new SnapshotCache<>(cacheSize);
+        libraries = new SnapshotCache<>(cacheSize);
+        pool = new ForkJoinPool(threads);
+        handlers = Executors.newVirtualThreadPerTaskExecutor();
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        bindPrivately(server, socket);
+
+        Thread acceptor = new Thread(this::acceptLoop, "analysis-daemon-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Binds {@code server} so that only the current user can connect. Where the file system
+     * supports POSIX permissions, the socket is created in a new owner-only directory,
+     * restricted to the owner and only then moved into place, so it is never reachable with
+     * the wider permissions the umask would give it.
+     */
+    private static void bindPrivately(ServerSocketChannel server, Path socket) throws IOException {
+        Path target = socket.toAbsolutePath();
+        if (!target.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            server.bind(UnixDomainSocketAddress.of(target));
+            return;
+        }
+        Path directory = Files.createTempDirectory(target.getParent(), ".daemon",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        try {
+            Path staging = directory.resolve("socket");
+            server.bind(UnixDomainSocketAddress.of(staging));
+            Files.setPosixFilePermissions(staging, PosixFilePermissions.fromString("rw-------"));
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Blocks until the daemon has been stopped.
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Stops accepting requests, releases the caches and removes the socket file. Requests
+     * already being handled are allowed to finish.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed || server == null) {
+            return;
+        }
+        closed = true;
+        try {
+            server.close();
+            handlers.shutdown();
+            pool.shutdown();
+            mappings.clear();
+            libraries.clear();
+            Files.deleteIfExists(socket);
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            System.err.println("Failed to close daemon: " + e.getMessage());
+        }
+    }
+
+    private void acceptLoop() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (IOException e) {
+                return;
+            }
+            try {
+                handlers.execute(() -> handle(channel));
+            } catch (RejectedExecutionException e) {
+                closeChannel(channel);
+                return;
+            }
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            DaemonProtocol.Request request = DaemonProtocol.readRequest(channel);
+            DaemonProtocol.writeResponse(channel, execute(request.workingDirectory, request.args));
+        } catch (IOException e) {
+            System.err.println("Request failed: " + e.getMessage());
+        }
+        if (stopRequested) {
+            closeQuietly();
+        }
+    }
+
+    private static void closeChannel(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Runs one request in this JVM and captures what it prints.
+     */
+    DaemonClient.Response execute(Path workingDirectory, List<String> args) {
+        requests.incrementAndGet();
+        StringWriter out = new StringWriter();
+        StringWriter err = new StringWriter();
+
+        CommandLine commandLine = new CommandLine(new Requests())
+                .addSubcommand(new AnalyzeRequest(this))
+                .addSubcommand(new UnresolvedRequest(this))
+                .addSubcommand(new StatusRequest(this))
+                .addSubcommand(new StopRequest(this));
+        commandLine.registerConverter(File.class, value -> workingDirectory.resolve(value).toFile());
+        commandLine.setOut(new PrintWriter(out, true));
+        commandLine.setErr(new PrintWriter(err, true));
+
+        int exitCode = commandLine.execute(args.toArray(new String[0]));
+        return new DaemonClient.Response(exitCode, out.toString(), err.toString());
+    }
+
+    JarMapping loadMapping(File jarFile) throws IOException {
+        return mappings.get(jarFile, file -> JarMapping.fromJar(file.getPath(), pool));
+    }
+
+    JarMapping loadLibrary(File jarFile) throws IOException {
+        return libraries.get(jarFile, file -> {
+            JarMapping library = new JarMapping(file.getPath());
+            JarReader.readLibrary(file, library);
+            return library;
+        });
+    }
+
+    boolean isPlatformClass(String className) {
+        return platformClasses.computeIfAbsent(className,
+                name -> ClassLoader.getPlatformClassLoader().getResource(name + ".class") != null);
+    }
+
+    private void warmUp(int runs) throws IOException {
+        File jarFile = File.createTempFile("daemon-warm-up", ".jar");
+        try {
+            new SyntheticJarGenerator().seed(1).classCount(2000).cycles(10, 3).writeJar(jarFile);
+            for (int i = 0; i < runs; i++) {
+                JarAnalyzer.analyze(jarFile, pool);
+            }
+        } finally {
+            Files.deleteIfExists(jarFile.toPath());
+        }
+    }
+
+    private static boolean isListening(Path socket) {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Command(name = "daemon", mixinStandardHelpOptions = true, version = "1.0",
+            description = "Commands served by the analysis daemon.")
+    static class Requests implements Callable<Integer> {
+        @Spec
+        CommandSpec spec;
+
+        @Override
+        public Integer call() {
+            spec.commandLine().usage(spec.commandLine().getErr());
+            return 2;
+        }
+    }
+
+    @Command(name = "analyze", description = "Analyzes a JAR, reusing the cached mapping if the file is unchanged.")
+    static class AnalyzeRequest implements Callable<Integer> {
+        private final AnalysisDaemon daemon;
+
+        @Spec
+        CommandSpec spec;
+
+        @Parameters(index = "0", paramLabel = "JAR", description = "The JAR file to analyze.")
+        File jarFile;
+
+        @Option(names = "--json", description = "Print the report as JSON instead of text.")
+        boolean json;
+
+        @Option(names = {"-l", "--limit"}, paramLabel = "N", defaultValue = "10",
+                description = "Maximum number of entries listed per section (default: ${DEFAULT-VALUE}).")
+        int limit;
+
+        AnalyzeRequest(AnalysisDaemon daemon) {
+            this.daemon = daemon;
+        }
+
+        @Override
+        public Integer call() throws IOException {
+            PrintWriter out = spec.commandLine().getOut();
+            if (!jarFile.isFile()) {
+                spec.commandLine().getErr().println("JAR file not found: " + jarFile);
+                return 1;
+            }
+
+            JarAnalyzer.Analysis analysis = JarAnalyzer.analyze(jarFile, daemon.pool,
+                    (file, pool) -> daemon.loadMapping(file));
+            if (json) {
+                out.println(analysis.toJson(limit));
+            } else {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                analysis.print(new PrintStream(buffer, true, StandardCharsets.UTF_8), limit);
+                out.print(buffer.toString(StandardCharsets.UTF_8));
+            }
+            return 0;
+        }
+    }
+
+    @Command(name = "unresolved",
+            description = "Lists classes a JAR references that neither it, its libraries nor the JDK define.")
+    static class UnresolvedRequest implements Callable<Integer> {
+        private final AnalysisDaemon daemon;
+
+        @Spec
+        CommandSpec spec;
+
+        @Parameters(index = "0", paramLabel = "JAR", description = "The JAR file to check.")
+        File jarFile;
+
+        @Option(names = {"-L", "--library"}, paramLabel = "JAR", description = "A dependency of the JAR.")
+        List<File> libraryFiles = new ArrayList<>();
+
+        UnresolvedRequest(AnalysisDaemon daemon) {
+            this.daemon = daemon;
+        }
+
+        @Override
+        public Integer call() throws IOException {
+            PrintWriter out = spec.commandLine().getOut();
+            for (File file : concat(jarFile, libraryFiles)) {
+                if (!file.isFile()) {
+                    spec.commandLine().getErr().println("JAR file not found: " + file);
+                    return 2;
+                }
+            }
+
+            JarMapping mapping = daemon.loadMapping(jarFile);
+            List<JarMapping> libraries = new ArrayList<>();
+            for (File libraryFile : libraryFiles) {
+                libraries.add(daemon.loadLibrary(libraryFile));
+            }
+
+            Set<String> unresolved = new TreeSet<>();
+            for (Set<String> dependencies : DependencyAnalyzer.buildDependencyGraph(mapping).values()) {
+                for (String dependency : dependencies) {
+                    String className = elementClassName(dependency);
+                    if (className != null && !isResolved(className, mapping, libraries)) {
+                        unresolved.add(className);
+                    }
+                }
+            }
+
+            out.println(unresolved.size() + " unresolved classes");
+            unresolved.forEach(className -> out.println("  " + className));
+            return unresolved.isEmpty() ? 0 : 1;
+        }
+
+        private boolean isResolved(String className, JarMapping mapping, List<JarMapping> libraries) {
+            if (mapping.containsClass(className)) {
+                return true;
+            }
+            for (JarMapping library : libraries) {
+                if (library.containsClass(className)) {
+                    return true;
+                }
+            }
+            return daemon.isPlatformClass(className);
+        }
+
+        private static String elementClassName(String dependency) {
+            if (!dependency.startsWith("[")) {
+                return dependency;
+            }
+            Type elementType = Type.getType(dependency).getElementType();
+            return elementType.getSort() == Type.OBJECT ? elementType.getInternalName() : null;
+        }
+
+        private static List<File> concat(File first, List<File> rest) {
+            List<File> files = new ArrayList<>();
+            files.add(first);
+            files.addAll(rest);
+            return files;
+        }
+    }
+
+    @Command(name = "status", description = "Prints cache and JIT statistics.")
+    static class StatusRequest implements Callable<Integer> {
+        private final AnalysisDaemon daemon;
+
+        @Spec
+        CommandSpec spec;
+
+        StatusRequest(AnalysisDaemon daemon) {
+            this.daemon = daemon;
+        }
+
+        @Override
+        public Integer call() {
+            PrintWriter out = spec.commandLine().getOut();
+            out.println("Socket: " + daemon.socket);
+            out.printf("Uptime: %.1f s%n", (System.nanoTime() - daemon.startNanos) / 1e9);
+            out.println("Requests: " + daemon.requests.get());
+            out.println("Threads: " + daemon.pool.getParallelism());
+            printCache(out, "Mappings", daemon.mappings);
+            printCache(out, "Libraries", daemon.libraries);
+            out.println("Platform classes looked up: " + daemon.platformClasses.size());
+
+            CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+            if (compilation != null && compilation.isCompilationTimeMonitoringSupported()) {
+                out.println("JIT compilation time: " + compilation.getTotalCompilationTime() + " ms");
+            }
+            Runtime runtime = Runtime.getRuntime();
+            out.printf("Heap used: %.1f MB%n", (runtime.totalMemory() - runtime.freeMemory()) / (1024.0 * 1024.0));
+            return 0;
+        }
+
+        private static void printCache(PrintWriter out, String name, SnapshotCache<?> cache) {
+            out.println(name + ": " + cache.size() + " cached, " + cache.getHits() + " hits, "
+                    + cache.getMisses() + " misses");
+        }
+    }
+
+    @Command(name = "stop", description = "Stops the daemon once this request has been answered.")
+    static class StopRequest implements Callable<Integer> {
+        private final AnalysisDaemon daemon;
+
+        @Spec
+        CommandSpec spec;
+
+        StopRequest(AnalysisDaemon daemon) {
+            this.daemon = daemon;
+        }
+
+        @Override
+        public Integer call() {
+            daemon.stopRequested = true;
+            spec.commandLine().getOut().println("Stopping daemon on " + daemon.socket);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package net.cvs0.bytecode.test;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Thin client for {@link AnalysisDaemon}.
+ *
+ * <p>The client only forwards its arguments over the daemon's Unix domain socket and prints
+ * what comes back, so it starts quickly and does no parsing of its own. A leading
+ * {@code --socket PATH} selects the socket; everything else is passed to the daemon.
+ *
+ * <pre>
+ * java ... net.cvs0.bytecode.test.DaemonClient analyze app.jar --json
+ * </pre>
+ */
+public class DaemonClient {
+
+    /**
+     * The socket used when none is given, in the temporary directory of the current user.
+     */
+    public static final Path DEFAULT_SOCKET = Path.of(System.getProperty("java.io.tmpdir"),
+            "bytecode-processor-" + System.getProperty("user.name") + ".sock");
+
+    static final int EXIT_NO_DAEMON = 3;
+
+    public static void main(String[] args) {
+        Path socket = DEFAULT_SOCKET;
+        List<String> request = new ArrayList<>(Arrays.asList(args));
+        if (request.size() >= 2 && request.get(0).equals("--socket")) {
+            socket = Path.of(request.get(1));
+            request = request.subList(2, request.size());
+        } else if (!request.isEmpty() && request.get(0).startsWith("--socket=")) {
+            socket = Path.of(request.get(0).substring("--socket=".length()));
+            request = request.subList(1, request.size());
+        }
+
+        Response response;
+        try {
+            response = send(socket, request);
+        } catch (IOException e) {
+            System.err.println("No daemon reachable at " + socket + ": " + e.getMessage());
+            System.exit(EXIT_NO_DAEMON);
+            return;
+        }
+
+        System.out.print(response.getOut());
+        System.err.print(response.getErr());
+        System.exit(response.getExitCode());
+    }
+
+    /**
+     * Sends one request and waits for its response. Relative paths in {@code args} are
+     * resolved against the current working directory.
+     */
+    public static Response send(Path socket, List<String> args) throws IOException {
+        return send(socket, Path.of("").toAbsolutePath(), args);
+    }
+
+    public static Response send(Path socket, Path workingDirectory, List<String> args) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            DaemonProtocol.writeRequest(channel, new DaemonProtocol.Request(workingDirectory, args));
+            return DaemonProtocol.readResponse(channel);
+        }
+    }
+
+    /**
+     * The outcome of one request: the command's exit code and everything it printed.
+     */
+    public static class Response {
+        private final int exitCode;
+        private final String out;
+        private final String err;
+
+        public Response(int exitCode, String out, String err) {
+            this.exitCode = exitCode;
+            this.out = out;
+            this.err = err;
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        public String getOut() {
+            return out;
+        }
+
+        public String getErr() {
+            return err;
+        }
+    }
+}
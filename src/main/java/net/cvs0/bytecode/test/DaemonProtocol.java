@@ -0,0 +1,129 @@
+package net.cvs0.bytecode.test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format between {@link DaemonClient} and {@link AnalysisDaemon}.
+ *
+ * <p>Each message is one frame: a 4-byte big-endian length followed by the payload. A request
+ * payload is the client's working directory, the argument count and each argument; a response
+ * payload is the exit code followed by the captured standard output and standard error.
+ * Strings are written as a 4-byte length and their UTF-8 bytes. One connection carries one
+ * request and its response.
+ */
+class DaemonProtocol {
+    static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    static void writeRequest(SocketChannel channel, Request request) throws IOException {
+        byte[] workingDirectory = request.workingDirectory.toString().getBytes(StandardCharsets.UTF_8);
+        List<byte[]> encoded = new ArrayList<>();
+        int size = 4 + workingDirectory.length + 4;
+        for (String arg : request.args) {
+            byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            size += 4 + bytes.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + size);
+        buffer.putInt(size)
+                .putInt(workingDirectory.length).put(workingDirectory)
+                .putInt(encoded.size());
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        writeFully(channel, buffer.flip());
+    }
+
+    static Request readRequest(SocketChannel channel) throws IOException {
+        ByteBuffer frame = readFrame(channel);
+        Path workingDirectory = Path.of(getString(frame));
+        int count = frame.getInt();
+        if (count < 0 || count > frame.remaining() / 4) {
+            throw new IOException("Invalid argument count: " + count);
+        }
+        List<String> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            args.add(getString(frame));
+        }
+        return new Request(workingDirectory, args);
+    }
+
+    static void writeResponse(SocketChannel channel, DaemonClient.Response response) throws IOException {
+        byte[] out = response.getOut().getBytes(StandardCharsets.UTF_8);
+        byte[] err = response.getErr().getBytes(StandardCharsets.UTF_8);
+        int size = 4 + 4 + out.length + 4 + err.length;
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + size);
+        buffer.putInt(size)
+                .putInt(response.getExitCode())
+                .putInt(out.length).put(out)
+                .putInt(err.length).put(err);
+        writeFully(channel, buffer.flip());
+    }
+
+    static DaemonClient.Response readResponse(SocketChannel channel) throws IOException {
+        ByteBuffer frame = readFrame(channel);
+        int exitCode = frame.getInt();
+        String out = getString(frame);
+        String err = getString(frame);
+        return new DaemonClient.Response(exitCode, out, err);
+    }
+
+    /**
+     * The arguments of one command and the directory relative paths in them refer to.
+     */
+    static class Request {
+        final Path workingDirectory;
+        final List<String> args;
+
+        Request(Path workingDirectory, List<String> args) {
+            this.workingDirectory = workingDirectory;
+            this.args = args;
+        }
+    }
+
+    private static ByteBuffer readFrame(SocketChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        readFully(channel, header);
+        int size = header.flip().getInt();
+        if (size < 0 || size > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid frame length: " + size);
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(size);
+        readFully(channel, frame);
+        return frame.flip();
+    }
+
+    private static String getString(ByteBuffer frame) throws IOException {
+        int length = frame.getInt();
+        if (length < 0 || length > frame.remaining()) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        frame.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Connection closed after " + buffer.position() + " of "
+                        + buffer.capacity() + " bytes");
+            }
+        }
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -2,227 +2,427 @@ package net.cvs0.bytecode.test;
 
 import net.cvs0.bytecode.JarMapping;
 import net.cvs0.bytecode.analysis.DependencyAnalyzer;
+import net.cvs0.bytecode.analysis.MemoryEstimator;
+import net.cvs0.bytecode.analysis.MemoryReport;
+import net.cvs0.bytecode.analysis.UnusedCodeAnalyzer;
 import net.cvs0.bytecode.clazz.ProgramClass;
 import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.util.JsonWriter;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 /**
- * Standalone utility for testing the bytecode processor on real JAR files.
- * Run this class with a JAR file path as argument to analyze it.
+ * Command line utility for analyzing real JAR files.
+ *
+ * <p>The jar is loaded with a configurable number of threads and the dependency graph is
+ * built once. The report sections are then computed concurrently from that graph. Every
+ * stage is timed, and the peak heap usage of the run is reported along with an estimate of
+ * what the loaded mapping retains. Heap peaks are tracked JVM-wide, so the peak is only
+ * reported for a run that no other analysis in the same JVM overlapped, and is {@code -1}
+ * otherwise. The report can be printed as text or written as JSON.
  */
-public class JarAnalyzer {
-    
+@Command(name = "jar-analyzer", mixinStandardHelpOptions = true, version = "1.1",
+        description = "Analyzes a JAR file and reports statistics, dependencies and unused code.")
+public class JarAnalyzer implements Callable<Integer> {
+
+    static final List<String> STAGES = List.of(
+            "load", "dependencyGraph", "statistics", "circularDependencies", "topologicalOrder",
+            "unusedClasses", "unusedMethods", "largestClasses", "memory", "sections", "total");
+
+    private static int runningAnalyses;
+    private static long startedAnalyses;
+
+    @Parameters(index = "0", paramLabel = "JAR", description = "The JAR file to analyze.")
+    File jarFile;
+
+    @Option(names = {"-t", "--threads"}, paramLabel = "N",
+            description = "Worker threads for loading and analysis (default: available processors).")
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = "--json", description = "Print the report as JSON instead of text.")
+    boolean json;
+
+    @Option(names = {"-o", "--output"}, paramLabel = "FILE", description = "Also write the JSON report to FILE.")
+    File output;
+
+    @Option(names = {"-l", "--limit"}, paramLabel = "N", defaultValue = "10",
+            description = "Maximum number of entries listed per section (default: ${DEFAULT-VALUE}).")
+    int limit;
+
     public static void main(String[] args) {
-        if (args.length == 0) {
-            System.out.println("Usage: java JarAnalyzer <jar-file-path>");
-            System.out.println("Example: java JarAnalyzer myapp.jar");
-            return;
+        System.exit(new CommandLine(new JarAnalyzer()).execute(args));
+    }
+
+    @Override
+    public Integer call() throws IOException {
+        if (!jarFile.isFile()) {
+            System.err.println("JAR file not found: " + jarFile);
+            return 1;
         }
-        
-        String jarPath = args[0];
-        File jarFile = new File(jarPath);
-        
-        if (!jarFile.exists()) {
-            System.err.println("JAR file not found: " + jarPath);
-            return;
+        if (threads < 1) {
+            System.err.println("Thread count must be positive: " + threads);
+            return 1;
         }
-        
-        System.out.println("=".repeat(60));
-        System.out.println("BYTECODE PROCESSOR - JAR ANALYSIS");
-        System.out.println("=".repeat(60));
-        System.out.println("Analyzing: " + jarFile.getAbsolutePath());
-        System.out.println();
-        
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
         try {
-            analyzeJar(jarPath);
-        } catch (Exception e) {
-            System.err.println("Error analyzing JAR: " + e.getMessage());
-            e.printStackTrace();
+            Analysis analysis = analyze(jarFile, pool);
+
+            if (json) {
+                System.out.println(analysis.toJson(limit));
+            } else {
+                analysis.print(System.out, limit);
+            }
+            if (output != null) {
+                Files.writeString(output.toPath(), analysis.toJson(limit), StandardCharsets.UTF_8);
+            }
+            return 0;
+        } finally {
+            pool.shutdown();
         }
     }
-    
-    private static void analyzeJar(String jarPath) {
-        long startTime = System.currentTimeMillis();
-        
-        // Load the JAR
-        System.out.println("📦 Loading JAR file...");
-        JarMapping mapping = new JarMapping(jarPath);
-        
-        Collection<ProgramClass> classes = mapping.getProgramClasses();
-        System.out.println("✅ Loaded " + classes.size() + " classes");
-        System.out.println();
-        
-        // Basic statistics
-        printBasicStatistics(mapping);
-        
-        // Dependency analysis
-        printDependencyAnalysis(mapping);
-        
-        // Class details
-        printClassDetails(mapping);
-        
-        // Performance info
-        long endTime = System.currentTimeMillis();
-        System.out.println("⏱️  Analysis completed in " + (endTime - startTime) + "ms");
+
+    /**
+     * Loads and analyzes {@code jarFile} using {@code pool} for all parallel work.
+     */
+    static Analysis analyze(File jarFile, ForkJoinPool pool) throws IOException {
+        return analyze(jarFile, pool, (file, loadPool) -> JarMapping.fromJar(file.getPath(), loadPool));
     }
-    
-    private static void printBasicStatistics(JarMapping mapping) {
-        System.out.println("📊 BASIC STATISTICS");
-        System.out.println("-".repeat(40));
-        
-        Collection<ProgramClass> classes = mapping.getProgramClasses();
-        
-        int totalClasses = classes.size();
-        int interfaces = 0;
-        int abstractClasses = 0;
-        int finalClasses = 0;
-        int publicClasses = 0;
-        int totalMethods = 0;
-        int totalFields = 0;
-        
-        for (ProgramClass clazz : classes) {
-            if (clazz.isInterface()) interfaces++;
-            if (clazz.isAbstract()) abstractClasses++;
-            if (clazz.isFinal()) finalClasses++;
-            if (clazz.isPublic()) publicClasses++;
-            
-            totalMethods += clazz.getMethods().size();
-            totalFields += clazz.getFields().size();
+
+    /**
+     * Analyzes {@code jarFile} with the mapping returned by {@code loader}. The mapping is
+     * only read, so a loader may hand out a cached one.
+     */
+    static Analysis analyze(File jarFile, ForkJoinPool pool, MappingLoader loader) throws IOException {
+        long measurement = beginMeasurement();
+        try {
+            return analyze(jarFile, pool, loader, measurement);
+        } finally {
+            endMeasurement();
         }
-        
-        System.out.println("Total Classes: " + totalClasses);
-        System.out.println("  - Interfaces: " + interfaces);
-        System.out.println("  - Abstract: " + abstractClasses);
-        System.out.println("  - Final: " + finalClasses);
-        System.out.println("  - Public: " + publicClasses);
-        System.out.println("Total Methods: " + totalMethods);
-        System.out.println("Total Fields: " + totalFields);
-        System.out.println();
     }
-    
-    private static void printDependencyAnalysis(JarMapping mapping) {
-        System.out.println("🔗 DEPENDENCY ANALYSIS");
-        System.out.println("-".repeat(40));
-        
-        try {
-            // Build dependency graph
-            Map<String, Set<String>> dependencies = DependencyAnalyzer.buildDependencyGraph(mapping);
-            System.out.println("✅ Built dependency graph with " + dependencies.size() + " nodes");
-            
-            // Find circular dependencies
-            Set<String> circularDeps = DependencyAnalyzer.findCircularDependencies(mapping);
-            if (circularDeps.isEmpty()) {
-                System.out.println("✅ No circular dependencies found");
+
+    /**
+     * Registers a starting analysis. Returns a token for measuring the heap peak if no other
+     * analysis is running, or {@code -1} if one is.
+     */
+    private static synchronized long beginMeasurement() {
+        startedAnalyses++;
+        return ++runningAnalyses == 1 ? startedAnalyses : -1;
+    }
+
+    /**
+     * Returns whether the run holding {@code measurement} still had the JVM to itself, that
+     * is, no other analysis started since it began.
+     */
+    private static synchronized boolean isExclusive(long measurement) {
+        return measurement >= 0 && startedAnalyses == measurement;
+    }
+
+    private static synchronized void endMeasurement() {
+        runningAnalyses--;
+    }
+
+    private static Analysis analyze(File jarFile, ForkJoinPool pool, MappingLoader loader, long measurement)
+            throws IOException {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(memoryPool -> memoryPool.getType() == MemoryType.HEAP && memoryPool.isValid())
+                .toList();
+        if (measurement >= 0) {
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        }
+
+        Analysis analysis = new Analysis(jarFile, pool.getParallelism());
+        long start = System.nanoTime();
+
+        long loadStart = System.nanoTime();
+        analysis.mapping = loader.load(jarFile, pool);
+        analysis.stageNanos.put("load", System.nanoTime() - loadStart);
+
+        JarMapping mapping = analysis.mapping;
+        analysis.dependencyGraph = analysis.timed("dependencyGraph",
+                () -> DependencyAnalyzer.buildDependencyGraph(mapping));
+        Map<String, Set<String>> graph = analysis.dependencyGraph;
+
+        long sectionsStart = System.nanoTime();
+        CompletableFuture<ClassStatistics> statistics = analysis.async(pool, "statistics",
+                () -> ClassStatistics.of(mapping));
+        CompletableFuture<Set<String>> circular = analysis.async(pool, "circularDependencies",
+                () -> DependencyAnalyzer.findCircularDependencies(graph));
+        CompletableFuture<List<String>> topological = analysis.async(pool, "topologicalOrder",
+                () -> DependencyAnalyzer.getTopologicalOrder(mapping, graph));
+        CompletableFuture<Set<String>> unusedClasses = analysis.async(pool, "unusedClasses",
+                () -> DependencyAnalyzer.findUnusedClasses(mapping, graph));
+        CompletableFuture<Set<String>> unusedMethods = analysis.async(pool, "unusedMethods",
+                () -> UnusedCodeAnalyzer.findUnusedMethods(mapping));
+        CompletableFuture<List<ProgramClass>> largest = analysis.async(pool, "largestClasses",
+                () -> mapping.getProgramClasses().stream()
+                        .sorted(Comparator.comparingInt((ProgramClass c) -> c.getMethods().size()).reversed()
+                                .thenComparing(ProgramClass::getName))
+                        .toList());
+        CompletableFuture<MemoryReport> memory = analysis.async(pool, "memory",
+                () -> MemoryEstimator.estimate(mapping, pool));
+
+        analysis.statistics = statistics.join();
+        analysis.circularDependencies = new TreeSet<>(circular.join());
+        analysis.topologicalOrder = topological.join();
+        analysis.unusedClasses = new TreeSet<>(unusedClasses.join());
+        analysis.unusedMethods = new TreeSet<>(unusedMethods.join());
+        analysis.largestClasses = largest.join();
+        analysis.memory = memory.join();
+        analysis.stageNanos.put("sections", System.nanoTime() - sectionsStart);
+        analysis.stageNanos.put("total", System.nanoTime() - start);
+
+        analysis.peakHeapBytes = isExclusive(measurement)
+                ? heapPools.stream().mapToLong(memoryPool -> memoryPool.getPeakUsage().getUsed()).sum()
+                : -1;
+        return analysis;
+    }
+
+    /**
+     * Supplies the mapping to analyze.
+     */
+    interface MappingLoader {
+        JarMapping load(File jarFile, ForkJoinPool pool) throws IOException;
+    }
+
+    /**
+     * Results of one run. Section results are sorted so that output is stable across runs.
+     */
+    static class Analysis {
+        final File jarFile;
+        final int threads;
+        final Map<String, Long> stageNanos = new ConcurrentHashMap<>();
+        JarMapping mapping;
+        Map<String, Set<String>> dependencyGraph;
+        ClassStatistics statistics;
+        Set<String> circularDependencies;
+        List<String> topologicalOrder;
+        Set<String> unusedClasses;
+        Set<String> unusedMethods;
+        List<ProgramClass> largestClasses;
+        MemoryReport memory;
+        long peakHeapBytes;
+
+        Analysis(File jarFile, int threads) {
+            this.jarFile = jarFile;
+            this.threads = threads;
+        }
+
+        <T> T timed(String stage, Supplier<T> work) {
+            long start = System.nanoTime();
+            T result = work.get();
+            stageNanos.put(stage, System.nanoTime() - start);
+            return result;
+        }
+
+        <T> CompletableFuture<T> async(ForkJoinPool pool, String stage, Supplier<T> work) {
+            return CompletableFuture.supplyAsync(() -> timed(stage, work), pool);
+        }
+
+        long edgeCount() {
+            return dependencyGraph.values().stream().mapToLong(Set::size).sum();
+        }
+
+        void print(PrintStream out, int limit) {
+            out.println("=".repeat(60));
+            out.println("BYTECODE PROCESSOR - JAR ANALYSIS");
+            out.println("=".repeat(60));
+            out.println("Analyzing: " + jarFile.getAbsolutePath());
+            out.println("Threads: " + threads);
+            out.println();
+
+            out.println("📊 BASIC STATISTICS");
+            out.println("-".repeat(40));
+            out.println("Total Classes: " + statistics.classes);
+            out.println("  - Interfaces: " + statistics.interfaces);
+            out.println("  - Abstract: " + statistics.abstractClasses);
+            out.println("  - Final: " + statistics.finalClasses);
+            out.println("  - Public: " + statistics.publicClasses);
+            out.println("Total Methods: " + statistics.methods);
+            out.println("Total Fields: " + statistics.fields);
+            out.println("Total Instructions: " + statistics.instructions);
+            out.println("Resources: " + mapping.getResourceCount());
+            out.println();
+
+            out.println("🔗 DEPENDENCY ANALYSIS");
+            out.println("-".repeat(40));
+            out.println("✅ Built dependency graph with " + dependencyGraph.size() + " nodes and " + edgeCount() + " edges");
+            if (circularDependencies.isEmpty()) {
+                out.println("✅ No circular dependencies found");
             } else {
-                System.out.println("⚠️  Found " + circularDeps.size() + " classes in circular dependencies:");
-                circularDeps.stream().limit(10).forEach(dep -> System.out.println("   - " + dep));
-                if (circularDeps.size() > 10) {
-                    System.out.println("   ... and " + (circularDeps.size() - 10) + " more");
-                }
+                out.println("⚠️  Found " + circularDependencies.size() + " classes in circular dependencies:");
+                printLimited(out, circularDependencies, limit);
             }
-            
-            // Get topological order
-            List<String> topologicalOrder = DependencyAnalyzer.getTopologicalOrder(mapping);
-            System.out.println("✅ Computed topological order for " + topologicalOrder.size() + " classes");
-            
-            // Find unused classes
-            Set<String> unusedClasses = DependencyAnalyzer.findUnusedClasses(mapping);
+            out.println("✅ Computed topological order for " + topologicalOrder.size() + " classes");
             if (unusedClasses.isEmpty()) {
-                System.out.println("✅ No unused classes found");
+                out.println("✅ No unused classes found");
             } else {
-                System.out.println("📋 Found " + unusedClasses.size() + " potentially unused classes:");
-                unusedClasses.stream().limit(5).forEach(unused -> System.out.println("   - " + unused));
-                if (unusedClasses.size() > 5) {
-                    System.out.println("   ... and " + (unusedClasses.size() - 5) + " more");
+                out.println("📋 Found " + unusedClasses.size() + " potentially unused classes:");
+                printLimited(out, unusedClasses, limit);
+            }
+            if (unusedMethods.isEmpty()) {
+                out.println("✅ No unused methods found");
+            } else {
+                out.println("📋 Found " + unusedMethods.size() + " potentially unused methods:");
+                printLimited(out, unusedMethods, limit);
+            }
+            out.println();
+
+            out.println("🏗️  CLASS DETAILS");
+            out.println("-".repeat(40));
+            out.println("Top " + Math.min(limit, largestClasses.size()) + " classes by method count:");
+            for (int i = 0; i < Math.min(limit, largestClasses.size()); i++) {
+                ProgramClass clazz = largestClasses.get(i);
+                out.println("  " + (i + 1) + ". " + clazz.getName() +
+                        " (" + clazz.getMethods().size() + " methods, " +
+                        clazz.getFields().size() + " fields, " +
+                        dependencyGraph.getOrDefault(clazz.getName(), Set.of()).size() + " dependencies)");
+            }
+            out.println();
+
+            out.println("🧮 RETAINED MEMORY (estimated)");
+            out.println("-".repeat(40));
+            out.printf("Total: %.1f MB%n", memory.getTotalBytes() / (1024.0 * 1024.0));
+            for (MemoryReport.Category category : MemoryReport.Category.values()) {
+                out.printf("  - %s: %.1f MB%n", category, memory.getTotal().getBytes(category) / (1024.0 * 1024.0));
+            }
+            out.println("Largest packages:");
+            for (MemoryReport.Footprint footprint : memory.getLargestPackages(limit)) {
+                out.printf("   - %s (%.1f KB)%n", footprint.getName().isEmpty() ? "<default>" : footprint.getName(),
+                        footprint.getTotalBytes() / 1024.0);
+            }
+            out.println();
+
+            out.println("⏱️  STAGE TIMINGS");
+            out.println("-".repeat(40));
+            for (String stage : STAGES) {
+                Long nanos = stageNanos.get(stage);
+                if (nanos != null) {
+                    out.printf("  %-22s %10.3f ms%n", stage, nanos / 1e6);
                 }
             }
-            
-        } catch (Exception e) {
-            System.err.println("❌ Error during dependency analysis: " + e.getMessage());
+            if (peakHeapBytes >= 0) {
+                out.printf("Peak heap: %.1f MB%n", peakHeapBytes / (1024.0 * 1024.0));
+            } else {
+                out.println("Peak heap: not measured, another analysis overlapped this one");
+            }
         }
-        
-        System.out.println();
-    }
-    
-    private static void printClassDetails(JarMapping mapping) {
-        System.out.println("🏗️  CLASS DETAILS");
-        System.out.println("-".repeat(40));
-        
-        Collection<ProgramClass> classes = mapping.getProgramClasses();
-        
-        // Find most complex classes (by method count)
-        List<ProgramClass> sortedByMethods = classes.stream()
-                .sorted((a, b) -> Integer.compare(b.getMethods().size(), a.getMethods().size()))
-                .limit(5)
-                .toList();
-        
-        System.out.println("Top 5 classes by method count:");
-        for (int i = 0; i < sortedByMethods.size(); i++) {
-            ProgramClass clazz = sortedByMethods.get(i);
-            System.out.println("  " + (i + 1) + ". " + clazz.getSimpleName() + 
-                             " (" + clazz.getMethods().size() + " methods, " + 
-                             clazz.getFields().size() + " fields)");
+
+        private static void printLimited(PrintStream out, Collection<String> values, int limit) {
+            values.stream().limit(limit).forEach(value -> out.println("   - " + value));
+            if (values.size() > limit) {
+                out.println("   ... and " + (values.size() - limit) + " more");
+            }
         }
-        System.out.println();
-        
-        // Find classes with most dependencies
-        System.out.println("Sample class analysis:");
-        ProgramClass sampleClass = classes.stream()
-                .filter(c -> !c.getName().startsWith("java/"))
-                .findFirst()
-                .orElse(classes.iterator().next());
-        
-        if (sampleClass != null) {
-            System.out.println("Class: " + sampleClass.getName());
-            System.out.println("  Package: " + sampleClass.getPackageName());
-            System.out.println("  Simple Name: " + sampleClass.getSimpleName());
-            System.out.println("  Super Class: " + sampleClass.getSuperName());
-            System.out.println("  Interfaces: " + sampleClass.getInterfaces().size());
-            System.out.println("  Access Flags: " + getAccessFlagsString(sampleClass));
-            System.out.println("  Methods: " + sampleClass.getMethods().size());
-            System.out.println("  Fields: " + sampleClass.getFields().size());
-            
-            // Show some methods
-            if (!sampleClass.getMethods().isEmpty()) {
-                System.out.println("  Sample methods:");
-                sampleClass.getMethods().stream()
-                        .limit(3)
-                        .forEach(method -> {
-                            System.out.println("    - " + method.getName() + method.getDescriptor() + 
-                                             " (" + method.getInstructionCount() + " instructions)");
-                        });
+
+        String toJson(int limit) {
+            JsonWriter json = new JsonWriter();
+            json.beginObject()
+                    .field("jar", jarFile.getAbsolutePath())
+                    .field("threads", threads);
+
+            json.name("statistics").beginObject()
+                    .field("classes", statistics.classes)
+                    .field("interfaces", statistics.interfaces)
+                    .field("abstractClasses", statistics.abstractClasses)
+                    .field("finalClasses", statistics.finalClasses)
+                    .field("publicClasses", statistics.publicClasses)
+                    .field("methods", statistics.methods)
+                    .field("fields", statistics.fields)
+                    .field("instructions", statistics.instructions)
+                    .field("resources", mapping.getResourceCount())
+                    .endObject();
+
+            json.name("dependencies").beginObject()
+                    .field("nodes", dependencyGraph.size())
+                    .field("edges", edgeCount())
+                    .field("topologicallyOrdered", topologicalOrder.size());
+            writeLimited(json, "circularDependencies", circularDependencies, limit);
+            writeLimited(json, "unusedClasses", unusedClasses, limit);
+            writeLimited(json, "unusedMethods", unusedMethods, limit);
+            json.endObject();
+
+            json.name("largestClasses").beginArray();
+            for (ProgramClass clazz : largestClasses.subList(0, Math.min(limit, largestClasses.size()))) {
+                json.beginObject()
+                        .field("name", clazz.getName())
+                        .field("methods", clazz.getMethods().size())
+                        .field("fields", clazz.getFields().size())
+                        .field("dependencies", dependencyGraph.getOrDefault(clazz.getName(), Set.of()).size())
+                        .endObject();
             }
-            
-            // Try to find dependencies for this class
-            try {
-                Set<String> classDeps = DependencyAnalyzer.findClassDependencies(sampleClass);
-                System.out.println("  Dependencies: " + classDeps.size());
-                if (!classDeps.isEmpty()) {
-                    System.out.println("    Sample dependencies:");
-                    classDeps.stream().limit(3).forEach(dep -> System.out.println("      - " + dep));
+            json.endArray();
+
+            json.name("memory");
+            memory.writeJson(json, limit);
+
+            json.name("stageNanos").beginObject();
+            for (String stage : STAGES) {
+                Long nanos = stageNanos.get(stage);
+                if (nanos != null) {
+                    json.field(stage, nanos);
                 }
-            } catch (Exception e) {
-                System.out.println("  Dependencies: Error analyzing (" + e.getMessage() + ")");
             }
+            json.endObject();
+
+            json.field("peakHeapBytes", peakHeapBytes);
+            return json.endObject().toString();
+        }
+
+        private static void writeLimited(JsonWriter json, String name, Collection<String> values, int limit) {
+            json.name(name).beginObject().field("count", values.size()).name("sample").beginArray();
+            values.stream().limit(limit).forEach(json::value);
+            json.endArray().endObject();
         }
-        
-        System.out.println();
     }
-    
-    private static String getAccessFlagsString(ProgramClass clazz) {
-        List<String> flags = new ArrayList<>();
-        if (clazz.isPublic()) flags.add("public");
-        if (clazz.isPrivate()) flags.add("private");
-        if (clazz.isProtected()) flags.add("protected");
-        if (clazz.isStatic()) flags.add("static");
-        if (clazz.isFinal()) flags.add("final");
-        if (clazz.isAbstract()) flags.add("abstract");
-        if (clazz.isInterface()) flags.add("interface");
-        if (clazz.isEnum()) flags.add("enum");
-        if (clazz.isAnnotation()) flags.add("annotation");
-        
-        return flags.isEmpty() ? "package-private" : String.join(", ", flags);
+
+    /**
+     * Aggregate counts over all program classes.
+     */
+    static class ClassStatistics {
+        long classes;
+        long interfaces;
+        long abstractClasses;
+        long finalClasses;
+        long publicClasses;
+        long methods;
+        long fields;
+        long instructions;
+
+        static ClassStatistics of(JarMapping mapping) {
+            ClassStatistics statistics = new ClassStatistics();
+            for (ProgramClass clazz : mapping.getProgramClasses()) {
+                statistics.classes++;
+                if (clazz.isInterface()) statistics.interfaces++;
+                if (clazz.isAbstract()) statistics.abstractClasses++;
+                if (clazz.isFinal()) statistics.finalClasses++;
+                if (clazz.isPublic()) statistics.publicClasses++;
+
+                statistics.methods += clazz.getMethods().size();
+                statistics.fields += clazz.getFields().size();
+                for (ProgramMethod method : clazz.getMethods()) {
+                    statistics.instructions += method.getInstructionCount();
+                }
+            }
+            return statistics;
+        }
     }
-}
\ No newline at end of file
+}
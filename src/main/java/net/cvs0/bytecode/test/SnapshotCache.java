@@ -0,0 +1,81 @@
+package net.cvs0.bytecode.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Values loaded from files, kept until the file changes or the entry is evicted.
+ *
+ * <p>An entry is reused while the file's size and modification time are unchanged. The
+ * least recently used entry is evicted once {@code capacity} is exceeded. Two threads that
+ * miss on the same file at once may both load it; the later result replaces the earlier one.
+ */
+class SnapshotCache<T> {
+    private final Map<File, Snapshot<T>> snapshots;
+    private long hits;
+    private long misses;
+
+    SnapshotCache(int capacity) {
+        this.snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<File, Snapshot<T>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    T get(File file, Loader<T> loader) throws IOException {
+        File key = file.getCanonicalFile();
+        long lastModified = key.lastModified();
+        long length = key.length();
+
+        synchronized (this) {
+            Snapshot<T> snapshot = snapshots.get(key);
+            if (snapshot != null && snapshot.lastModified == lastModified && snapshot.length == length) {
+                hits++;
+                return snapshot.value;
+            }
+            misses++;
+        }
+
+        T value = loader.load(key);
+        synchronized (this) {
+            snapshots.put(key, new Snapshot<>(value, lastModified, length));
+        }
+        return value;
+    }
+
+    synchronized int size() {
+        return snapshots.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized void clear() {
+        snapshots.clear();
+    }
+
+    interface Loader<T> {
+        T load(File file) throws IOException;
+    }
+
+    private static class Snapshot<T> {
+        final T value;
+        final long lastModified;
+        final long length;
+
+        Snapshot(T value, long lastModified, long length) {
+            this.value = value;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+}
@@ -1,19 +1,38 @@
 package net.cvs0.bytecode.transform;
 
 import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.MethodFamilies;
 import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.event.TransformationPassEvent;
 import net.cvs0.bytecode.member.ProgramField;
 import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.util.MappingReader;
+import net.cvs0.bytecode.util.MappingVisitor;
+import net.cvs0.bytecode.util.MappingWriter;
 
-import java.util.HashMap;
-import java.util.Map;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.tree.*;
+
+import java.io.IOException;
+import java.lang.invoke.LambdaMetafactory;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 public class ClassTransformer {
+    private static final String LAMBDA_METAFACTORY = "java/lang/invoke/LambdaMetafactory";
+    
     private final JarMapping mapping;
     private final Map<String, String> classNameMappings = new HashMap<>();
     private final Map<String, String> fieldNameMappings = new HashMap<>();
     private final Map<String, String> methodNameMappings = new HashMap<>();
+    private final Map<String, String> familyNameMappings = new HashMap<>();
+    private final Map<String, List<String>> originalSupertypes = new HashMap<>();
+    private final Set<String> originalMembers = new HashSet<>();
+    private final List<Consumer<MappingVisitor>> appliedMappings = new ArrayList<>();
     
     public ClassTransformer(JarMapping mapping) {
         this.mapping = mapping;
@@ -27,15 +46,320 @@ public class ClassTransformer {
         fieldNameMappings.put(className + "." + oldFieldName, newFieldName);
     }
     
+    /**
+     * Renames a method together with its whole family: the methods it overrides, the
+     * interface methods it implements, and their overrides, as grouped by
+     * {@link MethodFamilies}. Renaming any one member renames them all.
+     */
     public void renameMethod(String className, String oldMethodName, String descriptor, String newMethodName) {
         methodNameMappings.put(className + "." + oldMethodName + descriptor, newMethodName);
     }
     
+    /**
+     * Seeds renames from a ProGuard mapping file, such as one written by an earlier run with
+     * {@link #writeMappings(Path)}, so that classes and members keep the names they were
+     * given then. Entries that keep their name are skipped, and entries for classes and
+     * members that no longer exist have no effect.
+     * 
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public void loadMappings(Path file) throws IOException {
+        MappingReader.read(file, new MappingVisitor() {
+            @Override
+            public void visitClass(String oldName, String newName) {
+                if (!oldName.equals(newName)) {
+                    renameClass(oldName, newName);
+                }
+            }
+            
+            @Override
+            public void visitField(String className, String descriptor, String oldName, String newName) {
+                if (!oldName.equals(newName)) {
+                    renameField(className, oldName, newName);
+                }
+            }
+            
+            @Override
+            public void visitMethod(String className, String oldName, String descriptor, String newName) {
+                if (!oldName.equals(newName)) {
+                    renameMethod(className, oldName, descriptor, newName);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Writes the renames made by the last {@link #applyTransformations()} as a ProGuard
+     * mapping file, including every member of each renamed method family.
+     */
+    public void writeMappings(Path file) throws IOException {
+        try (MappingWriter writer = new MappingWriter(file)) {
+            acceptAppliedMappings(writer);
+        }
+    }
+    
+    /**
+     * Reports the renames made by the last {@link #applyTransformations()} to
+     * {@code visitor}, class by class in name order, using the original names and
+     * descriptors.
+     */
+    public void acceptAppliedMappings(MappingVisitor visitor) {
+        for (Consumer<MappingVisitor> entry : appliedMappings) {
+            entry.accept(visitor);
+        }
+    }
+    
     public void applyTransformations() {
-        applyFieldRenames();
-        applyMethodRenames();
-        applyClassRenames();
-        updateReferences();
+        snapshotHierarchy();
+        resolveMethodFamilies();
+        recordAppliedMappings();
+        runPass("fieldRenames", fieldNameMappings.size(), this::applyFieldRenames);
+        runPass("methodRenames", familyNameMappings.size(), this::applyMethodRenames);
+        runPass("classRenames", classNameMappings.size(), this::applyClassRenames);
+        runPass("updateReferences", classNameMappings.size() + fieldNameMappings.size() + methodNameMappings.size(),
+                this::updateReferences);
+    }
+    
+    /**
+     * Expands each requested method rename to every program method in its family, and
+     * checks the whole set before anything is changed, so a family is renamed completely or
+     * not at all.
+     * 
+     * @throws IllegalStateException if a family overrides a library method, if two members
+     *         of one family are given different names, or if a class already declares or
+     *         inherits a method with the new name and descriptor that is not renamed away
+     */
+    private void resolveMethodFamilies() {
+        familyNameMappings.clear();
+        if (methodNameMappings.isEmpty()) {
+            return;
+        }
+        
+        MethodFamilies families = MethodFamilies.resolve(mapping);
+        Map<MethodFamilies.Family, String> familyNames = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : methodNameMappings.entrySet()) {
+            String key = entry.getKey();
+            String newName = entry.getValue();
+            
+            int lastDot = key.lastIndexOf('.');
+            String methodPart = key.substring(lastDot + 1);
+            int parenIndex = methodPart.indexOf('(');
+            MethodFamilies.Family family = families.getFamily(key.substring(0, lastDot),
+                    methodPart.substring(0, parenIndex), methodPart.substring(parenIndex));
+            if (family == null) {
+                familyNameMappings.put(key, newName);
+                continue;
+            }
+            if (family.isLibrary()) {
+                throw new IllegalStateException("Cannot rename " + key + ": it overrides library methods in " +
+                        family.getLibraryClasses());
+            }
+            String previous = familyNames.putIfAbsent(family, newName);
+            if (previous != null && !previous.equals(newName)) {
+                throw new IllegalStateException("Conflicting names for method family " + family + ": " +
+                        previous + " and " + newName);
+            }
+        }
+        
+        for (Map.Entry<MethodFamilies.Family, String> entry : familyNames.entrySet()) {
+            MethodFamilies.Family family = entry.getKey();
+            for (String className : family.getProgramClasses()) {
+                familyNameMappings.put(className + "." + family.getName() + family.getDescriptor(), entry.getValue());
+            }
+        }
+        
+        for (Map.Entry<String, String> entry : familyNameMappings.entrySet()) {
+            String key = entry.getKey();
+            String className = key.substring(0, key.lastIndexOf('.'));
+            String target = className + "." + entry.getValue() + key.substring(key.indexOf('(', className.length()));
+            if (!target.equals(key) && originalMembers.contains(target) && !familyNameMappings.containsKey(target)) {
+                throw new IllegalStateException("Cannot rename " + key + " to " + entry.getValue() + ": " +
+                        className + " already declares it");
+            }
+        }
+        checkInheritedConflicts(families, familyNames);
+        checkLambdaBridges();
+    }
+    
+    /**
+     * Checks every class in which a renamed family is visible, declared or inherited, for
+     * another method that would end up with the same name and descriptor. Such a method
+     * would start overriding the family, or be overridden by it.
+     * 
+     * @throws IllegalStateException if a renamed family would clash with another method
+     */
+    private void checkInheritedConflicts(MethodFamilies families, Map<MethodFamilies.Family, String> familyNames) {
+        if (familyNames.isEmpty()) {
+            return;
+        }
+        for (ProgramClass clazz : mapping.getProgramClasses()) {
+            Map<String, MethodFamilies.Family> visibleFamilies = families.getVisibleFamilies(clazz.getName());
+            for (MethodFamilies.Family family : visibleFamilies.values()) {
+                String newName = familyNames.get(family);
+                if (newName == null || newName.equals(family.getName())) {
+                    continue;
+                }
+                String target = newName + family.getDescriptor();
+                MethodFamilies.Family other = visibleFamilies.get(target);
+                boolean clash = other != null && other != family
+                        && familyNames.getOrDefault(other, other.getName()).equals(newName);
+                String declared = clazz.getName() + "." + target;
+                clash |= other == null && originalMembers.contains(declared) && !familyNameMappings.containsKey(declared);
+                if (clash) {
+                    throw new IllegalStateException("Cannot rename " + family + " to " + newName + ": " +
+                            clazz.getName() + " already inherits or declares " + target);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Checks that every lambda implementing several signatures of its interface, through
+     * {@code altMetafactory} bridges, keeps one name for all of them, since a call site has
+     * a single name.
+     * 
+     * @throws IllegalStateException if the bridged families are given different names
+     */
+    private void checkLambdaBridges() {
+        for (ProgramClass clazz : mapping.getProgramClasses()) {
+            for (ProgramMethod method : clazz.getMethods()) {
+                MethodNode methodNode = method.getMethodNode();
+                if (methodNode == null || methodNode.instructions == null) {
+                    continue;
+                }
+                for (AbstractInsnNode insn : methodNode.instructions) {
+                    if (!(insn instanceof InvokeDynamicInsnNode indy)) {
+                        continue;
+                    }
+                    List<String> signatures = lambdaSignatures(indy);
+                    String interfaceName = signatures.isEmpty() ? null : Type.getReturnType(indy.desc).getInternalName();
+                    Set<String> names = new TreeSet<>();
+                    for (String signature : signatures) {
+                        String newName = resolveRename(familyNameMappings, interfaceName, signature);
+                        names.add(newName != null ? newName : indy.name);
+                    }
+                    if (names.size() > 1) {
+                        throw new IllegalStateException("Cannot rename the bridged methods of a lambda in " +
+                                clazz.getName() + "." + method.getName() + method.getDescriptor() + " apart: " + names);
+                    }
+                }
+            }
+        }
+    }
+    
+    private void runPass(String name, int mappingCount, Runnable pass) {
+        TransformationPassEvent event = new TransformationPassEvent();
+        event.begin();
+        
+        pass.run();
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.pass = name;
+            event.mappingCount = mappingCount;
+            event.classCount = mapping.getProgramClasses().size();
+            event.commit();
+        }
+    }
+    
+    /**
+     * Records the renames about to be applied, under the original names, before any class
+     * or member is changed.
+     */
+    private void recordAppliedMappings() {
+        appliedMappings.clear();
+        List<ProgramClass> classes = new ArrayList<>(mapping.getProgramClasses());
+        classes.sort(Comparator.comparing(ProgramClass::getName));
+        
+        for (ProgramClass clazz : classes) {
+            String className = clazz.getName();
+            List<Consumer<MappingVisitor>> members = new ArrayList<>();
+            
+            List<ProgramField> fields = new ArrayList<>(clazz.getFields());
+            fields.sort(Comparator.comparing(ProgramField::getName));
+            for (ProgramField field : fields) {
+                String newName = fieldNameMappings.get(className + "." + field.getName());
+                if (newName != null) {
+                    String oldName = field.getName();
+                    String descriptor = field.getDescriptor();
+                    members.add(visitor -> visitor.visitField(className, descriptor, oldName, newName));
+                }
+            }
+            
+            List<ProgramMethod> methods = new ArrayList<>(clazz.getMethods());
+            methods.sort(Comparator.comparing(ProgramMethod::getName).thenComparing(ProgramMethod::getDescriptor));
+            for (ProgramMethod method : methods) {
+                String newName = familyNameMappings.get(className + "." + method.getName() + method.getDescriptor());
+                if (newName != null) {
+                    String oldName = method.getName();
+                    String descriptor = method.getDescriptor();
+                    members.add(visitor -> visitor.visitMethod(className, oldName, descriptor, newName));
+                }
+            }
+            
+            String newClassName = classNameMappings.getOrDefault(className, className);
+            if (!members.isEmpty() || !newClassName.equals(className)) {
+                appliedMappings.add(visitor -> visitor.visitClass(className, newClassName));
+                appliedMappings.addAll(members);
+            }
+        }
+    }
+    
+    /**
+     * Records the class hierarchy and declared members under their original names, so that
+     * references to inherited members can still be resolved once classes are renamed.
+     */
+    private void snapshotHierarchy() {
+        originalSupertypes.clear();
+        originalMembers.clear();
+        if (fieldNameMappings.isEmpty() && methodNameMappings.isEmpty()) {
+            return;
+        }
+        
+        for (ProgramClass clazz : mapping.getProgramClasses()) {
+            List<String> supertypes = new ArrayList<>();
+            if (clazz.getSuperName() != null) {
+                supertypes.add(clazz.getSuperName());
+            }
+            supertypes.addAll(clazz.getInterfaces());
+            originalSupertypes.put(clazz.getName(), supertypes);
+            
+            for (ProgramField field : clazz.getFields()) {
+                originalMembers.add(clazz.getName() + "." + field.getName());
+            }
+            for (ProgramMethod method : clazz.getMethods()) {
+                originalMembers.add(clazz.getName() + "." + method.getName() + method.getDescriptor());
+            }
+        }
+    }
+    
+    /**
+     * Finds the new name of a referenced member, following the reference from its owner up
+     * through the supertypes to the class that declares the member, as the JVM resolves it.
+     * 
+     * @param renames field or method mappings keyed by {@code owner.member}
+     * @param owner the original owner named by the reference
+     * @param member the field name, or the method name followed by its descriptor
+     * @return the new name, or {@code null} if the resolved member is not renamed
+     */
+    private String resolveRename(Map<String, String> renames, String owner, String member) {
+        Deque<String> pending = new ArrayDeque<>();
+        Set<String> visited = new HashSet<>();
+        pending.add(owner);
+        
+        while (!pending.isEmpty()) {
+            String type = pending.poll();
+            if (!visited.add(type)) {
+                continue;
+            }
+            String key = type + "." + member;
+            String newName = renames.get(key);
+            if (newName != null || originalMembers.contains(key)) {
+                return newName;
+            }
+            pending.addAll(originalSupertypes.getOrDefault(type, List.of()));
+        }
+        return null;
     }
     
     private void applyClassRenames() {
@@ -62,86 +386,314 @@ public class ClassTransformer {
         }
     }
     
+    /**
+     * Renames methods class by class, taking every renamed method out before putting any
+     * back, so names can be swapped within a class.
+     */
     private void applyMethodRenames() {
-        for (Map.Entry<String, String> entry : methodNameMappings.entrySet()) {
+        Map<String, Map<String, String>> renamesByClass = new HashMap<>();
+        for (Map.Entry<String, String> entry : familyNameMappings.entrySet()) {
             String key = entry.getKey();
-            String newName = entry.getValue();
-            
             int lastDot = key.lastIndexOf('.');
-            String className = key.substring(0, lastDot);
-            String methodPart = key.substring(lastDot + 1);
-            
-            int parenIndex = methodPart.indexOf('(');
-            String oldMethodName = methodPart.substring(0, parenIndex);
-            String descriptor = methodPart.substring(parenIndex);
+            renamesByClass.computeIfAbsent(key.substring(0, lastDot), k -> new HashMap<>())
+                    .put(key.substring(lastDot + 1), entry.getValue());
+        }
+        
+        for (Map.Entry<String, Map<String, String>> entry : renamesByClass.entrySet()) {
+            ProgramClass clazz = mapping.getProgramClass(entry.getKey());
+            if (clazz == null) {
+                continue;
+            }
             
-            ProgramClass clazz = mapping.getProgramClass(className);
-            if (clazz != null) {
-                clazz.renameMethod(oldMethodName, descriptor, newName);
+            List<ProgramMethod> renamed = new ArrayList<>();
+            for (Map.Entry<String, String> rename : entry.getValue().entrySet()) {
+                String methodPart = rename.getKey();
+                int parenIndex = methodPart.indexOf('(');
+                ProgramMethod method = clazz.getMethod(methodPart.substring(0, parenIndex),
+                        methodPart.substring(parenIndex));
+                if (method != null) {
+                    clazz.removeMethod(method.getName(), method.getDescriptor());
+                    method.setName(rename.getValue());
+                    renamed.add(method);
+                }
+            }
+            for (ProgramMethod method : renamed) {
+                clazz.addMethod(method);
             }
         }
     }
     
+    /**
+     * Rewrites every reference to a renamed class or member: supertypes, signatures and
+     * descriptors of fields and methods, annotations, and the instructions of each method,
+     * including {@code invokedynamic} call sites, their bootstrap handles and arguments, and
+     * {@code ldc} constants. Descriptors keep the original names until here, so each
+     * reference is resolved against the original hierarchy.
+     */
     private void updateReferences() {
+        ReferenceRemapper remapper = new ReferenceRemapper();
         for (ProgramClass clazz : mapping.getProgramClasses()) {
-            updateClassReferences(clazz);
+            updateClassReferences(clazz, remapper);
         }
     }
     
-    private void updateClassReferences(ProgramClass clazz) {
+    private void updateClassReferences(ProgramClass clazz, Remapper remapper) {
         if (clazz.getSuperName() != null && classNameMappings.containsKey(clazz.getSuperName())) {
             clazz.setSuperName(classNameMappings.get(clazz.getSuperName()));
         }
         
-        for (int i = 0; i < clazz.getInterfaces().size(); i++) {
-            String interfaceName = clazz.getInterfaces().get(i);
+        List<String> interfaces = new ArrayList<>(clazz.getInterfaces());
+        boolean interfacesRenamed = false;
+        for (int i = 0; i < interfaces.size(); i++) {
+            String interfaceName = interfaces.get(i);
             if (classNameMappings.containsKey(interfaceName)) {
-                clazz.getInterfaces().set(i, classNameMappings.get(interfaceName));
+                interfaces.set(i, classNameMappings.get(interfaceName));
+                interfacesRenamed = true;
             }
         }
+        if (interfacesRenamed) {
+            clazz.setInterfaces(interfaces);
+        }
         
+        if (clazz.getSignature() != null) {
+            clazz.setSignature(remapper.mapSignature(clazz.getSignature(), false));
+        }
+        if (clazz.getOuterClass() != null) {
+            if (clazz.getOuterMethod() != null && clazz.getOuterMethodDesc() != null) {
+                clazz.setOuterMethod(remapper.mapMethodName(clazz.getOuterClass(), clazz.getOuterMethod(),
+                        clazz.getOuterMethodDesc()));
+                clazz.setOuterMethodDesc(remapper.mapMethodDesc(clazz.getOuterMethodDesc()));
+            }
+            clazz.setOuterClass(remapper.mapType(clazz.getOuterClass()));
+        }
+        ClassNode classNode = clazz.getClassNode();
+        if (classNode != null) {
+            for (InnerClassNode innerClass : classNode.innerClasses) {
+                String newName = remapper.mapType(innerClass.name);
+                if (innerClass.innerName != null && !newName.equals(innerClass.name)) {
+                    innerClass.innerName = newName.substring(Math.max(newName.lastIndexOf('/'), newName.lastIndexOf('$')) + 1);
+                }
+                innerClass.name = newName;
+                innerClass.outerName = innerClass.outerName != null ? remapper.mapType(innerClass.outerName) : null;
+            }
+            remapAnnotations(classNode.visibleAnnotations, remapper);
+            remapAnnotations(classNode.invisibleAnnotations, remapper);
+        }
+        
+        for (ProgramField field : clazz.getFields()) {
+            field.setDescriptor(remapper.mapDesc(field.getDescriptor()));
+            if (field.getSignature() != null) {
+                field.setSignature(remapper.mapSignature(field.getSignature(), true));
+            }
+            if (field.getFieldNode() != null) {
+                remapAnnotations(field.getFieldNode().visibleAnnotations, remapper);
+                remapAnnotations(field.getFieldNode().invisibleAnnotations, remapper);
+            }
+        }
+        
+        List<ProgramMethod> retyped = new ArrayList<>();
         for (ProgramMethod method : clazz.getMethods()) {
-            updateMethodReferences(method);
+            updateMethodReferences(method, remapper);
+            if (!remapper.mapMethodDesc(method.getDescriptor()).equals(method.getDescriptor())) {
+                retyped.add(method);
+            }
+        }
+        for (ProgramMethod method : retyped) {
+            clazz.removeMethod(method.getName(), method.getDescriptor());
+            method.setDescriptor(remapper.mapMethodDesc(method.getDescriptor()));
+            clazz.addMethod(method);
         }
     }
     
-    private void updateMethodReferences(ProgramMethod method) {
-        if (method.getMethodNode() != null && method.getMethodNode().instructions != null) {
-            method.getMethodNode().instructions.forEach(insn -> {
-                if (insn instanceof org.objectweb.asm.tree.FieldInsnNode) {
-                    org.objectweb.asm.tree.FieldInsnNode fieldInsn = (org.objectweb.asm.tree.FieldInsnNode) insn;
-                    
-                    if (classNameMappings.containsKey(fieldInsn.owner)) {
-                        fieldInsn.owner = classNameMappings.get(fieldInsn.owner);
-                    }
-                    
-                    String fieldKey = fieldInsn.owner + "." + fieldInsn.name;
-                    if (fieldNameMappings.containsKey(fieldKey)) {
-                        fieldInsn.name = fieldNameMappings.get(fieldKey);
-                    }
+    private void updateMethodReferences(ProgramMethod method, Remapper remapper) {
+        if (method.getSignature() != null) {
+            method.setSignature(remapper.mapSignature(method.getSignature(), false));
+        }
+        String[] exceptions = method.getExceptions();
+        if (exceptions.length > 0) {
+            for (int i = 0; i < exceptions.length; i++) {
+                exceptions[i] = remapper.mapType(exceptions[i]);
+            }
+            method.setExceptions(exceptions);
+        }
+        
+        MethodNode methodNode = method.getMethodNode();
+        if (methodNode == null) {
+            return;
+        }
+        remapAnnotations(methodNode.visibleAnnotations, remapper);
+        remapAnnotations(methodNode.invisibleAnnotations, remapper);
+        remapParameterAnnotations(methodNode.visibleParameterAnnotations, remapper);
+        remapParameterAnnotations(methodNode.invisibleParameterAnnotations, remapper);
+        if (methodNode.annotationDefault != null) {
+            methodNode.annotationDefault = remapAnnotationValue(methodNode.annotationDefault, remapper);
+        }
+        if (methodNode.instructions == null) {
+            return;
+        }
+        
+        for (AbstractInsnNode insn : methodNode.instructions) {
+            if (insn instanceof FieldInsnNode fieldInsn) {
+                fieldInsn.name = remapper.mapFieldName(fieldInsn.owner, fieldInsn.name, fieldInsn.desc);
+                fieldInsn.owner = remapper.mapType(fieldInsn.owner);
+                fieldInsn.desc = remapper.mapDesc(fieldInsn.desc);
+            } else if (insn instanceof MethodInsnNode methodInsn) {
+                methodInsn.name = remapper.mapMethodName(methodInsn.owner, methodInsn.name, methodInsn.desc);
+                methodInsn.owner = remapper.mapType(methodInsn.owner);
+                methodInsn.desc = remapper.mapMethodDesc(methodInsn.desc);
+            } else if (insn instanceof TypeInsnNode typeInsn) {
+                typeInsn.desc = remapper.mapType(typeInsn.desc);
+            } else if (insn instanceof MultiANewArrayInsnNode arrayInsn) {
+                arrayInsn.desc = remapper.mapDesc(arrayInsn.desc);
+            } else if (insn instanceof LdcInsnNode ldcInsn) {
+                ldcInsn.cst = remapper.mapValue(ldcInsn.cst);
+            } else if (insn instanceof InvokeDynamicInsnNode indy) {
+                indy.name = mapCallSiteName(indy);
+                indy.desc = remapper.mapMethodDesc(indy.desc);
+                indy.bsm = (Handle) remapper.mapValue(indy.bsm);
+                for (int i = 0; i < indy.bsmArgs.length; i++) {
+                    indy.bsmArgs[i] = remapper.mapValue(indy.bsmArgs[i]);
                 }
-                
-                if (insn instanceof org.objectweb.asm.tree.MethodInsnNode) {
-                    org.objectweb.asm.tree.MethodInsnNode methodInsn = (org.objectweb.asm.tree.MethodInsnNode) insn;
-                    
-                    if (classNameMappings.containsKey(methodInsn.owner)) {
-                        methodInsn.owner = classNameMappings.get(methodInsn.owner);
-                    }
-                    
-                    String methodKey = methodInsn.owner + "." + methodInsn.name + methodInsn.desc;
-                    if (methodNameMappings.containsKey(methodKey)) {
-                        methodInsn.name = methodNameMappings.get(methodKey);
-                    }
+            } else if (insn instanceof FrameNode frame) {
+                remapFrameTypes(frame.local, remapper);
+                remapFrameTypes(frame.stack, remapper);
+            }
+        }
+        
+        for (TryCatchBlockNode tryCatch : methodNode.tryCatchBlocks) {
+            if (tryCatch.type != null) {
+                tryCatch.type = remapper.mapType(tryCatch.type);
+            }
+        }
+        if (methodNode.localVariables != null) {
+            for (LocalVariableNode local : methodNode.localVariables) {
+                local.desc = remapper.mapDesc(local.desc);
+                if (local.signature != null) {
+                    local.signature = remapper.mapSignature(local.signature, true);
                 }
-                
-                if (insn instanceof org.objectweb.asm.tree.TypeInsnNode) {
-                    org.objectweb.asm.tree.TypeInsnNode typeInsn = (org.objectweb.asm.tree.TypeInsnNode) insn;
-                    
-                    if (classNameMappings.containsKey(typeInsn.desc)) {
-                        typeInsn.desc = classNameMappings.get(typeInsn.desc);
-                    }
+            }
+        }
+    }
+    
+    /**
+     * Returns the new name of an {@code invokedynamic} call site. For a lambda or method
+     * reference the name is the functional interface method it implements, which is renamed
+     * with its family; other call sites keep their name.
+     */
+    private String mapCallSiteName(InvokeDynamicInsnNode indy) {
+        List<String> signatures = lambdaSignatures(indy);
+        if (signatures.isEmpty()) {
+            return indy.name;
+        }
+        String newName = resolveRename(familyNameMappings, Type.getReturnType(indy.desc).getInternalName(),
+                signatures.get(0));
+        return newName != null ? newName : indy.name;
+    }
+    
+    /**
+     * Returns the signatures a {@code LambdaMetafactory} call site implements on its
+     * functional interface: the interface method first, then any bridges requested through
+     * {@code altMetafactory}. Returns an empty list for other call sites.
+     */
+    private static List<String> lambdaSignatures(InvokeDynamicInsnNode indy) {
+        Type interfaceType = Type.getReturnType(indy.desc);
+        if (!LAMBDA_METAFACTORY.equals(indy.bsm.getOwner()) || interfaceType.getSort() != Type.OBJECT
+                || indy.bsmArgs.length < 3 || !(indy.bsmArgs[0] instanceof Type methodType)) {
+            return List.of();
+        }
+        List<String> signatures = new ArrayList<>();
+        signatures.add(indy.name + methodType.getDescriptor());
+        if (indy.bsm.getName().equals("altMetafactory") && indy.bsmArgs.length > 3
+                && indy.bsmArgs[3] instanceof Integer flags) {
+            int index = 4;
+            if ((flags & LambdaMetafactory.FLAG_MARKERS) != 0) {
+                index += 1 + (Integer) indy.bsmArgs[index];
+            }
+            if ((flags & LambdaMetafactory.FLAG_BRIDGES) != 0) {
+                int bridges = (Integer) indy.bsmArgs[index++];
+                for (int i = 0; i < bridges; i++) {
+                    signatures.add(indy.name + ((Type) indy.bsmArgs[index + i]).getDescriptor());
                 }
-            });
+            }
+        }
+        return signatures;
+    }
+    
+    private static void remapFrameTypes(List<Object> types, Remapper remapper) {
+        if (types == null) {
+            return;
+        }
+        for (int i = 0; i < types.size(); i++) {
+            if (types.get(i) instanceof String type) {
+                types.set(i, remapper.mapType(type));
+            }
+        }
+    }
+    
+    private static void remapParameterAnnotations(List<AnnotationNode>[] parameters, Remapper remapper) {
+        if (parameters != null) {
+            for (List<AnnotationNode> annotations : parameters) {
+                remapAnnotations(annotations, remapper);
+            }
+        }
+    }
+    
+    private static void remapAnnotations(List<AnnotationNode> annotations, Remapper remapper) {
+        if (annotations == null) {
+            return;
+        }
+        for (AnnotationNode annotation : annotations) {
+            annotation.desc = remapper.mapDesc(annotation.desc);
+            if (annotation.values != null) {
+                for (int i = 1; i < annotation.values.size(); i += 2) {
+                    annotation.values.set(i, remapAnnotationValue(annotation.values.get(i), remapper));
+                }
+            }
+        }
+    }
+    
+    private static Object remapAnnotationValue(Object value, Remapper remapper) {
+        if (value instanceof Type type) {
+            return remapper.mapValue(type);
+        }
+        if (value instanceof String[] enumValue) {
+            return new String[]{remapper.mapDesc(enumValue[0]), enumValue[1]};
+        }
+        if (value instanceof AnnotationNode annotation) {
+            remapAnnotations(List.of(annotation), remapper);
+            return annotation;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> remapped = new ArrayList<>(list.size());
+            for (Object element : list) {
+                remapped.add(remapAnnotationValue(element, remapper));
+            }
+            return remapped;
+        }
+        return value;
+    }
+    
+    /**
+     * Maps original class and member names to their new ones. Members are resolved through
+     * the original hierarchy, so a reference through a subclass finds an inherited rename.
+     * Handles and dynamic constants are remapped recursively by {@link Remapper#mapValue}.
+     */
+    private class ReferenceRemapper extends Remapper {
+        @Override
+        public String map(String internalName) {
+            return classNameMappings.getOrDefault(internalName, internalName);
+        }
+        
+        @Override
+        public String mapMethodName(String owner, String name, String descriptor) {
+            String newName = resolveRename(familyNameMappings, owner, name + descriptor);
+            return newName != null ? newName : name;
+        }
+        
+        @Override
+        public String mapFieldName(String owner, String name, String descriptor) {
+            String newName = resolveRename(fieldNameMappings, owner, name);
+            return newName != null ? newName : name;
         }
     }
     
@@ -195,5 +747,7 @@ public class ClassTransformer {
         classNameMappings.clear();
         fieldNameMappings.clear();
         methodNameMappings.clear();
+        familyNameMappings.clear();
+        appliedMappings.clear();
     }
 }
\ No newline at end of file
@@ -1,6 +1,5 @@
 package net.cvs0.bytecode.transform;
 
-import net.cvs0.bytecode.instruction.Instruction;
 import net.cvs0.bytecode.member.ProgramMethod;
 import org.objectweb.asm.tree.*;
 
@@ -23,7 +22,7 @@ public class InstructionTransformer {
                 AbstractInsnNode oldInstruction = instructions.get(index);
                 instructions.set(oldInstruction, newInstruction);
                 
-                method.replaceInstruction(index, new Instruction(newInstruction));
+                rebuildInstructionList();
             }
         }
     }
@@ -35,7 +34,7 @@ public class InstructionTransformer {
                 AbstractInsnNode target = instructions.get(index);
                 instructions.insertBefore(target, newInstruction);
                 
-                method.insertInstruction(index, new Instruction(newInstruction));
+                rebuildInstructionList();
             }
         }
     }
@@ -47,7 +46,7 @@ public class InstructionTransformer {
                 AbstractInsnNode target = instructions.get(index);
                 instructions.insert(target, newInstruction);
                 
-                method.insertInstruction(index + 1, new Instruction(newInstruction));
+                rebuildInstructionList();
             }
         }
     }
@@ -59,7 +58,7 @@ public class InstructionTransformer {
                 AbstractInsnNode target = instructions.get(index);
                 instructions.remove(target);
                 
-                method.removeInstruction(index);
+                rebuildInstructionList();
             }
         }
     }
@@ -219,14 +218,12 @@ public class InstructionTransformer {
         return indices;
     }
     
+    /**
+     * Brings the method's instruction wrappers back in line with its node list, which every
+     * edit above changes directly.
+     */
     private void rebuildInstructionList() {
-        method.clearInstructions();
-        
-        if (method.getMethodNode() != null && method.getMethodNode().instructions != null) {
-            for (AbstractInsnNode insn : method.getMethodNode().instructions) {
-                method.addInstruction(new Instruction(insn));
-            }
-        }
+        method.syncInstructions();
     }
     
     public static InstructionTransformer forMethod(ProgramMethod method) {
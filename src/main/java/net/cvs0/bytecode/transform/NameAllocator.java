@@ -0,0 +1,94 @@
+package net.cvs0.bytecode.transform;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Hands out the shortest free names in a scope: {@code a} to {@code z}, then {@code aa},
+ * {@code ab} and so on, each optionally preceded by a fixed prefix.
+ *
+ * <p>Names are generated in order of increasing length, so a scope that allocates {@code n}
+ * names only uses names of at most {@code log26(n) + 1} letters. Names that are already in
+ * use, such as members that are kept, are reserved up front and skipped. Reserved names
+ * are compared ignoring case and only lowercase letters are generated, so a new class name
+ * never collides with another class on a case-insensitive file system.
+ */
+public class NameAllocator {
+    private static final int ALPHABET = 26;
+
+    private final String prefix;
+
+    public NameAllocator(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Returns the name at {@code index} in allocation order, without the prefix.
+     */
+    public static String shortName(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Negative name index: " + index);
+        }
+        StringBuilder name = new StringBuilder();
+        int remaining = index;
+        do {
+            name.append((char) ('a' + remaining % ALPHABET));
+            remaining = remaining / ALPHABET - 1;
+        } while (remaining >= 0);
+        return name.reverse().toString();
+    }
+
+    public String name(int index) {
+        return prefix + shortName(index);
+    }
+
+    public Scope newScope() {
+        return new Scope(0, Set.of());
+    }
+
+    /**
+     * Returns a scope whose allocation starts after the first {@code start} names, for
+     * example to continue after the names a supertype has used. Names in {@code shared} are
+     * skipped as well; the set is read, not copied, so many scopes can share one set of
+     * globally reserved names.
+     */
+    public Scope newScope(int start, Set<String> shared) {
+        return new Scope(start, shared);
+    }
+
+    /**
+     * A set of names that must not collide. Allocation is amortized constant time: reserved
+     * names are skipped once and never revisited.
+     */
+    public class Scope {
+        private final Set<String> reserved = new HashSet<>();
+        private final Set<String> shared;
+        private int next;
+
+        Scope(int start, Set<String> shared) {
+            this.next = start;
+            this.shared = shared;
+        }
+
+        public void reserve(String name) {
+            reserved.add(name.toLowerCase(Locale.ROOT));
+        }
+
+        public String next() {
+            String name = name(next++);
+            while (reserved.contains(name.toLowerCase(Locale.ROOT)) || shared.contains(name)) {
+                name = name(next++);
+            }
+            return name;
+        }
+
+        /**
+         * Returns the index the next allocation starts from. A scope nested in this one can
+         * start there to avoid every name allocated so far.
+         */
+        public int getEnd() {
+            return next;
+        }
+    }
+}
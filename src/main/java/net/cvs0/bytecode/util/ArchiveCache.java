@@ -0,0 +1,44 @@
+package net.cvs0.bytecode.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+/**
+ * Source archives opened during one write, each opened at most once.
+ */
+class ArchiveCache implements Closeable {
+    private final Map<File, ZipFile> archives = new HashMap<>();
+
+    ZipFile get(File archive) throws IOException {
+        ZipFile zip = archives.get(archive);
+        if (zip == null) {
+            zip = new ZipFile(archive);
+            archives.put(archive, zip);
+        }
+        return zip;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (ZipFile zip : archives.values()) {
+            try {
+                zip.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        archives.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package net.cvs0.bytecode.util;
 
 import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.attribute.AttributeDecoder;
+import net.cvs0.bytecode.clazz.CompactClass;
+import net.cvs0.bytecode.clazz.LibraryClass;
 import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.event.JarEntryReadEvent;
+import net.cvs0.bytecode.member.LibraryField;
+import net.cvs0.bytecode.member.LibraryMethod;
 import net.cvs0.bytecode.member.ProgramField;
 import net.cvs0.bytecode.member.ProgramMethod;
 import org.objectweb.asm.ClassReader;
@@ -10,13 +16,36 @@ import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.MethodNode;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
+/**
+ * Reads jars and class files into the model.
+ *
+ * <p>By default, method attributes are decoded lazily from the class file, which suits jars
+ * that are only analyzed: most attributes are never built. The cost is that every method not
+ * yet decoded keeps its class's {@link ClassReader} alive, bytes and constant pool included.
+ * Callers that read a jar to rewrite it, and so will touch or drop most attributes anyway,
+ * can pass {@code lazyAttributes = false}; the methods then build their attributes from the
+ * ASM tree and no reader outlives the read.
+ */
 public class JarReader {
     
     public static void read(File jarFile, JarMapping mapping) throws IOException {
+        read(jarFile, mapping, true);
+    }
+    
+    /**
+     * Reads a jar on the calling thread.
+     *
+     * @param lazyAttributes whether methods decode their attributes from the class file when
+     *        first asked, keeping the class file alive until then
+     */
+    public static void read(File jarFile, JarMapping mapping, boolean lazyAttributes) throws IOException {
         try (JarFile jar = new JarFile(jarFile)) {
             Enumeration<JarEntry> entries = jar.entries();
             
@@ -30,78 +59,192 @@ public class JarReader {
                 String entryName = entry.getName();
                 
                 if (entryName.endsWith(".class")) {
-                    processClassEntry(jar, entry, mapping);
+                    processClassEntry(jar, entry, mapping, lazyAttributes);
                 } else {
-                    processResourceEntry(jar, entry, mapping);
+                    processResourceEntry(jarFile, entry, mapping);
                 }
             }
         }
     }
     
-    private static void processClassEntry(JarFile jar, JarEntry entry, JarMapping mapping) throws IOException {
-        try (InputStream inputStream = jar.getInputStream(entry)) {
-            byte[] classBytes = inputStream.readAllBytes();
-            
-            ClassReader classReader = new ClassReader(classBytes);
-            ClassNode classNode = new ClassNode();
-            classReader.accept(classNode, 0);
-            
-            ProgramClass programClass = new ProgramClass(classNode);
+    /**
+     * Reads a jar, parsing class entries in parallel on {@code pool}. Resources are read on
+     * the calling thread.
+     */
+    public static void read(File jarFile, JarMapping mapping, ForkJoinPool pool) throws IOException {
+        read(jarFile, mapping, pool, true);
+    }
+    
+    /**
+     * Reads a jar, parsing class entries in parallel on {@code pool}.
+     *
+     * @param lazyAttributes whether methods decode their attributes from the class file when
+     *        first asked, keeping the class file alive until then
+     */
+    public static void read(File jarFile, JarMapping mapping, ForkJoinPool pool, boolean lazyAttributes)
+            throws IOException {
+        try (JarFile jar = new JarFile(jarFile)) {
+            List<JarEntry> classEntries = new ArrayList<>();
+            Enumeration<JarEntry> entries = jar.entries();
             
-            if (classNode.fields != null) {
-                for (FieldNode fieldNode : classNode.fields) {
-                    ProgramField field = new ProgramField(fieldNode);
-                    programClass.addField(field);
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                
+                if (entry.getName().endsWith(".class")) {
+                    classEntries.add(entry);
+                } else {
+                    processResourceEntry(jarFile, entry, mapping);
                 }
             }
             
-            if (classNode.methods != null) {
-                for (MethodNode methodNode : classNode.methods) {
-                    ProgramMethod method = new ProgramMethod(methodNode);
-                    programClass.addMethod(method);
+            try {
+                pool.submit(() -> classEntries.parallelStream().forEach(entry -> {
+                    try {
+                        processClassEntry(jar, entry, mapping, lazyAttributes);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })).join();
+            } catch (RuntimeException e) {
+                for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                    if (cause instanceof IOException ioException) {
+                        throw ioException;
+                    }
                 }
+                throw e;
             }
-            
-            mapping.addClass(programClass);
         }
     }
     
-    private static void processResourceEntry(JarFile jar, JarEntry entry, JarMapping mapping) throws IOException {
+    private static void processClassEntry(JarFile jar, JarEntry entry, JarMapping mapping, boolean lazyAttributes)
+            throws IOException {
+        JarEntryReadEvent event = new JarEntryReadEvent();
+        event.begin();
+        
         try (InputStream inputStream = jar.getInputStream(entry)) {
-            byte[] resourceBytes = inputStream.readAllBytes();
-            mapping.addResource(entry.getName(), resourceBytes);
+            byte[] classBytes = inputStream.readAllBytes();
+            
+            ProgramClass programClass = toProgramClass(classBytes, lazyAttributes);
+            mapping.addClass(programClass);
+            
+            event.end();
+            if (event.shouldCommit()) {
+                event.entryName = entry.getName();
+                event.className = programClass.getName();
+                event.bytes = classBytes.length;
+                event.commit();
+            }
         }
     }
     
-    public static ProgramClass readClass(File classFile) throws IOException {
-        try (FileInputStream fis = new FileInputStream(classFile)) {
-            byte[] classBytes = fis.readAllBytes();
-            
-            ClassReader classReader = new ClassReader(classBytes);
-            ClassNode classNode = new ClassNode();
-            classReader.accept(classNode, 0);
-            
-            ProgramClass programClass = new ProgramClass(classNode);
+    /**
+     * Records a resource as a handle into the archive. Its contents are read only when
+     * someone asks for them.
+     */
+    private static void processResourceEntry(File jarFile, JarEntry entry, JarMapping mapping) {
+        mapping.addResource(entry.getName(), ResourceHandle.archived(jarFile, entry));
+    }
+    
+    /**
+     * Reads the classes of a jar for analysis only, as {@link CompactClass} instances in
+     * entry order. No ASM tree is built and resources are skipped, so this needs a fraction
+     * of the memory of {@link #read(File, JarMapping)}.
+     */
+    public static List<CompactClass> readCompact(File jarFile) throws IOException {
+        List<CompactClass> classes = new ArrayList<>();
+        try (JarFile jar = new JarFile(jarFile)) {
+            Enumeration<JarEntry> entries = jar.entries();
             
-            if (classNode.fields != null) {
-                for (FieldNode fieldNode : classNode.fields) {
-                    ProgramField field = new ProgramField(fieldNode);
-                    programClass.addField(field);
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                
+                if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+                    try (InputStream inputStream = jar.getInputStream(entry)) {
+                        classes.add(CompactClass.read(inputStream.readAllBytes()));
+                    }
                 }
             }
+        }
+        return classes;
+    }
+    
+    /**
+     * Reads the classes of a dependency jar as {@link LibraryClass} stubs. Only the class
+     * hierarchy and member signatures are kept; code and debug information are skipped, so
+     * stubs are much cheaper to hold than program classes. Resources are ignored.
+     */
+    public static void readLibrary(File jarFile, JarMapping mapping) throws IOException {
+        try (JarFile jar = new JarFile(jarFile)) {
+            Enumeration<JarEntry> entries = jar.entries();
             
-            if (classNode.methods != null) {
-                for (MethodNode methodNode : classNode.methods) {
-                    ProgramMethod method = new ProgramMethod(methodNode);
-                    programClass.addMethod(method);
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String entryName = entry.getName();
+                
+                if (entry.isDirectory() || !entryName.endsWith(".class")
+                        || entryName.startsWith("META-INF/") || entryName.equals("module-info.class")) {
+                    continue;
+                }
+                
+                try (InputStream inputStream = jar.getInputStream(entry)) {
+                    mapping.addLibraryClass(readLibraryClass(inputStream.readAllBytes()));
                 }
             }
-            
-            return programClass;
+        }
+    }
+    
+    public static LibraryClass readLibraryClass(byte[] classBytes) {
+        ClassReader classReader = new ClassReader(classBytes);
+        ClassNode classNode = new ClassNode();
+        classReader.accept(classNode, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        
+        LibraryClass libraryClass = new LibraryClass(classNode.name);
+        libraryClass.setSuperName(classNode.superName);
+        libraryClass.setInterfaces(new ArrayList<>(classNode.interfaces));
+        libraryClass.setAccess(classNode.access);
+        libraryClass.setSignature(classNode.signature);
+        
+        for (FieldNode fieldNode : classNode.fields) {
+            LibraryField field = new LibraryField(fieldNode.name, fieldNode.desc, fieldNode.access);
+            field.setSignature(fieldNode.signature);
+            field.setValue(fieldNode.value);
+            libraryClass.addField(field);
+        }
+        
+        for (MethodNode methodNode : classNode.methods) {
+            LibraryMethod method = new LibraryMethod(methodNode.name, methodNode.desc, methodNode.access);
+            method.setSignature(methodNode.signature);
+            method.setExceptions(methodNode.exceptions.toArray(new String[0]));
+            libraryClass.addMethod(method);
+        }
+        
+        return libraryClass;
+    }
+    
+    public static ProgramClass readClass(File classFile) throws IOException {
+        try (FileInputStream fis = new FileInputStream(classFile)) {
+            return toProgramClass(fis.readAllBytes(), true);
         }
     }
     
     public static ProgramClass readClass(byte[] classBytes) throws IOException {
+        return toProgramClass(classBytes, true);
+    }
+    
+    public static ProgramClass readClass(byte[] classBytes, boolean lazyAttributes) throws IOException {
+        return toProgramClass(classBytes, lazyAttributes);
+    }
+    
+    /**
+     * Builds the model of a class file. Method attributes are not built here: with
+     * {@code lazyAttributes} each method decodes its own from the class bytes when they are
+     * first asked for, and otherwise builds them from its method node.
+     */
+    private static ProgramClass toProgramClass(byte[] classBytes, boolean lazyAttributes) {
         ClassReader classReader = new ClassReader(classBytes);
         ClassNode classNode = new ClassNode();
         classReader.accept(classNode, 0);
@@ -115,13 +258,26 @@ public class JarReader {
             }
         }
         
-        if (classNode.methods != null) {
+        if (classNode.methods != null && !lazyAttributes) {
             for (MethodNode methodNode : classNode.methods) {
-                ProgramMethod method = new ProgramMethod(methodNode);
+                programClass.addMethod(new ProgramMethod(methodNode));
+            }
+        } else if (classNode.methods != null) {
+            AttributeDecoder decoder = new AttributeDecoder(classReader);
+            boolean indexed = decoder.getMethodCount() == classNode.methods.size();
+            char[] buffer = indexed ? decoder.newStringBuffer() : null;
+            for (int i = 0; i < classNode.methods.size(); i++) {
+                MethodNode methodNode = classNode.methods.get(i);
+                ProgramMethod method = indexed
+                        && methodNode.name.equals(decoder.getMethodName(i, buffer))
+                        && methodNode.desc.equals(decoder.getMethodDescriptor(i, buffer))
+                    ? new ProgramMethod(methodNode, decoder, decoder.getMethodOffset(i))
+                    : new ProgramMethod(methodNode);
                 programClass.addMethod(method);
             }
         }
         
+        programClass.setModified(false);
         return programClass;
     }
     
@@ -2,44 +2,136 @@ package net.cvs0.bytecode.util;
 
 import net.cvs0.bytecode.JarMapping;
 import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.event.JarEntryWriteEvent;
 import org.objectweb.asm.ClassWriter;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
 
+/**
+ * Writes a {@link JarMapping} back to a jar.
+ *
+ * <p>Class files are assembled with recomputed maxima and stack map frames. Frame
+ * computation is the costly part, since it merges types along every branch and may load
+ * classes to find common superclasses, so it is skipped where the frames the class was read
+ * with are still valid and the class is cold: it was not {@link ProgramClass#isModified()
+ * modified} and a profile applied by {@link net.cvs0.bytecode.plugin.impl.ProfilePlugin}
+ * saw none of its methods run. Without a profile, every class gets fresh frames.
+ */
 public class JarWriter {
     
     public static void write(JarMapping mapping, File outputFile) throws IOException {
-        try (FileOutputStream fos = new FileOutputStream(outputFile);
-             JarOutputStream jos = new JarOutputStream(fos, createDefaultManifest())) {
+        write(mapping, outputFile, readManifest(mapping));
+    }
+    
+    /**
+     * Writes the mapping to {@code outputFile}. Resources that still live in a source archive
+     * are streamed from it; entries that were stored uncompressed stay uncompressed. If
+     * {@code outputFile} is itself one of those source archives, the jar is written to a
+     * temporary file next to it and moved into place afterwards.
+     */
+    public static void write(JarMapping mapping, File outputFile, Manifest manifest) throws IOException {
+        write(mapping, outputFile, manifest, null);
+    }
+    
+    /**
+     * Writes the mapping with its class entries in the given order, such as one computed by
+     * {@link net.cvs0.bytecode.analysis.ClassOrder}. Names without a class in the mapping are
+     * ignored, and classes the order leaves out are written after the listed ones.
+     */
+    public static void write(JarMapping mapping, File outputFile, List<String> classOrder) throws IOException {
+        write(mapping, outputFile, readManifest(mapping), classOrder);
+    }
+    
+    /**
+     * Writes the mapping with the given manifest and class order. A {@code null} order writes
+     * classes in the mapping's own order.
+     */
+    public static void write(JarMapping mapping, File outputFile, Manifest manifest,
+                             List<String> classOrder) throws IOException {
+        if (!readsFrom(mapping, outputFile)) {
+            writeTo(mapping, outputFile, manifest, classOrder);
+            return;
+        }
+        
+        File directory = outputFile.getAbsoluteFile().getParentFile();
+        File tempFile = File.createTempFile(outputFile.getName(), ".tmp", directory);
+        try {
+            writeTo(mapping, tempFile, manifest, classOrder);
+            Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+    
+    private static void writeTo(JarMapping mapping, File outputFile, Manifest manifest,
+                                List<String> classOrder) throws IOException {
+        try (ArchiveCache archives = new ArchiveCache();
+             FileOutputStream fos = new FileOutputStream(outputFile);
+             JarOutputStream jos = new JarOutputStream(new BufferedOutputStream(fos), manifest)) {
             
-            for (ProgramClass programClass : mapping.getProgramClasses()) {
+            for (ProgramClass programClass : orderClasses(mapping, classOrder)) {
                 writeClassEntry(jos, programClass);
             }
             
             for (String resourceName : mapping.getResourceNames()) {
-                writeResourceEntry(jos, resourceName, mapping.getResource(resourceName));
+                if (resourceName.equalsIgnoreCase(JarFile.MANIFEST_NAME)) {
+                    continue;
+                }
+                writeResourceEntry(jos, resourceName, mapping.getResourceHandle(resourceName), archives);
             }
         }
     }
     
-    public static void write(JarMapping mapping, File outputFile, Manifest manifest) throws IOException {
-        try (FileOutputStream fos = new FileOutputStream(outputFile);
-             JarOutputStream jos = new JarOutputStream(fos, manifest)) {
-            
-            for (ProgramClass programClass : mapping.getProgramClasses()) {
-                writeClassEntry(jos, programClass);
+    private static Iterable<ProgramClass> orderClasses(JarMapping mapping, List<String> classOrder) {
+        if (classOrder == null) {
+            return mapping.getProgramClasses();
+        }
+        Map<String, ProgramClass> ordered = new LinkedHashMap<>();
+        for (String name : classOrder) {
+            ProgramClass programClass = mapping.getProgramClass(name);
+            if (programClass != null) {
+                ordered.putIfAbsent(name, programClass);
             }
-            
-            for (String resourceName : mapping.getResourceNames()) {
-                writeResourceEntry(jos, resourceName, mapping.getResource(resourceName));
+        }
+        List<ProgramClass> classes = new ArrayList<>(ordered.values());
+        for (ProgramClass programClass : mapping.getProgramClasses()) {
+            if (!ordered.containsKey(programClass.getName())) {
+                classes.add(programClass);
+            }
+        }
+        return classes;
+    }
+    
+    private static boolean readsFrom(JarMapping mapping, File outputFile) throws IOException {
+        File target = outputFile.getCanonicalFile();
+        Set<File> checked = new HashSet<>();
+        for (String resourceName : mapping.getResourceNames()) {
+            if (mapping.getResourceHandle(resourceName) instanceof ResourceHandle.Archived archived
+                    && checked.add(archived.getArchive())
+                    && archived.getArchive().getCanonicalFile().equals(target)) {
+                return true;
             }
         }
+        return false;
     }
     
     private static void writeClassEntry(JarOutputStream jos, ProgramClass programClass) throws IOException {
+        JarEntryWriteEvent event = new JarEntryWriteEvent();
+        event.begin();
+        
         String className = programClass.getName() + ".class";
         JarEntry entry = new JarEntry(className);
         jos.putNextEntry(entry);
@@ -47,18 +139,57 @@ public class JarWriter {
         byte[] classBytes = generateClassBytes(programClass);
         jos.write(classBytes);
         jos.closeEntry();
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.entryName = className;
+            event.className = programClass.getName();
+            event.bytes = classBytes.length;
+            event.framesComputed = needsFrames(programClass);
+            event.commit();
+        }
     }
     
-    private static void writeResourceEntry(JarOutputStream jos, String resourceName, byte[] resourceData) throws IOException {
+    private static void writeResourceEntry(JarOutputStream jos, String resourceName, ResourceHandle handle,
+                                           ArchiveCache archives) throws IOException {
+        JarEntryWriteEvent event = new JarEntryWriteEvent();
+        event.begin();
+        
         JarEntry entry = new JarEntry(resourceName);
+        if (handle instanceof ResourceHandle.Archived archived && archived.getMethod() == ZipEntry.STORED
+                && archived.getSize() >= 0 && archived.getCrc() >= 0) {
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(archived.getSize());
+            entry.setCompressedSize(archived.getSize());
+            entry.setCrc(archived.getCrc());
+        }
         jos.putNextEntry(entry);
-        jos.write(resourceData);
+        long written;
+        try (InputStream inputStream = handle.openStream(archives)) {
+            written = inputStream.transferTo(jos);
+        }
         jos.closeEntry();
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.entryName = resourceName;
+            event.bytes = written;
+            event.commit();
+        }
+    }
+    
+    /**
+     * Returns whether the class must be written with recomputed frames. Only an unmodified
+     * class that a profile found cold keeps the frames it was read with.
+     */
+    public static boolean needsFrames(ProgramClass programClass) {
+        return programClass.isModified() || programClass.getTotalSamples() != 0;
     }
     
     private static byte[] generateClassBytes(ProgramClass programClass) {
         if (programClass.getClassNode() != null) {
-            ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+            int flags = ClassWriter.COMPUTE_MAXS | (needsFrames(programClass) ? ClassWriter.COMPUTE_FRAMES : 0);
+            ClassWriter classWriter = new ClassWriter(flags);
             programClass.getClassNode().accept(classWriter);
             return classWriter.toByteArray();
         } else {
@@ -66,6 +197,19 @@ public class JarWriter {
         }
     }
     
+    /**
+     * Returns the manifest read from the original jar, if the mapping has one, so that
+     * rewriting a jar keeps it. {@link JarOutputStream} writes the manifest itself, so the
+     * manifest resource is never written as a regular entry.
+     */
+    private static Manifest readManifest(JarMapping mapping) throws IOException {
+        byte[] manifestData = mapping.getResource(JarFile.MANIFEST_NAME);
+        if (manifestData == null) {
+            return createDefaultManifest();
+        }
+        return new Manifest(new ByteArrayInputStream(manifestData));
+    }
+    
     private static Manifest createDefaultManifest() {
         Manifest manifest = new Manifest();
         manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
@@ -0,0 +1,278 @@
+package net.cvs0.bytecode.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams a ProGuard-format mapping file into a {@link MappingVisitor}.
+ *
+ * <p>The format has one class per unindented line, followed by its indented members:
+ * <pre>
+ * com.example.Service -&gt; a.b:
+ *     int count -&gt; a
+ *     12:15:void process(java.lang.String,int[]):40:43 -&gt; b
+ * </pre>
+ *
+ * <p>The file is read through a {@link FileChannel} into one reused buffer and split into
+ * lines in place, so memory stays constant however large the file is; only the longest line
+ * has to fit. Lines are decoded into a reused character array rather than strings, so the
+ * only objects created per entry are the names and descriptors passed to the visitor. Line
+ * number ranges are ignored. Comment lines starting with {@code #} are skipped, and so are
+ * methods qualified with another class's name, which R8 writes for inlined frames.
+ */
+public class MappingReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Reads {@code file} and reports every entry to {@code visitor}.
+     *
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public static void read(Path file, MappingVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            LineParser parser = new LineParser(visitor);
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            int lineNumber = 0;
+            boolean endOfFile = false;
+
+            while (!endOfFile) {
+                endOfFile = channel.read(buffer) < 0;
+                byte[] bytes = buffer.array();
+                int limit = buffer.position();
+                int start = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (bytes[i] == '\n') {
+                        parser.parse(bytes, start, i, ++lineNumber);
+                        start = i + 1;
+                    }
+                }
+
+                if (endOfFile) {
+                    if (start < limit) {
+                        parser.parse(bytes, start, limit, ++lineNumber);
+                    }
+                } else if (start == 0 && limit == bytes.length) {
+                    buffer = ByteBuffer.allocate(bytes.length * 2).put(bytes, 0, limit);
+                } else {
+                    System.arraycopy(bytes, start, bytes, 0, limit - start);
+                    buffer.position(limit - start);
+                }
+            }
+        }
+    }
+
+    private static class LineParser {
+        private static final String[] PRIMITIVE_NAMES = {
+                "void", "boolean", "byte", "char", "short", "int", "long", "float", "double"};
+        private static final char[] PRIMITIVE_DESCRIPTORS = {'V', 'Z', 'B', 'C', 'S', 'I', 'J', 'F', 'D'};
+
+        private final MappingVisitor visitor;
+        private final StringBuilder descriptor = new StringBuilder();
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private char[] line = new char[256];
+        private int length;
+        private String className;
+
+        LineParser(MappingVisitor visitor) {
+            this.visitor = visitor;
+        }
+
+        /**
+         * Parses the line between {@code start} and {@code end} of {@code bytes}. The line is
+         * decoded into a reused character array and parsed by index, so the only strings
+         * created are the names and the descriptor handed to the visitor.
+         */
+        void parse(byte[] bytes, int start, int end, int lineNumber) throws IOException {
+            if (end > start && bytes[end - 1] == '\r') {
+                end--;
+            }
+            decode(bytes, start, end);
+
+            int begin = 0;
+            while (begin < length && Character.isWhitespace(line[begin])) {
+                begin++;
+            }
+            if (begin == length || line[begin] == '#') {
+                return;
+            }
+
+            int arrow = indexOfArrow(begin);
+            if (arrow < 0) {
+                throw malformed("mapping", lineNumber);
+            }
+            int nameEnd = trimEnd(begin, arrow);
+            int newNameEnd = trimEnd(arrow + 4, length);
+
+            if (begin == 0) {
+                if (line[newNameEnd - 1] != ':') {
+                    throw malformed("class mapping", lineNumber);
+                }
+                className = internalName(0, nameEnd);
+                visitor.visitClass(className, internalName(arrow + 4, newNameEnd - 1));
+                return;
+            }
+            if (className == null) {
+                throw new IOException("Member mapping before any class at line " + lineNumber + ": " + text());
+            }
+
+            int space = indexOf(' ', begin, nameEnd);
+            if (space < 0) {
+                throw malformed("member mapping", lineNumber);
+            }
+            String newName = new String(line, arrow + 4, newNameEnd - arrow - 4);
+            descriptor.setLength(0);
+
+            int open = indexOf('(', space, nameEnd);
+            if (open < 0) {
+                appendDescriptor(begin, space);
+                visitor.visitField(className, descriptor.toString(),
+                        new String(line, space + 1, nameEnd - space - 1), newName);
+                return;
+            }
+
+            int close = indexOf(')', open, nameEnd);
+            if (close < 0) {
+                throw malformed("method mapping", lineNumber);
+            }
+            if (indexOf('.', space, open) >= 0) {
+                return;
+            }
+
+            descriptor.append('(');
+            int argStart = open + 1;
+            while (argStart < close) {
+                int comma = indexOf(',', argStart, close);
+                int argEnd = comma < 0 ? close : comma;
+                appendDescriptor(argStart, argEnd);
+                argStart = argEnd + 1;
+            }
+            descriptor.append(')');
+            int colon = lastIndexOf(':', begin, space);
+            appendDescriptor(colon >= 0 ? colon + 1 : begin, space);
+            visitor.visitMethod(className, new String(line, space + 1, open - space - 1), descriptor.toString(),
+                    newName);
+        }
+
+        /**
+         * Decodes UTF-8 bytes into {@link #line}, copying ASCII directly. A line never has
+         * more characters than bytes, so the array only grows with the longest line.
+         */
+        private void decode(byte[] bytes, int start, int end) {
+            if (line.length < end - start) {
+                line = new char[Math.max(end - start, line.length * 2)];
+            }
+            for (int i = start; i < end; i++) {
+                if (bytes[i] < 0) {
+                    decoder.reset();
+                    CharBuffer out = CharBuffer.wrap(line);
+                    decoder.decode(ByteBuffer.wrap(bytes, start, end - start), out, true);
+                    decoder.flush(out);
+                    length = out.position();
+                    return;
+                }
+                line[i - start] = (char) bytes[i];
+            }
+            length = end - start;
+        }
+
+        /**
+         * Appends the descriptor of the Java type name between {@code start} and {@code end},
+         * such as {@code java.lang.String[]}.
+         */
+        private void appendDescriptor(int start, int end) {
+            while (end - start > 2 && line[end - 1] == ']' && line[end - 2] == '[') {
+                descriptor.append('[');
+                end -= 2;
+            }
+
+            for (int i = 0; i < PRIMITIVE_NAMES.length; i++) {
+                if (matches(PRIMITIVE_NAMES[i], start, end)) {
+                    descriptor.append(PRIMITIVE_DESCRIPTORS[i]);
+                    return;
+                }
+            }
+
+            descriptor.append('L');
+            for (int i = start; i < end; i++) {
+                descriptor.append(line[i] == '.' ? '/' : line[i]);
+            }
+            descriptor.append(';');
+        }
+
+        /**
+         * Returns the Java name between {@code start} and {@code end} as an internal name.
+         * The dots are replaced in the line itself, which is not read again afterwards.
+         */
+        private String internalName(int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (line[i] == '.') {
+                    line[i] = '/';
+                }
+            }
+            return new String(line, start, end - start);
+        }
+
+        private boolean matches(String name, int start, int end) {
+            if (name.length() != end - start) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                if (line[start + i] != name.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int indexOfArrow(int from) {
+            for (int i = from; i + 4 <= length; i++) {
+                if (line[i] == ' ' && line[i + 1] == '-' && line[i + 2] == '>' && line[i + 3] == ' ') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int indexOf(char c, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (line[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int lastIndexOf(char c, int from, int to) {
+            for (int i = to - 1; i >= from; i--) {
+                if (line[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int trimEnd(int start, int end) {
+            while (end > start && Character.isWhitespace(line[end - 1])) {
+                end--;
+            }
+            return end;
+        }
+
+        private String text() {
+            return new String(line, 0, length);
+        }
+
+        private IOException malformed(String kind, int lineNumber) {
+            return new IOException("Malformed " + kind + " at line " + lineNumber + ": " + text());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package net.cvs0.bytecode.util;
+
+/**
+ * Receives the entries of a name mapping in file order: each class, followed by its
+ * members. Names are internal names ({@code com/example/Foo}) and types are JVM descriptors,
+ * all as they were before renaming.
+ */
+public interface MappingVisitor {
+
+    void visitClass(String oldName, String newName);
+
+    void visitField(String className, String descriptor, String oldName, String newName);
+
+    void visitMethod(String className, String oldName, String descriptor, String newName);
+}
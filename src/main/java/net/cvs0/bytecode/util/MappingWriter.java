@@ -0,0 +1,118 @@
+package net.cvs0.bytecode.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a ProGuard-format mapping file as entries arrive, in the form read by
+ * {@link MappingReader}. Members are written under the class visited last, so they must
+ * follow their class.
+ *
+ * <p>Output goes through a buffered writer over a {@link FileChannel}; nothing is held
+ * besides the buffer. {@link MappingVisitor} methods cannot throw checked exceptions, so
+ * write errors surface as {@link UncheckedIOException}.
+ */
+public class MappingWriter implements MappingVisitor, Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BufferedWriter writer;
+    private final StringBuilder line = new StringBuilder();
+
+    public MappingWriter(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void visitClass(String oldName, String newName) {
+        line.setLength(0);
+        line.append(oldName.replace('/', '.')).append(" -> ").append(newName.replace('/', '.')).append(':');
+        writeLine();
+    }
+
+    @Override
+    public void visitField(String className, String descriptor, String oldName, String newName) {
+        line.setLength(0);
+        line.append("    ");
+        appendType(descriptor, 0);
+        line.append(' ').append(oldName).append(" -> ").append(newName);
+        writeLine();
+    }
+
+    @Override
+    public void visitMethod(String className, String oldName, String descriptor, String newName) {
+        line.setLength(0);
+        line.append("    ");
+        appendType(descriptor, descriptor.indexOf(')') + 1);
+        line.append(' ').append(oldName).append('(');
+        int index = 1;
+        while (descriptor.charAt(index) != ')') {
+            if (index > 1) {
+                line.append(',');
+            }
+            index = appendType(descriptor, index);
+        }
+        line.append(") -> ").append(newName);
+        writeLine();
+    }
+
+    /**
+     * Appends the Java name of the type that starts at {@code index} in {@code descriptor}
+     * and returns the index just after it.
+     */
+    private int appendType(String descriptor, int index) {
+        int dimensions = 0;
+        while (descriptor.charAt(index) == '[') {
+            dimensions++;
+            index++;
+        }
+
+        char tag = descriptor.charAt(index);
+        int end = index + 1;
+        switch (tag) {
+            case 'V': line.append("void"); break;
+            case 'Z': line.append("boolean"); break;
+            case 'B': line.append("byte"); break;
+            case 'C': line.append("char"); break;
+            case 'S': line.append("short"); break;
+            case 'I': line.append("int"); break;
+            case 'J': line.append("long"); break;
+            case 'F': line.append("float"); break;
+            case 'D': line.append("double"); break;
+            case 'L':
+                end = descriptor.indexOf(';', index) + 1;
+                for (int i = index + 1; i < end - 1; i++) {
+                    char c = descriptor.charAt(i);
+                    line.append(c == '/' ? '.' : c);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid descriptor: " + descriptor);
+        }
+        for (int i = 0; i < dimensions; i++) {
+            line.append("[]");
+        }
+        return end;
+    }
+
+    private void writeLine() {
+        try {
+            writer.append(line).append('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
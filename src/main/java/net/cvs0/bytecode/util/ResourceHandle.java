@@ -0,0 +1,192 @@
+package net.cvs0.bytecode.util;
+
+import net.cvs0.bytecode.event.JarEntryReadEvent;
+
+import java.io.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The contents of one resource in a {@link net.cvs0.bytecode.JarMapping}.
+ *
+ * <p>Resources added by hand are held in memory. Resources loaded by {@link JarReader} are
+ * {@link Archived} handles that only remember where the entry lives in the source archive
+ * and read it when asked, so loading a jar does not pull its assets onto the heap. The
+ * source archive must not change while handles into it are in use.
+ */
+public abstract class ResourceHandle {
+
+    public static ResourceHandle of(byte[] data) {
+        return new InMemory(data);
+    }
+
+    public static ResourceHandle archived(File archive, ZipEntry entry) {
+        return new Archived(archive, entry);
+    }
+
+    /**
+     * Returns the uncompressed size in bytes, or {@code -1} if it is not known.
+     */
+    public abstract long getSize();
+
+    /**
+     * Returns the contents, reading them from the source archive if needed. Archived handles
+     * do not keep the result, so every call reads again.
+     *
+     * @throws UncheckedIOException if the source archive cannot be read
+     */
+    public abstract byte[] getBytes();
+
+    /**
+     * Opens a stream over the contents. The caller must close it.
+     */
+    public abstract InputStream openStream() throws IOException;
+
+    /**
+     * Whether the contents are held on the heap.
+     */
+    public abstract boolean isInMemory();
+
+    /**
+     * Opens the contents using an archive that is already open, if this handle points into
+     * one. Used by {@link JarWriter} so each source archive is opened once per write.
+     */
+    InputStream openStream(ArchiveCache archives) throws IOException {
+        return openStream();
+    }
+
+    public static class InMemory extends ResourceHandle {
+        private final byte[] data;
+
+        InMemory(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public long getSize() {
+            return data.length;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            return data;
+        }
+
+        @Override
+        public InputStream openStream() {
+            return new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public boolean isInMemory() {
+            return true;
+        }
+    }
+
+    public static class Archived extends ResourceHandle {
+        private final File archive;
+        private final String entryName;
+        private final int method;
+        private final long size;
+        private final long compressedSize;
+        private final long crc;
+
+        Archived(File archive, ZipEntry entry) {
+            this.archive = archive;
+            this.entryName = entry.getName();
+            this.method = entry.getMethod();
+            this.size = entry.getSize();
+            this.compressedSize = entry.getCompressedSize();
+            this.crc = entry.getCrc();
+        }
+
+        public File getArchive() {
+            return archive;
+        }
+
+        public String getEntryName() {
+            return entryName;
+        }
+
+        /**
+         * Returns the compression method of the source entry, {@link ZipEntry#STORED} or
+         * {@link ZipEntry#DEFLATED}.
+         */
+        public int getMethod() {
+            return method;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            JarEntryReadEvent event = new JarEntryReadEvent();
+            event.begin();
+
+            byte[] data;
+            try (ZipFile zip = new ZipFile(archive);
+                 InputStream inputStream = open(zip)) {
+                data = inputStream.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read " + entryName + " from " + archive, e);
+            }
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.entryName = entryName;
+                event.bytes = data.length;
+                event.commit();
+            }
+            return data;
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            ZipFile zip = new ZipFile(archive);
+            try {
+                return new FilterInputStream(open(zip)) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            zip.close();
+                        }
+                    }
+                };
+            } catch (IOException | RuntimeException e) {
+                zip.close();
+                throw e;
+            }
+        }
+
+        @Override
+        InputStream openStream(ArchiveCache archives) throws IOException {
+            return open(archives.get(archive));
+        }
+
+        @Override
+        public boolean isInMemory() {
+            return false;
+        }
+
+        private InputStream open(ZipFile zip) throws IOException {
+            ZipEntry entry = zip.getEntry(entryName);
+            if (entry == null) {
+                throw new FileNotFoundException(entryName + " is no longer in " + archive);
+            }
+            return zip.getInputStream(entry);
+        }
+    }
+}
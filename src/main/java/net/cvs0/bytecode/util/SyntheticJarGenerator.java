@@ -0,0 +1,448 @@
+package net.cvs0.bytecode.util;
+
+import net.cvs0.bytecode.JarMapping;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.IntStream;
+
+/**
+ * Generates reproducible synthetic jars for scale testing.
+ *
+ * <p>The shape of the archive is fully determined by the seed and the settings: a package
+ * tree, a forest of class hierarchies, interfaces implemented by classes, static methods
+ * whose bodies call into earlier classes, a number of planted dependency cycles and a set of
+ * resources. Without planted cycles, the call and inheritance edges only point from a class
+ * to classes generated before it, so the dependency graph is acyclic.
+ *
+ * <p>Class bodies are generated in parallel, each from its own seeded random source, and
+ * written in batches so that very large archives do not have to be held in memory.
+ */
+public class SyntheticJarGenerator {
+    private static final int BATCH_SIZE = 4096;
+
+    private long seed = 42L;
+    private int classCount = 1000;
+    private String rootPackage = "synthetic";
+    private int packageDepth = 2;
+    private int packagesPerLevel = 4;
+    private int inheritanceDepth = 4;
+    private double subclassRatio = 0.5;
+    private int interfaceCount = 32;
+    private int interfacesPerClass = 2;
+    private int fieldsPerClass = 3;
+    private int methodsPerClass = 5;
+    private int instructionsPerMethod = 40;
+    private int callsPerMethod = 3;
+    private int cycleCount = 0;
+    private int cycleLength = 3;
+    private int resourceCount = 0;
+    private int resourceSize = 1024;
+
+    public SyntheticJarGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public SyntheticJarGenerator classCount(int classCount) {
+        this.classCount = requireNonNegative("classCount", classCount);
+        return this;
+    }
+
+    public SyntheticJarGenerator rootPackage(String rootPackage) {
+        this.rootPackage = rootPackage.replace('.', '/');
+        return this;
+    }
+
+    /**
+     * Sets the shape of the package tree: {@code depth} levels below the root package with
+     * {@code packagesPerLevel} children each. Classes are spread over the leaf packages.
+     */
+    public SyntheticJarGenerator packageTree(int depth, int packagesPerLevel) {
+        this.packageDepth = requireNonNegative("depth", depth);
+        this.packagesPerLevel = requirePositive("packagesPerLevel", packagesPerLevel);
+        return this;
+    }
+
+    /**
+     * Sets the maximum length of a superclass chain below {@code java/lang/Object} and the
+     * fraction of classes that try to extend an earlier class.
+     */
+    public SyntheticJarGenerator inheritance(int maxDepth, double subclassRatio) {
+        this.inheritanceDepth = requireNonNegative("maxDepth", maxDepth);
+        this.subclassRatio = subclassRatio;
+        return this;
+    }
+
+    /**
+     * Sets the number of generated interfaces and how many of them each class implements.
+     */
+    public SyntheticJarGenerator interfaces(int interfaceCount, int interfacesPerClass) {
+        this.interfaceCount = requireNonNegative("interfaceCount", interfaceCount);
+        this.interfacesPerClass = requireNonNegative("interfacesPerClass", interfacesPerClass);
+        return this;
+    }
+
+    public SyntheticJarGenerator fieldsPerClass(int fieldsPerClass) {
+        this.fieldsPerClass = requireNonNegative("fieldsPerClass", fieldsPerClass);
+        return this;
+    }
+
+    public SyntheticJarGenerator methodsPerClass(int methodsPerClass) {
+        this.methodsPerClass = requirePositive("methodsPerClass", methodsPerClass);
+        return this;
+    }
+
+    /**
+     * Sets the approximate number of instructions in each generated method body, not
+     * counting calls.
+     */
+    public SyntheticJarGenerator instructionsPerMethod(int instructionsPerMethod) {
+        this.instructionsPerMethod = requireNonNegative("instructionsPerMethod", instructionsPerMethod);
+        return this;
+    }
+
+    /**
+     * Sets the number of calls each method makes into methods of earlier classes.
+     */
+    public SyntheticJarGenerator callsPerMethod(int callsPerMethod) {
+        this.callsPerMethod = requireNonNegative("callsPerMethod", callsPerMethod);
+        return this;
+    }
+
+    /**
+     * Plants {@code cycleCount} dependency cycles of {@code cycleLength} classes each. A
+     * class takes part in at most one cycle, so fewer cycles are planted if there are not
+     * enough classes.
+     */
+    public SyntheticJarGenerator cycles(int cycleCount, int cycleLength) {
+        this.cycleCount = requireNonNegative("cycleCount", cycleCount);
+        if (cycleLength < 2) {
+            throw new IllegalArgumentException("cycleLength must be at least 2: " + cycleLength);
+        }
+        this.cycleLength = cycleLength;
+        return this;
+    }
+
+    public SyntheticJarGenerator resources(int resourceCount, int resourceSize) {
+        this.resourceCount = requireNonNegative("resourceCount", resourceCount);
+        this.resourceSize = requireNonNegative("resourceSize", resourceSize);
+        return this;
+    }
+
+    /**
+     * Writes the archive to {@code outputFile}.
+     */
+    public void writeJar(File outputFile) throws IOException {
+        Layout layout = new Layout();
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+
+        try (FileOutputStream fos = new FileOutputStream(outputFile);
+             JarOutputStream jos = new JarOutputStream(new BufferedOutputStream(fos), manifest)) {
+
+            for (int i = 0; i < interfaceCount; i++) {
+                writeEntry(jos, layout.interfaceNames[i] + ".class", generateInterface(layout, i));
+            }
+
+            for (int batchStart = 0; batchStart < classCount; batchStart += BATCH_SIZE) {
+                int start = batchStart;
+                int end = Math.min(classCount, start + BATCH_SIZE);
+                byte[][] batch = new byte[end - start][];
+                IntStream.range(start, end).parallel()
+                        .forEach(i -> batch[i - start] = generateClass(layout, i));
+                for (int i = start; i < end; i++) {
+                    writeEntry(jos, layout.classNames[i] + ".class", batch[i - start]);
+                }
+            }
+
+            for (int i = 0; i < resourceCount; i++) {
+                writeEntry(jos, layout.resourceNames[i], generateResource(i));
+            }
+        }
+    }
+
+    /**
+     * Generates the archive and loads it into a new mapping, going through a temporary file
+     * so the mapping is read exactly like a real jar. Resources are copied into memory
+     * because the temporary file is deleted afterwards.
+     */
+    public JarMapping generateMapping() throws IOException {
+        File jarFile = File.createTempFile("synthetic-", ".jar");
+        try {
+            writeJar(jarFile);
+            JarMapping mapping = JarMapping.fromJar(jarFile.getPath());
+            for (String resourceName : mapping.getResourceNames()) {
+                mapping.addResource(resourceName, mapping.getResource(resourceName));
+            }
+            return mapping;
+        } finally {
+            jarFile.delete();
+        }
+    }
+
+    /**
+     * Returns the internal names of the generated classes, interfaces first.
+     */
+    public List<String> getClassNames() {
+        Layout layout = new Layout();
+        List<String> names = new ArrayList<>(interfaceCount + classCount);
+        names.addAll(Arrays.asList(layout.interfaceNames));
+        names.addAll(Arrays.asList(layout.classNames));
+        return names;
+    }
+
+    private static void writeEntry(JarOutputStream jos, String name, byte[] data) throws IOException {
+        jos.putNextEntry(new JarEntry(name));
+        jos.write(data);
+        jos.closeEntry();
+    }
+
+    /**
+     * The seed-determined global structure shared by all class bodies.
+     */
+    private class Layout {
+        final String[] packages;
+        final String[] interfaceNames;
+        final String[] classNames;
+        final int[] superclass;
+        final int[][] implemented;
+        final int[] cycleNext;
+        final String[] resourceNames;
+
+        Layout() {
+            Random random = new Random(seed);
+
+            List<String> leaves = new ArrayList<>();
+            collectPackages(rootPackage, 0, leaves);
+            packages = leaves.toArray(new String[0]);
+
+            interfaceNames = new String[interfaceCount];
+            for (int i = 0; i < interfaceCount; i++) {
+                interfaceNames[i] = packages[random.nextInt(packages.length)] + "/Service" + i;
+            }
+
+            classNames = new String[classCount];
+            superclass = new int[classCount];
+            implemented = new int[classCount][];
+            int[] depth = new int[classCount];
+            for (int i = 0; i < classCount; i++) {
+                classNames[i] = packages[random.nextInt(packages.length)] + "/Type" + i;
+
+                superclass[i] = -1;
+                if (i > 0 && inheritanceDepth > 0 && random.nextDouble() < subclassRatio) {
+                    int candidate = random.nextInt(i);
+                    if (depth[candidate] < inheritanceDepth) {
+                        superclass[i] = candidate;
+                        depth[i] = depth[candidate] + 1;
+                    }
+                }
+
+                int count = Math.min(interfacesPerClass, interfaceCount);
+                Set<Integer> chosen = new LinkedHashSet<>();
+                while (chosen.size() < count) {
+                    chosen.add(random.nextInt(interfaceCount));
+                }
+                implemented[i] = chosen.stream().mapToInt(Integer::intValue).toArray();
+            }
+
+            cycleNext = new int[classCount];
+            Arrays.fill(cycleNext, -1);
+            List<Integer> free = new ArrayList<>(classCount);
+            for (int i = 0; i < classCount; i++) {
+                free.add(i);
+            }
+            Collections.shuffle(free, random);
+            for (int cycle = 0; cycle < cycleCount && free.size() >= cycleLength; cycle++) {
+                List<Integer> ring = new ArrayList<>(free.subList(free.size() - cycleLength, free.size()));
+                free.subList(free.size() - cycleLength, free.size()).clear();
+                for (int k = 0; k < ring.size(); k++) {
+                    cycleNext[ring.get(k)] = ring.get((k + 1) % ring.size());
+                }
+            }
+
+            resourceNames = new String[resourceCount];
+            for (int i = 0; i < resourceCount; i++) {
+                String extension = i % 2 == 0 ? ".properties" : ".bin";
+                resourceNames[i] = packages[random.nextInt(packages.length)] + "/resource" + i + extension;
+            }
+        }
+
+        private void collectPackages(String prefix, int level, List<String> leaves) {
+            if (level == packageDepth) {
+                leaves.add(prefix);
+                return;
+            }
+            for (int i = 0; i < packagesPerLevel; i++) {
+                collectPackages(prefix + "/p" + i, level + 1, leaves);
+            }
+        }
+    }
+
+    private byte[] generateInterface(Layout layout, int index) {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT,
+                layout.interfaceNames[index], null, "java/lang/Object", null);
+        cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "handle" + index, "(I)I", null, null).visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private byte[] generateClass(Layout layout, int index) {
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + index);
+        String name = layout.classNames[index];
+        String superName = layout.superclass[index] >= 0 ? layout.classNames[layout.superclass[index]] : "java/lang/Object";
+        String[] interfaceNames = Arrays.stream(layout.implemented[index])
+                .mapToObj(i -> layout.interfaceNames[i])
+                .toArray(String[]::new);
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return "java/lang/Object";
+            }
+        };
+        cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, superName, interfaceNames);
+
+        for (int f = 0; f < fieldsPerClass; f++) {
+            cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, "field" + f, "I", null, null).visitEnd();
+        }
+
+        MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        for (int m = 0; m < methodsPerClass; m++) {
+            generateMethod(cw, layout, index, m, random);
+        }
+
+        for (int i : layout.implemented[index]) {
+            MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "handle" + i, "(I)I", null, null);
+            mv.visitCode();
+            mv.visitVarInsn(Opcodes.ILOAD, 1);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, name, "method" + random.nextInt(methodsPerClass), "(I)I", false);
+            mv.visitInsn(Opcodes.IRETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+
+        if (layout.cycleNext[index] >= 0) {
+            MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "cycle", "(I)I", null, null);
+            mv.visitCode();
+            Label done = new Label();
+            mv.visitVarInsn(Opcodes.ILOAD, 0);
+            mv.visitJumpInsn(Opcodes.IFLE, done);
+            mv.visitIincInsn(0, -1);
+            mv.visitVarInsn(Opcodes.ILOAD, 0);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, layout.classNames[layout.cycleNext[index]], "cycle", "(I)I", false);
+            mv.visitInsn(Opcodes.IRETURN);
+            mv.visitLabel(done);
+            mv.visitInsn(Opcodes.ICONST_0);
+            mv.visitInsn(Opcodes.IRETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private void generateMethod(ClassWriter cw, Layout layout, int index, int methodIndex, SplittableRandom random) {
+        String owner = layout.classNames[index];
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "method" + methodIndex, "(I)I", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ILOAD, 0);
+        mv.visitVarInsn(Opcodes.ISTORE, 1);
+
+        int emitted = 0;
+        while (emitted < instructionsPerMethod) {
+            int choice = random.nextInt(4);
+            if (choice == 0 && fieldsPerClass > 0) {
+                String field = "field" + random.nextInt(fieldsPerClass);
+                mv.visitFieldInsn(Opcodes.GETSTATIC, owner, field, "I");
+                mv.visitVarInsn(Opcodes.ILOAD, 1);
+                mv.visitInsn(Opcodes.IADD);
+                mv.visitFieldInsn(Opcodes.PUTSTATIC, owner, field, "I");
+                emitted += 4;
+            } else if (choice == 1) {
+                Label skip = new Label();
+                mv.visitVarInsn(Opcodes.ILOAD, 1);
+                mv.visitJumpInsn(Opcodes.IFGE, skip);
+                mv.visitIincInsn(1, random.nextInt(1, 64));
+                mv.visitLabel(skip);
+                emitted += 3;
+            } else {
+                mv.visitVarInsn(Opcodes.ILOAD, 1);
+                mv.visitIntInsn(Opcodes.SIPUSH, random.nextInt(1, Short.MAX_VALUE));
+                mv.visitInsn(choice == 2 ? Opcodes.IMUL : Opcodes.IXOR);
+                mv.visitVarInsn(Opcodes.ISTORE, 1);
+                emitted += 4;
+            }
+        }
+
+        for (int c = 0; c < callsPerMethod; c++) {
+            String target;
+            int targetMethod;
+            if (index > 0) {
+                target = layout.classNames[random.nextInt(index)];
+                targetMethod = random.nextInt(methodsPerClass);
+            } else if (methodIndex > 0) {
+                target = owner;
+                targetMethod = random.nextInt(methodIndex);
+            } else {
+                break;
+            }
+            mv.visitVarInsn(Opcodes.ILOAD, 1);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, target, "method" + targetMethod, "(I)I", false);
+            mv.visitVarInsn(Opcodes.ISTORE, 1);
+        }
+
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private byte[] generateResource(int index) {
+        SplittableRandom random = new SplittableRandom(~seed * 0x9E3779B97F4A7C15L + index);
+        if (index % 2 == 0) {
+            StringBuilder text = new StringBuilder(resourceSize + 32);
+            int key = 0;
+            while (text.length() < resourceSize) {
+                text.append("key").append(key++).append('=').append(random.nextLong()).append('\n');
+            }
+            text.setLength(resourceSize);
+            return text.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        byte[] data = new byte[resourceSize];
+        random.nextBytes(data);
+        return data;
+    }
+
+    private static int requireNonNegative(String name, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " must not be negative: " + value);
+        }
+        return value;
+    }
+
+    private static int requirePositive(String name, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+}
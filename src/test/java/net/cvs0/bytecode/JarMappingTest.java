@@ -2,13 +2,20 @@ package net.cvs0.bytecode;
 
 import net.cvs0.bytecode.clazz.ProgramClass;
 import net.cvs0.bytecode.clazz.LibraryClass;
+import net.cvs0.bytecode.util.ResourceHandle;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -104,4 +111,64 @@ class JarMappingTest {
     void testJarPath() {
         assertEquals("test.jar", jarMapping.getJarPath());
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testResourcesAreReadLazilyAndStreamedOnWrite() throws IOException {
+        byte[] stored = "stored-asset".repeat(100).getBytes();
+        byte[] deflated = "deflated-config".repeat(100).getBytes();
+        File source = writeJarWithResources(tempDir.resolve("source.jar").toFile(), stored, deflated);
+        
+        JarMapping loaded = JarMapping.fromJar(source.getPath());
+        ResourceHandle handle = loaded.getResourceHandle("assets/image.bin");
+        assertFalse(handle.isInMemory());
+        assertEquals(stored.length, handle.getSize());
+        assertArrayEquals(stored, loaded.getResource("assets/image.bin"));
+        assertArrayEquals(deflated, loaded.getResource("config.txt"));
+        
+        loaded.addResource("config.txt", "replaced".getBytes());
+        assertTrue(loaded.getResourceHandle("config.txt").isInMemory());
+        
+        File output = tempDir.resolve("output.jar").toFile();
+        loaded.writeToJar(output.getPath());
+        try (JarFile jar = new JarFile(output)) {
+            JarEntry asset = jar.getJarEntry("assets/image.bin");
+            assertEquals(ZipEntry.STORED, asset.getMethod());
+            assertArrayEquals(stored, jar.getInputStream(asset).readAllBytes());
+            assertArrayEquals("replaced".getBytes(), jar.getInputStream(jar.getJarEntry("config.txt")).readAllBytes());
+        }
+    }
+    
+    @Test
+    void testWritingOverSourceArchiveKeepsResources() throws IOException {
+        byte[] stored = "stored-asset".getBytes();
+        byte[] deflated = "deflated-config".getBytes();
+        File source = writeJarWithResources(tempDir.resolve("inplace.jar").toFile(), stored, deflated);
+        
+        JarMapping loaded = JarMapping.fromJar(source.getPath());
+        loaded.writeToJar(source.getPath());
+        
+        JarMapping reloaded = JarMapping.fromJar(source.getPath());
+        assertArrayEquals(stored, reloaded.getResource("assets/image.bin"));
+        assertArrayEquals(deflated, reloaded.getResource("config.txt"));
+    }
+    
+    private static File writeJarWithResources(File file, byte[] stored, byte[] deflated) throws IOException {
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(file))) {
+            JarEntry storedEntry = new JarEntry("assets/image.bin");
+            CRC32 crc = new CRC32();
+            crc.update(stored);
+            storedEntry.setMethod(ZipEntry.STORED);
+            storedEntry.setSize(stored.length);
+            storedEntry.setCompressedSize(stored.length);
+            storedEntry.setCrc(crc.getValue());
+            jos.putNextEntry(storedEntry);
+            jos.write(stored);
+            jos.closeEntry();
+            
+            jos.putNextEntry(new JarEntry("config.txt"));
+            jos.write(deflated);
+            jos.closeEntry();
+        }
+        return file;
+    }
+}
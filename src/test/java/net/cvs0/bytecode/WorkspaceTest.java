@@ -0,0 +1,128 @@
+package net.cvs0.bytecode;
+
+import net.cvs0.bytecode.analysis.DependencyAnalyzer;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkspaceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testIdenticalClassesAreDeduplicated() throws IOException {
+        byte[] shared = classBytes("lib/Shared", "java/lang/Object", 0);
+        File first = writeJar("first.jar", Map.of("lib/Shared.class", shared), Map.of());
+        File second = writeJar("second.jar", Map.of("lib/Shared.class", shared), Map.of());
+
+        Workspace workspace = Workspace.load(List.of(first, second), new ForkJoinPool(2));
+
+        assertEquals(1, workspace.getClassCount());
+        assertEquals(2, workspace.getClassEntryCount());
+        assertEquals(1, workspace.getDuplicateCount());
+        assertEquals(1, workspace.getConflicts().size());
+        assertTrue(workspace.getConflicts().get(0).isIdentical());
+
+        Workspace.Origin secondOrigin = workspace.getOrigins().get(1);
+        assertSame(workspace.getProgramClass("lib/Shared"), workspace.loadClass(secondOrigin, "lib/Shared"));
+    }
+
+    @Test
+    void testFirstArchiveOnClasspathWins() throws IOException {
+        File first = writeJar("first.jar",
+                Map.of("lib/Api.class", classBytes("lib/Api", "java/lang/Object", 1)),
+                Map.of("config.properties", "first"));
+        File second = writeJar("second.jar",
+                Map.of("lib/Api.class", classBytes("lib/Api", "java/lang/Object", 3),
+                        "lib/Extra.class", classBytes("lib/Extra", "java/lang/Object", 0)),
+                Map.of("config.properties", "second"));
+
+        Workspace workspace = Workspace.load(List.of(first, second));
+        Workspace.Origin firstOrigin = workspace.getOrigins().get(0);
+        Workspace.Origin secondOrigin = workspace.getOrigins().get(1);
+
+        assertSame(firstOrigin, workspace.getOrigin("lib/Api"));
+        assertSame(secondOrigin, workspace.getOrigin("lib/Extra"));
+        assertEquals(1, workspace.getProgramClass("lib/Api").getFields().size());
+        assertEquals(0, workspace.getDuplicateCount());
+
+        Workspace.Conflict conflict = workspace.getConflicts().get(0);
+        assertEquals("lib/Api", conflict.getClassName());
+        assertSame(firstOrigin, conflict.getWinner());
+        assertEquals(List.of(secondOrigin), conflict.getShadowed());
+        assertFalse(conflict.isIdentical());
+
+        ProgramClass shadowed = workspace.loadClass(secondOrigin, "lib/Api");
+        assertEquals(3, shadowed.getFields().size());
+        assertNotSame(workspace.getProgramClass("lib/Api"), shadowed);
+
+        assertArrayEquals("first".getBytes(StandardCharsets.UTF_8),
+                workspace.getMapping().getResource("config.properties"));
+        assertEquals(Set.of("config.properties"), secondOrigin.getResourceNames());
+    }
+
+    @Test
+    void testAnalysisSpansArchives() throws IOException {
+        File app = writeJar("app.jar",
+                Map.of("app/Main.class", classBytes("app/Main", "lib/Base", 0)), Map.of());
+        File lib = writeJar("lib.jar",
+                Map.of("lib/Base.class", classBytes("lib/Base", "java/lang/Object", 0),
+                        "lib/Unused.class", classBytes("lib/Unused", "java/lang/Object", 0)),
+                Map.of());
+
+        Workspace workspace = Workspace.load(List.of(app, lib));
+        Map<String, Set<String>> graph = DependencyAnalyzer.buildDependencyGraph(workspace.getMapping());
+        Set<String> reachable = DependencyAnalyzer.findReachableClasses(graph, List.of("app/Main"));
+
+        assertTrue(reachable.contains("lib/Base"));
+        assertTrue(reachable.contains("java/lang/Object"));
+        assertFalse(reachable.contains("lib/Unused"));
+        assertEquals(Set.of("app/Main", "lib/Unused"),
+                DependencyAnalyzer.findUnusedClasses(workspace.getMapping(), graph));
+    }
+
+    private static byte[] classBytes(String name, String superName, int fieldCount) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, superName, null);
+        for (int i = 0; i < fieldCount; i++) {
+            writer.visitField(Opcodes.ACC_PUBLIC, "field" + i, "I", null, null).visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private File writeJar(String fileName, Map<String, byte[]> classes, Map<String, String> resources)
+            throws IOException {
+        File jarFile = tempDir.resolve(fileName).toFile();
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jarFile))) {
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                jos.putNextEntry(new JarEntry(entry.getKey()));
+                jos.write(entry.getValue());
+                jos.closeEntry();
+            }
+            for (Map.Entry<String, String> entry : resources.entrySet()) {
+                jos.putNextEntry(new JarEntry(entry.getKey()));
+                jos.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                jos.closeEntry();
+            }
+        }
+        return jarFile;
+    }
+}
@@ -0,0 +1,69 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.LibraryClass;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CdsClassListTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testPredictedListFollowsReferencesAndOrdersSupertypesFirst() {
+        JarMapping mapping = new JarMapping("test.jar");
+        mapping.addClass(programClass("app/Main", "app/Service", "missing/Thing"));
+        mapping.addClass(programClass("app/Service", "java/lang/Object", "lib/Api"));
+        mapping.addClass(programClass("app/Unreached", "java/lang/Object"));
+        Map<String, LibraryClass> libraries = Map.of(
+                "java/lang/Object", libraryClass("java/lang/Object", null),
+                "lib/Api", libraryClass("lib/Api", "java/lang/Object", "lib/Base"),
+                "lib/Base", libraryClass("lib/Base", "java/lang/Object"));
+
+        List<String> classList = CdsClassList.compute(mapping, List.of("app/Main"), libraries::get);
+
+        assertEquals(List.of("java/lang/Object", "lib/Base", "lib/Api", "app/Service", "app/Main"), classList);
+    }
+
+    @Test
+    void testObservedListMergesAheadOfPrediction() throws IOException {
+        Path observed = tempDir.resolve("observed.classlist");
+        Files.writeString(observed, "# NOTE: Do not modify this file.\n"
+                + "java/lang/Object id: 0\n"
+                + "app/Plugin source: app.jar\n"
+                + "@lambda-proxy app/Main run ()Ljava/lang/Runnable; ()V REF_invokeStatic app/Main lambda$0 ()V ()V\n"
+                + "java/lang/Object\n");
+
+        List<String> merged = CdsClassList.merge(List.of("java/lang/Object", "app/Main"),
+                CdsClassList.read(observed));
+        assertEquals(List.of("java/lang/Object", "app/Plugin", "app/Main"), merged);
+
+        Path written = tempDir.resolve("app.classlist");
+        CdsClassList.write(merged, written);
+        assertEquals(merged, CdsClassList.read(written));
+    }
+
+    private static ProgramClass programClass(String name, String superName, String... interfaces) {
+        ProgramClass clazz = new ProgramClass(name);
+        clazz.setSuperName(superName);
+        clazz.setInterfaces(List.of(interfaces));
+        return clazz;
+    }
+
+    private static LibraryClass libraryClass(String name, String superName, String... interfaces) {
+        LibraryClass clazz = new LibraryClass(name);
+        clazz.setSuperName(superName);
+        clazz.setInterfaces(List.of(interfaces));
+        return clazz;
+    }
+}
@@ -0,0 +1,91 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.util.JarWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassOrderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JarMapping mapping;
+
+    @BeforeEach
+    void setUp() {
+        mapping = new JarMapping("test.jar");
+        mapping.addClass(programClass("app/Main", "app/core/Service"));
+        mapping.addClass(programClass("app/core/Service", "app/core/Base"));
+        mapping.addClass(programClass("app/core/Base", "java/lang/Object"));
+        mapping.addClass(programClass("app/util/Unused", "java/lang/Object"));
+        mapping.addClass(programClass("app/Alpha", "java/lang/Object"));
+        mapping.addResource(JarFile.MANIFEST_NAME,
+                "Manifest-Version: 1.0\r\nMain-Class: app.Main\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStartupOrderFollowsDependenciesFromMainClass() {
+        assertEquals(List.of("app/Main"), ClassOrder.findEntryPoints(mapping));
+        assertEquals(List.of("app/Main", "app/core/Service", "app/core/Base", "app/Alpha", "app/util/Unused"),
+                ClassOrder.startup(mapping));
+    }
+
+    @Test
+    void testClassLoadLogOrderComesFirst() throws IOException {
+        Path log = tempDir.resolve("classload.log");
+        Files.writeString(log, "[0.012s][info][class,load] java.lang.Object source: shared objects file\n"
+                + "[0.051s][info][class,load] app.Main source: file:/app.jar\n"
+                + "[0.052s][info][class,load] app.util.Unused source: file:/app.jar\n"
+                + "[Loaded app.Alpha from file:/app.jar]\n"
+                + "unrelated output\n");
+
+        assertEquals(List.of("app/Main", "app/util/Unused", "app/Alpha", "app/core/Service", "app/core/Base"),
+                ClassOrder.fromClassLoadLog(mapping, log));
+    }
+
+    @Test
+    void testJarWriterWritesClassesInOrder() throws IOException {
+        List<String> order = new ArrayList<>(ClassOrder.byName(mapping));
+        Collections.reverse(order);
+        order.remove("app/Alpha");
+        order.add(0, "app/Missing");
+
+        File jar = tempDir.resolve("ordered.jar").toFile();
+        JarWriter.write(mapping, jar, order);
+
+        List<String> written = new ArrayList<>();
+        try (JarFile jarFile = new JarFile(jar)) {
+            for (JarEntry entry : Collections.list(jarFile.entries())) {
+                if (entry.getName().endsWith(".class")) {
+                    written.add(entry.getName().substring(0, entry.getName().length() - ".class".length()));
+                }
+            }
+        }
+        assertEquals(List.of("app/util/Unused", "app/core/Service", "app/core/Base", "app/Main", "app/Alpha"),
+                written);
+    }
+
+    private static ProgramClass programClass(String name, String superName) {
+        ClassNode classNode = new ClassNode();
+        classNode.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name, null, superName, null);
+        return new ProgramClass(classNode);
+    }
+}
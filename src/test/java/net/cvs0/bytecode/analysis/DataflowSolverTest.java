@@ -0,0 +1,160 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramMethod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataflowSolverTest {
+
+    private ProgramMethod method;
+
+    @BeforeEach
+    void setUp() {
+        MethodNode methodNode = new MethodNode(Opcodes.ACC_PUBLIC, "count", "()I", null, null);
+        Label loop = new Label();
+        Label end = new Label();
+
+        methodNode.visitInsn(Opcodes.ICONST_0);
+        methodNode.visitVarInsn(Opcodes.ISTORE, 1);
+        methodNode.visitLabel(loop);
+        methodNode.visitVarInsn(Opcodes.ILOAD, 1);
+        methodNode.visitIntInsn(Opcodes.BIPUSH, 10);
+        methodNode.visitJumpInsn(Opcodes.IF_ICMPGE, end);
+        methodNode.visitIincInsn(1, 1);
+        methodNode.visitJumpInsn(Opcodes.GOTO, loop);
+        methodNode.visitLabel(end);
+        methodNode.visitVarInsn(Opcodes.ILOAD, 1);
+        methodNode.visitInsn(Opcodes.IRETURN);
+        methodNode.maxLocals = 2;
+        methodNode.maxStack = 2;
+
+        method = new ProgramMethod(methodNode);
+    }
+
+    @Test
+    void testControlFlowGraph() {
+        ControlFlowGraph cfg = method.getControlFlowGraph();
+
+        assertEquals(4, cfg.getBlockCount());
+        assertEquals(4, cfg.getReversePostOrder().size());
+        assertEquals(cfg.getEntryBlock(), cfg.getReversePostOrder().get(0));
+
+        BasicBlock header = cfg.getBlock(1);
+        assertEquals(2, header.getPredecessors().size());
+        assertEquals(2, header.getSuccessors().size());
+        assertTrue(cfg.getBlock(3).getSuccessors().isEmpty());
+        assertSame(cfg, method.getControlFlowGraph());
+    }
+
+    @Test
+    void testLiveness() {
+        ControlFlowGraph cfg = method.getControlFlowGraph();
+        DataflowResult result = method.solveDataflow(new LivenessProblem(method));
+
+        assertFalse(result.isSetIn(cfg.getEntryBlock(), 1));
+        assertTrue(result.isSetOut(cfg.getEntryBlock(), 1));
+        assertTrue(result.isSetIn(cfg.getBlock(1), 1));
+        assertTrue(result.isSetIn(cfg.getBlock(2), 1));
+        assertFalse(result.isSetOut(cfg.getBlock(3), 1));
+        assertFalse(result.isSetIn(cfg.getEntryBlock(), 0));
+    }
+
+    @Test
+    void testReachingDefinitions() {
+        ControlFlowGraph cfg = method.getControlFlowGraph();
+        ReachingDefinitionsProblem problem = new ReachingDefinitionsProblem(method);
+        DataflowResult result = DataflowSolver.solve(method, problem);
+
+        assertEquals(2, problem.getDefinitionCount());
+        BasicBlock exit = cfg.getBlock(3);
+        assertTrue(result.isSetIn(exit, 0));
+        assertTrue(result.isSetIn(exit, 1));
+        assertTrue(result.isSetOut(cfg.getEntryBlock(), 0));
+        assertFalse(result.isSetOut(cfg.getEntryBlock(), 1));
+        assertFalse(result.isSetOut(cfg.getBlock(2), 0));
+    }
+
+    @Test
+    void testHandlerSeesDefinitionsBeforeEachThrowingCall() {
+        MethodNode methodNode = new MethodNode(Opcodes.ACC_STATIC, "retry", "()I", null, null);
+        Label start = new Label();
+        Label end = new Label();
+        Label handler = new Label();
+        methodNode.visitTryCatchBlock(start, end, handler, "java/lang/RuntimeException");
+
+        methodNode.visitInsn(Opcodes.ICONST_0);
+        methodNode.visitVarInsn(Opcodes.ISTORE, 0);
+        methodNode.visitLabel(start);
+        methodNode.visitMethodInsn(Opcodes.INVOKESTATIC, "com/example/Io", "open", "()V", false);
+        methodNode.visitInsn(Opcodes.ICONST_1);
+        methodNode.visitVarInsn(Opcodes.ISTORE, 0);
+        methodNode.visitMethodInsn(Opcodes.INVOKESTATIC, "com/example/Io", "read", "()V", false);
+        methodNode.visitLabel(end);
+        methodNode.visitVarInsn(Opcodes.ILOAD, 0);
+        methodNode.visitInsn(Opcodes.IRETURN);
+        methodNode.visitLabel(handler);
+        methodNode.visitVarInsn(Opcodes.ASTORE, 1);
+        methodNode.visitVarInsn(Opcodes.ILOAD, 0);
+        methodNode.visitInsn(Opcodes.IRETURN);
+
+        ProgramMethod retry = new ProgramMethod(methodNode);
+        ControlFlowGraph cfg = retry.getControlFlowGraph();
+        ReachingDefinitionsProblem problem = new ReachingDefinitionsProblem(retry);
+        DataflowResult result = DataflowSolver.solve(retry, problem);
+
+        TryCatchBlockNode tryCatch = methodNode.tryCatchBlocks.get(0);
+        BasicBlock firstCall = cfg.getBlockForInstruction(methodNode.instructions.indexOf(tryCatch.start) + 1);
+        BasicBlock handlerBlock = cfg.getBlockForInstruction(methodNode.instructions.indexOf(tryCatch.handler));
+        assertTrue(firstCall.getSuccessors().contains(handlerBlock));
+        assertEquals(3, problem.getDefinitionCount());
+        assertTrue(result.isSetIn(handlerBlock, 0), "the store before the try block reaches the handler");
+        assertTrue(result.isSetIn(handlerBlock, 1), "the store inside the try block reaches the handler");
+        assertTrue(result.isSetOut(firstCall, 0));
+        assertFalse(result.isSetOut(firstCall, 1));
+    }
+
+    @Test
+    void testCacheInvalidatedOnInstructionChange() {
+        ControlFlowGraph cfg = method.getControlFlowGraph();
+
+        method.removeInstruction(method.getInstructionCount() - 1);
+
+        assertNotSame(cfg, method.getControlFlowGraph());
+    }
+
+    @Test
+    void testSolveAll() {
+        JarMapping mapping = new JarMapping("test.jar");
+        ProgramClass clazz = new ProgramClass("com/example/Counter");
+        clazz.addMethod(method);
+        clazz.addMethod(new ProgramMethod("empty", "()V", 0x0001));
+        mapping.addClass(clazz);
+
+        Map<String, DataflowResult> results = DataflowSolver.solveAll(mapping, LivenessProblem::new);
+
+        assertEquals(2, results.size());
+        assertEquals(4, results.get("com/example/Counter.count()I").getControlFlowGraph().getBlockCount());
+        assertTrue(results.get("com/example/Counter.empty()V").getControlFlowGraph().isEmpty());
+    }
+
+    @Test
+    void testBitVectors() {
+        long[] vector = BitVectors.full(70);
+
+        assertEquals(70, BitVectors.cardinality(vector));
+        BitVectors.unset(vector, 64);
+        assertFalse(BitVectors.get(vector, 64));
+        assertEquals(65, BitVectors.nextSetBit(vector, 64));
+        assertEquals(-1, BitVectors.nextSetBit(vector, 70));
+    }
+}
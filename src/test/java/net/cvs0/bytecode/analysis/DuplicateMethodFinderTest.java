@@ -0,0 +1,92 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.DuplicateMethodReport.DuplicateGroup;
+import net.cvs0.bytecode.util.JarReader;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateMethodFinderTest {
+
+    @Test
+    void testGroupsBodiesThatDifferOnlyInLocalSlots() throws IOException {
+        JarMapping mapping = new JarMapping("test.jar");
+        mapping.addClass(JarReader.readClass(buildClass("p/A", 1, 2, false)));
+        mapping.addClass(JarReader.readClass(buildClass("p/B", 2, 1, true)));
+        mapping.addClass(JarReader.readClass(buildClass("p/C", 3, 1, false)));
+
+        DuplicateMethodReport report = DuplicateMethodFinder.find(mapping);
+
+        assertEquals(6, report.getMethodCount());
+        assertEquals(2, report.getGroups().size());
+        DuplicateGroup sum = report.getGroups().get(0);
+        assertEquals(List.of("p/A.sum([I)I", "p/B.sum([I)I", "p/C.sum([I)I"), sum.getMethods());
+        assertTrue(sum.isStatic());
+        assertEquals(18, sum.getInstructionCount());
+        assertTrue(sum.getCodeLength() > sum.getInstructionCount());
+
+        DuplicateGroup difference = report.getGroups().get(1);
+        assertEquals(List.of("p/A.difference(II)I", "p/C.difference(II)I"), difference.getMethods());
+        assertEquals(4, difference.getCodeLength());
+
+        assertEquals(2L * sum.getCodeLength() + 4, report.getSavableBytes());
+        assertEquals(3, report.getDuplicateMethodCount());
+        assertTrue(report.toJson(5).contains("\"p/C.sum([I)I\""));
+    }
+
+    /**
+     * Builds a class whose {@code sum} adds up an array, keeping the total and the index in
+     * the given slots, and whose {@code difference} subtracts its arguments in either order.
+     */
+    private static byte[] buildClass(String name, int totalSlot, int indexSlot, boolean swapped) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+
+        MethodVisitor sum = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "sum", "([I)I", null, null);
+        sum.visitCode();
+        sum.visitInsn(Opcodes.ICONST_0);
+        sum.visitVarInsn(Opcodes.ISTORE, totalSlot);
+        sum.visitInsn(Opcodes.ICONST_0);
+        sum.visitVarInsn(Opcodes.ISTORE, indexSlot);
+        Label loop = new Label();
+        Label end = new Label();
+        sum.visitLabel(loop);
+        sum.visitVarInsn(Opcodes.ILOAD, indexSlot);
+        sum.visitVarInsn(Opcodes.ALOAD, 0);
+        sum.visitInsn(Opcodes.ARRAYLENGTH);
+        sum.visitJumpInsn(Opcodes.IF_ICMPGE, end);
+        sum.visitVarInsn(Opcodes.ILOAD, totalSlot);
+        sum.visitVarInsn(Opcodes.ALOAD, 0);
+        sum.visitVarInsn(Opcodes.ILOAD, indexSlot);
+        sum.visitInsn(Opcodes.IALOAD);
+        sum.visitInsn(Opcodes.IADD);
+        sum.visitVarInsn(Opcodes.ISTORE, totalSlot);
+        sum.visitIincInsn(indexSlot, 1);
+        sum.visitJumpInsn(Opcodes.GOTO, loop);
+        sum.visitLabel(end);
+        sum.visitVarInsn(Opcodes.ILOAD, totalSlot);
+        sum.visitInsn(Opcodes.IRETURN);
+        sum.visitMaxs(0, 0);
+        sum.visitEnd();
+
+        MethodVisitor difference = writer.visitMethod(Opcodes.ACC_STATIC, "difference", "(II)I", null, null);
+        difference.visitCode();
+        difference.visitVarInsn(Opcodes.ILOAD, swapped ? 1 : 0);
+        difference.visitVarInsn(Opcodes.ILOAD, swapped ? 0 : 1);
+        difference.visitInsn(Opcodes.ISUB);
+        difference.visitInsn(Opcodes.IRETURN);
+        difference.visitMaxs(0, 0);
+        difference.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
@@ -0,0 +1,150 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.JarDiffReport.ClassChange;
+import net.cvs0.bytecode.analysis.JarDiffReport.Kind;
+import net.cvs0.bytecode.analysis.JarDiffReport.MemberChange;
+import net.cvs0.bytecode.util.JarReader;
+import net.cvs0.bytecode.util.SyntheticJarGenerator;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JarDiffTest {
+
+    private static JarMapping generate() throws IOException {
+        return new SyntheticJarGenerator().seed(21).classCount(60).packageTree(1, 3).generateMapping();
+    }
+
+    @Test
+    void testIdenticalJarsHaveNoChanges() throws IOException {
+        JarDiffReport report = JarDiff.compare(generate(), generate());
+
+        assertTrue(report.isEmpty());
+        assertEquals(generate().getProgramClasses().size(), report.getUnchangedClassCount());
+        assertEquals(0, report.getSizeDelta());
+    }
+
+    @Test
+    void testConstantPoolAndMemberOrderAreIgnored() throws IOException {
+        JarMapping before = new JarMapping("before.jar");
+        before.addClass(JarReader.readClass(writeCalculator(false)));
+        JarMapping after = new JarMapping("after.jar");
+        after.addClass(JarReader.readClass(writeCalculator(true)));
+
+        JarDiffReport report = JarDiff.compare(before, after);
+        assertTrue(report.isEmpty(), report.toString());
+        assertEquals(1, report.getUnchangedClassCount());
+    }
+
+    private static byte[] writeCalculator(boolean reordered) {
+        ClassWriter classWriter = new ClassWriter(0);
+        classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "test/Calculator", null, "java/lang/Object", null);
+        if (reordered) {
+            classWriter.newConst("padding");
+            classWriter.newClass("java/lang/Math");
+        }
+        String[] order = reordered ? new String[] {"max", "twice"} : new String[] {"twice", "max"};
+        for (String name : order) {
+            MethodVisitor methodVisitor = classWriter.visitMethod(Opcodes.ACC_STATIC, name, "(I)I", null, null);
+            methodVisitor.visitCode();
+            methodVisitor.visitVarInsn(Opcodes.ILOAD, 0);
+            if (name.equals("twice")) {
+                methodVisitor.visitInsn(Opcodes.ICONST_2);
+                methodVisitor.visitInsn(Opcodes.IMUL);
+            } else {
+                methodVisitor.visitLdcInsn(100);
+                methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", "max", "(II)I", false);
+            }
+            methodVisitor.visitInsn(Opcodes.IRETURN);
+            methodVisitor.visitMaxs(2, 1);
+            methodVisitor.visitEnd();
+        }
+        classWriter.visitEnd();
+        return classWriter.toByteArray();
+    }
+
+    @Test
+    void testAnnotationsAndClassAttributesAreChanges() throws IOException {
+        JarMapping before = new JarMapping("before.jar");
+        before.addClass(JarReader.readClass(writeCalculator(false)));
+
+        JarMapping annotated = new JarMapping("annotated.jar");
+        annotated.addClass(JarReader.readClass(writeCalculator(false)));
+        MethodNode twice = annotated.getProgramClass("test/Calculator").getClassNode().methods.get(0);
+        twice.visitAnnotation("Ljava/lang/Deprecated;", true).visitEnd();
+
+        JarDiffReport report = JarDiff.compare(before, annotated);
+        ClassChange change = report.getClassChanges(Kind.MODIFIED).get(0);
+        assertFalse(change.isHeaderChanged());
+        assertEquals(List.of(twice.name + twice.desc),
+                change.getMethodChanges().stream().map(MemberChange::getName).toList());
+
+        JarMapping nested = new JarMapping("nested.jar");
+        nested.addClass(JarReader.readClass(writeCalculator(false)));
+        nested.getProgramClass("test/Calculator").getClassNode().visitNestMember("test/Calculator$Cache");
+
+        change = JarDiff.compare(before, nested).getClassChanges(Kind.MODIFIED).get(0);
+        assertTrue(change.isHeaderChanged());
+        assertTrue(change.getMethodChanges().isEmpty());
+    }
+
+    @Test
+    void testReportsClassAndMemberChanges() throws IOException {
+        JarMapping before = generate();
+        JarMapping after = generate();
+        List<String> names = after.getAllClassNames().stream().sorted().toList();
+        String modified = names.stream()
+                .filter(name -> after.getProgramClass(name).getClassNode().methods.stream()
+                        .anyMatch(method -> method.instructions.size() > 0))
+                .findFirst().orElseThrow();
+        String removed = names.stream().filter(name -> !name.equals(modified)).findFirst().orElseThrow();
+
+        after.removeClass(removed);
+        ClassNode classNode = after.getProgramClass(modified).getClassNode();
+        classNode.fields.add(new FieldNode(Opcodes.ACC_PRIVATE, "addedField", "J", null, null));
+        MethodNode methodNode = classNode.methods.stream()
+                .filter(method -> method.instructions.size() > 0).findFirst().orElseThrow();
+        methodNode.instructions.insert(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/Thread", "onSpinWait", "()V"));
+        ClassWriter classWriter = new ClassWriter(0);
+        classNode.accept(classWriter);
+        after.addClass(JarReader.readClass(classWriter.toByteArray()));
+        after.addClass(JarReader.readClass(writeCalculator(false)));
+
+        JarDiffReport report = JarDiff.compare(before, after);
+        assertEquals(before.getProgramClasses().size() - 2, report.getUnchangedClassCount());
+        assertEquals(List.of("test/Calculator"), names(report.getClassChanges(Kind.ADDED)));
+        assertEquals(List.of(removed), names(report.getClassChanges(Kind.REMOVED)));
+        assertEquals(List.of(modified), names(report.getClassChanges(Kind.MODIFIED)));
+
+        ClassChange change = report.getClassChanges(Kind.MODIFIED).get(0);
+        assertFalse(change.isHeaderChanged());
+        assertEquals(List.of("addedField"), change.getFieldChanges().stream().map(MemberChange::getName).toList());
+        assertEquals(Kind.ADDED, change.getFieldChanges().get(0).getKind());
+        assertEquals(1, change.getMethodChanges().size());
+        MemberChange method = change.getMethodChanges().get(0);
+        assertEquals(methodNode.name + methodNode.desc, method.getName());
+        assertEquals(Kind.MODIFIED, method.getKind());
+        assertEquals(1, method.getSizeDelta());
+        assertTrue(change.getSizeDelta() > 0);
+        assertEquals(Set.of("java/lang/Thread"), change.getAddedDependencies());
+        assertEquals(Set.of("java/lang/Thread"), report.getAddedEdges().get(modified));
+
+        assertEquals(report.getClassChanges().stream().mapToLong(ClassChange::getSizeDelta).sum(),
+                report.getSizeDelta());
+        assertTrue(report.toJson().contains("\"addedField\""));
+        assertTrue(report.toString().contains("~ " + modified));
+    }
+
+    private static List<String> names(List<ClassChange> changes) {
+        return changes.stream().map(ClassChange::getName).toList();
+    }
+}
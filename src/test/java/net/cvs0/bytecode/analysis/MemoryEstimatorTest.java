@@ -0,0 +1,110 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.MemoryReport.Category;
+import net.cvs0.bytecode.analysis.MemoryReport.Footprint;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.util.SyntheticJarGenerator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryEstimatorTest {
+
+    private static JarMapping mapping;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        mapping = new SyntheticJarGenerator()
+                .seed(11)
+                .classCount(120)
+                .packageTree(1, 3)
+                .resources(6, 4096)
+                .generateMapping();
+    }
+
+    @Test
+    void testTotalsAddUpAcrossPackagesAndClasses() {
+        MemoryReport report = MemoryEstimator.estimate(mapping);
+
+        long packageSum = report.getPackageFootprints().values().stream().mapToLong(Footprint::getTotalBytes).sum();
+        assertEquals(report.getTotalBytes(), packageSum);
+
+        long classSum = report.getClassFootprints().stream().mapToLong(Footprint::getTotalBytes).sum();
+        assertEquals(report.getTotalBytes() - report.getTotal().getBytes(Category.RESOURCES), classSum);
+
+        assertEquals(mapping.getProgramClasses().size(), report.getTotal().getClassCount());
+        assertEquals(mapping.getResourceCount(), report.getTotal().getResourceCount());
+        assertTrue(report.getTotal().getBytes(Category.RESOURCES) >= 6 * 4096);
+        for (Category category : new Category[]{Category.CLASS_NODE, Category.INSTRUCTIONS, Category.ATTRIBUTES, Category.MODEL}) {
+            assertTrue(report.getTotal().getBytes(category) > 0, category.name());
+        }
+    }
+
+    @Test
+    void testArchivedResourcesOnlyCostTheirHandle(@TempDir File tempDir) throws IOException {
+        File jarFile = new File(tempDir, "assets.jar");
+        new SyntheticJarGenerator().classCount(1).resources(4, 100_000).writeJar(jarFile);
+
+        MemoryReport report = MemoryEstimator.estimate(JarMapping.fromJar(jarFile.getPath()));
+        assertTrue(report.getTotal().getBytes(Category.RESOURCES) > 0);
+        assertTrue(report.getTotal().getBytes(Category.RESOURCES) < 100_000);
+    }
+
+    @Test
+    void testLargerClassesCostMore() {
+        JarMapping small = singleClassMapping(5);
+        JarMapping large = singleClassMapping(500);
+
+        long smallBytes = MemoryEstimator.estimate(small).getClassFootprints().get(0).getTotalBytes();
+        long largeBytes = MemoryEstimator.estimate(large).getClassFootprints().get(0).getTotalBytes();
+        assertTrue(largeBytes > smallBytes * 5, smallBytes + " vs " + largeBytes);
+    }
+
+    @Test
+    void testParallelEstimateMatchesPerClassEstimate() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            MemoryReport report = MemoryEstimator.estimate(mapping, pool);
+            for (Footprint footprint : report.getLargestClasses(5)) {
+                ProgramClass clazz = mapping.getProgramClass(footprint.getName());
+                assertEquals(MemoryEstimator.estimate(clazz).getTotalBytes(), footprint.getTotalBytes());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testLargestContributorsAreRankedAndFlagged() {
+        MemoryReport report = MemoryEstimator.estimate(mapping);
+
+        List<Footprint> largest = report.getLargestClasses(10);
+        for (int i = 1; i < largest.size(); i++) {
+            assertTrue(largest.get(i - 1).getTotalBytes() >= largest.get(i).getTotalBytes());
+        }
+
+        String json = report.toJson(2);
+        assertTrue(json.contains("\"largestClasses\":[{\"name\":\"" + largest.get(0).getName() + "\""));
+        assertEquals(2 + 2, json.split("\"flagged\":true", -1).length - 1);
+    }
+
+    private static JarMapping singleClassMapping(int instructionsPerMethod) {
+        try {
+            return new SyntheticJarGenerator()
+                    .classCount(1)
+                    .interfaces(0, 0)
+                    .instructionsPerMethod(instructionsPerMethod)
+                    .generateMapping();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package net.cvs0.bytecode.analysis;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramMethod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodFamiliesTest {
+
+    private JarMapping jarMapping;
+
+    @BeforeEach
+    void setUp() {
+        jarMapping = new JarMapping("test.jar");
+    }
+
+    @Test
+    void testInheritedImplementationJoinsInterfaceMethod() {
+        ProgramClass op = addClass("p/Op", "java/lang/Object", "m");
+        op.setAccess(Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT);
+        addClass("p/Base", "java/lang/Object", "m");
+        addClass("p/Impl", "p/Base", null).addInterface("p/Op");
+        addClass("p/Sub", "p/Impl", "m");
+        addClass("p/Other", "java/lang/Object", "m");
+
+        MethodFamilies families = MethodFamilies.resolve(jarMapping);
+
+        MethodFamilies.Family family = families.getFamily("p/Op", "m", "()V");
+        assertEquals(List.of("p/Base", "p/Op", "p/Sub"), family.getProgramClasses());
+        assertSame(family, families.getFamily("p/Sub", "m", "()V"));
+        assertNotSame(family, families.getFamily("p/Other", "m", "()V"));
+        assertTrue(family.isRenamable());
+        assertEquals(2, families.getFamilyCount());
+    }
+
+    @Test
+    void testLibraryOverridesAndUnresolvedSupertypes() {
+        addClass("p/Named", "java/lang/Object", null)
+                .addMethod(new ProgramMethod("toString", "()Ljava/lang/String;", Opcodes.ACC_PUBLIC));
+        addClass("p/Plugin", "missing/Base", "run");
+
+        MethodFamilies families = MethodFamilies.resolve(jarMapping);
+
+        MethodFamilies.Family toString = families.getFamily("p/Named", "toString", "()Ljava/lang/String;");
+        assertTrue(toString.isLibrary());
+        assertEquals(List.of("java/lang/Object"), toString.getLibraryClasses());
+        assertFalse(toString.isRenamable());
+
+        MethodFamilies.Family run = families.getFamily("p/Plugin", "run", "()V");
+        assertTrue(run.isUnresolved());
+        assertFalse(run.isRenamable());
+    }
+
+    @Test
+    void testStaticAndPrivateMethodsStandAlone() {
+        addClass("p/Base", "java/lang/Object", "m");
+        ProgramClass sub = new ProgramClass("p/Sub");
+        sub.setSuperName("p/Base");
+        sub.addMethod(new ProgramMethod("m", "()V", Opcodes.ACC_PRIVATE));
+        jarMapping.addClass(sub);
+
+        MethodFamilies families = MethodFamilies.resolve(jarMapping);
+
+        assertNotSame(families.getFamily("p/Base", "m", "()V"), families.getFamily("p/Sub", "m", "()V"));
+        assertEquals(1, families.getFamily("p/Sub", "m", "()V").size());
+    }
+
+    private ProgramClass addClass(String name, String superName, String methodName) {
+        ProgramClass clazz = new ProgramClass(name);
+        clazz.setSuperName(superName);
+        clazz.setAccess(Opcodes.ACC_PUBLIC);
+        if (methodName != null) {
+            clazz.addMethod(new ProgramMethod(methodName, "()V", Opcodes.ACC_PUBLIC));
+        }
+        jarMapping.addClass(clazz);
+        return clazz;
+    }
+}
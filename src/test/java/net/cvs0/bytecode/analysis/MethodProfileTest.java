@@ -0,0 +1,90 @@
+package net.cvs0.bytecode.analysis;
+
+import jdk.jfr.Recording;
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramMethod;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodProfileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testHottestMethodsCoverTheRequestedShare() {
+        MethodProfile profile = MethodProfile.fromCounts(Map.of(
+                "app/Codec.decode([B)V", 60L,
+                "app/Codec.encode([B)V", 25L,
+                "app/Server.handle()V", 10L,
+                "java/lang/String.length()I", 5L,
+                "app/Idle.run()V", 0L));
+
+        assertEquals(100, profile.getSampleCount());
+        assertEquals(0.6, profile.getHotness("app/Codec.decode([B)V"), 1e-9);
+        assertEquals(85, profile.getClassSamples("app/Codec"));
+        assertEquals(Set.of("app/Codec.decode([B)V"), profile.getHottestMethods(50));
+        assertEquals(List.of("app/Codec.decode([B)V", "app/Codec.encode([B)V", "app/Server.handle()V"),
+                List.copyOf(profile.getHottestMethods(90)));
+        assertEquals(4, profile.getHottestMethods(100).size());
+
+        JarMapping mapping = new JarMapping("test.jar");
+        mapping.addClass(programClass("app/Codec", "decode", "encode"));
+        mapping.addClass(programClass("app/Server", "handle"));
+        mapping.addClass(programClass("app/Idle", "run"));
+        assertEquals(0.95, profile.getCoverage(mapping), 1e-9);
+        assertEquals(List.of("app/Codec", "app/Server", "app/Idle"), ClassOrder.byProfile(mapping, profile));
+    }
+
+    @Test
+    void testReadsExecutionSamplesFromRecording() throws Exception {
+        Path file = tempDir.resolve("profile.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(MethodProfile.EXECUTION_SAMPLE).withPeriod(Duration.ofMillis(10));
+            recording.start();
+            long deadline = System.nanoTime() + Duration.ofMillis(500).toNanos();
+            long result = 0;
+            while (System.nanoTime() < deadline) {
+                result += spin(100_000);
+            }
+            recording.stop();
+            recording.dump(file);
+            assertNotEquals(42, result);
+        }
+
+        MethodProfile profile = MethodProfile.readRecording(file);
+        String spin = "net/cvs0/bytecode/analysis/MethodProfileTest.spin(I)J";
+        assertTrue(profile.getSampleCount() > 0);
+        assertTrue(profile.getSelfSamples(spin) > 0, profile.getSamples().keySet()::toString);
+        String caller = "net/cvs0/bytecode/analysis/MethodProfileTest.testReadsExecutionSamplesFromRecording()V";
+        assertTrue(profile.getTotalSamples(caller) >= profile.getSelfSamples(spin));
+    }
+
+    private static long spin(int iterations) {
+        long hash = 17;
+        for (int i = 0; i < iterations; i++) {
+            hash = hash * 31 + (hash >>> 7) + i;
+        }
+        return hash;
+    }
+
+    private static ProgramClass programClass(String name, String... methods) {
+        ProgramClass clazz = new ProgramClass(name);
+        for (String method : methods) {
+            clazz.addMethod(new ProgramMethod(new MethodNode(Opcodes.ACC_PUBLIC, method,
+                    method.equals("decode") || method.equals("encode") ? "([B)V" : "()V", null, null)));
+        }
+        return clazz;
+    }
+}
@@ -0,0 +1,95 @@
+package net.cvs0.bytecode.attribute;
+
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.LocalVariable;
+import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.util.JarReader;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttributeDecoderTest {
+
+    static int parseOrDefault(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Test
+    void testMethodAttributesAreDecodedFromClassFileOnFirstAccess() throws IOException {
+        byte[] classBytes;
+        try (InputStream in = AttributeDecoderTest.class.getResourceAsStream("AttributeDecoderTest.class")) {
+            classBytes = in.readAllBytes();
+        }
+        ProgramClass clazz = JarReader.readClass(classBytes);
+        ProgramMethod method = clazz.getMethod("parseOrDefault", "(Ljava/lang/String;)I");
+        assertFalse(method.areAttributesDecoded());
+        assertNotNull(method.getAttributeDecoder());
+
+        CodeAttribute code = method.getCodeAttribute();
+        assertTrue(method.areAttributesDecoded());
+        assertNull(method.getAttributeDecoder());
+
+        assertEquals(0x2A, code.getCodeBuffer().get(0) & 0xFF, "aload_0");
+        assertEquals(1, code.getExceptionHandlerCount());
+        CodeAttribute.ExceptionHandler handler = code.getExceptionHandlers().get(0);
+        assertEquals("java/lang/NumberFormatException", handler.getCatchType());
+        assertEquals(0, handler.getStartPc());
+        assertTrue(handler.getEndPc() > 0 && handler.getHandlerPc() >= handler.getEndPc());
+        assertTrue(handler.getHandlerPc() < code.getCodeLength());
+
+        CodeAttribute assembled = AttributeFactory.createCodeAttribute(method.getMethodNode());
+        assertEquals(code.getCodeLength(), assembled.getCodeLength());
+        assertEquals(code.getExceptionHandlers(), assembled.getExceptionHandlers());
+        assertEquals(code.getMaxStack(), assembled.getMaxStack());
+
+        assertEquals(Set.of("value", "e"),
+                method.getLocalVariables().stream().map(LocalVariable::getName).collect(Collectors.toSet()));
+        LocalVariable exception = method.getLocalVariables().stream()
+                .filter(variable -> variable.getName().equals("e")).findFirst().orElseThrow();
+        assertEquals(handler.getHandlerPc() + 1, exception.getStartPc());
+        assertTrue(code.getCodeAttributes().stream().anyMatch(Attribute::isLineNumberTable));
+    }
+
+    @Test
+    void testEagerReadKeepsNoDecoder() throws IOException {
+        byte[] classBytes;
+        try (InputStream in = AttributeDecoderTest.class.getResourceAsStream("AttributeDecoderTest.class")) {
+            classBytes = in.readAllBytes();
+        }
+        ProgramClass clazz = JarReader.readClass(classBytes, false);
+        ProgramMethod method = clazz.getMethod("parseOrDefault", "(Ljava/lang/String;)I");
+        assertNull(method.getAttributeDecoder());
+
+        CodeAttribute code = method.getCodeAttribute();
+        assertEquals(1, code.getExceptionHandlerCount());
+        assertEquals("java/lang/NumberFormatException", code.getExceptionHandlers().get(0).getCatchType());
+    }
+
+    @Test
+    void testCodeAttributeOfBuiltMethodHoldsAssembledBytecode() {
+        MethodNode methodNode = new MethodNode(Opcodes.ACC_STATIC, "one", "()I", null, null);
+        methodNode.instructions.add(new InsnNode(Opcodes.ICONST_1));
+        methodNode.instructions.add(new InsnNode(Opcodes.IRETURN));
+        methodNode.maxStack = 1;
+
+        ProgramMethod method = new ProgramMethod(methodNode);
+        assertFalse(method.areAttributesDecoded());
+        CodeAttribute code = method.getCodeAttribute();
+
+        assertArrayEquals(new byte[] {Opcodes.ICONST_1, (byte) Opcodes.IRETURN}, code.getCode());
+        assertEquals(1, code.getMaxStack());
+        assertEquals(0, code.getExceptionHandlerCount());
+    }
+}
@@ -3,6 +3,9 @@ package net.cvs0.bytecode.attribute;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -173,4 +176,34 @@ class AttributeTest {
         assertNotEquals(originalData[0], retrievedData[0]);
         assertEquals(originalData[0], attribute.getData()[0]);
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testReadOnlyViewsDoNotCopy() {
+        byte[] originalData = "test data".getBytes();
+        attribute.setData(originalData);
+        
+        ByteBuffer view = attribute.getDataBuffer();
+        assertTrue(view.isReadOnly());
+        assertEquals(originalData.length, view.remaining());
+        assertEquals(originalData.length, attribute.getDataLength());
+        assertEquals(ByteBuffer.wrap(originalData), view);
+        assertThrows(ReadOnlyBufferException.class, () -> view.put(0, (byte) 'X'));
+        view.get();
+        assertEquals(0, attribute.getDataBuffer().position());
+        
+        attribute.setProperty("key1", "value1");
+        attribute.setProperty("key2", 42);
+        Map<String, Object> seen = new HashMap<>();
+        attribute.forEachProperty(seen::put);
+        assertEquals(attribute.getProperties(), seen);
+        assertThrows(UnsupportedOperationException.class, () -> attribute.getPropertiesView().put("key3", 1));
+        attribute.setProperty("key3", 3);
+        assertEquals(3, attribute.getPropertiesView().get("key3"));
+        
+        CodeAttribute code = new CodeAttribute();
+        assertNull(code.getCodeBuffer());
+        code.setCode(new byte[] {0x2a, (byte) 0xb1});
+        assertEquals(2, code.getCodeBuffer().remaining());
+        assertEquals((byte) 0xb1, code.getCodeBuffer().get(1));
+    }
+}
@@ -0,0 +1,61 @@
+package net.cvs0.bytecode.event;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.DependencyAnalyzer;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    void testReadWriteAndAnalyzeEventsAreRecorded() throws Exception {
+        ClassNode classNode = new ClassNode();
+        classNode.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "com/example/Sample", null, "java/lang/Object", null);
+        
+        JarMapping source = new JarMapping("in.jar");
+        source.addClass(new ProgramClass(classNode));
+        source.addResource("config.properties", "key=value".getBytes());
+        
+        Path jarPath = tempDir.resolve("sample.jar");
+        Path recordingPath = tempDir.resolve("events.jfr");
+        
+        try (Recording recording = new Recording()) {
+            recording.enable(JarEntryReadEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(JarEntryWriteEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(DependencyGraphEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            
+            source.writeToJar(jarPath.toString());
+            JarMapping loaded = JarMapping.fromJar(jarPath.toString());
+            loaded.getResource("config.properties");
+            DependencyAnalyzer.buildDependencyGraph(loaded);
+            
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+        
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingPath);
+        
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("net.cvs0.bytecode.JarEntryWrite")
+                && "com/example/Sample".equals(e.getString("className"))));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("net.cvs0.bytecode.JarEntryRead")
+                && "config.properties".equals(e.getString("entryName")) && e.getLong("bytes") == 9));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("net.cvs0.bytecode.DependencyGraph")
+                && e.getInt("classCount") == 1));
+    }
+}
@@ -0,0 +1,146 @@
+package net.cvs0.bytecode.instruction;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.DependencyAnalyzer;
+import net.cvs0.bytecode.analysis.UnusedCodeAnalyzer;
+import net.cvs0.bytecode.clazz.CompactClass;
+import net.cvs0.bytecode.util.JarReader;
+import net.cvs0.bytecode.util.SyntheticJarGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactCodeTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testInstructionsMatchTreeReadByAsm() throws IOException {
+        for (Class<?> type : List.of(CompactCode.class, DependencyAnalyzer.class, JarReader.class, String.class)) {
+            byte[] classBytes;
+            try (InputStream in = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+                classBytes = in.readAllBytes();
+            }
+            ClassNode classNode = new ClassNode();
+            new ClassReader(classBytes).accept(classNode, 0);
+            CompactClass compact = CompactClass.read(classBytes);
+
+            assertEquals(classNode.methods.size(), compact.getMethods().size());
+            for (int m = 0; m < classNode.methods.size(); m++) {
+                assertSameCode(classNode.methods.get(m), compact.getMethods().get(m));
+            }
+        }
+    }
+
+    private static void assertSameCode(MethodNode methodNode, CompactClass.Method method) {
+        String where = method.getName() + method.getDescriptor();
+        assertEquals(methodNode.name + methodNode.desc, where);
+        List<AbstractInsnNode> real = new ArrayList<>();
+        Map<LabelNode, Integer> labels = new HashMap<>();
+        for (AbstractInsnNode insn : methodNode.instructions) {
+            if (insn instanceof LabelNode label) {
+                labels.put(label, real.size());
+            } else if (insn.getOpcode() >= 0) {
+                real.add(insn);
+            }
+        }
+        CompactCode code = method.getCode();
+        assertEquals(real.size(), method.getInstructionCount(), where);
+
+        for (int i = 0; i < real.size(); i++) {
+            AbstractInsnNode insn = real.get(i);
+            assertEquals(insn.getOpcode(), code.getOpcode(i), where + " @" + i);
+            if (insn instanceof MethodInsnNode call) {
+                assertEquals(call.owner + "." + call.name + call.desc,
+                        code.getOwner(i) + "." + code.getName(i) + code.getDescriptor(i));
+            } else if (insn instanceof FieldInsnNode field) {
+                assertEquals(field.owner + "." + field.name + field.desc,
+                        code.getOwner(i) + "." + code.getName(i) + code.getDescriptor(i));
+            } else if (insn instanceof InvokeDynamicInsnNode indy) {
+                assertEquals(indy.name + indy.desc, code.getName(i) + code.getDescriptor(i));
+            } else if (insn instanceof TypeInsnNode typeInsn) {
+                assertEquals(typeInsn.desc, code.getTypeName(i));
+            } else if (insn instanceof VarInsnNode var) {
+                assertEquals(var.var, code.getOperand(i));
+            } else if (insn instanceof IincInsnNode iinc) {
+                assertEquals(iinc.var, code.getOperand(i) >>> 16);
+                assertEquals(iinc.incr, code.getIncrement(i));
+            } else if (insn instanceof IntInsnNode intInsn) {
+                assertEquals(intInsn.operand, code.getOperand(i));
+            } else if (insn instanceof JumpInsnNode jump) {
+                assertEquals(labels.get(jump.label), code.getJumpTarget(i), where + " @" + i);
+            } else if (insn instanceof TableSwitchInsnNode table) {
+                assertSwitch(labels, table.dflt, table.labels, code.getSwitchTargets(i));
+            } else if (insn instanceof LookupSwitchInsnNode lookup) {
+                assertSwitch(labels, lookup.dflt, lookup.labels, code.getSwitchTargets(i));
+            }
+        }
+
+        assertEquals(methodNode.tryCatchBlocks.size(), code == null ? 0 : code.getHandlerCount());
+        for (int h = 0; h < methodNode.tryCatchBlocks.size(); h++) {
+            TryCatchBlockNode block = methodNode.tryCatchBlocks.get(h);
+            assertEquals(labels.get(block.start), code.getHandlerStart(h));
+            assertEquals(labels.get(block.end), code.getHandlerEnd(h));
+            assertEquals(labels.get(block.handler), code.getHandlerTarget(h));
+        }
+    }
+
+    private static void assertSwitch(Map<LabelNode, Integer> labels, LabelNode dflt, List<LabelNode> targets,
+                                     int[] actual) {
+        List<Integer> expected = new ArrayList<>();
+        expected.add(labels.get(dflt));
+        for (LabelNode target : targets) {
+            expected.add(labels.get(target));
+        }
+        assertEquals(expected, Arrays.stream(actual).boxed().toList());
+    }
+
+    @Test
+    void testAnalyzersAgreeWithJarMapping() throws IOException {
+        File jarFile = new File(tempDir, "synthetic.jar");
+        new SyntheticJarGenerator().seed(5).classCount(80).packageTree(2, 2).cycles(2, 3).writeJar(jarFile);
+
+        JarMapping mapping = JarMapping.fromJar(jarFile.getPath());
+        List<CompactClass> classes = JarReader.readCompact(jarFile);
+        assertEquals(mapping.getProgramClasses().size(), classes.size());
+
+        assertEquals(DependencyAnalyzer.buildDependencyGraph(mapping), DependencyAnalyzer.buildDependencyGraph(classes));
+        assertEquals(UnusedCodeAnalyzer.findUnusedMethods(mapping), UnusedCodeAnalyzer.findUnusedMethods(classes));
+        assertEquals(UnusedCodeAnalyzer.findUnusedFields(mapping), UnusedCodeAnalyzer.findUnusedFields(classes));
+        assertEquals(UnusedCodeAnalyzer.getMethodComplexity(mapping), UnusedCodeAnalyzer.getMethodComplexity(classes));
+        assertTrue(UnusedCodeAnalyzer.findDeadCode(classes).isEmpty());
+    }
+
+    @Test
+    void testFindsCodeAfterReturn() {
+        ClassWriter classWriter = new ClassWriter(0);
+        classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "test/Dead", null, "java/lang/Object", null);
+        MethodVisitor methodVisitor = classWriter.visitMethod(Opcodes.ACC_STATIC, "dead", "()I", null, null);
+        methodVisitor.visitCode();
+        methodVisitor.visitInsn(Opcodes.ICONST_0);
+        methodVisitor.visitInsn(Opcodes.IRETURN);
+        methodVisitor.visitInsn(Opcodes.ICONST_1);
+        methodVisitor.visitInsn(Opcodes.IRETURN);
+        methodVisitor.visitMaxs(1, 0);
+        methodVisitor.visitEnd();
+        classWriter.visitEnd();
+
+        CompactClass clazz = CompactClass.read(classWriter.toByteArray());
+        CompactCode code = clazz.getMethods().get(0).getCode();
+        assertEquals(4, code.size());
+        assertEquals(BitSet.valueOf(new long[] {0b11}), code.findReachable());
+        assertEquals(Set.of("test/Dead.dead()I"), UnusedCodeAnalyzer.findDeadCode(List.of(clazz)));
+    }
+}
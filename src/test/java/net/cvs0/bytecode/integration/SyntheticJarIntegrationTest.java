@@ -0,0 +1,112 @@
+package net.cvs0.bytecode.integration;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.analysis.DependencyAnalyzer;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.util.JarWriter;
+import net.cvs0.bytecode.util.SyntheticJarGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticJarIntegrationTest {
+
+    @TempDir
+    File tempDir;
+
+    private SyntheticJarGenerator generator() {
+        return new SyntheticJarGenerator()
+                .seed(7)
+                .classCount(300)
+                .interfaces(10, 2)
+                .inheritance(3, 0.7)
+                .cycles(4, 3)
+                .resources(5, 256);
+    }
+
+    @Test
+    void testSameSeedProducesIdenticalEntries() throws IOException {
+        File first = new File(tempDir, "first.jar");
+        File second = new File(tempDir, "second.jar");
+        generator().writeJar(first);
+        generator().writeJar(second);
+
+        Map<String, byte[]> firstEntries = readEntries(first);
+        Map<String, byte[]> secondEntries = readEntries(second);
+        assertEquals(firstEntries.keySet(), secondEntries.keySet());
+        for (Map.Entry<String, byte[]> entry : firstEntries.entrySet()) {
+            assertArrayEquals(entry.getValue(), secondEntries.get(entry.getKey()), entry.getKey());
+        }
+
+        File reseeded = new File(tempDir, "reseeded.jar");
+        generator().seed(8).writeJar(reseeded);
+        assertNotEquals(firstEntries.keySet(), readEntries(reseeded).keySet());
+    }
+
+    @Test
+    void testGeneratedJarLoadsAndRoundTrips() throws IOException {
+        JarMapping mapping = generator().generateMapping();
+        assertEquals(310, mapping.getProgramClasses().size());
+        assertEquals(6, mapping.getResourceCount());
+
+        File output = new File(tempDir, "rewritten.jar");
+        JarWriter.write(mapping, output);
+        JarMapping reloaded = JarMapping.fromJar(output.getPath());
+        assertEquals(310, reloaded.getProgramClasses().size());
+        assertEquals(mapping.getResourceNames(), reloaded.getResourceNames());
+    }
+
+    @Test
+    void testPlantedCyclesAreDetected() throws IOException {
+        JarMapping mapping = generator().generateMapping();
+        Set<String> circular = DependencyAnalyzer.findCircularDependencies(mapping);
+
+        int cycleMembers = 0;
+        for (ProgramClass clazz : mapping.getProgramClasses()) {
+            if (clazz.getMethod("cycle", "(I)I") != null) {
+                cycleMembers++;
+                assertTrue(circular.contains(clazz.getName()), clazz.getName());
+            }
+        }
+        assertEquals(12, cycleMembers);
+    }
+
+    @Test
+    void testInheritanceDepthIsBounded() throws IOException {
+        JarMapping mapping = generator().generateMapping();
+        int deepest = 0;
+        for (ProgramClass clazz : mapping.getProgramClasses()) {
+            int depth = 0;
+            ProgramClass current = mapping.getProgramClass(clazz.getSuperName());
+            while (current != null) {
+                depth++;
+                current = mapping.getProgramClass(current.getSuperName());
+            }
+            deepest = Math.max(deepest, depth);
+        }
+        assertTrue(deepest > 0);
+        assertTrue(deepest <= 3);
+    }
+
+    private static Map<String, byte[]> readEntries(File file) throws IOException {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (JarFile jar = new JarFile(file)) {
+            Enumeration<JarEntry> enumeration = jar.entries();
+            while (enumeration.hasMoreElements()) {
+                JarEntry entry = enumeration.nextElement();
+                entries.put(entry.getName(), jar.getInputStream(entry).readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
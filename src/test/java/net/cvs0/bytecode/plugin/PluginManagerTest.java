@@ -1,11 +1,24 @@
 package net.cvs0.bytecode.plugin;
 
 import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -141,6 +154,248 @@ class PluginManagerTest {
         assertTrue(testPlugin.isCleanedUp());
     }
     
+    @Test
+    void testClassPluginsAreFusedIntoOneTraversal() {
+        JarMapping mapping = new JarMapping("test.jar");
+        for (int i = 0; i < 50; i++) {
+            mapping.addClass(new ProgramClass("com/example/Class" + i));
+        }
+        
+        Map<String, List<String>> visits = new ConcurrentHashMap<>();
+        TestClassPlugin first = new TestClassPlugin("First", 10, visits);
+        TestClassPlugin second = new TestClassPlugin("Second", 5, visits);
+        
+        PluginManager manager = new PluginManager(new ForkJoinPool(4));
+        manager.registerPlugin(second);
+        manager.registerPlugin(first);
+        manager.processWithPlugins(mapping);
+        
+        assertEquals(50, visits.size());
+        for (List<String> order : visits.values()) {
+            assertEquals(List.of("First", "Second"), order);
+        }
+    }
+    
+    @Test
+    void testWholeJarPluginSplitsFusedRuns() {
+        JarMapping mapping = new JarMapping("test.jar");
+        mapping.addClass(new ProgramClass("com/example/A"));
+        
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        Map<String, List<String>> visits = new ConcurrentHashMap<>();
+        TestClassPlugin high = new TestClassPlugin("High", 10, visits) {
+            @Override
+            public void processClass(ProgramClass clazz, JarMapping mapping) {
+                events.add("High");
+            }
+        };
+        TestPlugin middle = new TestPlugin("Middle") {
+            @Override
+            public void process(JarMapping mapping) {
+                events.add("Middle");
+            }
+            
+            @Override
+            public int getPriority() {
+                return 5;
+            }
+        };
+        TestClassPlugin low = new TestClassPlugin("Low", 1, visits) {
+            @Override
+            public void processClass(ProgramClass clazz, JarMapping mapping) {
+                events.add("Low");
+            }
+        };
+        
+        pluginManager.registerPlugin(low);
+        pluginManager.registerPlugin(middle);
+        pluginManager.registerPlugin(high);
+        pluginManager.processWithPlugins(mapping);
+        
+        assertEquals(List.of("High", "Middle", "Low"), events);
+    }
+    
+    @Test
+    void testNonConflictingPluginsRunConcurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        List<Boolean> overlapped = Collections.synchronizedList(new ArrayList<>());
+        
+        PluginManager manager = new PluginManager(new ForkJoinPool(4));
+        manager.registerPlugin(new ScopedPlugin("Metrics", 10, EnumSet.of(ModelPart.MEMBERS), EnumSet.noneOf(ModelPart.class), bothStarted, overlapped));
+        manager.registerPlugin(new ScopedPlugin("Resources", 5, EnumSet.of(ModelPart.RESOURCES), EnumSet.of(ModelPart.RESOURCES), bothStarted, overlapped));
+        
+        assertTrue(manager.getSchedule().getTasks().stream().allMatch(task -> task.getDependencies().isEmpty()));
+        
+        manager.processWithPlugins(new JarMapping("test.jar"));
+        
+        assertEquals(List.of(true, true), overlapped);
+    }
+    
+    @Test
+    void testConflictingPluginsKeepPriorityOrder() {
+        ScopedPlugin writer = new ScopedPlugin("Writer", 10, EnumSet.of(ModelPart.MEMBERS), EnumSet.of(ModelPart.MEMBERS), null, null);
+        ScopedPlugin reader = new ScopedPlugin("Reader", 5, EnumSet.of(ModelPart.MEMBERS), EnumSet.noneOf(ModelPart.class), null, null);
+        pluginManager.registerPlugin(reader);
+        pluginManager.registerPlugin(writer);
+        
+        PluginSchedule schedule = pluginManager.getSchedule();
+        
+        assertEquals(List.of(writer, reader), schedule.getOrderedPlugins());
+        assertEquals(1, schedule.getTasks().get(1).getDependencies().size());
+    }
+    
+    @Test
+    void testRunsAfterOverridesPriority() {
+        ScopedPlugin first = new ScopedPlugin("First", 10, EnumSet.noneOf(ModelPart.class), EnumSet.noneOf(ModelPart.class), null, null) {
+            @Override
+            public Set<String> getRunsAfter() {
+                return Set.of("Second");
+            }
+        };
+        ScopedPlugin second = new ScopedPlugin("Second", 5, EnumSet.noneOf(ModelPart.class), EnumSet.noneOf(ModelPart.class), null, null);
+        pluginManager.registerPlugin(first);
+        pluginManager.registerPlugin(second);
+        
+        PluginSchedule schedule = pluginManager.getSchedule();
+        
+        assertEquals(List.of(second, first), schedule.getOrderedPlugins());
+        assertEquals(1, schedule.getTasks().get(1).getDependencies().size());
+    }
+    
+    @Test
+    void testCyclicConstraintsAreRejected() {
+        ScopedPlugin first = new ScopedPlugin("First", 10, EnumSet.noneOf(ModelPart.class), EnumSet.noneOf(ModelPart.class), null, null) {
+            @Override
+            public Set<String> getRunsAfter() {
+                return Set.of("Second");
+            }
+        };
+        ScopedPlugin second = new ScopedPlugin("Second", 5, EnumSet.noneOf(ModelPart.class), EnumSet.noneOf(ModelPart.class), null, null) {
+            @Override
+            public Set<String> getRunsAfter() {
+                return Set.of("First");
+            }
+        };
+        pluginManager.registerPlugin(first);
+        pluginManager.registerPlugin(second);
+        
+        assertThrows(IllegalStateException.class, () -> pluginManager.processWithPlugins(new JarMapping("test.jar")));
+    }
+    
+    @Test
+    void testMetricsAreRecordedPerPlugin() {
+        JarMapping mapping = new JarMapping("test.jar");
+        mapping.addClass(new ProgramClass("com/example/A"));
+        mapping.addClass(new ProgramClass("com/example/B"));
+        
+        TestClassPlugin classPlugin = new TestClassPlugin("PerClass", 10, new ConcurrentHashMap<>());
+        TestPlugin failing = new TestPlugin("Failing") {
+            @Override
+            public void process(JarMapping mapping) {
+                throw new IllegalStateException("boom");
+            }
+        };
+        pluginManager.registerPlugin(classPlugin);
+        pluginManager.registerPlugin(failing);
+        
+        pluginManager.processWithPlugins(mapping);
+        
+        PluginMetrics perClass = pluginManager.getMetrics("PerClass");
+        assertEquals(2, perClass.getInvocations());
+        assertEquals(2, perClass.getClassesProcessed());
+        assertEquals(0, perClass.getFailures());
+        assertTrue(perClass.getWallTimeNanos() > 0);
+        
+        PluginMetrics failed = pluginManager.getMetrics("Failing");
+        assertEquals(1, failed.getFailures());
+        assertTrue(failed.getLastError().contains("boom"));
+        
+        String summary = pluginManager.getMetricsSummary();
+        assertTrue(summary.startsWith("{\"wallTimeNanos\":"));
+        assertTrue(summary.contains("\"name\":\"PerClass\""));
+        assertTrue(summary.contains("\"failures\":1"));
+    }
+    
+    @Test
+    void testMetricsMBeanRegistration() throws Exception {
+        pluginManager.registerPlugin(testPlugin);
+        pluginManager.registerMBeans();
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = PluginManager.getMBeanName("TestPlugin");
+        assertTrue(server.isRegistered(name));
+        assertEquals("TestPlugin", server.getAttribute(name, "PluginName"));
+        
+        pluginManager.clear();
+        assertFalse(server.isRegistered(name));
+    }
+    
+    private static class ScopedPlugin extends AbstractPlugin {
+        private final int priority;
+        private final Set<ModelPart> reads;
+        private final Set<ModelPart> writes;
+        private final CountDownLatch started;
+        private final List<Boolean> overlapped;
+        
+        ScopedPlugin(String name, int priority, Set<ModelPart> reads, Set<ModelPart> writes,
+                     CountDownLatch started, List<Boolean> overlapped) {
+            super(name, "1.0.0", "Scoped test plugin");
+            this.priority = priority;
+            this.reads = reads;
+            this.writes = writes;
+            this.started = started;
+            this.overlapped = overlapped;
+        }
+        
+        @Override
+        public void process(JarMapping mapping) {
+            if (started != null) {
+                started.countDown();
+                try {
+                    overlapped.add(started.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        
+        @Override
+        public Set<ModelPart> getReads() {
+            return reads;
+        }
+        
+        @Override
+        public Set<ModelPart> getWrites() {
+            return writes;
+        }
+        
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+    }
+    
+    private static class TestClassPlugin extends AbstractPlugin implements ClassPlugin {
+        private final int priority;
+        private final Map<String, List<String>> visits;
+        
+        TestClassPlugin(String name, int priority, Map<String, List<String>> visits) {
+            super(name, "1.0.0", "Per-class test plugin");
+            this.priority = priority;
+            this.visits = visits;
+        }
+        
+        @Override
+        public void processClass(ProgramClass clazz, JarMapping mapping) {
+            visits.computeIfAbsent(clazz.getName(), k -> Collections.synchronizedList(new ArrayList<>())).add(getName());
+        }
+        
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+    }
+    
     private static class TestPlugin extends AbstractPlugin {
         private boolean initialized = false;
         private boolean processed = false;
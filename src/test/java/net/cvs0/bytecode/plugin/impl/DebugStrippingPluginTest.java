@@ -0,0 +1,122 @@
+package net.cvs0.bytecode.plugin.impl;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.util.JarReader;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.LineNumberNode;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DebugStrippingPluginTest {
+
+    @Test
+    void testStripsEverythingByDefault() throws IOException {
+        JarMapping mapping = new JarMapping("test.jar");
+        mapping.addClass(buildClass("com/app/Service"));
+        mapping.addClass(buildClass("com/app/util/Strings"));
+
+        DebugStrippingPlugin plugin = strip(mapping, Map.of());
+
+        for (ProgramClass clazz : mapping.getProgramClasses()) {
+            assertNull(clazz.getClassNode().sourceFile);
+            ProgramMethod method = clazz.getMethod("size", "(Ljava/util/List;)I");
+            assertNull(method.getMethodNode().localVariables);
+            assertNull(method.getLocalVariableTableAttribute());
+            assertFalse(hasLineNumbers(method));
+            assertEquals(method.getMethodNode().instructions.size(), method.getInstructionCount());
+        }
+        DebugStrippingPlugin.Report report = plugin.getReport();
+        assertEquals(2, report.getClassCount());
+        assertEquals(Map.of("LineNumberTable", 2L, "LocalVariableTable", 2L, "LocalVariableTypeTable", 2L,
+                "SourceFile", 2L), report.getAttributeCounts());
+        assertTrue(report.getBytesSaved() > 0, report.toString());
+        assertEquals(report.getBytesBefore() - report.getBytesSaved(), report.getBytesAfter());
+    }
+
+    @Test
+    void testPackagePatternsAndAttributeSelection() throws IOException {
+        JarMapping mapping = new JarMapping("test.jar");
+        mapping.addClass(buildClass("com/app/Service"));
+        mapping.addClass(buildClass("com/app/keep/Api"));
+        mapping.addClass(buildClass("org/lib/Helper"));
+
+        DebugStrippingPlugin plugin = strip(mapping, Map.of(
+                "include", "com.app.**",
+                "exclude", "com/app/keep/*",
+                "attributes", "LocalVariableTypeTable"));
+
+        ProgramMethod service = mapping.getProgramClass("com/app/Service").getMethod("size", "(Ljava/util/List;)I");
+        assertNull(service.getMethodNode().localVariables.get(1).signature);
+        assertEquals("Ljava/util/List;", service.getMethodNode().localVariables.get(1).desc);
+        assertTrue(hasLineNumbers(service));
+        assertEquals("Service.java", mapping.getProgramClass("com/app/Service").getSourceFile());
+
+        for (String kept : new String[]{"com/app/keep/Api", "org/lib/Helper"}) {
+            ProgramMethod method = mapping.getProgramClass(kept).getMethod("size", "(Ljava/util/List;)I");
+            assertNotNull(method.getMethodNode().localVariables.get(1).signature, kept);
+        }
+        assertEquals(1, plugin.getReport().getClassCount());
+    }
+
+    @Test
+    void testRejectsNonDebugAttributes() {
+        DebugStrippingPlugin plugin = new DebugStrippingPlugin();
+        plugin.configure(Map.of("attributes", "LineNumberTable,Signature"));
+        assertThrows(IllegalArgumentException.class, plugin::initialize);
+    }
+
+    private static DebugStrippingPlugin strip(JarMapping mapping, Map<String, Object> configuration) {
+        DebugStrippingPlugin plugin = new DebugStrippingPlugin();
+        plugin.configure(configuration);
+        plugin.initialize();
+        plugin.process(mapping);
+        return plugin;
+    }
+
+    private static boolean hasLineNumbers(ProgramMethod method) {
+        for (var node : method.getMethodNode().instructions) {
+            if (node instanceof LineNumberNode) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds a class with a source file and a {@code size(List<String>)} method carrying line
+     * numbers and generic local variable entries.
+     */
+    private static ProgramClass buildClass(String name) throws IOException {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+        writer.visitSource(name.substring(name.lastIndexOf('/') + 1) + ".java", null);
+
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "size",
+                "(Ljava/util/List;)I", "(Ljava/util/List<Ljava/lang/String;>;)I", null);
+        method.visitCode();
+        Label start = new Label();
+        Label end = new Label();
+        method.visitLabel(start);
+        method.visitLineNumber(12, start);
+        method.visitVarInsn(Opcodes.ALOAD, 0);
+        method.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/util/List", "size", "()I", true);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitLabel(end);
+        method.visitLocalVariable("unused", "I", null, start, end, 1);
+        method.visitLocalVariable("values", "Ljava/util/List;", "Ljava/util/List<Ljava/lang/String;>;", start, end, 0);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        writer.visitEnd();
+
+        return JarReader.readClass(writer.toByteArray());
+    }
+}
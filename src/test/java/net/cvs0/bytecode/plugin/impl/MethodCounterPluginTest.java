@@ -0,0 +1,120 @@
+package net.cvs0.bytecode.plugin.impl;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.util.JarReader;
+import net.cvs0.bytecode.util.JarWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodCounterPluginTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testCountsInvocationsOfInstrumentedMethods() throws Exception {
+        JarMapping mapping = new JarMapping("test.jar");
+        mapping.addClass(JarReader.readClass(buildWorkClass("p/Work")));
+        mapping.addClass(JarReader.readClass(buildWorkClass("q/Skipped")));
+
+        // Without the shutdown hook the counts are only written by the explicit dump below,
+        // so nothing is written into the temporary directory after it is deleted.
+        Path output = tempDir.toPath().resolve("method-counters.bin");
+        MethodCounterPlugin plugin = new MethodCounterPlugin();
+        plugin.configure(Map.of("include", "p.**", "output", output.toString(), "shutdownHook", false));
+        plugin.initialize();
+        plugin.process(mapping);
+
+        assertEquals(List.of("p/Work.<init>()V", "p/Work.run(I)I", "p/Work.square(I)I"), plugin.getMethodKeys());
+        assertNotNull(mapping.getProgramClass(MethodCounterPlugin.DEFAULT_HOLDER));
+
+        File jar = new File(tempDir, "counted.jar");
+        JarWriter.write(mapping, jar);
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null)) {
+            assertEquals(285, loader.loadClass("p.Work").getMethod("run", int.class).invoke(null, 10));
+            assertEquals(285, loader.loadClass("q.Skipped").getMethod("run", int.class).invoke(null, 10));
+            assertEquals(204, loader.loadClass("p.Work").getMethod("run", int.class).invoke(null, 9));
+            loader.loadClass(MethodCounterPlugin.DEFAULT_HOLDER.replace('/', '.')).getMethod("dump").invoke(null);
+        }
+
+        assertEquals(Map.of("p/Work.square(I)I", 19L, "p/Work.run(I)I", 2L), MethodCounterPlugin.readCounts(output));
+    }
+
+    @Test
+    void testRejectsExistingHolderClass() throws Exception {
+        JarMapping mapping = new JarMapping("test.jar");
+        mapping.addClass(JarReader.readClass(buildWorkClass("p/Holder")));
+
+        MethodCounterPlugin plugin = new MethodCounterPlugin();
+        plugin.configure(Map.of("holderClass", "p.Holder"));
+        plugin.initialize();
+        assertThrows(IllegalStateException.class, () -> plugin.process(mapping));
+    }
+
+    /**
+     * Builds a class whose {@code run(n)} returns the sum of {@code square(i)} for
+     * {@code i < n}.
+     */
+    private static byte[] buildWorkClass(String name) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        MethodVisitor square = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "square", "(I)I", null, null);
+        square.visitCode();
+        square.visitVarInsn(Opcodes.ILOAD, 0);
+        square.visitVarInsn(Opcodes.ILOAD, 0);
+        square.visitInsn(Opcodes.IMUL);
+        square.visitInsn(Opcodes.IRETURN);
+        square.visitMaxs(0, 0);
+        square.visitEnd();
+
+        MethodVisitor run = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "run", "(I)I", null, null);
+        run.visitCode();
+        Label loop = new Label();
+        Label done = new Label();
+        run.visitInsn(Opcodes.ICONST_0);
+        run.visitVarInsn(Opcodes.ISTORE, 1);
+        run.visitInsn(Opcodes.ICONST_0);
+        run.visitVarInsn(Opcodes.ISTORE, 2);
+        run.visitLabel(loop);
+        run.visitVarInsn(Opcodes.ILOAD, 2);
+        run.visitVarInsn(Opcodes.ILOAD, 0);
+        run.visitJumpInsn(Opcodes.IF_ICMPGE, done);
+        run.visitVarInsn(Opcodes.ILOAD, 1);
+        run.visitVarInsn(Opcodes.ILOAD, 2);
+        run.visitMethodInsn(Opcodes.INVOKESTATIC, name, "square", "(I)I", false);
+        run.visitInsn(Opcodes.IADD);
+        run.visitVarInsn(Opcodes.ISTORE, 1);
+        run.visitIincInsn(2, 1);
+        run.visitJumpInsn(Opcodes.GOTO, loop);
+        run.visitLabel(done);
+        run.visitVarInsn(Opcodes.ILOAD, 1);
+        run.visitInsn(Opcodes.IRETURN);
+        run.visitMaxs(0, 0);
+        run.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
@@ -0,0 +1,133 @@
+package net.cvs0.bytecode.plugin.impl;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.util.JarReader;
+import net.cvs0.bytecode.util.JarWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodDeduplicationPluginTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testRedirectsCallsToSharedImplementation() throws Exception {
+        JarMapping mapping = new JarMapping("test.jar");
+        // p/A.run(a) returns twicePlusOne(sum(a)) + C.sum(a) through its private copies;
+        // p/B.run(a) and q/C.run(a) return twicePlusOne(sum(a)) through public ones.
+        mapping.addClass(JarReader.readClass(buildClass("p/A", Opcodes.ACC_PRIVATE, false, "q/C")));
+        mapping.addClass(JarReader.readClass(buildClass("p/B", Opcodes.ACC_PUBLIC, false, null)));
+        mapping.addClass(JarReader.readClass(buildClass("q/C", Opcodes.ACC_PUBLIC, true, null)));
+
+        MethodDeduplicationPlugin plugin = new MethodDeduplicationPlugin();
+        plugin.initialize();
+        plugin.process(mapping);
+
+        assertEquals(2, plugin.getReport().getGroups().size());
+        // B's copies are shared since C has a static initializer, which also keeps A's call
+        // to C.sum in place. A's private copies lose their callers; C's delegate to B.
+        assertEquals(List.of("p/A.sum([I)I", "p/A.twicePlusOne(I)I"), plugin.getRemovedMethods());
+        assertEquals(List.of("q/C.sum([I)I", "q/C.twicePlusOne(I)I"), plugin.getDelegatingMethods());
+        assertEquals(4, plugin.getRedirectedCalls());
+        assertNull(mapping.getProgramClass("p/A").getMethod("sum", "([I)I"));
+        assertEquals(1, mapping.getProgramClass("p/A").getClassNode().methods.size());
+
+        File jar = new File(tempDir, "deduplicated.jar");
+        JarWriter.write(mapping, jar);
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null)) {
+            int[] values = {1, 2, 3};
+            assertEquals(19, loader.loadClass("p.A").getMethod("run", int[].class).invoke(null, values));
+            assertEquals(13, loader.loadClass("p.B").getMethod("run", int[].class).invoke(null, values));
+            assertEquals(13, loader.loadClass("q.C").getMethod("run", int[].class).invoke(null, values));
+            assertEquals(6, loader.loadClass("q.C").getMethod("sum", int[].class).invoke(null, values));
+        }
+    }
+
+    /**
+     * Builds a class with static {@code sum(int[])} and {@code twicePlusOne(int)} methods of
+     * the given access, and a public static {@code run(int[])} that calls them, plus
+     * {@code other.sum} if {@code other} is not null.
+     */
+    private static byte[] buildClass(String name, int access, boolean staticInitializer, String other) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+
+        MethodVisitor sum = writer.visitMethod(access | Opcodes.ACC_STATIC, "sum", "([I)I", null, null);
+        sum.visitCode();
+        sum.visitInsn(Opcodes.ICONST_0);
+        sum.visitVarInsn(Opcodes.ISTORE, 1);
+        sum.visitInsn(Opcodes.ICONST_0);
+        sum.visitVarInsn(Opcodes.ISTORE, 2);
+        Label loop = new Label();
+        Label end = new Label();
+        sum.visitLabel(loop);
+        sum.visitVarInsn(Opcodes.ILOAD, 2);
+        sum.visitVarInsn(Opcodes.ALOAD, 0);
+        sum.visitInsn(Opcodes.ARRAYLENGTH);
+        sum.visitJumpInsn(Opcodes.IF_ICMPGE, end);
+        sum.visitVarInsn(Opcodes.ILOAD, 1);
+        sum.visitVarInsn(Opcodes.ALOAD, 0);
+        sum.visitVarInsn(Opcodes.ILOAD, 2);
+        sum.visitInsn(Opcodes.IALOAD);
+        sum.visitInsn(Opcodes.IADD);
+        sum.visitVarInsn(Opcodes.ISTORE, 1);
+        sum.visitIincInsn(2, 1);
+        sum.visitJumpInsn(Opcodes.GOTO, loop);
+        sum.visitLabel(end);
+        sum.visitVarInsn(Opcodes.ILOAD, 1);
+        sum.visitInsn(Opcodes.IRETURN);
+        sum.visitMaxs(0, 0);
+        sum.visitEnd();
+
+        MethodVisitor twicePlusOne = writer.visitMethod(access | Opcodes.ACC_STATIC, "twicePlusOne", "(I)I", null, null);
+        twicePlusOne.visitCode();
+        twicePlusOne.visitVarInsn(Opcodes.ILOAD, 0);
+        twicePlusOne.visitInsn(Opcodes.ICONST_2);
+        twicePlusOne.visitInsn(Opcodes.IMUL);
+        twicePlusOne.visitInsn(Opcodes.ICONST_1);
+        twicePlusOne.visitInsn(Opcodes.IADD);
+        twicePlusOne.visitInsn(Opcodes.IRETURN);
+        twicePlusOne.visitMaxs(0, 0);
+        twicePlusOne.visitEnd();
+
+        MethodVisitor run = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "run", "([I)I", null, null);
+        run.visitCode();
+        run.visitVarInsn(Opcodes.ALOAD, 0);
+        run.visitMethodInsn(Opcodes.INVOKESTATIC, name, "sum", "([I)I", false);
+        run.visitMethodInsn(Opcodes.INVOKESTATIC, name, "twicePlusOne", "(I)I", false);
+        if (other != null) {
+            run.visitVarInsn(Opcodes.ALOAD, 0);
+            run.visitMethodInsn(Opcodes.INVOKESTATIC, other, "sum", "([I)I", false);
+            run.visitInsn(Opcodes.IADD);
+        }
+        run.visitInsn(Opcodes.IRETURN);
+        run.visitMaxs(0, 0);
+        run.visitEnd();
+
+        if (staticInitializer) {
+            writer.visitField(Opcodes.ACC_STATIC, "initialized", "Z", null, null).visitEnd();
+            MethodVisitor clinit = writer.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+            clinit.visitCode();
+            clinit.visitInsn(Opcodes.ICONST_1);
+            clinit.visitFieldInsn(Opcodes.PUTSTATIC, name, "initialized", "Z");
+            clinit.visitInsn(Opcodes.RETURN);
+            clinit.visitMaxs(0, 0);
+            clinit.visitEnd();
+        }
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
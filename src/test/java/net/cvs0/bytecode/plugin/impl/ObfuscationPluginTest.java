@@ -0,0 +1,274 @@
+package net.cvs0.bytecode.plugin.impl;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.transform.NameAllocator;
+import net.cvs0.bytecode.util.JarReader;
+import net.cvs0.bytecode.util.JarWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObfuscationPluginTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testShortNamesGrowInLength() {
+        assertEquals("a", NameAllocator.shortName(0));
+        assertEquals("z", NameAllocator.shortName(25));
+        assertEquals("aa", NameAllocator.shortName(26));
+        assertEquals("zz", NameAllocator.shortName(701));
+        assertEquals("aaa", NameAllocator.shortName(702));
+
+        NameAllocator.Scope scope = new NameAllocator("").newScope();
+        scope.reserve("a");
+        scope.reserve("C");
+        assertEquals("b", scope.next());
+        assertEquals("d", scope.next());
+    }
+
+    @Test
+    void testOverloadsArePackedAndOverridesStayConsistent() throws IOException {
+        JarMapping mapping = buildProgram();
+        obfuscate(mapping);
+
+        ProgramClass op = findClass(mapping, ProgramClass::isInterface);
+        ProgramClass twice = findClass(mapping, clazz -> clazz.getMethod("toString", "()Ljava/lang/String;") != null);
+        assertTrue(op.getName().matches("p/[a-z]"), op.getName());
+        assertTrue(twice.getName().matches("p/[a-z]"), twice.getName());
+        String applyName = op.getMethods().iterator().next().getName();
+        assertTrue(applyName.matches("[a-z]"), applyName);
+        assertNotNull(twice.getMethod(applyName, "(I)I"), "implementation keeps the interface's name");
+        assertNotNull(twice.getMethod("a", "(J)J"), "a different descriptor is packed onto the same name");
+        assertNotNull(twice.getMethod("toString", "()Ljava/lang/String;"), "library overrides are kept");
+
+        ProgramClass base = mapping.getProgramClass(twice.getSuperName());
+        assertNotNull(base.getField("a"));
+        assertNotNull(twice.getField("b"), "subclass fields do not shadow inherited ones");
+        assertNotNull(mapping.getProgramClass("p/EntryMain"));
+    }
+
+    @Test
+    void testUnrelatedClassesReuseMethodNames() throws IOException {
+        JarMapping mapping = new JarMapping("program.jar");
+        mapping.addClass(JarReader.readClass(voidMethods("q/X", "java/lang/Object", "run1", "run2", "static util")));
+        mapping.addClass(JarReader.readClass(voidMethods("q/Y", "java/lang/Object", "run1", "run2")));
+        mapping.addClass(JarReader.readClass(voidMethods("q/Z", "q/X", "run3")));
+
+        obfuscate(mapping, Map.of("obfuscateClasses", false, "obfuscateFields", false));
+
+        assertEquals(Set.of("a", "b", "c"), methodNames(mapping.getProgramClass("q/X")));
+        assertEquals(Set.of("a", "b"), methodNames(mapping.getProgramClass("q/Y")),
+                "an unrelated class starts again at a");
+        assertEquals(Set.of("d"), methodNames(mapping.getProgramClass("q/Z")),
+                "a subclass skips the names it inherits, static ones included");
+    }
+
+    private static Set<String> methodNames(ProgramClass clazz) {
+        return clazz.getMethods().stream().map(ProgramMethod::getName).collect(Collectors.toSet());
+    }
+
+    /**
+     * Builds a class with an empty {@code ()V} method for each name, static if the name is
+     * prefixed with {@code "static "}.
+     */
+    private static byte[] voidMethods(String name, String superName, String... methods) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, superName, null);
+        for (String method : methods) {
+            boolean isStatic = method.startsWith("static ");
+            MethodVisitor visitor = writer.visitMethod(Opcodes.ACC_PUBLIC | (isStatic ? Opcodes.ACC_STATIC : 0),
+                    isStatic ? method.substring(7) : method, "()V", null, null);
+            visitor.visitCode();
+            visitor.visitInsn(Opcodes.RETURN);
+            visitor.visitMaxs(0, 0);
+            visitor.visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    @Test
+    void testObfuscatedProgramStillRuns() throws Exception {
+        JarMapping original = buildProgram();
+        JarMapping obfuscated = buildProgram();
+        obfuscate(obfuscated);
+
+        assertEquals(run(original, "original.jar"), run(obfuscated, "obfuscated.jar"));
+        assertEquals(16, run(obfuscated, "again.jar"));
+    }
+
+    @Test
+    void testAppliedMappingReproducesNames() throws Exception {
+        File mappingFile = new File(tempDir, "mapping.txt");
+        JarMapping first = buildProgram();
+        obfuscate(first, Map.of("printMapping", mappingFile.getPath()));
+        String printed = Files.readString(mappingFile.toPath());
+        assertTrue(printed.contains("p.Base -> p."), printed);
+        assertTrue(printed.contains("    int value -> a"), printed);
+
+        JarMapping second = buildProgram();
+        ClassWriter extra = new ClassWriter(0);
+        extra.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "p/Extra", null, "java/lang/Object", null);
+        extra.visitField(Opcodes.ACC_PUBLIC, "count", "I", null, null).visitEnd();
+        extra.visitEnd();
+        second.addClass(JarReader.readClass(extra.toByteArray()));
+        File secondMapping = new File(tempDir, "second.txt");
+        obfuscate(second, Map.of("applyMapping", mappingFile.getPath(), "printMapping", secondMapping.getPath()));
+
+        for (ProgramClass clazz : first.getProgramClasses()) {
+            ProgramClass same = second.getProgramClass(clazz.getName());
+            assertNotNull(same, clazz.getName());
+            assertEquals(clazz.getFields().size(), same.getFields().size());
+            for (ProgramMethod method : clazz.getMethods()) {
+                assertNotNull(same.getMethod(method.getName(), method.getDescriptor()), method.getFullName());
+            }
+        }
+        String extraName = Files.readString(secondMapping.toPath()).lines()
+                .filter(line -> line.startsWith("p.Extra -> "))
+                .findFirst().orElseThrow();
+        assertNull(first.getProgramClass(extraName.substring(11, extraName.length() - 1).replace('.', '/')),
+                "new classes do not take names from the applied mapping");
+        assertEquals(16, run(second, "second.jar"));
+    }
+
+    private static void obfuscate(JarMapping mapping) {
+        obfuscate(mapping, Map.of());
+    }
+
+    private static void obfuscate(JarMapping mapping, Map<String, Object> configuration) {
+        ObfuscationPlugin plugin = new ObfuscationPlugin();
+        plugin.configure(configuration);
+        plugin.initialize();
+        plugin.process(mapping);
+    }
+
+    private int run(JarMapping mapping, String fileName) throws Exception {
+        File jarFile = new File(tempDir, fileName);
+        JarWriter.write(mapping, jarFile);
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jarFile.toURI().toURL()}, null)) {
+            Method main = loader.loadClass("p.EntryMain").getMethod("main", int.class);
+            return (Integer) main.invoke(null, 5);
+        }
+    }
+
+    private static ProgramClass findClass(JarMapping mapping, Predicate<ProgramClass> predicate) {
+        for (ProgramClass clazz : mapping.getProgramClasses()) {
+            if (predicate.test(clazz)) {
+                return clazz;
+            }
+        }
+        return fail("no matching class");
+    }
+
+    /**
+     * Builds {@code Op.apply(I)I}, {@code Base.compute(I)I} with field {@code value}, and
+     * {@code Twice extends Base implements Op} with an extra field, an overload on another
+     * descriptor and {@code toString}. {@code EntryMain.main(I)I} calls through the subclass
+     * owner and the interface and returns {@code (x + 3) * 2}.
+     */
+    private static JarMapping buildProgram() throws IOException {
+        JarMapping mapping = new JarMapping("program.jar");
+
+        ClassWriter op = new ClassWriter(0);
+        op.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT,
+                "p/Op", null, "java/lang/Object", null);
+        op.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "apply", "(I)I", null, null).visitEnd();
+        op.visitEnd();
+        mapping.addClass(JarReader.readClass(op.toByteArray()));
+
+        ClassWriter base = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        base.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "p/Base", null, "java/lang/Object", null);
+        base.visitField(Opcodes.ACC_PUBLIC, "value", "I", null, null).visitEnd();
+        constructor(base, "java/lang/Object");
+        MethodVisitor compute = base.visitMethod(Opcodes.ACC_PUBLIC, "compute", "(I)I", null, null);
+        compute.visitCode();
+        compute.visitVarInsn(Opcodes.ILOAD, 1);
+        compute.visitVarInsn(Opcodes.ALOAD, 0);
+        compute.visitFieldInsn(Opcodes.GETFIELD, "p/Base", "value", "I");
+        compute.visitInsn(Opcodes.IADD);
+        compute.visitInsn(Opcodes.IRETURN);
+        compute.visitMaxs(0, 0);
+        compute.visitEnd();
+        base.visitEnd();
+        mapping.addClass(JarReader.readClass(base.toByteArray()));
+
+        ClassWriter twice = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        twice.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "p/Twice", null, "p/Base",
+                new String[]{"p/Op"});
+        twice.visitField(Opcodes.ACC_PUBLIC, "scale", "I", null, null).visitEnd();
+        constructor(twice, "p/Base");
+        MethodVisitor apply = twice.visitMethod(Opcodes.ACC_PUBLIC, "apply", "(I)I", null, null);
+        apply.visitCode();
+        apply.visitVarInsn(Opcodes.ALOAD, 0);
+        apply.visitVarInsn(Opcodes.ILOAD, 1);
+        apply.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "p/Twice", "compute", "(I)I", false);
+        apply.visitInsn(Opcodes.ICONST_2);
+        apply.visitInsn(Opcodes.IMUL);
+        apply.visitInsn(Opcodes.IRETURN);
+        apply.visitMaxs(0, 0);
+        apply.visitEnd();
+        MethodVisitor widen = twice.visitMethod(Opcodes.ACC_PUBLIC, "apply", "(J)J", null, null);
+        widen.visitCode();
+        widen.visitVarInsn(Opcodes.LLOAD, 1);
+        widen.visitInsn(Opcodes.LRETURN);
+        widen.visitMaxs(0, 0);
+        widen.visitEnd();
+        MethodVisitor toString = twice.visitMethod(Opcodes.ACC_PUBLIC, "toString", "()Ljava/lang/String;", null, null);
+        toString.visitCode();
+        toString.visitLdcInsn("twice");
+        toString.visitInsn(Opcodes.ARETURN);
+        toString.visitMaxs(0, 0);
+        toString.visitEnd();
+        twice.visitEnd();
+        mapping.addClass(JarReader.readClass(twice.toByteArray()));
+
+        ClassWriter entry = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        entry.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "p/EntryMain", null, "java/lang/Object", null);
+        MethodVisitor main = entry.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "main", "(I)I", null, null);
+        main.visitCode();
+        main.visitTypeInsn(Opcodes.NEW, "p/Twice");
+        main.visitInsn(Opcodes.DUP);
+        main.visitMethodInsn(Opcodes.INVOKESPECIAL, "p/Twice", "<init>", "()V", false);
+        main.visitInsn(Opcodes.DUP);
+        main.visitInsn(Opcodes.ICONST_3);
+        main.visitFieldInsn(Opcodes.PUTFIELD, "p/Twice", "value", "I");
+        main.visitVarInsn(Opcodes.ILOAD, 0);
+        main.visitMethodInsn(Opcodes.INVOKEINTERFACE, "p/Op", "apply", "(I)I", true);
+        main.visitInsn(Opcodes.IRETURN);
+        main.visitMaxs(0, 0);
+        main.visitEnd();
+        entry.visitEnd();
+        mapping.addClass(JarReader.readClass(entry.toByteArray()));
+
+        return mapping;
+    }
+
+    private static void constructor(ClassWriter writer, String superName) {
+        MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+    }
+}
@@ -0,0 +1,113 @@
+package net.cvs0.bytecode.plugin.impl;
+
+import net.cvs0.bytecode.JarMapping;
+import net.cvs0.bytecode.clazz.ProgramClass;
+import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.transform.InstructionTransformer;
+import net.cvs0.bytecode.util.JarReader;
+import net.cvs0.bytecode.util.JarWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.InsnNode;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfilePluginTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testColdUnmodifiedClassesKeepTheirFrames() throws Exception {
+        JarMapping mapping = new JarMapping("test.jar");
+        mapping.addClass(JarReader.readClass(buildSignClass("p/Hot")));
+        mapping.addClass(JarReader.readClass(buildSignClass("p/Cold")));
+        mapping.addClass(JarReader.readClass(buildSignClass("p/Edited")));
+        ProgramClass hot = mapping.getProgramClass("p/Hot");
+        ProgramClass cold = mapping.getProgramClass("p/Cold");
+        ProgramClass edited = mapping.getProgramClass("p/Edited");
+        assertFalse(cold.isModified());
+        assertTrue(JarWriter.needsFrames(cold), "without a profile every class gets fresh frames");
+
+        Path counts = writeCounts(Map.of("p/Hot.sign(I)I", 7L));
+        ProfilePlugin plugin = new ProfilePlugin();
+        plugin.configure(Map.of("counts", counts.toString()));
+        plugin.initialize();
+        plugin.process(mapping);
+
+        ProgramMethod sign = hot.getMethod("sign", "(I)I");
+        assertEquals(7, sign.getSelfSamples());
+        assertEquals(7, hot.getTotalSamples());
+        assertEquals(0, cold.getTotalSamples());
+        assertTrue(JarWriter.needsFrames(hot));
+        assertFalse(JarWriter.needsFrames(cold));
+
+        InstructionTransformer.forMethod(edited.getMethod("sign", "(I)I"))
+                .insertAtBeginning(new InsnNode(Opcodes.NOP));
+        assertTrue(edited.isModified());
+        assertTrue(JarWriter.needsFrames(edited), "edited code needs new frames even when cold");
+
+        File jar = new File(tempDir, "profiled.jar");
+        JarWriter.write(mapping, jar);
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null)) {
+            for (String name : new String[]{"p.Hot", "p.Cold", "p.Edited"}) {
+                assertEquals(-1, loader.loadClass(name).getMethod("sign", int.class).invoke(null, -5));
+            }
+        }
+    }
+
+    @Test
+    void testRequiresExactlyOneSource() {
+        ProfilePlugin plugin = new ProfilePlugin();
+        assertThrows(IllegalArgumentException.class, plugin::initialize);
+    }
+
+    private Path writeCounts(Map<String, Long> counts) throws IOException {
+        Path file = tempDir.toPath().resolve("counts.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(MethodCounterPlugin.MAGIC);
+            out.writeInt(MethodCounterPlugin.FORMAT_VERSION);
+            out.writeInt(counts.size());
+            for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Builds a class with {@code static int sign(int)}, whose branch needs a stack map frame.
+     */
+    private static byte[] buildSignClass(String name) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+        MethodVisitor sign = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "sign", "(I)I", null, null);
+        sign.visitCode();
+        Label negative = new Label();
+        sign.visitVarInsn(Opcodes.ILOAD, 0);
+        sign.visitJumpInsn(Opcodes.IFLT, negative);
+        sign.visitInsn(Opcodes.ICONST_1);
+        sign.visitInsn(Opcodes.IRETURN);
+        sign.visitLabel(negative);
+        sign.visitInsn(Opcodes.ICONST_M1);
+        sign.visitInsn(Opcodes.IRETURN);
+        sign.visitMaxs(0, 0);
+        sign.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
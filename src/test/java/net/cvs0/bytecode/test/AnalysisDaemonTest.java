@@ -0,0 +1,112 @@
+package net.cvs0.bytecode.test;
+
+import net.cvs0.bytecode.util.SyntheticJarGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class AnalysisDaemonTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path socket;
+    private AnalysisDaemon daemon;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        socket = tempDir.resolve("daemon.sock");
+        daemon = new AnalysisDaemon(socket, 2, 4);
+        daemon.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        daemon.close();
+    }
+
+    @Test
+    void testAnalyzeReusesCachedMapping() throws IOException {
+        SyntheticJarGenerator generator = new SyntheticJarGenerator().seed(5).classCount(100);
+        generator.writeJar(tempDir.resolve("app.jar").toFile());
+
+        DaemonClient.Response first = DaemonClient.send(socket, tempDir, List.of("analyze", "app.jar", "--json"));
+        DaemonClient.Response second = DaemonClient.send(socket, tempDir, List.of("analyze", "app.jar", "--json"));
+
+        assertEquals(0, first.getExitCode(), first.getErr());
+        assertEquals(0, second.getExitCode(), second.getErr());
+        assertTrue(second.getOut().contains("\"statistics\":{\"classes\":" + generator.getClassNames().size() + ","));
+
+        DaemonClient.Response status = DaemonClient.send(socket, tempDir, List.of("status"));
+        assertTrue(status.getOut().contains("Mappings: 1 cached, 1 hits, 1 misses"), status.getOut());
+    }
+
+    @Test
+    void testSocketIsOwnerOnly() throws IOException {
+        assumeTrue(socket.getFileSystem().supportedFileAttributeViews().contains("posix"));
+
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(socket));
+        try (var entries = Files.list(tempDir)) {
+            assertEquals(List.of(socket), entries.toList());
+        }
+        assertEquals(0, DaemonClient.send(socket, tempDir, List.of("status")).getExitCode());
+    }
+
+    @Test
+    void testUnresolvedUsesLibraryStubs() throws IOException {
+        writeJar(tempDir.resolve("app.jar").toFile(), "app/Main", "lib/Base");
+        writeJar(tempDir.resolve("lib.jar").toFile(), "lib/Base", "java/lang/Object");
+
+        DaemonClient.Response missing = DaemonClient.send(socket, tempDir, List.of("unresolved", "app.jar"));
+        assertEquals(1, missing.getExitCode());
+        assertTrue(missing.getOut().contains("lib/Base"));
+
+        DaemonClient.Response resolved = DaemonClient.send(socket, tempDir,
+                List.of("unresolved", "app.jar", "--library", "lib.jar"));
+        assertEquals(0, resolved.getExitCode(), resolved.getOut());
+        assertTrue(resolved.getOut().startsWith("0 unresolved classes"));
+    }
+
+    @Test
+    void testReportsErrorsAndStops() throws IOException, InterruptedException {
+        DaemonClient.Response missing = DaemonClient.send(socket, tempDir, List.of("analyze", "missing.jar"));
+        assertEquals(1, missing.getExitCode());
+        assertTrue(missing.getErr().contains("missing.jar"));
+
+        assertEquals(2, DaemonClient.send(socket, tempDir, List.of()).getExitCode());
+        assertThrows(IOException.class, () -> new AnalysisDaemon(socket, 1, 1).start());
+
+        DaemonClient.Response stop = DaemonClient.send(socket, tempDir, List.of("stop"));
+        assertEquals(0, stop.getExitCode());
+        daemon.awaitStop();
+        assertFalse(Files.exists(socket));
+    }
+
+    private static void writeJar(File jarFile, String className, String superName) throws IOException {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, className, null, superName, null);
+        writer.visitEnd();
+
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jarFile))) {
+            jos.putNextEntry(new JarEntry(className + ".class"));
+            jos.write(writer.toByteArray());
+            jos.closeEntry();
+        }
+    }
+}
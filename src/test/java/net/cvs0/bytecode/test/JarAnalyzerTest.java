@@ -0,0 +1,76 @@
+package net.cvs0.bytecode.test;
+
+import net.cvs0.bytecode.util.SyntheticJarGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JarAnalyzerTest {
+
+    @TempDir
+    File tempDir;
+
+    private File jarFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jarFile = new File(tempDir, "input.jar");
+        new SyntheticJarGenerator()
+                .seed(3)
+                .classCount(200)
+                .interfaces(5, 1)
+                .cycles(2, 2)
+                .resources(3, 64)
+                .writeJar(jarFile);
+    }
+
+    @Test
+    void testAnalyzeLoadsJarAndComputesAllSections() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            JarAnalyzer.Analysis analysis = JarAnalyzer.analyze(jarFile, pool);
+
+            assertEquals(205, analysis.statistics.classes);
+            assertEquals(5, analysis.statistics.interfaces);
+            assertEquals(205, analysis.dependencyGraph.size());
+            assertTrue(analysis.circularDependencies.size() >= 4);
+            assertEquals(205, analysis.largestClasses.size());
+            assertTrue(analysis.peakHeapBytes > 0);
+            for (String stage : JarAnalyzer.STAGES) {
+                assertTrue(analysis.stageNanos.containsKey(stage), stage);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testCommandWritesJsonReport() throws IOException {
+        File output = new File(tempDir, "report.json");
+        int exitCode = new CommandLine(new JarAnalyzer())
+                .execute(jarFile.getPath(), "--threads", "2", "--limit", "3", "--output", output.getPath());
+
+        assertEquals(0, exitCode);
+        String json = Files.readString(output.toPath());
+        assertTrue(json.startsWith("{\"jar\":"));
+        assertTrue(json.contains("\"threads\":2"));
+        assertTrue(json.contains("\"classes\":205"));
+        assertTrue(json.contains("\"stageNanos\":{\"load\":"));
+        assertTrue(json.contains("\"peakHeapBytes\":"));
+        assertTrue(json.contains("\"memory\":{\"total\":"));
+    }
+
+    @Test
+    void testCommandRejectsMissingJarAndBadThreadCount() {
+        assertEquals(1, new CommandLine(new JarAnalyzer()).execute(new File(tempDir, "missing.jar").getPath()));
+        assertEquals(1, new CommandLine(new JarAnalyzer()).execute(jarFile.getPath(), "--threads", "0"));
+    }
+}
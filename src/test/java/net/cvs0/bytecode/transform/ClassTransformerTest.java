@@ -4,13 +4,30 @@ import net.cvs0.bytecode.JarMapping;
 import net.cvs0.bytecode.clazz.ProgramClass;
 import net.cvs0.bytecode.member.ProgramField;
 import net.cvs0.bytecode.member.ProgramMethod;
+import net.cvs0.bytecode.util.JarReader;
+import net.cvs0.bytecode.util.JarWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class ClassTransformerTest {
     
+    @TempDir
+    File tempDir;
+    
     private JarMapping jarMapping;
     private ClassTransformer transformer;
     private ProgramClass testClass;
@@ -59,6 +76,174 @@ class ClassTransformerTest {
         assertEquals("newMethodName", testClass.getMethod("newMethodName", "()V").getName());
     }
     
+    @Test
+    void testRenameMethodRenamesWholeFamily() {
+        ProgramClass base = new ProgramClass("com/example/Base");
+        base.setSuperName("java/lang/Object");
+        base.addMethod(new ProgramMethod("run", "()V", 0x0001));
+        ProgramClass sub = new ProgramClass("com/example/Sub");
+        sub.setSuperName("com/example/Base");
+        sub.addMethod(new ProgramMethod("run", "()V", 0x0001));
+        MethodNode callNode = new MethodNode(0x0009, "call", "()V", null, null);
+        callNode.instructions.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, "com/example/Sub", "run", "()V"));
+        ProgramMethod caller = new ProgramMethod(callNode);
+        testClass.addMethod(caller);
+        jarMapping.addClass(base);
+        jarMapping.addClass(sub);
+        
+        transformer.renameMethod("com/example/Sub", "run", "()V", "a");
+        transformer.applyTransformations();
+        
+        assertNotNull(base.getMethod("a", "()V"));
+        assertNotNull(sub.getMethod("a", "()V"));
+        assertNull(base.getMethod("run", "()V"));
+        assertEquals("a", ((MethodInsnNode) caller.getMethodNode().instructions.getFirst()).name);
+    }
+    
+    @Test
+    void testRenameMethodRejectsLibraryOverridesAndConflicts() {
+        testClass.setSuperName("java/lang/Object");
+        testClass.addMethod(new ProgramMethod("toString", "()Ljava/lang/String;", 0x0001));
+        testClass.addMethod(new ProgramMethod("run", "()V", 0x0001));
+        testClass.addMethod(new ProgramMethod("stop", "()V", 0x0001));
+        
+        transformer.renameMethod("com/example/TestClass", "toString", "()Ljava/lang/String;", "a");
+        assertThrows(IllegalStateException.class, () -> transformer.applyTransformations());
+        assertNotNull(testClass.getMethod("toString", "()Ljava/lang/String;"));
+        
+        transformer.clearMappings();
+        transformer.renameMethod("com/example/TestClass", "run", "()V", "stop");
+        assertThrows(IllegalStateException.class, () -> transformer.applyTransformations());
+        
+        transformer.renameMethod("com/example/TestClass", "stop", "()V", "run");
+        transformer.applyTransformations();
+        assertEquals("stop", testClass.getMethod("stop", "()V").getName());
+        assertNotSame(testClass.getMethod("stop", "()V"), testClass.getMethod("run", "()V"));
+    }
+    
+    @Test
+    void testRenameMethodRejectsConflictsWithInheritedMethods() {
+        ProgramClass base = new ProgramClass("com/example/Base");
+        base.setSuperName("java/lang/Object");
+        base.addMethod(new ProgramMethod("stop", "()V", 0x0001));
+        base.addMethod(new ProgramMethod("start", "()V", 0x0001));
+        ProgramClass sub = new ProgramClass("com/example/Sub");
+        sub.setSuperName("com/example/Base");
+        sub.addMethod(new ProgramMethod("run", "()V", 0x0001));
+        sub.addMethod(new ProgramMethod("pause", "()V", 0x0001));
+        jarMapping.addClass(base);
+        jarMapping.addClass(sub);
+        
+        transformer.renameMethod("com/example/Sub", "run", "()V", "stop");
+        assertThrows(IllegalStateException.class, () -> transformer.applyTransformations());
+        assertNotNull(sub.getMethod("run", "()V"));
+        
+        transformer.clearMappings();
+        transformer.renameMethod("com/example/Base", "start", "()V", "pause");
+        assertThrows(IllegalStateException.class, () -> transformer.applyTransformations());
+        assertNotNull(base.getMethod("start", "()V"));
+        
+        transformer.renameMethod("com/example/Sub", "pause", "()V", "resume");
+        transformer.applyTransformations();
+        assertNotNull(base.getMethod("pause", "()V"));
+        assertNotNull(sub.getMethod("resume", "()V"));
+    }
+    
+    @Test
+    void testRenamedFunctionalInterfaceStillLinksLambdas() throws Exception {
+        JarMapping lambdaMapping = new JarMapping("lambda.jar");
+        lambdaMapping.addClass(JarReader.readClass(buildFunctionalInterface()));
+        lambdaMapping.addClass(JarReader.readClass(buildLambdaUser()));
+        ClassTransformer lambdaTransformer = new ClassTransformer(lambdaMapping);
+        lambdaTransformer.renameClass("p/Fn", "p/a");
+        lambdaTransformer.renameMethod("p/Fn", "apply", "(I)I", "b");
+        lambdaTransformer.renameMethod("p/Main", "lambda$run$0", "(I)I", "c");
+        lambdaTransformer.renameField("p/Main", "last", "d");
+        lambdaTransformer.applyTransformations();
+        
+        assertNotNull(lambdaMapping.getProgramClass("p/Main").getMethod("call", "(Lp/a;I)I"));
+        assertEquals("Lp/a;", lambdaMapping.getProgramClass("p/Main").getField("d").getDescriptor());
+        
+        File jar = new File(tempDir, "lambda.jar");
+        JarWriter.write(lambdaMapping, jar);
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null)) {
+            Class<?> main = loader.loadClass("p.Main");
+            assertEquals(42, main.getMethod("run", int.class).invoke(null, 41));
+            assertEquals("p.a", ((Class<?>) main.getMethod("type").invoke(null)).getName());
+            assertEquals("p.a", main.getDeclaredField("d").getType().getName());
+        }
+    }
+    
+    /**
+     * Builds {@code p/Fn}, an interface with a single {@code int apply(int)} method.
+     */
+    private static byte[] buildFunctionalInterface() {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE, "p/Fn", null,
+                "java/lang/Object", null);
+        writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "apply", "(I)I", null, null).visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+    
+    /**
+     * Builds {@code p/Main}, whose {@code run(int)} stores a lambda {@code x -> x + 1} of
+     * type {@code p/Fn} in a static field and passes it to {@code call(Fn, int)}, and whose
+     * {@code type()} returns {@code Fn.class} through an array class constant.
+     */
+    private static byte[] buildLambdaUser() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "p/Main", null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "last", "Lp/Fn;", null, null).visitEnd();
+        
+        MethodVisitor lambda = writer.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC,
+                "lambda$run$0", "(I)I", null, null);
+        lambda.visitCode();
+        lambda.visitVarInsn(Opcodes.ILOAD, 0);
+        lambda.visitInsn(Opcodes.ICONST_1);
+        lambda.visitInsn(Opcodes.IADD);
+        lambda.visitInsn(Opcodes.IRETURN);
+        lambda.visitMaxs(0, 0);
+        lambda.visitEnd();
+        
+        MethodVisitor call = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "call", "(Lp/Fn;I)I", null, null);
+        call.visitCode();
+        call.visitVarInsn(Opcodes.ALOAD, 0);
+        call.visitVarInsn(Opcodes.ILOAD, 1);
+        call.visitMethodInsn(Opcodes.INVOKEINTERFACE, "p/Fn", "apply", "(I)I", true);
+        call.visitInsn(Opcodes.IRETURN);
+        call.visitMaxs(0, 0);
+        call.visitEnd();
+        
+        Handle metafactory = new Handle(Opcodes.H_INVOKESTATIC, "java/lang/invoke/LambdaMetafactory", "metafactory",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;"
+                        + "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)"
+                        + "Ljava/lang/invoke/CallSite;", false);
+        MethodVisitor run = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "run", "(I)I", null, null);
+        run.visitCode();
+        run.visitInvokeDynamicInsn("apply", "()Lp/Fn;", metafactory, Type.getType("(I)I"),
+                new Handle(Opcodes.H_INVOKESTATIC, "p/Main", "lambda$run$0", "(I)I", false), Type.getType("(I)I"));
+        run.visitInsn(Opcodes.DUP);
+        run.visitFieldInsn(Opcodes.PUTSTATIC, "p/Main", "last", "Lp/Fn;");
+        run.visitVarInsn(Opcodes.ILOAD, 0);
+        run.visitMethodInsn(Opcodes.INVOKESTATIC, "p/Main", "call", "(Lp/Fn;I)I", false);
+        run.visitInsn(Opcodes.IRETURN);
+        run.visitMaxs(0, 0);
+        run.visitEnd();
+        
+        MethodVisitor type = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "type", "()Ljava/lang/Class;",
+                null, null);
+        type.visitCode();
+        type.visitLdcInsn(Type.getType("[Lp/Fn;"));
+        type.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Class", "getComponentType", "()Ljava/lang/Class;", false);
+        type.visitInsn(Opcodes.ARETURN);
+        type.visitMaxs(0, 0);
+        type.visitEnd();
+        
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+    
     @Test
     void testTransformClasses() {
         transformer.transformClasses(clazz -> {
@@ -0,0 +1,73 @@
+package net.cvs0.bytecode.transform;
+
+import net.cvs0.bytecode.member.ProgramMethod;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstructionTransformerTest {
+
+    @Test
+    void testBulkEditsKeepTheRestOfTheMethod() {
+        ProgramMethod method = buildMethod();
+        InstructionTransformer transformer = new InstructionTransformer(method);
+
+        transformer.removeInstructions(insn -> insn.getOpcode() == Opcodes.NOP);
+        assertEquals(List.of(Opcodes.ILOAD, Opcodes.ILOAD, Opcodes.IADD, Opcodes.IRETURN), opcodes(method));
+
+        transformer.insertAtBeginning(new InsnNode(Opcodes.NOP));
+        assertEquals(List.of(Opcodes.NOP, Opcodes.ILOAD, Opcodes.ILOAD, Opcodes.IADD, Opcodes.IRETURN),
+                opcodes(method));
+    }
+
+    @Test
+    void testIndexedEditsApplyOnce() {
+        ProgramMethod method = buildMethod();
+        InstructionTransformer transformer = new InstructionTransformer(method);
+
+        transformer.insertBefore(0, new InsnNode(Opcodes.ICONST_1));
+        transformer.insertAfter(0, new InsnNode(Opcodes.POP));
+        transformer.replaceInstruction(2, new InsnNode(Opcodes.ICONST_2));
+        transformer.removeInstruction(3);
+        transformer.replaceInstruction(2, new InsnNode(Opcodes.NOP));
+
+        assertEquals(List.of(Opcodes.ICONST_1, Opcodes.POP, Opcodes.NOP, Opcodes.NOP, Opcodes.ILOAD, Opcodes.IADD,
+                Opcodes.NOP, Opcodes.IRETURN), opcodes(method));
+    }
+
+    /**
+     * Builds {@code nop; iload 0; nop; iload 1; iadd; nop; ireturn}, checking that the method
+     * node and the instruction wrappers agree.
+     */
+    private static ProgramMethod buildMethod() {
+        MethodNode node = new MethodNode(Opcodes.ACC_STATIC, "add", "(II)I", null, null);
+        node.instructions.add(new InsnNode(Opcodes.NOP));
+        node.instructions.add(new VarInsnNode(Opcodes.ILOAD, 0));
+        node.instructions.add(new InsnNode(Opcodes.NOP));
+        node.instructions.add(new VarInsnNode(Opcodes.ILOAD, 1));
+        node.instructions.add(new InsnNode(Opcodes.IADD));
+        node.instructions.add(new InsnNode(Opcodes.NOP));
+        node.instructions.add(new InsnNode(Opcodes.IRETURN));
+        return new ProgramMethod(node);
+    }
+
+    private static List<Integer> opcodes(ProgramMethod method) {
+        List<Integer> opcodes = new ArrayList<>();
+        for (AbstractInsnNode insn : method.getMethodNode().instructions) {
+            opcodes.add(insn.getOpcode());
+        }
+        assertEquals(opcodes.size(), method.getInstructions().size());
+        for (int i = 0; i < opcodes.size(); i++) {
+            assertSame(method.getMethodNode().instructions.get(i), method.getInstructions().get(i).getInstructionNode());
+        }
+        return opcodes;
+    }
+}
@@ -0,0 +1,117 @@
+package net.cvs0.bytecode.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappingFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReadsProguardMapping() throws IOException {
+        Path file = tempDir.resolve("mapping.txt");
+        Files.writeString(file, "# compiler: R8\r\n"
+                + "com.example.Service -> a.b:\r\n"
+                + "    java.util.Map cache -> a\r\n"
+                + "    12:15:void process(java.lang.String,int[][]):40:43 -> b\n"
+                + "    1:1:long com.example.Util.inlined():7:7 -> b\n"
+                + "    boolean isReady() -> c\n"
+                + "\n"
+                + "com.example.Main -> com.example.Main:\n"
+                + "    void main(java.lang.String[]) -> main");
+
+        List<String> entries = read(file);
+
+        assertEquals(List.of(
+                "class com/example/Service a/b",
+                "field com/example/Service Ljava/util/Map; cache a",
+                "method com/example/Service process(Ljava/lang/String;[[I)V b",
+                "method com/example/Service isReady()Z c",
+                "class com/example/Main com/example/Main",
+                "method com/example/Main main([Ljava/lang/String;)V main"), entries);
+    }
+
+    @Test
+    void testReadsNonAsciiNames() throws IOException {
+        Path file = tempDir.resolve("mapping.txt");
+        Files.writeString(file, "com.exämple.Sérvice -> a:\n"
+                + "    com.exämple.Zähler count\u00e9 -> a\n"
+                + "    void \ud835\udc53(int) -> b\n");
+
+        assertEquals(List.of(
+                "class com/exämple/Sérvice a",
+                "field com/exämple/Sérvice Lcom/exämple/Zähler; count\u00e9 a",
+                "method com/exämple/Sérvice \ud835\udc53(I)V b"), read(file));
+    }
+
+    @Test
+    void testWrittenMappingReadsBack() throws IOException {
+        Path file = tempDir.resolve("mapping.txt");
+        try (MappingWriter writer = new MappingWriter(file)) {
+            writer.visitClass("com/example/Service", "a/b");
+            writer.visitField("com/example/Service", "[J", "counts", "a");
+            writer.visitMethod("com/example/Service", "run", "(ILjava/lang/Object;[Z)Ljava/util/List;", "b");
+            writer.visitMethod("com/example/Service", "stop", "()V", "c");
+        }
+
+        assertEquals("com.example.Service -> a.b:\n"
+                + "    long[] counts -> a\n"
+                + "    java.util.List run(int,java.lang.Object,boolean[]) -> b\n"
+                + "    void stop() -> c\n", Files.readString(file));
+        assertEquals(List.of(
+                "class com/example/Service a/b",
+                "field com/example/Service [J counts a",
+                "method com/example/Service run(ILjava/lang/Object;[Z)Ljava/util/List; b",
+                "method com/example/Service stop()V c"), read(file));
+    }
+
+    @Test
+    void testLinesSpanningBuffersAndMalformedInput() throws IOException {
+        Path file = tempDir.resolve("large.txt");
+        StringBuilder text = new StringBuilder();
+        String longName = "x".repeat(70_000);
+        text.append("p.").append(longName).append(" -> p.a:\n");
+        for (int i = 0; i < 20_000; i++) {
+            text.append("    int field").append(i).append(" -> f").append(i).append('\n');
+        }
+        Files.writeString(file, text);
+
+        List<String> entries = read(file);
+        assertEquals(20_001, entries.size());
+        assertEquals("class p/" + longName + " p/a", entries.get(0));
+        assertEquals("field p/" + longName + " I field19999 f19999", entries.get(20_000));
+
+        Files.writeString(file, "    int orphan -> a\n");
+        assertThrows(IOException.class, () -> read(file));
+    }
+
+    private static List<String> read(Path file) throws IOException {
+        List<String> entries = new ArrayList<>();
+        MappingReader.read(file, new MappingVisitor() {
+            @Override
+            public void visitClass(String oldName, String newName) {
+                entries.add("class " + oldName + " " + newName);
+            }
+
+            @Override
+            public void visitField(String className, String descriptor, String oldName, String newName) {
+                entries.add("field " + className + " " + descriptor + " " + oldName + " " + newName);
+            }
+
+            @Override
+            public void visitMethod(String className, String oldName, String descriptor, String newName) {
+                entries.add("method " + className + " " + oldName + descriptor + " " + newName);
+            }
+        });
+        return entries;
+    }
+}